@@ -2,8 +2,10 @@ package com.logitrack.b2b_tradehub;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class B2BTradeHubApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,148 @@
+package com.logitrack.b2b_tradehub.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what conditional GETs save on product and order reads. For each endpoint (uri pattern) and outcome
+ * (full = 200, not_modified = 304, other) it records the response body size (tradehub.http.conditional.bytes)
+ * and the CPU time of the request thread (tradehub.http.conditional.cpu).
+ * Saved bytes = count(not_modified) x mean(full bytes); saved CPU = count(not_modified) x (mean(full cpu) - mean(not_modified cpu)).
+ */
+@Component
+@RequiredArgsConstructor
+public class ConditionalGetMetricsFilter extends OncePerRequestFilter {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        // The export streams asynchronously, outside this filter's thread
+        return !"GET".equals(request.getMethod()) || path.startsWith("/api/orders/export")
+                || !(path.startsWith("/api/products") || path.startsWith("/api/orders"));
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain chain) throws ServletException, IOException {
+        boolean cpuSupported = THREADS.isCurrentThreadCpuTimeSupported();
+        long cpuStart = cpuSupported ? THREADS.getCurrentThreadCpuTime() : 0;
+        CountingResponse counting = new CountingResponse(response);
+        try {
+            chain.doFilter(request, counting);
+        } finally {
+            counting.flushWriter();
+            long cpu = cpuSupported ? THREADS.getCurrentThreadCpuTime() - cpuStart : -1;
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+            String outcome = counting.getStatus() == HttpStatus.NOT_MODIFIED.value() ? "not_modified"
+                    : counting.getStatus() == HttpStatus.OK.value() ? "full" : "other";
+            DistributionSummary.builder("tradehub.http.conditional.bytes")
+                    .description("Response body bytes of product and order reads")
+                    .baseUnit("bytes")
+                    .tags("uri", uri, "outcome", outcome)
+                    .register(meterRegistry)
+                    .record(counting.bytes);
+            if (cpu >= 0) {
+                Timer.builder("tradehub.http.conditional.cpu")
+                        .description("CPU time of the request thread for product and order reads")
+                        .tags("uri", uri, "outcome", outcome)
+                        .register(meterRegistry)
+                        .record(cpu, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    // Counts the body bytes written through the response
+    private static final class CountingResponse extends HttpServletResponseWrapper {
+
+        private long bytes;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        private CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream target = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        target.write(b);
+                        bytes++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        target.write(b, off, len);
+                        bytes += len;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        target.flush();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return target.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        target.setWriteListener(listener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), Charset.forName(getCharacterEncoding())), true);
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            flushWriter();
+            super.flushBuffer();
+        }
+
+        private void flushWriter() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.logitrack.b2b_tradehub.config;
+
+import com.logitrack.b2b_tradehub.exception.ConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry facility behind {@link RetryOnConflict}. Runs outside the transaction advisor so that every attempt
+ * gets a fresh transaction and fresh entity versions.
+ * Metrics: tradehub.conflicts.detected / tradehub.conflicts.retries / tradehub.conflicts.exhausted,
+ * tagged by operation and entity so hot rows show up.
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@RequiredArgsConstructor
+public class OptimisticRetryAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("@annotation(retryOnConflict)")
+    public Object retry(ProceedingJoinPoint joinPoint, RetryOnConflict retryOnConflict) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // Nested call: retrying here would reuse the caller's stale persistence context
+            return joinPoint.proceed();
+        }
+
+        String operation = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (ConcurrencyFailureException e) {
+                String entity = entityOf(e);
+                counter("tradehub.conflicts.detected", operation, entity).increment();
+                if (attempt >= retryOnConflict.maxAttempts()) {
+                    counter("tradehub.conflicts.exhausted", operation, entity).increment();
+                    log.warn("{} gave up after {} conflicting attempts on {}", operation, attempt, describe(e));
+                    throw new ConflictException("The resource was modified concurrently, please retry.", e);
+                }
+                counter("tradehub.conflicts.retries", operation, entity).increment();
+                log.debug("{} attempt {} conflicted on {}, retrying", operation, attempt, describe(e));
+                Thread.sleep(backoff(retryOnConflict, attempt));
+            }
+        }
+    }
+
+    // Exponential back-off with jitter in [delay/2, delay] so colliding callers spread out
+    private long backoff(RetryOnConflict config, int attempt) {
+        long delay = Math.min(config.maxBackoffMillis(), config.backoffMillis() << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(delay / 2, delay + 1);
+    }
+
+    private Counter counter(String name, String operation, String entity) {
+        return Counter.builder(name).tag("operation", operation).tag("entity", entity).register(meterRegistry);
+    }
+
+    private String entityOf(ConcurrencyFailureException e) {
+        if (e instanceof ObjectOptimisticLockingFailureException optimistic && optimistic.getPersistentClassName() != null) {
+            String className = optimistic.getPersistentClassName();
+            return className.substring(className.lastIndexOf('.') + 1);
+        }
+        return "lock";
+    }
+
+    private String describe(ConcurrencyFailureException e) {
+        if (e instanceof ObjectOptimisticLockingFailureException optimistic) {
+            return entityOf(e) + "#" + optimistic.getIdentifier();
+        }
+        return e.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,104 @@
+package com.logitrack.b2b_tradehub.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Sends @Transactional(readOnly = true) work to a replica pool when tradehub.datasource.replica.jdbc-url is set;
+ * without it the auto-configured single pool is used and this class does nothing.
+ * <p>
+ * The application DataSource is a {@link LazyConnectionDataSourceProxy}: the transaction manager marks the
+ * connection read-only before its first statement, and only then does the proxy pick the read-only target.
+ * That target routes to the replica while {@link ReplicaLagMonitor} reports it usable and the request is not pinned
+ * to the primary after a write ({@link ReadYourWritesFilter}), to the primary otherwise.
+ * Both pools are Hikari beans ("primary", "replica"), so hikaricp.connections.* (acquire and usage latency,
+ * active, pending, max) is published per pool; tradehub.datasource.reads counts read-only connections by target.
+ */
+@Configuration
+@ConditionalOnProperty("tradehub.datasource.replica.jdbc-url")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    // Pool settings use Hikari names: jdbc-url, username, password, maximum-pool-size, ...
+    @Bean
+    @ConfigurationProperties("tradehub.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                               @Value("${tradehub.datasource.routing.lag-query}") String lagQuery,
+                                               @Value("${tradehub.datasource.routing.max-lag:PT5S}") Duration maxLag,
+                                               MeterRegistry meterRegistry) {
+        return new ReplicaLagMonitor(replicaDataSource, lagQuery, maxLag, meterRegistry);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${tradehub.datasource.routing.primary-after-write:PT10S}") Duration window) {
+        return new ReadYourWritesFilter(window);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        ReadOnlyRouter readOnly = new ReadOnlyRouter(lagMonitor,
+                Counter.builder("tradehub.datasource.reads").tag("target", "replica").register(meterRegistry),
+                Counter.builder("tradehub.datasource.reads").tag("target", "primary").register(meterRegistry));
+        readOnly.setTargetDataSources(Map.of(Boolean.TRUE, replica, Boolean.FALSE, primary));
+        readOnly.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+        proxy.setReadOnlyDataSource(readOnly);
+        return proxy;
+    }
+
+    // Lookup key: whether the replica may serve this read-only connection
+    private static final class ReadOnlyRouter extends AbstractRoutingDataSource {
+
+        private final ReplicaLagMonitor lagMonitor;
+        private final Counter replicaReads;
+        private final Counter primaryReads;
+
+        private ReadOnlyRouter(ReplicaLagMonitor lagMonitor, Counter replicaReads, Counter primaryReads) {
+            this.lagMonitor = lagMonitor;
+            this.replicaReads = replicaReads;
+            this.primaryReads = primaryReads;
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            boolean replica = !ReadYourWritesFilter.isPinned() && lagMonitor.isUsable();
+            (replica ? replicaReads : primaryReads).increment();
+            return replica;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.logitrack.b2b_tradehub.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Polls the replica's replication lag and decides whether read-only transactions may use it.
+ * Any failure of the check (replica down, query error) counts as unusable, so reads fall back to the primary
+ * until the next successful check. Gauges: tradehub.datasource.replica.lag (seconds, -1 when unknown) and
+ * tradehub.datasource.replica.usable (1/0).
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final JdbcTemplate replica;
+    private final String lagQuery;
+    private final Duration maxLag;
+
+    private volatile boolean usable;
+    private volatile double lagSeconds = -1;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, String lagQuery, Duration maxLag, MeterRegistry meterRegistry) {
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.replica.setQueryTimeout(2);
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+        Gauge.builder("tradehub.datasource.replica.lag", this, m -> m.lagSeconds).baseUnit("seconds").register(meterRegistry);
+        Gauge.builder("tradehub.datasource.replica.usable", this, m -> m.usable ? 1 : 0).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${tradehub.datasource.routing.lag-check-interval:PT5S}")
+    public void check() {
+        boolean wasUsable = usable;
+        try {
+            Number lag = replica.queryForObject(lagQuery, Number.class);
+            lagSeconds = lag == null ? 0 : lag.doubleValue();
+            usable = lagSeconds * 1000 <= maxLag.toMillis();
+        } catch (RuntimeException e) {
+            lagSeconds = -1;
+            usable = false;
+            if (wasUsable) {
+                log.warn("Replica lag check failed, read-only transactions go to the primary: {}", e.getMessage());
+            }
+            return;
+        }
+        if (wasUsable != usable) {
+            log.warn("Replica lag {}s (max {}s): read-only transactions now go to the {}",
+                    lagSeconds, maxLag.toSeconds(), usable ? "replica" : "primary");
+        }
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+}
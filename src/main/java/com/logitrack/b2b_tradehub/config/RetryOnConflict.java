@@ -0,0 +1,23 @@
+package com.logitrack.b2b_tradehub.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Re-runs the whole transactional method when it loses an optimistic (@Version) or lock conflict.
+ * Only the outermost call retries: inside an existing transaction the conflict is left to the caller.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+
+    // Total attempts, the first one included
+    int maxAttempts() default 4;
+
+    // First back-off delay; doubled on each retry, with jitter, up to maxBackoffMillis
+    long backoffMillis() default 20;
+
+    long maxBackoffMillis() default 500;
+}
@@ -0,0 +1,46 @@
+package com.logitrack.b2b_tradehub.controller;
+
+import com.logitrack.b2b_tradehub.dto.analytics.SalesGroupBy;
+import com.logitrack.b2b_tradehub.dto.analytics.SalesReportResponse;
+import com.logitrack.b2b_tradehub.entity.enums.OrderStatus;
+import com.logitrack.b2b_tradehub.entity.enums.UserRole;
+import com.logitrack.b2b_tradehub.service.SalesFactService;
+import com.logitrack.b2b_tradehub.util.AuthUtil;
+import jakarta.servlet.http.HttpSession;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/analytics")
+@RequiredArgsConstructor
+public class AnalyticsController {
+
+    private final SalesFactService salesFactService;
+
+    // Tableau de bord des ventes : totaux de la periode + ventilation (jour, produit, niveau client, statut)
+    @GetMapping("/sales")
+    public ResponseEntity<SalesReportResponse> getSales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "CONFIRMED") List<OrderStatus> status,
+            @RequestParam(defaultValue = "DAY") SalesGroupBy groupBy,
+            HttpSession session) {
+        AuthUtil.checkRole(session, UserRole.ADMIN);
+        return ResponseEntity.ok(salesFactService.report(from, to, status, groupBy));
+    }
+
+    // Reconstruction de la table de faits a partir de l'historique (toutes les dates si non precisees)
+    @PostMapping("/sales/backfill")
+    public ResponseEntity<Integer> backfillSales(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpSession session) {
+        AuthUtil.checkRole(session, UserRole.ADMIN);
+        return ResponseEntity.ok(salesFactService.backfill(from, to));
+    }
+}
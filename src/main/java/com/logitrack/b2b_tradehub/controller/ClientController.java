@@ -4,7 +4,10 @@ import com.logitrack.b2b_tradehub.dto.client.ClientCreateRequest;
 import com.logitrack.b2b_tradehub.dto.client.ClientResponse;
 import com.logitrack.b2b_tradehub.dto.client.ClientUpdateRequest;
 import com.logitrack.b2b_tradehub.dto.order.OrderResponse;
+import com.logitrack.b2b_tradehub.dto.sync.ChangeFeedPage;
 import com.logitrack.b2b_tradehub.entity.enums.UserRole;
+import com.logitrack.b2b_tradehub.service.ChangeFeedService;
+import com.logitrack.b2b_tradehub.service.ClientRollupService;
 import com.logitrack.b2b_tradehub.service.ClientService;
 import com.logitrack.b2b_tradehub.util.AuthUtil;
 import jakarta.servlet.http.HttpSession;
@@ -22,6 +25,8 @@ import java.util.List;
 public class ClientController {
 
     private final ClientService clientService;
+    private final ClientRollupService clientRollupService;
+    private final ChangeFeedService changeFeedService;
 
     // Requirement: Créer un client
     @PostMapping
@@ -38,6 +43,15 @@ public class ClientController {
         return ResponseEntity.ok(clientService.findAll());
     }
 
+    // Flux de modifications (synchronisation ERP) : clients modifies apres le curseur, suppressions incluses
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeFeedPage<ClientResponse>> getClientChanges(@RequestParam(required = false) String cursor,
+                                                                           @RequestParam(required = false) Integer limit,
+                                                                           HttpSession session) {
+        AuthUtil.checkRole(session, UserRole.ADMIN);
+        return ResponseEntity.ok(changeFeedService.clientChanges(cursor, limit));
+    }
+
     // Requirement: Consulter les informations d'un client (Specific)
     @GetMapping("/{id}")
     public ResponseEntity<ClientResponse> getClientById(@PathVariable Long id, HttpSession session) {
@@ -66,4 +80,11 @@ public class ClientController {
         AuthUtil.checkClientOrAdmin(session, id);
         return ResponseEntity.ok(clientService.findOrderHistory(id));
     }
+
+    // Recalcul complet des cumuls par client (client_order_rollups), par lots en parallele
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<Integer> rebuildRollups(HttpSession session) {
+        AuthUtil.checkRole(session, UserRole.ADMIN);
+        return ResponseEntity.ok(clientRollupService.rebuildAll());
+    }
 }
\ No newline at end of file
@@ -1,17 +1,33 @@
 package com.logitrack.b2b_tradehub.controller;
 
+import com.logitrack.b2b_tradehub.dto.CursorPage;
 import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderExportFormat;
+import com.logitrack.b2b_tradehub.dto.order.OrderQuoteResponse;
 import com.logitrack.b2b_tradehub.dto.order.OrderResponse;
+import com.logitrack.b2b_tradehub.dto.order.OrderSearchCriteria;
+import com.logitrack.b2b_tradehub.dto.order.OrderView;
+import com.logitrack.b2b_tradehub.dto.sync.ChangeFeedPage;
 import com.logitrack.b2b_tradehub.entity.enums.OrderStatus;
+import com.logitrack.b2b_tradehub.service.ChangeFeedService;
+import com.logitrack.b2b_tradehub.service.IdempotencyService;
+import com.logitrack.b2b_tradehub.service.OrderExportService;
+import com.logitrack.b2b_tradehub.service.OrderQuoteService;
 import com.logitrack.b2b_tradehub.service.OrderService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.OutputStream;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -20,40 +36,133 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
+    private final OrderQuoteService orderQuoteService;
+    private final IdempotencyService idempotencyService;
+    private final ChangeFeedService changeFeedService;
 
+    // Requirement: Suivre les commandes (filtres + pagination par curseur)
+    // Les lectures acceptent If-None-Match / If-Modified-Since : 304 tant qu'aucune commande ni aucun produit n'a change
     @GetMapping
-    public ResponseEntity<List<OrderResponse>> getAllOrders() {
-        return ResponseEntity.ok(orderService.findAll());
+    public ResponseEntity<CursorPage<OrderResponse>> getAllOrders(
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) Long clientId,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate,
+            @RequestParam(required = false) BigDecimal minTotal,
+            @RequestParam(required = false) BigDecimal maxTotal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "DETAIL") OrderView view,
+            WebRequest webRequest) {
+        if (orderService.ordersVersion().isNotModified(webRequest)) {
+            return null;
+        }
+        OrderSearchCriteria criteria = new OrderSearchCriteria();
+        criteria.setStatus(status);
+        criteria.setClientId(clientId);
+        criteria.setStartDate(startDate);
+        criteria.setEndDate(endDate);
+        criteria.setMinTotal(minTotal);
+        criteria.setMaxTotal(maxTotal);
+        return ResponseEntity.ok(orderService.search(criteria, cursor, limit, view));
+    }
+
+    // Flux de modifications (synchronisation WMS/ERP) : commandes creees ou modifiees apres le curseur
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeFeedPage<OrderResponse>> getOrderChanges(@RequestParam(required = false) String cursor,
+                                                                         @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(changeFeedService.orderChanges(cursor, limit));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<OrderResponse> getOrderById(@PathVariable Long id) {
+    public ResponseEntity<OrderResponse> getOrderById(@PathVariable Long id, WebRequest webRequest) {
+        if (orderService.version(id).isNotModified(webRequest)) {
+            return null;
+        }
         return ResponseEntity.ok(orderService.findById(id));
     }
 
     // Requirement: Suivre les statuts
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<OrderResponse>> getOrdersByStatus(@PathVariable OrderStatus status) {
-        return ResponseEntity.ok(orderService.findByStatus(status));
+    public ResponseEntity<CursorPage<OrderResponse>> getOrdersByStatus(
+            @PathVariable OrderStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
+        if (orderService.ordersVersion().isNotModified(webRequest)) {
+            return null;
+        }
+        return ResponseEntity.ok(orderService.findByStatus(status, cursor, limit));
     }
 
     @GetMapping("/pending")
-    public ResponseEntity<List<OrderResponse>> getPendingOrders() {
-        return ResponseEntity.ok(orderService.findPendingOrders());
+    public ResponseEntity<CursorPage<OrderResponse>> getPendingOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
+        if (orderService.ordersVersion().isNotModified(webRequest)) {
+            return null;
+        }
+        return ResponseEntity.ok(orderService.findPendingOrders(cursor, limit));
     }
 
     @GetMapping("/date-range")
-    public ResponseEntity<List<OrderResponse>> getOrdersByDateRange(
+    public ResponseEntity<CursorPage<OrderResponse>> getOrdersByDateRange(
             @RequestParam LocalDateTime startDate,
-            @RequestParam LocalDateTime endDate) {
-        return ResponseEntity.ok(orderService.findByDateRange(startDate, endDate));
+            @RequestParam LocalDateTime endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
+        if (orderService.ordersVersion().isNotModified(webRequest)) {
+            return null;
+        }
+        return ResponseEntity.ok(orderService.findByDateRange(startDate, endDate, cursor, limit));
+    }
+
+    // Export (finance): NDJSON ou CSV en flux continu, gzip si le client l'accepte
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam LocalDateTime startDate,
+            @RequestParam LocalDateTime endDate,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        OrderExportFormat exportFormat = OrderExportFormat.from(format);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            orderExportService.export(startDate, endDate, exportFormat, target);
+            if (gzip) {
+                ((GZIPOutputStream) target).finish();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"orders." + exportFormat.getExtension() + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     // Requirement: Créer une commande multi-produits
+    // Idempotency-Key (optionnel) : les reprises du connecteur ERP rejouent la premiere reponse
     @PostMapping
-    public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody OrderCreateRequest request) {
-        OrderResponse newOrder = orderService.createOrderFlow(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(newOrder);
+    public ResponseEntity<OrderResponse> createOrder(
+            @Valid @RequestBody OrderCreateRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("orders", idempotencyKey, request, OrderResponse.class,
+                HttpStatus.CREATED, () -> orderService.createOrderFlow(request));
+    }
+
+    // Devis du panier : meme tarification que la creation, sans rien enregistrer
+    @PostMapping("/quote")
+    public ResponseEntity<OrderQuoteResponse> quoteOrder(@Valid @RequestBody OrderCreateRequest request) {
+        return ResponseEntity.ok(orderQuoteService.quote(request));
     }
 
     // Requirement: Transition PENDING -> CONFIRMED (Admin)
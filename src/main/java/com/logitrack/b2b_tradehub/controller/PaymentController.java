@@ -1,14 +1,34 @@
 package com.logitrack.b2b_tradehub.controller;
 
+import com.logitrack.b2b_tradehub.dto.payment.PaymentLedgerEntryResponse;
 import com.logitrack.b2b_tradehub.dto.payment.PaymentRequest;
 import com.logitrack.b2b_tradehub.dto.payment.PaymentResponse;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentSummaryBucket;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentSummaryResponse;
+import com.logitrack.b2b_tradehub.dto.payment.ReconciliationJobResponse;
+import com.logitrack.b2b_tradehub.dto.payment.StatementFormat;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentStatus;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentType;
+import com.logitrack.b2b_tradehub.entity.enums.UserRole;
+import com.logitrack.b2b_tradehub.service.IdempotencyService;
+import com.logitrack.b2b_tradehub.service.PaymentDueDateScheduler;
+import com.logitrack.b2b_tradehub.service.PaymentLedgerService;
+import com.logitrack.b2b_tradehub.service.PaymentReconciliationService;
 import com.logitrack.b2b_tradehub.service.PaymentService;
+import com.logitrack.b2b_tradehub.service.PaymentSummaryService;
+import com.logitrack.b2b_tradehub.util.AuthUtil;
+import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -17,6 +37,11 @@ import java.util.List;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final IdempotencyService idempotencyService;
+    private final PaymentLedgerService paymentLedgerService;
+    private final PaymentReconciliationService paymentReconciliationService;
+    private final PaymentDueDateScheduler paymentDueDateScheduler;
+    private final PaymentSummaryService paymentSummaryService;
 
     @GetMapping
     public ResponseEntity<List<PaymentResponse>> getAllPayments() {
@@ -33,11 +58,26 @@ public class PaymentController {
         return ResponseEntity.ok(paymentService.findByOrderId(orderId));
     }
 
+    // Solde courant d'une commande : derniere ecriture du journal des paiements
+    @GetMapping("/order/{orderId}/balance")
+    public ResponseEntity<PaymentLedgerEntryResponse> getOrderBalance(@PathVariable Long orderId) {
+        return ResponseEntity.ok(paymentLedgerService.balance(orderId));
+    }
+
+    // Journal des paiements d'une commande, avec le solde apres chaque ecriture
+    @GetMapping("/order/{orderId}/ledger")
+    public ResponseEntity<List<PaymentLedgerEntryResponse>> getOrderLedger(@PathVariable Long orderId) {
+        return ResponseEntity.ok(paymentLedgerService.entries(orderId));
+    }
+
     // Requirement: Système de Paiements Multi-Moyens (Adding a payment)
+    // Idempotency-Key (optionnel) : une reprise ne cree pas un second paiement
     @PostMapping
-    public ResponseEntity<PaymentResponse> createPayment(@Valid @RequestBody PaymentRequest request) {
-        PaymentResponse response = paymentService.create(request);
-        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    public ResponseEntity<PaymentResponse> createPayment(
+            @Valid @RequestBody PaymentRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("payments", idempotencyKey, request, PaymentResponse.class,
+                HttpStatus.CREATED, () -> paymentService.create(request));
     }
 
     // Requirement: Traçabilité / Gestion de trésorerie (Process checks/transfers)
@@ -59,9 +99,57 @@ public class PaymentController {
         return ResponseEntity.ok().build();
     }
 
+    // Rapprochement bancaire : releve (CSV ou largeur fixe) envoye en corps de requete, traite en tache de fond ;
+    // les cheques et virements EN_ATTENTE reconnus sont encaisses, suivre le rapport sur l'URL renvoyee dans Location
+    @PostMapping(value = "/reconciliation", consumes = {"text/csv", "text/plain", "application/octet-stream"})
+    public ResponseEntity<ReconciliationJobResponse> reconcile(
+            @RequestParam(defaultValue = "CSV") StatementFormat format, InputStream statement) throws IOException {
+        ReconciliationJobResponse job = paymentReconciliationService.start(statement, format);
+        return ResponseEntity.accepted().location(URI.create("/api/payments/reconciliation/" + job.getJobId())).body(job);
+    }
+
+    @GetMapping("/reconciliation/{jobId}")
+    public ResponseEntity<ReconciliationJobResponse> getReconciliation(@PathVariable String jobId) {
+        return ResponseEntity.ok(paymentReconciliationService.status(jobId));
+    }
+
     // Treasury Management Helpers
     @GetMapping("/pending")
     public ResponseEntity<List<PaymentResponse>> getPendingPayments() {
         return ResponseEntity.ok(paymentService.findPendingPayments());
     }
+
+    // Tableau de bord tresorerie : totaux de la periode par type, statut et jour / semaine / mois
+    @GetMapping("/summary")
+    public ResponseEntity<PaymentSummaryResponse> getSummary(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "ESPECE,CHEQUE,VIREMENT") List<PaymentType> type,
+            @RequestParam(defaultValue = "EN_ATTENTE,ENCAISSE,REJETE") List<PaymentStatus> status,
+            @RequestParam(defaultValue = "DAY") PaymentSummaryBucket bucket) {
+        return ResponseEntity.ok(paymentSummaryService.summary(from, to, type, status, bucket));
+    }
+
+    // Reconstruction de la table de faits des paiements a partir de l'historique (toutes les dates si non precisees)
+    @PostMapping("/summary/backfill")
+    public ResponseEntity<Integer> backfillSummary(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpSession session) {
+        AuthUtil.checkRole(session, UserRole.ADMIN);
+        return ResponseEntity.ok(paymentSummaryService.backfill(from, to));
+    }
+
+    // Paiements EN_ATTENTE a echeance dans les N prochains jours (aujourd'hui compris), echeance la plus proche d'abord
+    @GetMapping("/due")
+    public ResponseEntity<List<PaymentResponse>> getPaymentsDue(
+            @RequestParam(defaultValue = "7") int days, @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(paymentDueDateScheduler.dueWithin(days, limit));
+    }
+
+    // Paiements EN_ATTENTE dont l'echeance est depassee, la plus ancienne d'abord
+    @GetMapping("/overdue")
+    public ResponseEntity<List<PaymentResponse>> getOverduePayments(@RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(paymentDueDateScheduler.overdue(limit));
+    }
 }
\ No newline at end of file
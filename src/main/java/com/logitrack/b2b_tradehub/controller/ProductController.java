@@ -1,14 +1,25 @@
 package com.logitrack.b2b_tradehub.controller;
 
+import com.logitrack.b2b_tradehub.dto.product.ProductImportJobResponse;
+import com.logitrack.b2b_tradehub.dto.product.ProductRankingMetric;
+import com.logitrack.b2b_tradehub.dto.product.ProductRankingResponse;
 import com.logitrack.b2b_tradehub.dto.product.ProductRequest;
 import com.logitrack.b2b_tradehub.dto.product.ProductResponse;
+import com.logitrack.b2b_tradehub.dto.sync.ChangeFeedPage;
+import com.logitrack.b2b_tradehub.service.ChangeFeedService;
+import com.logitrack.b2b_tradehub.service.ProductImportService;
+import com.logitrack.b2b_tradehub.service.ProductRankingService;
 import com.logitrack.b2b_tradehub.service.ProductService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -18,27 +29,59 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductRankingService productRankingService;
+    private final ProductImportService productImportService;
+    private final ChangeFeedService changeFeedService;
 
     // Requirement: Consulter la liste des produits
+    // GET conditionnel (If-None-Match / If-Modified-Since) : 304 sans charger ni serialiser le catalogue
     @GetMapping
-    public ResponseEntity<List<ProductResponse>> getAllProducts() {
+    public ResponseEntity<List<ProductResponse>> getAllProducts(WebRequest webRequest) {
+        if (productService.catalogVersion().isNotModified(webRequest)) {
+            return null;
+        }
         return ResponseEntity.ok(productService.findAll());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ProductResponse> getProductById(@PathVariable Long id) {
+    public ResponseEntity<ProductResponse> getProductById(@PathVariable Long id, WebRequest webRequest) {
+        if (productService.version(id).isNotModified(webRequest)) {
+            return null;
+        }
         return ResponseEntity.ok(productService.findById(id));
     }
 
     // Requirement: Filtres (Consulter la liste avec filtres)
     @GetMapping("/available")
-    public ResponseEntity<List<ProductResponse>> getAvailableProducts() {
+    public ResponseEntity<List<ProductResponse>> getAvailableProducts(WebRequest webRequest) {
+        if (productService.catalogVersion().isNotModified(webRequest)) {
+            return null;
+        }
         return ResponseEntity.ok(productService.findAvailableProducts());
     }
 
+    // Flux de modifications (synchronisation WMS/ERP) : produits modifies apres le curseur, suppressions incluses ;
+    // conserver nextCursor et le renvoyer au prochain appel
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeFeedPage<ProductResponse>> getProductChanges(@RequestParam(required = false) String cursor,
+                                                                             @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(changeFeedService.productChanges(cursor, limit));
+    }
+
+    // Recherche par nom (accents ignores, prefixe, fautes de frappe), meilleurs resultats en premier
     @GetMapping("/search")
-    public ResponseEntity<List<ProductResponse>> searchProductsByName(@RequestParam String nom) {
-        return ResponseEntity.ok(productService.findByNomContaining(nom));
+    public ResponseEntity<List<ProductResponse>> searchProductsByName(@RequestParam String nom,
+                                                                      @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(productService.search(nom, limit));
+    }
+
+    // Meilleures ventes et produits a faible rotation sur une fenetre glissante (7, 30 ou 90 jours)
+    @GetMapping("/rankings")
+    public ResponseEntity<ProductRankingResponse> getRankings(
+            @RequestParam(defaultValue = "30") int window,
+            @RequestParam(defaultValue = "QUANTITY") ProductRankingMetric metric,
+            @RequestParam(defaultValue = "10") int k) {
+        return ResponseEntity.ok(productRankingService.rank(window, metric, k));
     }
 
     // Requirement: Ajouter des produits
@@ -48,6 +91,19 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.CREATED).body(savedProduct);
     }
 
+    // Import fournisseur : CSV (sku, nom, prix_unitaire_ht, stock_disponible) envoye en corps de requete,
+    // traite en tache de fond ; suivre l'avancement sur l'URL renvoyee dans Location
+    @PostMapping(value = "/import", consumes = {"text/csv", "text/plain", "application/octet-stream"})
+    public ResponseEntity<ProductImportJobResponse> importProducts(InputStream csv) throws IOException {
+        ProductImportJobResponse job = productImportService.start(csv);
+        return ResponseEntity.accepted().location(URI.create("/api/products/import/" + job.getJobId())).body(job);
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<ProductImportJobResponse> getImportJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(productImportService.status(jobId));
+    }
+
     // Requirement: Modifier les informations produits
     @PutMapping("/{id}")
     public ResponseEntity<ProductResponse> updateProduct(@PathVariable Long id, @Valid @RequestBody ProductRequest request) {
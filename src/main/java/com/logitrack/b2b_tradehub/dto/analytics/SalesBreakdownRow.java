@@ -0,0 +1,23 @@
+package com.logitrack.b2b_tradehub.dto.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesBreakdownRow {
+
+    // Day (ISO date), product id, tier or status depending on the grouping
+    private String key;
+
+    // Product name for PRODUCT breakdowns, otherwise null
+    private String label;
+
+    private long orderLines;
+    private long quantity;
+    private BigDecimal amountHT;
+}
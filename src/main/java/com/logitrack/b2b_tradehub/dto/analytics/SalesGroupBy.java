@@ -0,0 +1,11 @@
+package com.logitrack.b2b_tradehub.dto.analytics;
+
+/**
+ * Breakdown dimension of a sales report.
+ */
+public enum SalesGroupBy {
+    DAY,
+    PRODUCT,
+    TIER,
+    STATUS
+}
@@ -0,0 +1,24 @@
+package com.logitrack.b2b_tradehub.dto.analytics;
+
+import com.logitrack.b2b_tradehub.entity.enums.OrderStatus;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class SalesReportResponse {
+
+    private LocalDate from;
+    private LocalDate to;
+    private List<OrderStatus> statuses;
+    private SalesGroupBy groupBy;
+
+    // Period totals (amounts excluding VAT, before order-level discounts)
+    private long orderLines;
+    private long quantity;
+    private BigDecimal amountHT;
+
+    private List<SalesBreakdownRow> breakdown;
+}
@@ -0,0 +1,33 @@
+package com.logitrack.b2b_tradehub.dto.order;
+
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+
+public enum OrderExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    OrderExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static OrderExportFormat from(String value) {
+        for (OrderExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new BusinessValidationException("Unsupported export format: " + value);
+    }
+}
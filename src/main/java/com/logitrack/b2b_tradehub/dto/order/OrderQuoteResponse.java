@@ -0,0 +1,32 @@
+package com.logitrack.b2b_tradehub.dto.order;
+
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemQuoteResponse;
+import com.logitrack.b2b_tradehub.entity.enums.CustomerTier;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+public class OrderQuoteResponse {
+
+    private Long clientId;
+    private CustomerTier clientTier;
+
+    private List<OrderItemQuoteResponse> items;
+
+    // False when at least one line is out of stock or refers to a deleted product
+    private boolean orderable;
+
+    private String promoCode;
+    private boolean promoApplied;
+
+    private BigDecimal sousTotalHT;
+    private BigDecimal remiseFidelite;
+    private BigDecimal remisePromo;
+    private BigDecimal montantRemiseTotale;
+    private BigDecimal montantHTApresRemise;
+    private BigDecimal tauxTVA;
+    private BigDecimal montantTVA;
+    private BigDecimal totalTTC;
+}
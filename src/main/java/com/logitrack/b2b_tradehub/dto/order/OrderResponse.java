@@ -11,6 +11,7 @@ import java.util.List;
 @Data
 public class OrderResponse {
     private Long id;
+    private String numeroCommande;
     private Long clientId;
     private CustomerTier clientTierAtOrder;
 
@@ -22,6 +23,7 @@ public class OrderResponse {
     private BigDecimal montantTVA;
     private BigDecimal totalTTC;
     private BigDecimal montantRestant;
+    private BigDecimal montantPaye;
 
     // --- Status and Dates ---
     private OrderStatus status;
@@ -0,0 +1,18 @@
+package com.logitrack.b2b_tradehub.dto.order;
+
+import com.logitrack.b2b_tradehub.entity.enums.OrderStatus;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Optional filters of the order listing; null fields are ignored
+@Data
+public class OrderSearchCriteria {
+    private OrderStatus status;
+    private Long clientId;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    private BigDecimal minTotal;
+    private BigDecimal maxTotal;
+}
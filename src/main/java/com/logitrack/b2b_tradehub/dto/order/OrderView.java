@@ -0,0 +1,7 @@
+package com.logitrack.b2b_tradehub.dto.order;
+
+// How much of an order a listing returns: SUMMARY = header only, DETAIL = header + lines
+public enum OrderView {
+    SUMMARY,
+    DETAIL
+}
@@ -0,0 +1,20 @@
+package com.logitrack.b2b_tradehub.dto.orderItem;
+
+import lombok.Data;
+import java.math.BigDecimal;
+
+@Data
+public class OrderItemQuoteResponse {
+
+    private Long productId;
+    private String productName;
+
+    private Integer quantite;
+
+    private BigDecimal prixUnitaireHT;
+
+    private BigDecimal totalLigne;
+
+    // Requested quantity is available (stock minus reservations) at quote time
+    private boolean inStock;
+}
@@ -0,0 +1,19 @@
+package com.logitrack.b2b_tradehub.dto.payment;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// sequence 0 (no paymentId) is the opening balance of an order nothing was posted to yet
+@Data
+public class PaymentLedgerEntryResponse {
+    private Long orderId;
+    private Long sequence;
+    private Long paymentId;
+    private BigDecimal montant;
+    private BigDecimal montantApplique;
+    private BigDecimal montantPaye;
+    private BigDecimal montantRestant;
+    private LocalDateTime createdAt;
+}
@@ -18,6 +18,7 @@ public class PaymentResponse {
     private LocalDate datePaiement;
     private LocalDate dateEncaissement;
     private LocalDate dateEcheance;
+    private Boolean overdue;
     private Long orderId; // Only returning ID to avoid infinite recursion
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
@@ -0,0 +1,10 @@
+package com.logitrack.b2b_tradehub.dto.payment;
+
+/**
+ * Period of the rows of a payment summary; weeks start on Monday.
+ */
+public enum PaymentSummaryBucket {
+    DAY,
+    WEEK,
+    MONTH
+}
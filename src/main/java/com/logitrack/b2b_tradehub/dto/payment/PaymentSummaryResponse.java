@@ -0,0 +1,28 @@
+package com.logitrack.b2b_tradehub.dto.payment;
+
+import com.logitrack.b2b_tradehub.entity.enums.PaymentStatus;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentType;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class PaymentSummaryResponse {
+
+    private LocalDate from;
+    private LocalDate to;
+    private List<PaymentType> types;
+    private List<PaymentStatus> statuses;
+    private PaymentSummaryBucket bucket;
+
+    // Period totals
+    private long count;
+    private BigDecimal montant;
+
+    private List<PaymentSummaryRow> byType;
+    private List<PaymentSummaryRow> byStatus;
+    // Periods with at least one payment, oldest first
+    private List<PaymentSummaryRow> byPeriod;
+}
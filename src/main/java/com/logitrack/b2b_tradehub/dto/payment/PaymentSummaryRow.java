@@ -0,0 +1,19 @@
+package com.logitrack.b2b_tradehub.dto.payment;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentSummaryRow {
+
+    // Payment type, status, or first day of the period (ISO date)
+    private String key;
+
+    private long count;
+    private BigDecimal montant;
+}
@@ -0,0 +1,41 @@
+package com.logitrack.b2b_tradehub.dto.payment;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class ReconciliationJobResponse {
+
+    private String jobId;
+    private StatementFormat format;
+    private ReconciliationStatus status;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    // Progress over the two passes on the file
+    private long bytesRead;
+    private long totalBytes;
+    private int percent;
+
+    // Pending cheques and transfers the statement was matched against
+    private long pendingPayments;
+
+    private long linesRead;
+    // Matched and encaissed
+    private long linesMatched;
+    private long linesUnmatched;
+    private long linesAmbiguous;
+    // Unreadable lines
+    private long linesRejected;
+    // Debits and zero amounts, not payments received
+    private long linesIgnored;
+
+    // First lines of each kind only (tradehub.reconciliation.max-reported-lines); the counters count them all
+    private List<ReconciliationLine> unmatched;
+    private List<ReconciliationLine> ambiguous;
+    private List<ReconciliationLine> rejected;
+    // Set when the job FAILED as a whole (unreadable file, database error)
+    private String failure;
+}
@@ -0,0 +1,21 @@
+package com.logitrack.b2b_tradehub.dto.payment;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// A statement line left out of the reconciliation: line number in the file, what could be read of it,
+// the candidate payments when it is ambiguous, and why
+@Data
+@AllArgsConstructor
+public class ReconciliationLine {
+    private long line;
+    private String reference;
+    private BigDecimal montant;
+    private LocalDate date;
+    private List<Long> candidatePaymentIds;
+    private String message;
+}
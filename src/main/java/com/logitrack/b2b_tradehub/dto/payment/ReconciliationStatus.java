@@ -0,0 +1,8 @@
+package com.logitrack.b2b_tradehub.dto.payment;
+
+public enum ReconciliationStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
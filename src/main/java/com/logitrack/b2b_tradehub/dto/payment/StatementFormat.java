@@ -0,0 +1,7 @@
+package com.logitrack.b2b_tradehub.dto.payment;
+
+// Bank statement layouts accepted by the reconciliation (see PaymentReconciliationService)
+public enum StatementFormat {
+    CSV,
+    FIXED
+}
@@ -0,0 +1,29 @@
+package com.logitrack.b2b_tradehub.dto.product;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class ProductImportJobResponse {
+
+    private String jobId;
+    private ProductImportStatus status;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    // Progress: file bytes parsed out of the uploaded size
+    private long bytesRead;
+    private long totalBytes;
+    private int percent;
+
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsRejected;
+
+    // First rejected rows only (tradehub.product-import.max-reported-errors); rowsRejected counts them all
+    private List<ProductImportRowError> errors;
+    // Set when the job FAILED as a whole (unreadable file, database error)
+    private String failure;
+}
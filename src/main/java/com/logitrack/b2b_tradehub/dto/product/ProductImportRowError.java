@@ -0,0 +1,13 @@
+package com.logitrack.b2b_tradehub.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// A rejected CSV row: line number in the file (header = 1), its SKU when readable, and why
+@Data
+@AllArgsConstructor
+public class ProductImportRowError {
+    private long line;
+    private String sku;
+    private String message;
+}
@@ -0,0 +1,8 @@
+package com.logitrack.b2b_tradehub.dto.product;
+
+public enum ProductImportStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
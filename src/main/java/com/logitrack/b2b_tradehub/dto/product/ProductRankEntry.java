@@ -0,0 +1,19 @@
+package com.logitrack.b2b_tradehub.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRankEntry {
+
+    private Long productId;
+    private String nom;
+    private long quantity;
+    // Sum of confirmed line totals (HT, before order-level discounts)
+    private BigDecimal revenueHT;
+}
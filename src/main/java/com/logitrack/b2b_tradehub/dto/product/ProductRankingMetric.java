@@ -0,0 +1,9 @@
+package com.logitrack.b2b_tradehub.dto.product;
+
+/**
+ * What product rankings are ordered by.
+ */
+public enum ProductRankingMetric {
+    QUANTITY,
+    REVENUE
+}
@@ -0,0 +1,23 @@
+package com.logitrack.b2b_tradehub.dto.product;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class ProductRankingResponse {
+
+    // Window covered by both rankings: confirmed orders dated from windowStart to windowEnd (inclusive)
+    private int windowDays;
+    private LocalDate windowStart;
+    private LocalDate windowEnd;
+
+    private ProductRankingMetric metric;
+
+    // Best sellers first
+    private List<ProductRankEntry> top;
+
+    // Slowest movers first; active products without any sale in the window count as zero
+    private List<ProductRankEntry> bottom;
+}
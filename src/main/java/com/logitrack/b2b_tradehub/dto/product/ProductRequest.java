@@ -7,6 +7,9 @@ import java.math.BigDecimal;
 @Data
 public class ProductRequest {
 
+    @Size(max = 64, message = "SKU cannot exceed 64 characters")
+    private String sku;
+
     @NotBlank(message = "Product name is required")
     private String nom;
 
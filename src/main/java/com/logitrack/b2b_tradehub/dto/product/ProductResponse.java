@@ -7,9 +7,12 @@
     @Data
     public class ProductResponse {
         private Long id;
+        private String sku;
         private String nom;
         private BigDecimal prixUnitaireHT;
         private Integer stockDisponible;
+        private Integer stockReserve;
         private LocalDateTime createdAt;
+        private LocalDateTime updatedAt;
         private Boolean deleted;
     }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.logitrack.b2b_tradehub.dto.sync;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One changed row of a change feed. A deleted row (soft or hard) comes as a tombstone: deleted = true, no data.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeFeedEntry<T> {
+    private Long id;
+    private LocalDateTime updatedAt;
+    private boolean deleted;
+    private T data;
+}
@@ -0,0 +1,21 @@
+package com.logitrack.b2b_tradehub.dto.sync;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a change feed, in (updatedAt, id) order. Unlike {@link com.logitrack.b2b_tradehub.dto.CursorPage},
+ * {@code nextCursor} is always set: it is the watermark to store and send back as {@code cursor}, even once
+ * {@code hasMore} is false, to get the changes made since.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeFeedPage<T> {
+    private List<ChangeFeedEntry<T>> items;
+    private String nextCursor;
+    private boolean hasMore;
+}
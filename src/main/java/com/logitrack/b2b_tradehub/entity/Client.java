@@ -16,13 +16,18 @@ import java.util.List;
 @EqualsAndHashCode(of = {"id", "email"})
 
 @Entity
-@Table(name = "clients")
+@Table(name = "clients", indexes = @Index(name = "idx_clients_updated_at_id", columnList = "updated_at, id"))
 public class Client {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Optimistic locking: concurrent read-modify-write on the same row fails instead of losing an update
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     // Clé étrangère One-to-One vers User
     @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", unique = true, nullable = false)
@@ -0,0 +1,44 @@
+package com.logitrack.b2b_tradehub.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Per-client order totals, maintained incrementally by the order and payment flows (see ClientRollupService).
+ * Cancelled and rejected orders are not counted; lastOrderDate covers every order placed.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "client_order_rollups")
+public class ClientOrderRollup {
+
+    @Id
+    @Column(name = "client_id")
+    private Long clientId;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "confirmed_count", nullable = false)
+    private Long confirmedCount;
+
+    @Column(name = "total_ttc", precision = 15, scale = 2, nullable = false)
+    private BigDecimal totalTTC;
+
+    @Column(name = "confirmed_ttc", precision = 15, scale = 2, nullable = false)
+    private BigDecimal confirmedTTC;
+
+    @Column(name = "total_paid", precision = 15, scale = 2, nullable = false)
+    private BigDecimal totalPaid;
+
+    @Column(name = "outstanding", precision = 15, scale = 2, nullable = false)
+    private BigDecimal outstanding;
+
+    @Column(name = "last_order_date")
+    private LocalDateTime lastOrderDate;
+}
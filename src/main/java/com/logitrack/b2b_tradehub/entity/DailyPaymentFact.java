@@ -0,0 +1,27 @@
+package com.logitrack.b2b_tradehub.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Payments per day (datePaiement), payment type and status.
+ * Maintained by PaymentSummaryService as payments are created, encaissed and rejected; only written with set-based SQL.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "daily_payment_facts")
+public class DailyPaymentFact {
+
+    @EmbeddedId
+    private DailyPaymentFactId id;
+
+    @Column(name = "payment_count", nullable = false)
+    private Long paymentCount;
+
+    @Column(precision = 15, scale = 2, nullable = false)
+    private BigDecimal montant;
+}
@@ -0,0 +1,32 @@
+package com.logitrack.b2b_tradehub.entity;
+
+import com.logitrack.b2b_tradehub.entity.enums.PaymentStatus;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class DailyPaymentFactId implements Serializable {
+
+    @Column(name = "payment_date", nullable = false)
+    private LocalDate paymentDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type_paiement", nullable = false, length = 20)
+    private PaymentType typePaiement;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PaymentStatus status;
+}
@@ -0,0 +1,32 @@
+package com.logitrack.b2b_tradehub.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Sales per day, product, client tier (at order time) and order status, at order-line grain.
+ * Maintained by SalesFactService as orders are created, confirmed and cancelled; only written with set-based SQL.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "daily_sales_facts")
+public class DailySalesFact {
+
+    @EmbeddedId
+    private DailySalesFactId id;
+
+    // Orders containing the product (one order counts once per product)
+    @Column(name = "order_lines", nullable = false)
+    private Long orderLines;
+
+    @Column(nullable = false)
+    private Long quantity;
+
+    // Sum of line totals, before order-level discounts and VAT
+    @Column(name = "amount_ht", precision = 15, scale = 2, nullable = false)
+    private BigDecimal amountHT;
+}
@@ -0,0 +1,46 @@
+package com.logitrack.b2b_tradehub.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * First response produced for an Idempotency-Key, replayed for retries of the same request until it expires.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_scope_key", columnNames = {"scope", "idem_key"}),
+        indexes = @Index(name = "idx_idempotency_expires_at", columnList = "expires_at"))
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Endpoint family the key belongs to (orders, payments)
+    @Column(nullable = false, length = 50)
+    private String scope;
+
+    @Column(name = "idem_key", nullable = false)
+    private String idemKey;
+
+    // SHA-256 of the request body, to refuse a key reused for a different request
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "status_code", nullable = false)
+    private Integer statusCode;
+
+    @Column(name = "response_body", nullable = false, columnDefinition = "text")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
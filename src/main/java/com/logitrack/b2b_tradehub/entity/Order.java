@@ -1,26 +1,54 @@
 package com.logitrack.b2b_tradehub.entity;
 
+import com.logitrack.b2b_tradehub.entity.enums.CustomerTier;
 import com.logitrack.b2b_tradehub.entity.enums.OrderStatus;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+// Fetch plans: "summary" is the order header only, "detail" also brings its lines and their products in the same query
+@NamedEntityGraph(name = Order.SUMMARY_GRAPH)
+@NamedEntityGraph(name = Order.DETAIL_GRAPH,
+        attributeNodes = @NamedAttributeNode(value = "orderItems", subgraph = "items"),
+        subgraphs = @NamedSubgraph(name = "items", attributeNodes = @NamedAttributeNode("product")))
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_date_commande_id", columnList = "date_commande, id"),
+        @Index(name = "idx_orders_status_date_commande_id", columnList = "status, date_commande, id"),
+        @Index(name = "idx_orders_client_date_commande_id", columnList = "client_id, date_commande, id"),
+        @Index(name = "idx_orders_updated_at_id", columnList = "updated_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Order {
 
+    public static final String SUMMARY_GRAPH = "Order.summary";
+    public static final String DETAIL_GRAPH = "Order.detail";
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    // Pooled sequence (one nextval per 50 rows) so Hibernate can batch the INSERTs; IDENTITY disables batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
+    // Optimistic locking: concurrent read-modify-write on the same row fails instead of losing an update
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
+    // Business number (ORD-...), from DocumentNumberGenerator; null on orders created before it existed
+    @Column(name = "numero_commande", unique = true, updatable = false, length = 20)
+    private String numeroCommande;
+
     @Column(name = "date_commande", nullable = false)
     private LocalDateTime dateCommande;
 
@@ -63,11 +91,22 @@ public class Order {
     @Builder.Default
     private OrderStatus status = OrderStatus.PENDING;
 
+    // Derived: totalTTC - montantPaye, moved by the payment ledger statement together with montantPaye
     @DecimalMin("0.0")
     @Column(name = "montant_restant", precision = 10, scale = 2, nullable = false)
     @Builder.Default
     private BigDecimal montantRestant = BigDecimal.ZERO; // تهيئة بـ صفر
 
+    // Payments applied so far and number of ledger entries; written only by OrderRepository.applyPayment
+    @Column(name = "montant_paye", precision = 10, scale = 2, nullable = false, updatable = false,
+            columnDefinition = "numeric(10,2) default 0")
+    @Builder.Default
+    private BigDecimal montantPaye = BigDecimal.ZERO;
+
+    @Column(name = "ledger_seq", nullable = false, updatable = false, columnDefinition = "bigint default 0")
+    @Builder.Default
+    private Long ledgerSeq = 0L;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -77,6 +116,11 @@ public class Order {
     @Column(name = "confirmed_at")
     private LocalDateTime confirmedAt;
 
+    // Client tier when the order was placed, so sales analytics do not move when the client changes tier
+    @Enumerated(EnumType.STRING)
+    @Column(name = "client_tier_at_order", length = 20)
+    private CustomerTier clientTierAtOrder;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "client_id")
     private Client client;
@@ -106,10 +150,17 @@ public class Order {
         if (this.montantRemiseTotale == null) this.montantRemiseTotale = BigDecimal.ZERO;
         if (this.tauxTVA == null) this.tauxTVA = BigDecimal.ZERO;
 
-        this.montantHTApresRemise = this.sousTotalHT.subtract(this.montantRemiseTotale);
-        this.montantTVA = this.montantHTApresRemise.multiply(this.tauxTVA).divide(BigDecimal.valueOf(100));
+        // Every amount is kept at scale 2 (cents), rounded HALF_UP like PricingEngine
+        this.montantHTApresRemise = this.sousTotalHT.subtract(this.montantRemiseTotale).setScale(2, RoundingMode.HALF_UP);
+        this.montantTVA = this.montantHTApresRemise.multiply(this.tauxTVA).divide(HUNDRED, 2, RoundingMode.HALF_UP);
         this.totalTTC = this.montantHTApresRemise.add(this.montantTVA);
-        this.montantRestant = this.totalTTC;
+        deriveMontantRestant();
+    }
+
+    // Repricing keeps the payments already applied
+    public void deriveMontantRestant() {
+        BigDecimal paid = this.montantPaye == null ? BigDecimal.ZERO : this.montantPaye;
+        this.montantRestant = this.totalTTC.subtract(paid).max(BigDecimal.ZERO);
     }
 
     @PrePersist
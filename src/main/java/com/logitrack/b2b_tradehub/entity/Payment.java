@@ -13,13 +13,14 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = @Index(name = "idx_payments_status_date_echeance", columnList = "status, date_echeance, id"))
 @Data
 @AllArgsConstructor
 public class Payment {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payments_seq")
+    @SequenceGenerator(name = "payments_seq", sequenceName = "payments_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank
@@ -43,6 +44,10 @@ public class Payment {
     
     @Column(name = "date_echeance")
     private LocalDate dateEcheance;
+
+    // Due date passed while still EN_ATTENTE; set by PaymentDueDateScheduler, cleared by a reschedule
+    @Column(nullable = false, updatable = false, columnDefinition = "boolean default false")
+    private Boolean overdue;
     
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -64,6 +69,7 @@ public class Payment {
         this.updatedAt = LocalDateTime.now();
         this.datePaiement = LocalDate.now();
         this.status = PaymentStatus.EN_ATTENTE;
+        this.overdue = false;
     }
     
 
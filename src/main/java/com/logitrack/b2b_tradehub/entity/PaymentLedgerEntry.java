@@ -0,0 +1,57 @@
+package com.logitrack.b2b_tradehub.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Append-only record of one payment applied to an order, with the running balance right after it.
+ * Entries of an order are numbered 1..n without gaps (Order.ledgerSeq holds n), so the latest one is a
+ * single index lookup. A payment is posted at most once.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "payment_ledger",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_payment_ledger_order_seq", columnNames = {"order_id", "seq"}),
+                @UniqueConstraint(name = "uk_payment_ledger_payment", columnNames = "payment_id")
+        })
+public class PaymentLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id", nullable = false, updatable = false)
+    private Order order;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "payment_id", nullable = false, updatable = false)
+    private Payment payment;
+
+    // Position in the order's ledger, from 1
+    @Column(name = "seq", nullable = false, updatable = false)
+    private Long sequence;
+
+    // Payment amount, and the part of it that reduced the balance (less once the order is fully paid)
+    @Column(precision = 10, scale = 2, nullable = false, updatable = false)
+    private BigDecimal montant;
+
+    @Column(name = "montant_applique", precision = 10, scale = 2, nullable = false, updatable = false)
+    private BigDecimal montantApplique;
+
+    // Running totals after this entry
+    @Column(name = "montant_paye", precision = 10, scale = 2, nullable = false, updatable = false)
+    private BigDecimal montantPaye;
+
+    @Column(name = "montant_restant", precision = 10, scale = 2, nullable = false, updatable = false)
+    private BigDecimal montantRestant;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,14 @@
+package com.logitrack.b2b_tradehub.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * A line to price: unit price excluding VAT and quantity. Implemented by {@link OrderItem} and by the lines of a
+ * quote, so that both go through the same pricing.
+ */
+public interface PricedLine {
+
+    BigDecimal getPrixUnitaireHT();
+
+    Integer getQuantite();
+}
@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+// (updated_at, id): newest-change lookups for conditional GETs
+@Table(name = "products", indexes = @Index(name = "idx_products_updated_at_id", columnList = "updated_at, id"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -23,6 +24,16 @@ public class Product {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Optimistic locking: concurrent read-modify-write on the same row fails instead of losing an update
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
+    // Supplier reference, key of the bulk CSV import (optional for products created one by one)
+    @Size(max = 64)
+    @Column(unique = true, length = 64)
+    private String sku;
+
     @NotBlank
     @Size(max = 100)
     @Column(nullable = false)
@@ -36,9 +47,19 @@ public class Product {
     @Column(name = "stock_disponible", nullable = false)
     private Integer stockDisponible;
 
+    // Quantity held by PENDING orders (see StockReservation); available = stockDisponible - stockReserve
+    @Min(0)
+    @Column(name = "stock_reserve", nullable = false, columnDefinition = "integer default 0")
+    @Builder.Default
+    private Integer stockReserve = 0;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    // Stamped on every write, bulk stock updates included; Last-Modified of product reads
+    @Column(name = "updated_at", nullable = false, columnDefinition = "timestamp default current_timestamp")
+    private LocalDateTime updatedAt;
+
     @Column(nullable = false)
     private Boolean deleted = false;
 
@@ -49,6 +70,13 @@ public class Product {
     @PrePersist
     protected void onCreate() {
         if (this.createdAt == null) this.createdAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
         if (this.deleted == null) this.deleted = false;
+        if (this.stockReserve == null) this.stockReserve = 0;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
     }
 }
\ No newline at end of file
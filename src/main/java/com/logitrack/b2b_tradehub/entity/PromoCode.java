@@ -19,6 +19,11 @@ public class PromoCode {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    // Optimistic locking: concurrent read-modify-write on the same row fails instead of losing an update
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     @NotBlank
     @Size(max = 50)
     @Column(unique = true, nullable = false)
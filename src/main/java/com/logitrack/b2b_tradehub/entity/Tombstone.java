@@ -0,0 +1,40 @@
+package com.logitrack.b2b_tradehub.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trace of a hard-deleted row, so change feeds can report the deletion after the row itself is gone.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "tombstones",
+        indexes = @Index(name = "idx_tombstones_resource_deleted_at_entity", columnList = "resource, deleted_at, entity_id"))
+public class Tombstone {
+
+    public static final String CLIENT = "client";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Change feed the deletion belongs to (client)
+    @Column(nullable = false, length = 50)
+    private String resource;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    public Tombstone(String resource, Long entityId) {
+        this.resource = resource;
+        this.entityId = entityId;
+        this.deletedAt = LocalDateTime.now();
+    }
+}
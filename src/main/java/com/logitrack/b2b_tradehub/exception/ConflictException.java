@@ -0,0 +1,15 @@
+package com.logitrack.b2b_tradehub.exception;
+
+/**
+ * Thrown when an update still conflicts with concurrent changes after all retries (HTTP 409 Conflict).
+ */
+public class ConflictException extends RuntimeException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+
+    public ConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -33,6 +33,7 @@ public interface ClientMapper {
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "orders", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Client toEntity(ClientCreateRequest dto);
 
     // --- Mappings for Updates ---
@@ -51,6 +52,7 @@ public interface ClientMapper {
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true) // Handled by @PreUpdate in entity
     @Mapping(target = "orders", ignore = true)
+    @Mapping(target = "version", ignore = true)
     void updateEntityFromDto(ClientUpdateRequest dto, @MappingTarget Client client);
 
 
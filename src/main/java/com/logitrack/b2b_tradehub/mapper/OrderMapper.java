@@ -18,6 +18,11 @@ public interface OrderMapper {
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "payments", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "clientTierAtOrder", ignore = true)
+    @Mapping(target = "montantPaye", ignore = true)
+    @Mapping(target = "ledgerSeq", ignore = true)
+    @Mapping(target = "numeroCommande", ignore = true)
 
     // ربط التاريخ من DTO (orderDate) إلى Entity (dateCommande)
     @Mapping(target = "dateCommande", source = "orderDate")
@@ -38,4 +43,12 @@ public interface OrderMapper {
     @Mapping(target = "montantRemise", source = "montantRemiseTotale")
 
     OrderResponse toResponse(Order order);
+
+    // Summary view: same header fields, lines are not touched (no lazy loading)
+    @Mapping(target = "clientId", source = "client.id")
+    @Mapping(target = "items", ignore = true)
+    @Mapping(target = "codePromo", source = "promoCodeId")
+    @Mapping(target = "sousTotal", source = "sousTotalHT")
+    @Mapping(target = "montantRemise", source = "montantRemiseTotale")
+    OrderResponse toSummaryResponse(Order order);
 }
\ No newline at end of file
@@ -17,7 +17,7 @@ public interface PaymentMapper {
     @Mapping(target = "order", ignore = true)
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "status", constant = "EN_ATTENTE") // Default status
-    @Mapping(target = "numeroPaiement", expression = "java(java.util.UUID.randomUUID().toString())") // Simple generation
+    @Mapping(target = "numeroPaiement", ignore = true) // Assigned by the service (DocumentNumberGenerator)
     Payment toEntity(PaymentRequest request);
 
     // Update existing Entity from Request
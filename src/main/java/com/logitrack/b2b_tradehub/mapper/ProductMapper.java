@@ -3,6 +3,7 @@ package com.logitrack.b2b_tradehub.mapper;
 import com.logitrack.b2b_tradehub.dto.product.ProductRequest;
 import com.logitrack.b2b_tradehub.dto.product.ProductResponse;
 import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.service.ProductCatalogCache;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -12,6 +13,7 @@ public class ProductMapper {
     public Product toEntity(ProductRequest request) {
         if (request == null) return null;
         return Product.builder()
+                .sku(request.getSku())
                 .nom(request.getNom())
                 .prixUnitaireHT(request.getPrixUnitaireHT())
                 .stockDisponible(request.getStockDisponible())
@@ -23,18 +25,40 @@ public class ProductMapper {
         if (product == null) return null;
         ProductResponse response = new ProductResponse();
         response.setId(product.getId());
+        response.setSku(product.getSku());
         response.setNom(product.getNom());
         response.setPrixUnitaireHT(product.getPrixUnitaireHT());
         response.setStockDisponible(product.getStockDisponible());
+        response.setStockReserve(product.getStockReserve());
         response.setCreatedAt(product.getCreatedAt());
+        response.setUpdatedAt(product.getUpdatedAt());
         response.setDeleted(product.getDeleted());
         return response;
     }
 
+    // Cached snapshot -> Response DTO (For cached reads)
+    public ProductResponse toResponse(ProductCatalogCache.ProductSnapshot product) {
+        if (product == null) return null;
+        ProductResponse response = new ProductResponse();
+        response.setId(product.getId());
+        response.setSku(product.getSku());
+        response.setNom(product.getNom());
+        response.setPrixUnitaireHT(product.getPrixUnitaireHT());
+        response.setStockDisponible(product.getStockDisponible());
+        response.setStockReserve(product.getStockReserve());
+        response.setCreatedAt(product.getCreatedAt());
+        response.setUpdatedAt(product.getUpdatedAt());
+        response.setDeleted(product.isDeleted());
+        return response;
+    }
+
     // DTO -> Existing Entity (For Update)
     public void updateEntity(Product existingProduct, ProductRequest request) {
         if (request == null || existingProduct == null) return;
 
+        if (request.getSku() != null) {
+            existingProduct.setSku(request.getSku());
+        }
         existingProduct.setNom(request.getNom());
         existingProduct.setPrixUnitaireHT(request.getPrixUnitaireHT());
         existingProduct.setStockDisponible(request.getStockDisponible());
@@ -0,0 +1,90 @@
+package com.logitrack.b2b_tradehub.repository;
+
+import com.logitrack.b2b_tradehub.entity.ClientOrderRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Every write is a single relative UPDATE (col = col + delta), so concurrent orders of the same client never
+ * overwrite each other's contribution. Rows are created on first use with INSERT ... ON CONFLICT DO NOTHING.
+ */
+@Repository
+public interface ClientOrderRollupRepository extends JpaRepository<ClientOrderRollup, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO client_order_rollups (client_id, order_count, confirmed_count, total_ttc, confirmed_ttc, " +
+            "total_paid, outstanding) VALUES (:clientId, 0, 0, 0, 0, 0, 0) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int ensureExists(@Param("clientId") Long clientId);
+
+    // New order: counted, fully outstanding
+    @Modifying
+    @Query(value = "UPDATE client_order_rollups SET order_count = order_count + 1, total_ttc = total_ttc + :ttc, " +
+            "outstanding = outstanding + :ttc, " +
+            "last_order_date = CASE WHEN last_order_date IS NULL OR last_order_date < :orderDate " +
+            "THEN :orderDate ELSE last_order_date END " +
+            "WHERE client_id = :clientId", nativeQuery = true)
+    int addOrder(@Param("clientId") Long clientId, @Param("ttc") BigDecimal ttc,
+                 @Param("orderDate") LocalDateTime orderDate);
+
+    @Modifying
+    @Query(value = "UPDATE client_order_rollups SET confirmed_count = confirmed_count + 1, " +
+            "confirmed_ttc = confirmed_ttc + :ttc WHERE client_id = :clientId", nativeQuery = true)
+    int addConfirmation(@Param("clientId") Long clientId, @Param("ttc") BigDecimal ttc);
+
+    // Cancelled order: its total, what was paid on it and what remained all leave the rollup
+    @Modifying
+    @Query(value = "UPDATE client_order_rollups SET order_count = order_count - 1, total_ttc = total_ttc - :ttc, " +
+            "total_paid = total_paid - (:ttc - :remaining), outstanding = outstanding - :remaining " +
+            "WHERE client_id = :clientId", nativeQuery = true)
+    int removeOrder(@Param("clientId") Long clientId, @Param("ttc") BigDecimal ttc,
+                    @Param("remaining") BigDecimal remaining);
+
+    // Repriced order: its total moves, and with it what is paid (overpayment) or still outstanding
+    @Modifying
+    @Query(value = "UPDATE client_order_rollups SET total_ttc = total_ttc + :ttcDelta, " +
+            "confirmed_ttc = confirmed_ttc + :confirmedDelta, total_paid = total_paid + :paidDelta, " +
+            "outstanding = outstanding + :remainingDelta WHERE client_id = :clientId", nativeQuery = true)
+    int repriceOrder(@Param("clientId") Long clientId, @Param("ttcDelta") BigDecimal ttcDelta,
+                     @Param("confirmedDelta") BigDecimal confirmedDelta, @Param("paidDelta") BigDecimal paidDelta,
+                     @Param("remainingDelta") BigDecimal remainingDelta);
+
+    @Modifying
+    @Query(value = "UPDATE client_order_rollups SET total_paid = total_paid + :amount, " +
+            "outstanding = outstanding - :amount WHERE client_id = :clientId", nativeQuery = true)
+    int addPayment(@Param("clientId") Long clientId, @Param("amount") BigDecimal amount);
+
+    // Rebuild of one chunk of clients: create missing rows, then recompute them from the orders table
+    @Modifying
+    @Query(value = "INSERT INTO client_order_rollups (client_id, order_count, confirmed_count, total_ttc, confirmed_ttc, " +
+            "total_paid, outstanding) SELECT c.id, 0, 0, 0, 0, 0, 0 FROM clients c " +
+            "WHERE c.id BETWEEN :fromId AND :toId ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertMissing(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    // Row locks in client-id order, so two rebuilds cannot deadlock each other
+    @Query(value = "SELECT client_id FROM client_order_rollups WHERE client_id BETWEEN :fromId AND :toId " +
+            "ORDER BY client_id FOR UPDATE", nativeQuery = true)
+    List<Long> lockRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    // Flushes first so pending order changes of the current transaction are included
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE client_order_rollups r SET (order_count, confirmed_count, total_ttc, confirmed_ttc, " +
+            "total_paid, outstanding, last_order_date) = (" +
+            "SELECT COALESCE(SUM(CASE WHEN o.status NOT IN ('CANCELLED', 'REJECTED') THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN o.status = 'CONFIRMED' THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN o.status NOT IN ('CANCELLED', 'REJECTED') THEN o.total_ttc ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN o.status = 'CONFIRMED' THEN o.total_ttc ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN o.status NOT IN ('CANCELLED', 'REJECTED') THEN o.total_ttc - o.montant_restant ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN o.status NOT IN ('CANCELLED', 'REJECTED') THEN o.montant_restant ELSE 0 END), 0), " +
+            "MAX(o.date_commande) " +
+            "FROM orders o WHERE o.client_id = r.client_id) " +
+            "WHERE r.client_id BETWEEN :fromId AND :toId", nativeQuery = true)
+    int recompute(@Param("fromId") Long fromId, @Param("toId") Long toId);
+}
@@ -1,12 +1,30 @@
 package com.logitrack.b2b_tradehub.repository;
 
 import com.logitrack.b2b_tradehub.entity.Client;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ClientRepository extends JpaRepository<Client, Long> {
     // Fixed the ID type issue here (Long, not String)
     Optional<Client> findByUserId(Long userId);
+
+    // Id range, used to split full-table jobs into chunks
+    @Query("SELECT MIN(c.id) FROM Client c")
+    Long findMinId();
+
+    @Query("SELECT MAX(c.id) FROM Client c")
+    Long findMaxId();
+
+    // Change feed page: clients written after (:ts, :id) and before :settled (index on updated_at, id)
+    @Query("SELECT c FROM Client c WHERE (c.updatedAt > :ts OR (c.updatedAt = :ts AND c.id > :id)) " +
+            "AND c.updatedAt < :settled ORDER BY c.updatedAt, c.id")
+    List<Client> findChangedAfter(@Param("ts") LocalDateTime ts, @Param("id") Long id,
+                                  @Param("settled") LocalDateTime settled, Pageable page);
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.logitrack.b2b_tradehub.repository;
+
+import com.logitrack.b2b_tradehub.entity.DailyPaymentFact;
+import com.logitrack.b2b_tradehub.entity.DailyPaymentFactId;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentStatus;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes are set-based over a list of payments (one statement whatever their number); reads only touch
+ * daily_payment_facts, never payments.
+ */
+@Repository
+public interface DailyPaymentFactRepository extends JpaRepository<DailyPaymentFact, DailyPaymentFactId> {
+
+    // Creates the (day, type, status) rows these payments contribute to, if missing
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO daily_payment_facts (payment_date, type_paiement, status, payment_count, montant) " +
+            "SELECT DISTINCT p.date_paiement, p.type_paiement, :status, 0, 0 FROM payments p " +
+            "WHERE p.id IN (:paymentIds) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int ensureRows(@Param("paymentIds") Collection<Long> paymentIds, @Param("status") String status);
+
+    // Adds (sign = 1) or removes (sign = -1) these payments from their status bucket
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE daily_payment_facts f SET " +
+            "payment_count = payment_count + :sign * (SELECT COUNT(*) FROM payments p WHERE p.id IN (:paymentIds) " +
+            "AND p.date_paiement = f.payment_date AND p.type_paiement = f.type_paiement), " +
+            "montant = montant + :sign * (SELECT COALESCE(SUM(p.montant), 0) FROM payments p WHERE p.id IN (:paymentIds) " +
+            "AND p.date_paiement = f.payment_date AND p.type_paiement = f.type_paiement) " +
+            "WHERE f.status = :status AND EXISTS (SELECT 1 FROM payments p WHERE p.id IN (:paymentIds) " +
+            "AND p.date_paiement = f.payment_date AND p.type_paiement = f.type_paiement)", nativeQuery = true)
+    int applyPayments(@Param("paymentIds") Collection<Long> paymentIds, @Param("status") String status,
+                      @Param("sign") int sign);
+
+    // Backfill of one date partition. Its payments first, locked until commit: status changes wait for the rebuild
+    @Query(value = "SELECT id FROM payments WHERE date_paiement >= :fromDate AND date_paiement < :toDate ORDER BY id FOR UPDATE",
+            nativeQuery = true)
+    List<Long> lockPayments(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    // Then a row for every (day, type, status) its payments contribute to, if missing
+    @Modifying
+    @Query(value = "INSERT INTO daily_payment_facts (payment_date, type_paiement, status, payment_count, montant) " +
+            "SELECT DISTINCT p.date_paiement, p.type_paiement, p.status, 0, 0 FROM payments p " +
+            "WHERE p.date_paiement >= :fromDate AND p.date_paiement < :toDate ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertMissingPartition(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    // Object[] {day, type, status, count, montant}: at most days x types x statuses rows
+    @Query("SELECT f.id.paymentDate, f.id.typePaiement, f.id.status, SUM(f.paymentCount), SUM(f.montant) " +
+            "FROM DailyPaymentFact f WHERE f.id.paymentDate BETWEEN :from AND :to " +
+            "AND f.id.typePaiement IN :types AND f.id.status IN :statuses " +
+            "GROUP BY f.id.paymentDate, f.id.typePaiement, f.id.status ORDER BY f.id.paymentDate")
+    List<Object[]> byDayTypeAndStatus(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                      @Param("types") Collection<PaymentType> types,
+                                      @Param("statuses") Collection<PaymentStatus> statuses);
+}
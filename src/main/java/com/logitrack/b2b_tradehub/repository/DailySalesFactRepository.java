@@ -0,0 +1,95 @@
+package com.logitrack.b2b_tradehub.repository;
+
+import com.logitrack.b2b_tradehub.entity.DailySalesFact;
+import com.logitrack.b2b_tradehub.entity.DailySalesFactId;
+import com.logitrack.b2b_tradehub.entity.enums.OrderStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes are set-based over the order's lines (one statement whatever the number of lines); reads only touch
+ * daily_sales_facts (and products for names), never orders or order_items.
+ */
+@Repository
+public interface DailySalesFactRepository extends JpaRepository<DailySalesFact, DailySalesFactId> {
+
+    // Creates the (day, product, tier, status) rows an order contributes to, if missing
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO daily_sales_facts (sale_date, product_id, client_tier, status, order_lines, quantity, amount_ht) " +
+            "SELECT DISTINCT :saleDate, oi.product_id, :tier, :status, 0, 0, 0 FROM order_items oi " +
+            "WHERE oi.order_id = :orderId ON CONFLICT DO NOTHING", nativeQuery = true)
+    int ensureRowsForOrder(@Param("orderId") Long orderId, @Param("saleDate") LocalDate saleDate,
+                           @Param("tier") String tier, @Param("status") String status);
+
+    // Adds (sign = 1) or removes (sign = -1) an order's lines from its status bucket
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE daily_sales_facts f SET order_lines = order_lines + :sign, " +
+            "quantity = quantity + :sign * (SELECT SUM(oi.quantite) FROM order_items oi " +
+            "WHERE oi.order_id = :orderId AND oi.product_id = f.product_id), " +
+            "amount_ht = amount_ht + :sign * (SELECT SUM(oi.total_ligne) FROM order_items oi " +
+            "WHERE oi.order_id = :orderId AND oi.product_id = f.product_id) " +
+            "WHERE f.sale_date = :saleDate AND f.client_tier = :tier AND f.status = :status " +
+            "AND f.product_id IN (SELECT oi.product_id FROM order_items oi WHERE oi.order_id = :orderId)",
+            nativeQuery = true)
+    int applyOrder(@Param("orderId") Long orderId, @Param("saleDate") LocalDate saleDate,
+                   @Param("tier") String tier, @Param("status") String status, @Param("sign") int sign);
+
+    // Backfill of one date partition. Its orders first, locked until commit: status changes wait for the rebuild
+    @Query(value = "SELECT id FROM orders WHERE date_commande >= :fromTs AND date_commande < :toTs ORDER BY id FOR UPDATE",
+            nativeQuery = true)
+    List<Long> lockOrders(@Param("fromTs") LocalDateTime fromTs, @Param("toTs") LocalDateTime toTs);
+
+    // Then a row for every (day, product, tier, status) its orders contribute to, if missing
+    @Modifying
+    @Query(value = "INSERT INTO daily_sales_facts (sale_date, product_id, client_tier, status, order_lines, quantity, amount_ht) " +
+            "SELECT DISTINCT CAST(o.date_commande AS DATE), oi.product_id, COALESCE(o.client_tier_at_order, c.tier, 'BASIC'), " +
+            "o.status, 0, 0, 0 FROM orders o JOIN order_items oi ON oi.order_id = o.id JOIN clients c ON c.id = o.client_id " +
+            "WHERE o.date_commande >= :fromTs AND o.date_commande < :toTs ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertMissingPartition(@Param("fromTs") LocalDateTime fromTs, @Param("toTs") LocalDateTime toTs);
+
+    // Confirmed sales per day and product since a date, used to rebuild the in-memory product rankings
+    @Query("SELECT f.id.saleDate, f.id.productId, SUM(f.quantity), SUM(f.amountHT) FROM DailySalesFact f " +
+            "WHERE f.id.saleDate >= :from AND f.id.status = com.logitrack.b2b_tradehub.entity.enums.OrderStatus.CONFIRMED " +
+            "GROUP BY f.id.saleDate, f.id.productId")
+    List<Object[]> confirmedByDayAndProductSince(@Param("from") LocalDate from);
+
+    // --- Reads: each row is Object[] {key, [label,] orderLines, quantity, amountHT} ---
+
+    @Query("SELECT SUM(f.orderLines), SUM(f.quantity), SUM(f.amountHT) FROM DailySalesFact f " +
+            "WHERE f.id.saleDate BETWEEN :from AND :to AND f.id.status IN :statuses")
+    List<Object[]> totals(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                          @Param("statuses") Collection<OrderStatus> statuses);
+
+    @Query("SELECT f.id.saleDate, SUM(f.orderLines), SUM(f.quantity), SUM(f.amountHT) FROM DailySalesFact f " +
+            "WHERE f.id.saleDate BETWEEN :from AND :to AND f.id.status IN :statuses " +
+            "GROUP BY f.id.saleDate ORDER BY f.id.saleDate")
+    List<Object[]> byDay(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                         @Param("statuses") Collection<OrderStatus> statuses);
+
+    @Query("SELECT f.id.productId, p.nom, SUM(f.orderLines), SUM(f.quantity), SUM(f.amountHT) " +
+            "FROM DailySalesFact f, Product p WHERE p.id = f.id.productId " +
+            "AND f.id.saleDate BETWEEN :from AND :to AND f.id.status IN :statuses " +
+            "GROUP BY f.id.productId, p.nom ORDER BY SUM(f.amountHT) DESC")
+    List<Object[]> byProduct(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                             @Param("statuses") Collection<OrderStatus> statuses);
+
+    @Query("SELECT f.id.clientTier, SUM(f.orderLines), SUM(f.quantity), SUM(f.amountHT) FROM DailySalesFact f " +
+            "WHERE f.id.saleDate BETWEEN :from AND :to AND f.id.status IN :statuses " +
+            "GROUP BY f.id.clientTier ORDER BY f.id.clientTier")
+    List<Object[]> byTier(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                          @Param("statuses") Collection<OrderStatus> statuses);
+
+    @Query("SELECT f.id.status, SUM(f.orderLines), SUM(f.quantity), SUM(f.amountHT) FROM DailySalesFact f " +
+            "WHERE f.id.saleDate BETWEEN :from AND :to AND f.id.status IN :statuses " +
+            "GROUP BY f.id.status ORDER BY f.id.status")
+    List<Object[]> byStatus(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                            @Param("statuses") Collection<OrderStatus> statuses);
+}
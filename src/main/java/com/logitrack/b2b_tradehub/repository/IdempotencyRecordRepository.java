@@ -0,0 +1,25 @@
+package com.logitrack.b2b_tradehub.repository;
+
+import com.logitrack.b2b_tradehub.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    // Read-write on purpose: keeps this lookup on the primary, a lagging replica could miss a stored key
+    @Transactional
+    Optional<IdempotencyRecord> findByScopeAndIdemKey(String scope, String idemKey);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -16,4 +17,12 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     List<OrderItem> findByProductId(Long productId);
     List<OrderItem> findByOrder(Order order);
     List<OrderItem> findByProduct(Product product);
+
+    // {order date, product id, quantity, line total} of the lines of these orders, once confirmed
+    @Query("SELECT oi.order.dateCommande, oi.product.id, oi.quantite, oi.totalLigne FROM OrderItem oi " +
+            "WHERE oi.order.id IN :orderIds AND oi.order.status = com.logitrack.b2b_tradehub.entity.enums.OrderStatus.CONFIRMED")
+    List<Object[]> findConfirmedLines(@Param("orderIds") Collection<Long> orderIds);
+
+    @Query("SELECT COUNT(DISTINCT oi.product.id) FROM OrderItem oi WHERE oi.order.id = :orderId")
+    long countDistinctProductsByOrderId(@Param("orderId") Long orderId);
 }
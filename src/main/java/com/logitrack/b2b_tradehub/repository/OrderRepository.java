@@ -4,16 +4,25 @@ import com.logitrack.b2b_tradehub.entity.Order;
 import com.logitrack.b2b_tradehub.entity.enums.OrderStatus;
 import com.logitrack.b2b_tradehub.entity.Client;
 import com.logitrack.b2b_tradehub.entity.PromoCode;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
 
 
     List<Order> findByStatus(OrderStatus status);
@@ -22,9 +31,69 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     List<Order> findByClientId(Long clientId);
 
+    @EntityGraph(Order.DETAIL_GRAPH)
     @Query("SELECT o FROM Order o WHERE o.client.id = :clientId ORDER BY o.dateCommande DESC")
     List<Order> findByClientIdOrderByDateCommandeDesc(@Param("clientId") Long clientId);
 
     Integer countByClientId(Long clientId);
 
+    @EntityGraph(Order.DETAIL_GRAPH)
+    Optional<Order> findDetailedById(Long id);
+
+    // Second step of a detail listing: lines and products of an already selected page, in one query
+    @EntityGraph(Order.DETAIL_GRAPH)
+    List<Order> findDetailedByIdIn(Collection<Long> ids);
+
+    // Server-side cursor for exports: rows are fetched 500 at a time and loaded read-only (no dirty-checking snapshots)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Order o WHERE o.dateCommande BETWEEN :startDate AND :endDate ORDER BY o.dateCommande, o.id")
+    Stream<Order> streamByDateCommandeBetween(@Param("startDate") LocalDateTime startDate,
+                                             @Param("endDate") LocalDateTime endDate);
+
+    // Date range of the whole table, used to partition backfill jobs
+    @Query("SELECT MIN(o.dateCommande) FROM Order o")
+    LocalDateTime findMinDateCommande();
+
+    @Query("SELECT MAX(o.dateCommande) FROM Order o")
+    LocalDateTime findMaxDateCommande();
+
+    // Newest change over all orders, for conditional GETs of listings (index on updated_at, id): {last update, max id}
+    @Query("SELECT MAX(o.updatedAt), MAX(o.id) FROM Order o")
+    List<Object[]> findOrdersVersion();
+
+    // Change feed page: orders written after (:ts, :id) and before :settled (index on updated_at, id)
+    @Query("SELECT o FROM Order o WHERE (o.updatedAt > :ts OR (o.updatedAt = :ts AND o.id > :id)) " +
+            "AND o.updatedAt < :settled ORDER BY o.updatedAt, o.id")
+    List<Order> findChangedAfter(@Param("ts") LocalDateTime ts, @Param("id") Long id,
+                                 @Param("settled") LocalDateTime settled, Pageable page);
+
+    // Applies a payment in one statement: the row lock serializes concurrent postings on the order, and every
+    // right-hand side reads the balance as it was before this update. 0 rows when the order is not PENDING.
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE orders SET montant_paye = montant_paye + LEAST(montant_restant, :amount), " +
+            "montant_restant = montant_restant - LEAST(montant_restant, :amount), ledger_seq = ledger_seq + 1, " +
+            "version = version + 1, updated_at = LOCALTIMESTAMP " +
+            "WHERE id = :id AND status = 'PENDING'", nativeQuery = true)
+    int applyPayment(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    // Orders paid before montant_paye existed have no ledger entry and their payments only in montant_restant:
+    // paid = total - remaining. Matches nothing once they are migrated, so it can run at every start.
+    @Modifying
+    @Query(value = "UPDATE orders SET montant_paye = total_ttc - montant_restant, version = version + 1, " +
+            "updated_at = LOCALTIMESTAMP WHERE ledger_seq = 0 AND montant_paye = 0 AND montant_restant < total_ttc",
+            nativeQuery = true)
+    int backfillLegacyMontantPaye();
+
+    // {montant_paye, montant_restant, ledger_seq, client_id}; read after applyPayment, under its row lock
+    @Query(value = "SELECT montant_paye, montant_restant, ledger_seq, client_id FROM orders WHERE id = :id", nativeQuery = true)
+    List<Object[]> findLedgerState(@Param("id") Long id);
+
+    // {version, updatedAt, sum of product versions, last product update} of one order and the products of its
+    // lines (shown with their current name), without loading them
+    @Query("SELECT o.version, o.updatedAt, SUM(p.version), MAX(p.updatedAt) FROM Order o " +
+            "LEFT JOIN o.orderItems oi LEFT JOIN oi.product p WHERE o.id = :id GROUP BY o.version, o.updatedAt")
+    List<Object[]> findVersionById(@Param("id") Long id);
 }
@@ -0,0 +1,13 @@
+package com.logitrack.b2b_tradehub.repository;
+
+import com.logitrack.b2b_tradehub.dto.order.OrderSearchCriteria;
+import com.logitrack.b2b_tradehub.entity.Order;
+import com.logitrack.b2b_tradehub.util.CursorCodec;
+
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+
+    // Keyset page ordered by (dateCommande DESC, id DESC), starting strictly after the given position (null = first page)
+    List<Order> findPage(OrderSearchCriteria criteria, CursorCodec.Position after, int limit);
+}
@@ -0,0 +1,61 @@
+package com.logitrack.b2b_tradehub.repository;
+
+import com.logitrack.b2b_tradehub.dto.order.OrderSearchCriteria;
+import com.logitrack.b2b_tradehub.entity.Order;
+import com.logitrack.b2b_tradehub.util.CursorCodec;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Order> findPage(OrderSearchCriteria criteria, CursorCodec.Position after, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT o FROM Order o WHERE 1 = 1");
+        Map<String, Object> parameters = new HashMap<>();
+        if (criteria.getStatus() != null) {
+            jpql.append(" AND o.status = :status");
+            parameters.put("status", criteria.getStatus());
+        }
+        if (criteria.getClientId() != null) {
+            jpql.append(" AND o.client.id = :clientId");
+            parameters.put("clientId", criteria.getClientId());
+        }
+        if (criteria.getStartDate() != null) {
+            jpql.append(" AND o.dateCommande >= :startDate");
+            parameters.put("startDate", criteria.getStartDate());
+        }
+        if (criteria.getEndDate() != null) {
+            jpql.append(" AND o.dateCommande <= :endDate");
+            parameters.put("endDate", criteria.getEndDate());
+        }
+        if (criteria.getMinTotal() != null) {
+            jpql.append(" AND o.totalTTC >= :minTotal");
+            parameters.put("minTotal", criteria.getMinTotal());
+        }
+        if (criteria.getMaxTotal() != null) {
+            jpql.append(" AND o.totalTTC <= :maxTotal");
+            parameters.put("maxTotal", criteria.getMaxTotal());
+        }
+        if (after != null) {
+            // Row-value comparison: PostgreSQL scans it as one range of the (date_commande, id) index, in index
+            // order so the limit stops the scan; the equivalent OR form is planned as a filter or a bitmap OR.
+            // Hibernate writes the OR form itself on databases without row values
+            jpql.append(" AND (o.dateCommande, o.id) < (:afterDate, :afterId)");
+            parameters.put("afterDate", after.getTimestamp());
+            parameters.put("afterId", after.getId());
+        }
+        jpql.append(" ORDER BY o.dateCommande DESC, o.id DESC");
+
+        TypedQuery<Order> query = entityManager.createQuery(jpql.toString(), Order.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,20 @@
+package com.logitrack.b2b_tradehub.repository;
+
+import com.logitrack.b2b_tradehub.entity.PaymentLedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PaymentLedgerEntryRepository extends JpaRepository<PaymentLedgerEntry, Long> {
+
+    // One entry by (order_id, seq), the unique index of the ledger
+    Optional<PaymentLedgerEntry> findByOrderIdAndSequence(Long orderId, Long sequence);
+
+    // Latest entry: backward scan of the same index, first row only
+    Optional<PaymentLedgerEntry> findFirstByOrderIdOrderBySequenceDesc(Long orderId);
+
+    List<PaymentLedgerEntry> findByOrderIdOrderBySequence(Long orderId);
+}
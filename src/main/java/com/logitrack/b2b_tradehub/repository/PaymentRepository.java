@@ -4,7 +4,9 @@ import com.logitrack.b2b_tradehub.entity.Payment;
 import com.logitrack.b2b_tradehub.entity.enums.PaymentType;
 import com.logitrack.b2b_tradehub.entity.enums.PaymentStatus;
 import com.logitrack.b2b_tradehub.entity.Order;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -23,4 +25,36 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Optional<Payment> findByNumeroPaiement(String numeroPaiement);
     List<Payment> findByDatePaiementBetween(LocalDate startDate, LocalDate endDate);
 
+    // Guarded status change: only one of two concurrent process calls on the same payment gets 1 row
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE payments SET status = 'ENCAISSE', date_encaissement = :date, updated_at = LOCALTIMESTAMP " +
+            "WHERE id = :id AND status <> 'ENCAISSE'", nativeQuery = true)
+    int markProcessed(@Param("id") Long id, @Param("date") LocalDate date);
+
+    // New due date of a payment still EN_ATTENTE; clears the overdue flag, the scheduler sets it again if needed
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE payments SET date_echeance = :date, overdue = FALSE, updated_at = LOCALTIMESTAMP " +
+            "WHERE id = :id AND status = 'EN_ATTENTE'", nativeQuery = true)
+    int reschedule(@Param("id") Long id, @Param("date") LocalDate date);
+
+    // Pending payments, soonest due date first (no due date last)
+    @Query("SELECT p FROM Payment p WHERE p.status = :status ORDER BY p.dateEcheance ASC NULLS LAST, p.id")
+    List<Payment> findByStatusOrderByDueDate(@Param("status") PaymentStatus status);
+
+    // Date range of the history, for a full daily_payment_facts backfill
+    @Query("SELECT MIN(p.datePaiement) FROM Payment p")
+    LocalDate findMinDatePaiement();
+
+    @Query("SELECT MAX(p.datePaiement) FROM Payment p")
+    LocalDate findMaxDatePaiement();
+
+    // Fallbacks of PaymentDueDateScheduler while its index is loading; served by idx_payments_status_date_echeance
+    @Query("SELECT p FROM Payment p WHERE p.status = 'EN_ATTENTE' AND p.dateEcheance BETWEEN :from AND :to " +
+            "ORDER BY p.dateEcheance, p.id")
+    List<Payment> findPendingDueBetween(@Param("from") LocalDate from, @Param("to") LocalDate to, Pageable pageable);
+
+    @Query("SELECT p FROM Payment p WHERE p.status = 'EN_ATTENTE' AND p.dateEcheance < :today " +
+            "ORDER BY p.dateEcheance, p.id")
+    List<Payment> findPendingDueBefore(@Param("today") LocalDate today, Pageable pageable);
+
 }
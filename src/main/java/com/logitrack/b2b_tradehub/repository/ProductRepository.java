@@ -1,22 +1,96 @@
 package com.logitrack.b2b_tradehub.repository;
 
 import com.logitrack.b2b_tradehub.entity.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     
     List<Product> findByDeletedFalse();
+
+    @Query("SELECT p.id FROM Product p WHERE p.deleted = false")
+    List<Long> findActiveIds();
     
-    List<Product> findByNomContaining(String nom);
+    // LIKE '%nom%' scan: only used while ProductSearchIndex is being built
+    List<Product> findByNomContaining(String nom, Pageable page);
+
+    @Query("SELECT MIN(p.id) FROM Product p")
+    Long findMinId();
+
+    @Query("SELECT MAX(p.id) FROM Product p")
+    Long findMaxId();
+
+    // Names of the non deleted products of an id range, for the search index rebuild
+    @Query("SELECT p.id, p.nom FROM Product p WHERE p.deleted = false AND p.id BETWEEN :fromId AND :toId")
+    List<Object[]> findActiveNamesBetween(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    // Changes on any product write (every write bumps version): {count, sum of versions, last update}
+    @Query("SELECT COUNT(p), SUM(p.version), MAX(p.updatedAt) FROM Product p")
+    List<Object[]> findCatalogVersion();
+
+    // Change feed page: products written after (:ts, :id) and before :settled (index on updated_at, id)
+    @Query("SELECT p FROM Product p WHERE (p.updatedAt > :ts OR (p.updatedAt = :ts AND p.id > :id)) " +
+            "AND p.updatedAt < :settled ORDER BY p.updatedAt, p.id")
+    List<Product> findChangedAfter(@Param("ts") LocalDateTime ts, @Param("id") Long id,
+                                   @Param("settled") LocalDateTime settled, Pageable page);
+
+    // {id, nom, deleted} of these products, to refresh the search index after a write on another node
+    @Query("SELECT p.id, p.nom, p.deleted FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findNamesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // {id, nom, deleted} of the products carrying these SKUs, to refresh caches and indexes after an import batch
+    @Query("SELECT p.id, p.nom, p.deleted FROM Product p WHERE p.sku IN :skus")
+    List<Object[]> findImportedBySkuIn(@Param("skus") Collection<String> skus);
+
     // Custom query for stock
     @Query("SELECT p FROM Product p WHERE p.stockDisponible > 0 AND p.deleted = false")
     List<Product> findInStock();
-    
+
+    // Guarded decrement: only succeeds when enough unreserved stock is left, returns the number of rows changed (0 or 1)
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE products SET stock_disponible = stock_disponible - :quantity, " +
+            "version = version + 1, updated_at = LOCALTIMESTAMP " +
+            "WHERE id = :id AND stock_disponible - stock_reserve >= :quantity", nativeQuery = true)
+    int decrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    // Decrements every product of an order in one statement; a product is skipped when its stock is too low
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE products SET stock_disponible = stock_disponible - " +
+            "(SELECT SUM(oi.quantite) FROM order_items oi WHERE oi.order_id = :orderId AND oi.product_id = products.id), " +
+            "version = version + 1, updated_at = LOCALTIMESTAMP " +
+            "WHERE id IN (SELECT oi.product_id FROM order_items oi WHERE oi.order_id = :orderId) " +
+            "AND stock_disponible - stock_reserve >= " +
+            "(SELECT SUM(oi.quantite) FROM order_items oi WHERE oi.order_id = :orderId AND oi.product_id = products.id)",
+            nativeQuery = true)
+    int decrementStockForOrder(@Param("orderId") Long orderId);
+
+    // Holds the quantities of every line of an order; a product is skipped when its unreserved stock is too low
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE products SET stock_reserve = stock_reserve + " +
+            "(SELECT SUM(oi.quantite) FROM order_items oi WHERE oi.order_id = :orderId AND oi.product_id = products.id), " +
+            "version = version + 1, updated_at = LOCALTIMESTAMP " +
+            "WHERE id IN (SELECT oi.product_id FROM order_items oi WHERE oi.order_id = :orderId) " +
+            "AND deleted = false AND stock_disponible - stock_reserve >= " +
+            "(SELECT SUM(oi.quantite) FROM order_items oi WHERE oi.order_id = :orderId AND oi.product_id = products.id)",
+            nativeQuery = true)
+    int reserveStockForOrder(@Param("orderId") Long orderId);
+
+    // Gives back the quantities held by the given reservations
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE products SET stock_reserve = GREATEST(stock_reserve - " +
+            "(SELECT SUM(r.quantite) FROM stock_reservations r WHERE r.id IN (:reservationIds) AND r.product_id = products.id), 0), " +
+            "version = version + 1, updated_at = LOCALTIMESTAMP " +
+            "WHERE id IN (SELECT r.product_id FROM stock_reservations r WHERE r.id IN (:reservationIds))",
+            nativeQuery = true)
+    int releaseReservedStock(@Param("reservationIds") Collection<Long> reservationIds);
 
 }
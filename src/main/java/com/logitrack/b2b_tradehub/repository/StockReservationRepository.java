@@ -0,0 +1,45 @@
+package com.logitrack.b2b_tradehub.repository;
+
+import com.logitrack.b2b_tradehub.entity.StockReservation;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    // Locks the holds of one order so the expiry sweeper cannot release them at the same time
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.order.id = :orderId")
+    List<StockReservation> lockByOrderId(@Param("orderId") Long orderId);
+
+    // Next batch of expired holds; rows already locked by a confirmation are skipped (SKIP LOCKED where supported)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT r FROM StockReservation r WHERE r.expiresAt < :now ORDER BY r.expiresAt")
+    List<StockReservation> lockExpired(@Param("now") LocalDateTime now, Pageable page);
+
+    // Creates one hold per product of the order from its persisted lines, ids taken from the entity's sequence
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO stock_reservations (id, order_id, product_id, quantite, expires_at, created_at) " +
+            "SELECT nextval('stock_reservations_seq'), h.order_id, h.product_id, h.quantite, :expiresAt, :now FROM (" +
+            "SELECT oi.order_id, oi.product_id, SUM(oi.quantite) AS quantite FROM order_items oi " +
+            "WHERE oi.order_id = :orderId GROUP BY oi.order_id, oi.product_id) h", nativeQuery = true)
+    int insertForOrder(@Param("orderId") Long orderId, @Param("expiresAt") LocalDateTime expiresAt,
+                       @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "DELETE FROM stock_reservations WHERE id IN (:ids)", nativeQuery = true)
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
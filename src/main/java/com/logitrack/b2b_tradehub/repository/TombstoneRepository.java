@@ -0,0 +1,22 @@
+package com.logitrack.b2b_tradehub.repository;
+
+import com.logitrack.b2b_tradehub.entity.Tombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TombstoneRepository extends JpaRepository<Tombstone, Long> {
+
+    // Change feed page of one resource, after (:ts, :id) and before :settled (index on resource, deleted_at, entity_id)
+    @Query("SELECT t FROM Tombstone t WHERE t.resource = :resource " +
+            "AND (t.deletedAt > :ts OR (t.deletedAt = :ts AND t.entityId > :id)) AND t.deletedAt < :settled " +
+            "ORDER BY t.deletedAt, t.entityId")
+    List<Tombstone> findChangedAfter(@Param("resource") String resource, @Param("ts") LocalDateTime ts,
+                                     @Param("id") Long id, @Param("settled") LocalDateTime settled, Pageable page);
+}
@@ -0,0 +1,149 @@
+package com.logitrack.b2b_tradehub.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Carries cache invalidations between application nodes over UDP, so every node drops an entry written on any
+ * of them. A message is one datagram "nodeId cache key1,key2,..." sent to each configured peer (a subnet
+ * broadcast address such as 10.0.0.255:47800 reaches every node of a LAN). Delivery is best effort: a lost
+ * datagram leaves the entry stale on that node until its TTL, which is why every cache keeps one.
+ * Disabled by default; caches then invalidate locally only.
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBus {
+
+    // Keeps a datagram under the usual Ethernet MTU
+    private static final int MAX_PAYLOAD = 1_400;
+
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private final Map<String, Consumer<String>> subscribers = new ConcurrentHashMap<>();
+
+    @Value("${tradehub.cache.broadcast.enabled:false}")
+    private boolean enabled;
+
+    @Value("${tradehub.cache.broadcast.port:47800}")
+    private int port;
+
+    // host:port list; a broadcast address counts as one peer
+    @Value("${tradehub.cache.broadcast.peers:}")
+    private List<String> peers;
+
+    private final List<InetSocketAddress> peerAddresses = new ArrayList<>();
+    private DatagramSocket socket;
+
+    @PostConstruct
+    void start() throws SocketException {
+        if (!enabled) {
+            return;
+        }
+        for (String peer : peers) {
+            if (peer.isBlank()) {
+                continue;
+            }
+            int colon = peer.lastIndexOf(':');
+            peerAddresses.add(new InetSocketAddress(peer.substring(0, colon).trim(), Integer.parseInt(peer.substring(colon + 1).trim())));
+        }
+        socket = new DatagramSocket(port);
+        socket.setBroadcast(true);
+        Thread receiver = new Thread(this::receive, "cache-invalidation-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+        log.info("Cache invalidation broadcast on UDP port {} to {} (node {})", port, peerAddresses, nodeId);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (socket != null) {
+            socket.close();
+        }
+    }
+
+    // Handler for the keys other nodes invalidate in one cache; it must only evict locally, never publish again
+    public void subscribe(String cache, Consumer<String> evictLocally) {
+        subscribers.put(cache, evictLocally);
+    }
+
+    public void publish(String cache, Collection<?> keys) {
+        if (socket == null || keys.isEmpty()) {
+            return;
+        }
+        String prefix = nodeId + " " + cache + " ";
+        StringBuilder message = new StringBuilder(prefix);
+        for (Object key : keys) {
+            String k = String.valueOf(key);
+            if (message.length() > prefix.length() && message.length() + k.length() + 1 > MAX_PAYLOAD) {
+                send(message.toString());
+                message.setLength(prefix.length());
+            }
+            if (message.length() > prefix.length()) {
+                message.append(',');
+            }
+            message.append(k);
+        }
+        send(message.toString());
+    }
+
+    private void send(String message) {
+        byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+        for (InetSocketAddress peer : peerAddresses) {
+            try {
+                socket.send(new DatagramPacket(payload, payload.length, peer));
+            } catch (IOException e) {
+                log.warn("Could not send cache invalidation to {}: {}", peer, e.getMessage());
+            }
+        }
+    }
+
+    private void receive() {
+        byte[] buffer = new byte[MAX_PAYLOAD * 2];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    log.warn("Cache invalidation receive failed: {}", e.getMessage());
+                }
+                continue;
+            }
+            dispatch(new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8));
+        }
+    }
+
+    void dispatch(String message) {
+        String[] parts = message.split(" ", 3);
+        if (parts.length < 3 || parts[0].equals(nodeId)) {
+            return;
+        }
+        Consumer<String> subscriber = subscribers.get(parts[1]);
+        if (subscriber == null) {
+            return;
+        }
+        for (String key : parts[2].split(",")) {
+            try {
+                subscriber.accept(key);
+            } catch (RuntimeException e) {
+                log.warn("Ignoring invalidation of {} in cache {}: {}", key, parts[1], e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.client.ClientResponse;
+import com.logitrack.b2b_tradehub.dto.order.OrderResponse;
+import com.logitrack.b2b_tradehub.dto.product.ProductResponse;
+import com.logitrack.b2b_tradehub.dto.sync.ChangeFeedEntry;
+import com.logitrack.b2b_tradehub.dto.sync.ChangeFeedPage;
+import com.logitrack.b2b_tradehub.entity.Client;
+import com.logitrack.b2b_tradehub.entity.Order;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.entity.Tombstone;
+import com.logitrack.b2b_tradehub.mapper.ClientMapper;
+import com.logitrack.b2b_tradehub.mapper.OrderMapper;
+import com.logitrack.b2b_tradehub.mapper.ProductMapper;
+import com.logitrack.b2b_tradehub.repository.ClientRepository;
+import com.logitrack.b2b_tradehub.repository.OrderRepository;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import com.logitrack.b2b_tradehub.repository.TombstoneRepository;
+import com.logitrack.b2b_tradehub.util.CursorCodec;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * "Changes since" feeds for downstream systems (WMS, ERP): rows written after a watermark, in (updatedAt, id)
+ * order, read by keyset on the (updated_at, id) indexes, so a sync costs the size of the delta, not of the table.
+ * Soft-deleted products and clients come as tombstones; hard-deleted clients from the tombstones table.
+ * Rows written in the last settle-lag are held back: a transaction still open when a page is read may commit an
+ * updatedAt lower than the returned watermark, and would be skipped. A write transaction longer than the settle
+ * lag can still be missed, as can a change on a replica lagging by more than it (routing falls back to the
+ * primary past max-lag, which must stay below the settle lag).
+ */
+@Service
+@RequiredArgsConstructor
+public class ChangeFeedService {
+
+    // Watermark of a client that never synced: the first page starts from the oldest row
+    private static final CursorCodec.Position ORIGIN = new CursorCodec.Position(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+    private final ClientRepository clientRepository;
+    private final TombstoneRepository tombstoneRepository;
+    private final ProductMapper productMapper;
+    private final OrderMapper orderMapper;
+    private final ClientMapper clientMapper;
+
+    @Value("${tradehub.change-feed.settle-lag:PT10S}")
+    private Duration settleLag;
+
+    @Value("${tradehub.change-feed.default-limit:500}")
+    private int defaultLimit;
+
+    @Value("${tradehub.change-feed.max-limit:1000}")
+    private int maxLimit;
+
+    @Transactional(readOnly = true)
+    public ChangeFeedPage<ProductResponse> productChanges(String cursor, Integer limit) {
+        int pageSize = pageSize(limit);
+        CursorCodec.Position after = position(cursor);
+        List<Product> rows = productRepository.findChangedAfter(after.getTimestamp(), after.getId(), settledBefore(),
+                PageRequest.ofSize(pageSize + 1));
+        List<ChangeFeedEntry<ProductResponse>> entries = new ArrayList<>(rows.size());
+        for (Product product : rows) {
+            boolean deleted = Boolean.TRUE.equals(product.getDeleted());
+            entries.add(new ChangeFeedEntry<>(product.getId(), product.getUpdatedAt(), deleted,
+                    deleted ? null : productMapper.toResponse(product)));
+        }
+        return page(entries, pageSize, cursor);
+    }
+
+    // Orders are never deleted; their lines come with them (one extra query for the whole page)
+    @Transactional(readOnly = true)
+    public ChangeFeedPage<OrderResponse> orderChanges(String cursor, Integer limit) {
+        int pageSize = pageSize(limit);
+        CursorCodec.Position after = position(cursor);
+        List<Order> rows = orderRepository.findChangedAfter(after.getTimestamp(), after.getId(), settledBefore(),
+                PageRequest.ofSize(pageSize + 1));
+        if (!rows.isEmpty()) {
+            orderRepository.findDetailedByIdIn(rows.stream().map(Order::getId).collect(Collectors.toList()));
+        }
+        List<ChangeFeedEntry<OrderResponse>> entries = new ArrayList<>(rows.size());
+        for (Order order : rows) {
+            entries.add(new ChangeFeedEntry<>(order.getId(), order.getUpdatedAt(), false, orderMapper.toResponse(order)));
+        }
+        return page(entries, pageSize, cursor);
+    }
+
+    // Live and soft-deleted rows merged with the hard-delete tombstones, both read by keyset from the same watermark
+    @Transactional(readOnly = true)
+    public ChangeFeedPage<ClientResponse> clientChanges(String cursor, Integer limit) {
+        int pageSize = pageSize(limit);
+        CursorCodec.Position after = position(cursor);
+        LocalDateTime settled = settledBefore();
+        PageRequest firstRows = PageRequest.ofSize(pageSize + 1);
+
+        List<ChangeFeedEntry<ClientResponse>> entries = new ArrayList<>();
+        for (Client client : clientRepository.findChangedAfter(after.getTimestamp(), after.getId(), settled, firstRows)) {
+            boolean deleted = Boolean.TRUE.equals(client.getDeleted());
+            entries.add(new ChangeFeedEntry<>(client.getId(), client.getUpdatedAt(), deleted,
+                    deleted ? null : clientMapper.toResponse(client)));
+        }
+        for (Tombstone tombstone : tombstoneRepository.findChangedAfter(Tombstone.CLIENT, after.getTimestamp(),
+                after.getId(), settled, firstRows)) {
+            entries.add(new ChangeFeedEntry<>(tombstone.getEntityId(), tombstone.getDeletedAt(), true, null));
+        }
+        entries.sort(Comparator.<ChangeFeedEntry<ClientResponse>, LocalDateTime>comparing(ChangeFeedEntry::getUpdatedAt)
+                .thenComparing(ChangeFeedEntry::getId));
+        return page(entries, pageSize, cursor);
+    }
+
+    // entries: up to pageSize + 1 rows in feed order, the extra one only telling whether another page exists
+    private static <T> ChangeFeedPage<T> page(List<ChangeFeedEntry<T>> entries, int pageSize, String cursor) {
+        boolean hasMore = entries.size() > pageSize;
+        List<ChangeFeedEntry<T>> items = hasMore ? new ArrayList<>(entries.subList(0, pageSize)) : entries;
+        String nextCursor = cursor;
+        if (!items.isEmpty()) {
+            ChangeFeedEntry<T> last = items.get(items.size() - 1);
+            nextCursor = CursorCodec.encode(last.getUpdatedAt(), last.getId());
+        } else if (nextCursor == null || nextCursor.isBlank()) {
+            nextCursor = CursorCodec.encode(ORIGIN.getTimestamp(), ORIGIN.getId());
+        }
+        return new ChangeFeedPage<>(items, nextCursor, hasMore);
+    }
+
+    private int pageSize(Integer limit) {
+        return (limit == null) ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
+    }
+
+    private static CursorCodec.Position position(String cursor) {
+        return (cursor == null || cursor.isBlank()) ? ORIGIN : CursorCodec.decode(cursor);
+    }
+
+    private LocalDateTime settledBefore() {
+        return LocalDateTime.now().minus(settleLag);
+    }
+}
@@ -0,0 +1,141 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.entity.ClientOrderRollup;
+import com.logitrack.b2b_tradehub.entity.Order;
+import com.logitrack.b2b_tradehub.entity.enums.OrderStatus;
+import com.logitrack.b2b_tradehub.repository.ClientOrderRollupRepository;
+import com.logitrack.b2b_tradehub.repository.ClientRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntSupplier;
+
+/**
+ * Keeps client_order_rollups in step with orders and payments. The on* methods join the caller's transaction,
+ * so a rollup change commits or rolls back with the order change that caused it; call them last, since they
+ * lock the client's rollup row until commit.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ClientRollupService {
+
+    private final ClientOrderRollupRepository rollupRepository;
+    private final ClientRepository clientRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${tradehub.rollups.rebuild-chunk-size:1000}")
+    private int rebuildChunkSize;
+
+    @Value("${tradehub.rollups.rebuild-parallelism:4}")
+    private int rebuildParallelism;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onOrderCreated(Order order) {
+        Long clientId = order.getClient().getId();
+        update(clientId, () -> rollupRepository.addOrder(clientId, order.getTotalTTC(), order.getDateCommande()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onOrderConfirmed(Order order) {
+        update(order.getClient().getId(), () -> rollupRepository.addConfirmation(order.getClient().getId(), order.getTotalTTC()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onOrderCancelled(Order order) {
+        Long clientId = order.getClient().getId();
+        update(clientId, () -> rollupRepository.removeOrder(clientId, order.getTotalTTC(), order.getMontantRestant()));
+    }
+
+    // Same terms as recompute: cancelled and rejected orders are not in the rollup, paid = total - remaining
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onOrderRepriced(Order order, BigDecimal previousTTC, BigDecimal previousRemaining) {
+        if (order.getStatus() == OrderStatus.CANCELLED || order.getStatus() == OrderStatus.REJECTED) {
+            return;
+        }
+        Long clientId = order.getClient().getId();
+        BigDecimal ttcDelta = order.getTotalTTC().subtract(previousTTC);
+        BigDecimal remainingDelta = order.getMontantRestant().subtract(previousRemaining);
+        BigDecimal confirmedDelta = order.getStatus() == OrderStatus.CONFIRMED ? ttcDelta : BigDecimal.ZERO;
+        update(clientId, () -> rollupRepository.repriceOrder(clientId, ttcDelta, confirmedDelta,
+                ttcDelta.subtract(remainingDelta), remainingDelta));
+    }
+
+    // amount actually applied to the order's remaining balance
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onPaymentApplied(Long clientId, BigDecimal amount) {
+        update(clientId, () -> rollupRepository.addPayment(clientId, amount));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ClientOrderRollup> findByClientId(Long clientId) {
+        return rollupRepository.findById(clientId);
+    }
+
+    /**
+     * Recomputes every rollup from the orders table, in client-id chunks run in parallel (one transaction per chunk).
+     * Meant for the first deployment and for nightly reconciliation. Each chunk locks its rollup rows before
+     * recomputing them: order flows write the rollup last, so once the lock is held every order whose delta already
+     * reached the row is committed and visible to the recompute, and the others apply their delta after it.
+     */
+    @Scheduled(cron = "${tradehub.rollups.rebuild-cron:0 30 3 * * *}")
+    public int rebuildAll() {
+        Long minId = clientRepository.findMinId();
+        Long maxId = clientRepository.findMaxId();
+        if (minId == null) {
+            return 0;
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        ExecutorService pool = Executors.newFixedThreadPool(rebuildParallelism);
+        try {
+            List<Future<Integer>> chunks = new ArrayList<>();
+            for (long from = minId; from <= maxId; from += rebuildChunkSize) {
+                long fromId = from;
+                long toId = Math.min(maxId, from + rebuildChunkSize - 1);
+                chunks.add(pool.submit(() -> tx.execute(status -> {
+                    rollupRepository.insertMissing(fromId, toId);
+                    rollupRepository.lockRange(fromId, toId);
+                    return rollupRepository.recompute(fromId, toId);
+                })));
+            }
+            int total = 0;
+            for (Future<Integer> chunk : chunks) {
+                total += chunk.get();
+            }
+            log.info("Rebuilt {} client order rollups in {} chunks", total, chunks.size());
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Rollup rebuild interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Rollup rebuild failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Clients whose orders predate the rollup table have no row yet: create it and recompute it from their orders,
+    // which already include the caller's change
+    private void update(Long clientId, IntSupplier delta) {
+        if (delta.getAsInt() == 0) {
+            rollupRepository.ensureExists(clientId);
+            rollupRepository.recompute(clientId, clientId);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.logitrack.b2b_tradehub.dto.client.ClientResponse;
 import com.logitrack.b2b_tradehub.dto.client.ClientUpdateRequest;
 import com.logitrack.b2b_tradehub.dto.order.OrderResponse;
 import com.logitrack.b2b_tradehub.entity.Client;
+import com.logitrack.b2b_tradehub.entity.Tombstone;
 import com.logitrack.b2b_tradehub.entity.User;
 import com.logitrack.b2b_tradehub.entity.enums.CustomerTier;
 import com.logitrack.b2b_tradehub.entity.enums.UserRole;
@@ -13,6 +14,7 @@ import com.logitrack.b2b_tradehub.mapper.ClientMapper;
 import com.logitrack.b2b_tradehub.mapper.OrderMapper;
 import com.logitrack.b2b_tradehub.repository.ClientRepository;
 import com.logitrack.b2b_tradehub.repository.OrderRepository;
+import com.logitrack.b2b_tradehub.repository.TombstoneRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -28,6 +30,7 @@ public class ClientService {
 
     private final ClientRepository clientRepository;
     private final OrderRepository orderRepository;
+    private final TombstoneRepository tombstoneRepository;
     private final UserService userService;
     private final ClientMapper clientMapper;
     private final OrderMapper orderMapper;
@@ -78,6 +81,8 @@ public class ClientService {
             clientRepository.save(client);
         } else {
             clientRepository.delete(client);
+            // The row is gone: the change feed reports the deletion from this trace
+            tombstoneRepository.save(new Tombstone(Tombstone.CLIENT, id));
         }
     }
 
@@ -0,0 +1,27 @@
+package com.logitrack.b2b_tradehub.service;
+
+/**
+ * Business numbers of documents (payments, orders, later invoices): short, readable on a bank statement, unique
+ * across nodes and increasing with creation time, so they also make a compact, append-only unique index.
+ */
+public interface DocumentNumberGenerator {
+
+    // Prefix + '-' + fixed-width code, e.g. PAY-0H6W9C2V8M001
+    String next(DocumentType type);
+
+    enum DocumentType {
+        PAYMENT("PAY"),
+        ORDER("ORD"),
+        INVOICE("INV");
+
+        private final String prefix;
+
+        DocumentType(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+    }
+}
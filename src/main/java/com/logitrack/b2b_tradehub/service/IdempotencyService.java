@@ -0,0 +1,286 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logitrack.b2b_tradehub.entity.IdempotencyRecord;
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+import com.logitrack.b2b_tradehub.repository.IdempotencyRecordRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key handling for create endpoints.
+ * A request first claims its key: a PENDING row (status_code 0) inserted with ON CONFLICT DO NOTHING, so across
+ * nodes exactly one request wins. The winner runs the action and stores the response in the action's own
+ * transaction ({@link IdempotentActionRunner}); losers poll until that response is stored and replay it.
+ * A claim is a lease: if its owner dies before committing, the key can be taken over once claim-lease has passed.
+ * A failed action releases its claim, so a retry runs again. Responses are also kept in a bounded LRU map, and
+ * requests with the same key on one node wait on the one in flight instead of polling. Replays never touch the
+ * business tables.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    // status_code of a claimed key whose action has not committed yet
+    private static final int PENDING = 0;
+    private static final long POLL_MILLIS = 50;
+
+    private static final String CLAIM_SQL = "INSERT INTO idempotency_keys (scope, idem_key, request_hash, status_code, "
+            + "response_body, created_at, expires_at) VALUES (?, ?, ?, 0, '', ?, ?) ON CONFLICT DO NOTHING";
+    private static final String TAKE_OVER_SQL = "UPDATE idempotency_keys SET request_hash = ?, expires_at = ? "
+            + "WHERE scope = ? AND idem_key = ? AND status_code = 0 AND expires_at = ?";
+    private static final String RELEASE_SQL = "DELETE FROM idempotency_keys "
+            + "WHERE scope = ? AND idem_key = ? AND status_code = 0 AND expires_at = ?";
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM idempotency_keys "
+            + "WHERE scope = ? AND idem_key = ? AND status_code <> 0 AND expires_at = ?";
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final IdempotentActionRunner actionRunner;
+
+    @Value("${tradehub.idempotency.ttl:PT24H}")
+    private Duration ttl;
+
+    @Value("${tradehub.idempotency.in-flight-wait:PT30S}")
+    private Duration inFlightWait;
+
+    // Longest an action may run; past it, its claim may be taken over by a retry
+    @Value("${tradehub.idempotency.claim-lease:PT2M}")
+    private Duration claimLease;
+
+    @Value("${tradehub.idempotency.local-max-entries:10000}")
+    private int localMaxEntries;
+
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private Map<String, StoredResponse> localStore;
+
+    @PostConstruct
+    void initLocalStore() {
+        // Access-ordered LinkedHashMap: the least recently used key is evicted past the bound
+        localStore = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > localMaxEntries;
+            }
+        });
+    }
+
+    public <T> ResponseEntity<T> execute(String scope, String key, Object request, Class<T> responseType,
+                                         HttpStatus successStatus, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return ResponseEntity.status(successStatus).body(action.get());
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BusinessValidationException(HEADER + " must not exceed " + MAX_KEY_LENGTH + " characters.");
+        }
+
+        String storeKey = scope + ':' + key;
+        String requestHash = hash(request);
+
+        StoredResponse cached = lookupLocal(storeKey);
+        if (cached != null) {
+            return replay(cached, requestHash, responseType);
+        }
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(storeKey, mine);
+        if (running != null) {
+            // Same key already executing (retry storm): wait for its outcome instead of running again
+            return replay(await(running), requestHash, responseType);
+        }
+
+        try {
+            long deadline = System.nanoTime() + inFlightWait.toNanos();
+            while (true) {
+                LocalDateTime lease = claim(scope, key, requestHash);
+                if (lease != null) {
+                    return runClaimed(scope, key, storeKey, requestHash, lease, successStatus, action, mine);
+                }
+                StoredResponse stored = lookupPersistent(scope, key);
+                if (stored != null && stored.getStatusCode() != PENDING && stored.getExpiresAt().isAfter(LocalDateTime.now())) {
+                    localStore.put(storeKey, stored);
+                    mine.complete(stored);
+                    return replay(stored, requestHash, responseType);
+                }
+                if (stored != null && stored.getStatusCode() == PENDING && !stored.getRequestHash().equals(requestHash)) {
+                    throw new BusinessValidationException(HEADER + " was already used for a different request.");
+                }
+                // Claimed by a request still running, possibly on another node: wait for its response
+                if (System.nanoTime() > deadline) {
+                    throw new BusinessValidationException("A request with the same " + HEADER + " is still being processed.");
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            IllegalStateException failure = new IllegalStateException(e);
+            mine.completeExceptionally(failure);
+            throw failure;
+        } catch (RuntimeException e) {
+            // Failures are not remembered: waiting duplicates get the same error, later retries run again
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(storeKey, mine);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${tradehub.idempotency.sweep-interval:PT1H}")
+    public void purgeExpired() {
+        int deleted = recordRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private <T> ResponseEntity<T> runClaimed(String scope, String key, String storeKey, String requestHash,
+                                             LocalDateTime lease, HttpStatus successStatus, Supplier<T> action,
+                                             CompletableFuture<StoredResponse> mine) {
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl).truncatedTo(ChronoUnit.MILLIS);
+        T body;
+        try {
+            body = actionRunner.runAndComplete(scope, key, lease, successStatus.value(), expiresAt, action, this::toJson);
+        } catch (RuntimeException e) {
+            // Nothing committed: free the key so that a retry runs the action again
+            jdbcTemplate.update(RELEASE_SQL, scope, key, Timestamp.valueOf(lease));
+            throw e;
+        }
+        StoredResponse stored = new StoredResponse(requestHash, successStatus.value(), toJson(body), expiresAt);
+        localStore.put(storeKey, stored);
+        mine.complete(stored);
+        return ResponseEntity.status(successStatus).body(body);
+    }
+
+    /**
+     * Claims the key for this request: a new PENDING row, or the take-over of a PENDING row whose lease ran out
+     * (its owner died before committing). Returns the lease (the row's expires_at, which guards completion and
+     * release) or null when another request holds the key or already completed it. An expired completed row
+     * is deleted first: outside the window the key may be used again.
+     */
+    private LocalDateTime claim(String scope, String key, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lease = now.plus(claimLease).truncatedTo(ChronoUnit.MILLIS);
+        if (jdbcTemplate.update(CLAIM_SQL, scope, key, requestHash, Timestamp.valueOf(now), Timestamp.valueOf(lease)) == 1) {
+            return lease;
+        }
+        IdempotencyRecord record = recordRepository.findByScopeAndIdemKey(scope, key).orElse(null);
+        if (record == null || !record.getExpiresAt().isBefore(now)) {
+            return null;
+        }
+        Timestamp previous = Timestamp.valueOf(record.getExpiresAt());
+        if (record.getStatusCode() != PENDING) {
+            jdbcTemplate.update(DELETE_EXPIRED_SQL, scope, key, previous);
+            return jdbcTemplate.update(CLAIM_SQL, scope, key, requestHash, Timestamp.valueOf(now), Timestamp.valueOf(lease)) == 1
+                    ? lease : null;
+        }
+        return jdbcTemplate.update(TAKE_OVER_SQL, requestHash, Timestamp.valueOf(lease), scope, key, previous) == 1
+                ? lease : null;
+    }
+
+    private StoredResponse lookupLocal(String storeKey) {
+        StoredResponse cached = localStore.get(storeKey);
+        if (cached != null && cached.getExpiresAt().isBefore(LocalDateTime.now())) {
+            localStore.remove(storeKey);
+            return null;
+        }
+        return cached;
+    }
+
+    private StoredResponse lookupPersistent(String scope, String key) {
+        IdempotencyRecord record = recordRepository.findByScopeAndIdemKey(scope, key).orElse(null);
+        if (record == null) {
+            return null;
+        }
+        return new StoredResponse(record.getRequestHash(), record.getStatusCode(), record.getResponseBody(),
+                record.getExpiresAt());
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> running) {
+        try {
+            return running.get(inFlightWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new BusinessValidationException("A request with the same " + HEADER + " is still being processed.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private <T> ResponseEntity<T> replay(StoredResponse stored, String requestHash, Class<T> responseType) {
+        if (!stored.getRequestHash().equals(requestHash)) {
+            throw new BusinessValidationException(HEADER + " was already used for a different request.");
+        }
+        try {
+            T body = objectMapper.readValue(stored.getBody(), responseType);
+            return ResponseEntity.status(stored.getStatusCode()).header(REPLAYED_HEADER, "true").body(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response cannot be read", e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response cannot be stored for idempotent replay", e);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(toJson(request).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to apply hashing algorithm (SHA-256).", e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class StoredResponse {
+        private final String requestHash;
+        private final int statusCode;
+        private final String body;
+        private final LocalDateTime expiresAt;
+    }
+}
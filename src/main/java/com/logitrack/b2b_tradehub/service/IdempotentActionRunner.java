@@ -0,0 +1,43 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.config.RetryOnConflict;
+import com.logitrack.b2b_tradehub.exception.ConflictException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the action of a claimed Idempotency-Key and stores its response in the same transaction: either both
+ * commit or neither does, so a crash in between cannot leave an order without its key (or the reverse).
+ * Completion is guarded by the claim's lease: if the claim expired and another request took it over, this one
+ * rolls back instead of creating the resource a second time.
+ */
+@Component
+@RequiredArgsConstructor
+public class IdempotentActionRunner {
+
+    private static final String COMPLETE_SQL = "UPDATE idempotency_keys SET status_code = ?, response_body = ?, "
+            + "expires_at = ? WHERE scope = ? AND idem_key = ? AND status_code = 0 AND expires_at = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Retried as a whole: the action's own @RetryOnConflict does not retry inside this transaction
+    @RetryOnConflict
+    @Transactional
+    public <T> T runAndComplete(String scope, String key, LocalDateTime lease, int statusCode, LocalDateTime expiresAt,
+                                Supplier<T> action, Function<T, String> serializer) {
+        T body = action.get();
+        int completed = jdbcTemplate.update(COMPLETE_SQL, statusCode, serializer.apply(body), Timestamp.valueOf(expiresAt),
+                scope, key, Timestamp.valueOf(lease));
+        if (completed == 0) {
+            throw new ConflictException("Idempotency-Key claim expired and was taken over by another request.");
+        }
+        return body;
+    }
+}
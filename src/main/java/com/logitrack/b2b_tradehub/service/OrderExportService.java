@@ -0,0 +1,152 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logitrack.b2b_tradehub.dto.order.OrderExportFormat;
+import com.logitrack.b2b_tradehub.entity.Order;
+import com.logitrack.b2b_tradehub.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the orders of a date range straight to an output stream, one row at a time.
+ * Memory use does not depend on the number of orders: rows come from a database cursor and each
+ * entity is detached as soon as it has been written.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderExportService {
+
+    private static final int CLEAR_EVERY = 1000;
+
+    private static final String CSV_HEADER = "id,clientId,dateCommande,status,sousTotalHT,montantRemiseTotale,"
+            + "montantHTApresRemise,tauxTVA,montantTVA,totalTTC,montantRestant,codePromo,confirmedAt";
+
+    private final OrderRepository orderRepository;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public long export(LocalDateTime startDate, LocalDateTime endDate, OrderExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        JsonGenerator json = null;
+        if (format == OrderExportFormat.NDJSON) {
+            json = objectMapper.getFactory().createGenerator(writer);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            json.setRootValueSeparator(null);
+        } else {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long count = 0;
+        try (Stream<Order> orders = orderRepository.streamByDateCommandeBetween(startDate, endDate)) {
+            Iterator<Order> it = orders.iterator();
+            while (it.hasNext()) {
+                Order order = it.next();
+                if (json != null) {
+                    writeJson(json, order);
+                    json.flush();
+                    writer.write('\n');
+                } else {
+                    writeCsv(writer, order);
+                }
+                entityManager.detach(order);
+                if (++count % CLEAR_EVERY == 0) {
+                    // Drops the lazy client proxies collected along the way
+                    entityManager.clear();
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private void writeJson(JsonGenerator json, Order order) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", order.getId());
+        if (order.getClient() != null) {
+            json.writeNumberField("clientId", order.getClient().getId());
+        }
+        json.writeStringField("dateCommande", String.valueOf(order.getDateCommande()));
+        json.writeStringField("status", order.getStatus().name());
+        json.writeNumberField("sousTotalHT", order.getSousTotalHT());
+        json.writeNumberField("montantRemiseTotale", order.getMontantRemiseTotale());
+        json.writeNumberField("montantHTApresRemise", order.getMontantHTApresRemise());
+        json.writeNumberField("tauxTVA", order.getTauxTVA());
+        json.writeNumberField("montantTVA", order.getMontantTVA());
+        json.writeNumberField("totalTTC", order.getTotalTTC());
+        json.writeNumberField("montantRestant", order.getMontantRestant());
+        if (order.getPromoCodeId() != null) {
+            json.writeStringField("codePromo", order.getPromoCodeId());
+        }
+        if (order.getConfirmedAt() != null) {
+            json.writeStringField("confirmedAt", order.getConfirmedAt().toString());
+        }
+        json.writeEndObject();
+    }
+
+    private void writeCsv(Writer writer, Order order) throws IOException {
+        writer.write(String.valueOf(order.getId()));
+        writer.write(',');
+        if (order.getClient() != null) {
+            writer.write(String.valueOf(order.getClient().getId()));
+        }
+        writer.write(',');
+        writer.write(String.valueOf(order.getDateCommande()));
+        writer.write(',');
+        writer.write(order.getStatus().name());
+        writeAmount(writer, order.getSousTotalHT());
+        writeAmount(writer, order.getMontantRemiseTotale());
+        writeAmount(writer, order.getMontantHTApresRemise());
+        writeAmount(writer, order.getTauxTVA());
+        writeAmount(writer, order.getMontantTVA());
+        writeAmount(writer, order.getTotalTTC());
+        writeAmount(writer, order.getMontantRestant());
+        writer.write(',');
+        if (order.getPromoCodeId() != null) {
+            writeCsvText(writer, order.getPromoCodeId());
+        }
+        writer.write(',');
+        if (order.getConfirmedAt() != null) {
+            writer.write(order.getConfirmedAt().toString());
+        }
+        writer.write('\n');
+    }
+
+    private void writeAmount(Writer writer, BigDecimal amount) throws IOException {
+        writer.write(',');
+        if (amount != null) {
+            writer.write(amount.toPlainString());
+        }
+    }
+
+    // RFC 4180 quoting, only when the value needs it
+    private void writeCsvText(Writer writer, String value) throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
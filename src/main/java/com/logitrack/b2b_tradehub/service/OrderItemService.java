@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -35,5 +36,18 @@ public class OrderItemService {
         return orderItemRepository.save(orderItem);
     }
 
+    // Requirement: EF 4 (Create Order) - Validates every line first, then inserts them all in one saveAll
+    @Transactional
+    public List<OrderItem> createAll(List<OrderItem> items) {
+        for (OrderItem item : items) {
+            if (item.getQuantite() == null || item.getQuantite() <= 0) {
+                throw new BusinessValidationException("Quantity must be greater than 0.");
+            }
+            if (item.getPrixUnitaireHT().compareTo(BigDecimal.ZERO) < 0) {
+                throw new BusinessValidationException("Price cannot be negative.");
+            }
+        }
+        return orderItemRepository.saveAll(items);
+    }
 
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderQuoteResponse;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemQuoteResponse;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
+import com.logitrack.b2b_tradehub.entity.Client;
+import com.logitrack.b2b_tradehub.entity.PricedLine;
+import com.logitrack.b2b_tradehub.entity.PromoCode;
+import com.logitrack.b2b_tradehub.exception.ResourceNotFoundException;
+import com.logitrack.b2b_tradehub.repository.ClientRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prices a cart exactly like order creation (same PricingEngine) without writing anything.
+ * Products and promo codes come from short-lived caches; there is no surrounding transaction, so the only
+ * database access is a primary-key read of the client and cache misses, each in its own read-only call.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderQuoteService {
+
+    private final ClientRepository clientRepository;
+    private final ProductCatalogCache productCatalogCache;
+    private final PromoCodeCache promoCodeCache;
+    private final PromoCodeService promoCodeService;
+    private final PricingEngine pricingEngine;
+
+    public OrderQuoteResponse quote(OrderCreateRequest request) {
+        Client client = clientRepository.findById(request.getClientId())
+                .orElseThrow(() -> new ResourceNotFoundException("Client not found"));
+
+        Set<Long> productIds = new HashSet<>();
+        for (OrderItemRequest itemDto : request.getItems()) {
+            productIds.add(itemDto.getProductId());
+        }
+        Map<Long, ProductCatalogCache.ProductSnapshot> products = productCatalogCache.getAll(productIds);
+
+        // Requirement: EF 6 (Stock Validation) - same product on several lines counts once against the stock
+        Map<Long, Integer> requested = new HashMap<>();
+        List<QuoteLine> lines = new ArrayList<>(request.getItems().size());
+        for (OrderItemRequest itemDto : request.getItems()) {
+            ProductCatalogCache.ProductSnapshot product = products.get(itemDto.getProductId());
+            if (product == null) {
+                throw new ResourceNotFoundException("Product not found");
+            }
+            requested.merge(product.getId(), itemDto.getQuantite(), Integer::sum);
+            lines.add(new QuoteLine(product, itemDto.getQuantite()));
+        }
+
+        String promoCodeInput = request.getPromoCode();
+        PromoCode promo = (promoCodeInput == null || promoCodeInput.isEmpty())
+                ? null : promoCodeCache.get(promoCodeInput).filter(promoCodeService::isValid).orElse(null);
+        PricingEngine.Price price = pricingEngine.price(lines, client, promo);
+
+        OrderQuoteResponse response = new OrderQuoteResponse();
+        response.setClientId(client.getId());
+        response.setClientTier(client.getTier());
+        List<OrderItemQuoteResponse> items = new ArrayList<>(lines.size());
+        boolean orderable = true;
+        for (QuoteLine line : lines) {
+            ProductCatalogCache.ProductSnapshot product = line.getProduct();
+            OrderItemQuoteResponse item = new OrderItemQuoteResponse();
+            item.setProductId(product.getId());
+            item.setProductName(product.getNom());
+            item.setQuantite(line.getQuantite());
+            item.setPrixUnitaireHT(product.getPrixUnitaireHT());
+            item.setTotalLigne(product.getPrixUnitaireHT().multiply(BigDecimal.valueOf(line.getQuantite())));
+            item.setInStock(!product.isDeleted() && requested.get(product.getId()) <= product.getAvailable());
+            orderable &= item.isInStock();
+            items.add(item);
+        }
+        response.setItems(items);
+        response.setOrderable(orderable);
+
+        response.setPromoCode(promoCodeInput);
+        response.setPromoApplied(price.getPromoDiscountCents() > 0);
+        response.setSousTotalHT(PricingEngine.toAmount(price.getSubtotalCents()));
+        response.setRemiseFidelite(PricingEngine.toAmount(price.getLoyaltyDiscountCents()));
+        response.setRemisePromo(PricingEngine.toAmount(price.getPromoDiscountCents()));
+        response.setMontantRemiseTotale(PricingEngine.toAmount(price.getDiscountCents()));
+        response.setMontantHTApresRemise(PricingEngine.toAmount(price.getNetCents()));
+        response.setTauxTVA(PricingEngine.VAT_RATE_PERCENT);
+        response.setMontantTVA(PricingEngine.toAmount(price.getVatCents()));
+        response.setTotalTTC(PricingEngine.toAmount(price.getTotalCents()));
+        return response;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class QuoteLine implements PricedLine {
+        private final ProductCatalogCache.ProductSnapshot product;
+        private final Integer quantite;
+
+        @Override
+        public BigDecimal getPrixUnitaireHT() {
+            return product.getPrixUnitaireHT();
+        }
+    }
+}
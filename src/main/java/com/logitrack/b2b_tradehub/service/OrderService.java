@@ -1,7 +1,12 @@
 package com.logitrack.b2b_tradehub.service;
 
+import com.logitrack.b2b_tradehub.config.RetryOnConflict;
+import com.logitrack.b2b_tradehub.config.SqlStatementCounter;
+import com.logitrack.b2b_tradehub.dto.CursorPage;
 import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
 import com.logitrack.b2b_tradehub.dto.order.OrderResponse;
+import com.logitrack.b2b_tradehub.dto.order.OrderSearchCriteria;
+import com.logitrack.b2b_tradehub.dto.order.OrderView;
 import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
 import com.logitrack.b2b_tradehub.entity.*;
 import com.logitrack.b2b_tradehub.entity.enums.OrderStatus;
@@ -11,16 +16,28 @@ import com.logitrack.b2b_tradehub.mapper.OrderMapper;
 import com.logitrack.b2b_tradehub.repository.ClientRepository;
 import com.logitrack.b2b_tradehub.repository.OrderRepository;
 import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import com.logitrack.b2b_tradehub.util.CursorCodec;
+import com.logitrack.b2b_tradehub.util.ResourceVersion;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class OrderService {
@@ -31,35 +48,118 @@ public class OrderService {
     private final OrderItemService orderItemService;
     private final ClientService clientService; // For updating loyalty
     private final ProductService productService; // For stock management
-    private final PromoCodeService promoCodeService; // For discount calculation
+    private final StockReservationService stockReservationService; // For stock held by PENDING orders
+    private final PromoCodeService promoCodeService; // For promo code validation
+    private final PricingEngine pricingEngine;
+    private final DocumentNumberGenerator documentNumberGenerator;
+    private final ClientRollupService clientRollupService;
+    private final SalesFactService salesFactService;
+    private final ProductRankingService productRankingService;
+    private final ProductCatalogCache productCatalogCache;
     private final OrderMapper orderMapper;
+    private final SqlStatementCounter statementCounter;
+    private final MeterRegistry meterRegistry;
+
+    private DistributionSummary createStatementsSummary;
+
+    // Listing page bounds
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
+    @PostConstruct
+    void registerMetrics() {
+        createStatementsSummary = DistributionSummary.builder("tradehub.orders.create.statements")
+                .description("SQL statements issued per createOrderFlow call")
+                .register(meterRegistry);
+    }
 
     // --- READ OPERATIONS ---
 
+    // Keyset listing: bounded page, ordered newest first, never counts the table
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> search(OrderSearchCriteria criteria, String cursor, Integer limit, OrderView view) {
+        int pageSize = (limit == null) ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        CursorCodec.Position after = (cursor == null || cursor.isBlank()) ? null : CursorCodec.decode(cursor);
+
+        // One extra row tells us whether another page exists
+        List<Order> rows = orderRepository.findPage(criteria, after, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<Order> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            Order last = page.get(page.size() - 1);
+            nextCursor = CursorCodec.encode(last.getDateCommande(), last.getId());
+        }
+
+        List<OrderResponse> items;
+        if (view == OrderView.SUMMARY) {
+            items = page.stream().map(orderMapper::toSummaryResponse).collect(Collectors.toList());
+        } else {
+            items = toDetailResponses(page);
+        }
+        return new CursorPage<>(items, nextCursor, hasMore);
+    }
+
+    // Loads the lines and products of the whole page in one query (the page entities are the same managed instances)
+    private List<OrderResponse> toDetailResponses(List<Order> page) {
+        if (!page.isEmpty()) {
+            orderRepository.findDetailedByIdIn(page.stream().map(Order::getId).collect(Collectors.toList()));
+        }
+        return page.stream().map(orderMapper::toResponse).collect(Collectors.toList());
+    }
+
+    // Conditional GET validators, from a projection (the order itself is not loaded). Lines show the current
+    // product name, so the products of the order are part of its version: renaming one changes the ETag.
+    @Transactional(readOnly = true)
+    public ResourceVersion version(Long id) {
+        List<Object[]> rows = orderRepository.findVersionById(id);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Order not found");
+        }
+        Object[] row = rows.get(0);
+        LocalDateTime orderUpdate = (LocalDateTime) row[1];
+        LocalDateTime productUpdate = (LocalDateTime) row[3];
+        LocalDateTime lastModified = productUpdate != null && (orderUpdate == null || productUpdate.isAfter(orderUpdate))
+                ? productUpdate : orderUpdate;
+        return ResourceVersion.of("order", lastModified, id, row[0], row[2] == null ? 0 : row[2]);
+    }
+
+    // Any order created or changed moves the newest (updatedAt, id), any product write the catalog version:
+    // either changes the ETag of every listing
     @Transactional(readOnly = true)
-    public List<OrderResponse> findAll() {
-        return orderRepository.findAll().stream().map(orderMapper::toResponse).collect(Collectors.toList());
+    public ResourceVersion ordersVersion() {
+        Object[] row = orderRepository.findOrdersVersion().get(0);
+        LocalDateTime lastUpdate = (LocalDateTime) row[0];
+        return ResourceVersion.of("orders", lastUpdate,
+                lastUpdate == null ? 0 : lastUpdate.toString(), row[1] == null ? 0 : row[1])
+                .and(productCatalogCache.catalogVersion());
     }
 
     @Transactional(readOnly = true)
     public OrderResponse findById(Long id) {
-        return orderMapper.toResponse(findOrderEntityById(id));
+        return orderMapper.toResponse(orderRepository.findDetailedById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found")));
     }
 
     @Transactional(readOnly = true)
-    public List<OrderResponse> findByStatus(OrderStatus status) {
-        return orderRepository.findByStatus(status).stream().map(orderMapper::toResponse).collect(Collectors.toList());
+    public CursorPage<OrderResponse> findByStatus(OrderStatus status, String cursor, Integer limit) {
+        OrderSearchCriteria criteria = new OrderSearchCriteria();
+        criteria.setStatus(status);
+        return search(criteria, cursor, limit, OrderView.DETAIL);
     }
 
     @Transactional(readOnly = true)
-    public List<OrderResponse> findPendingOrders() {
-        return findByStatus(OrderStatus.PENDING);
+    public CursorPage<OrderResponse> findPendingOrders(String cursor, Integer limit) {
+        return findByStatus(OrderStatus.PENDING, cursor, limit);
     }
 
     @Transactional(readOnly = true)
-    public List<OrderResponse> findByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return orderRepository.findByDateCommandeBetween(startDate, endDate).stream()
-                .map(orderMapper::toResponse).collect(Collectors.toList());
+    public CursorPage<OrderResponse> findByDateRange(LocalDateTime startDate, LocalDateTime endDate, String cursor, Integer limit) {
+        OrderSearchCriteria criteria = new OrderSearchCriteria();
+        criteria.setStartDate(startDate);
+        criteria.setEndDate(endDate);
+        return search(criteria, cursor, limit, OrderView.DETAIL);
     }
 
     // --- CORE BUSINESS LOGIC (Create, Confirm, Cancel) ---
@@ -67,85 +167,94 @@ public class OrderService {
     // Requirement: EF 4 (Create Order)
     @Transactional
     public OrderResponse createOrderFlow(OrderCreateRequest request) {
+        long statementsBefore = statementCounter.current();
+
         Client client = clientRepository.findById(request.getClientId())
                 .orElseThrow(() -> new ResourceNotFoundException("Client not found"));
 
+        // 1. Fetch every referenced Product in one query (to get the REAL price and stock)
+        Map<Long, Product> products = loadProducts(request.getItems());
+
+        // 2. Check Stock (available minus reserved) before anything is written; like the quote, the same product
+        // on several lines counts once, with the sum of its quantities
+        Map<Long, Integer> requested = new LinkedHashMap<>();
+        for (OrderItemRequest itemDto : request.getItems()) {
+            requested.merge(itemDto.getProductId(), itemDto.getQuantite(), Integer::sum);
+        }
+        for (Map.Entry<Long, Integer> line : requested.entrySet()) {
+            Product product = products.get(line.getKey());
+            if (product.getStockDisponible() - product.getStockReserve() < line.getValue() || product.getDeleted()) {
+                throw new BusinessValidationException("Insufficient stock for product ID: " + line.getKey());
+            }
+        }
+
         Order order = new Order();
+        order.setNumeroCommande(documentNumberGenerator.next(DocumentNumberGenerator.DocumentType.ORDER));
         order.setClient(client);
+        order.setClientTierAtOrder(client.getTier());
         order.setStatus(OrderStatus.PENDING);
         order.setDateCommande(request.getOrderDate() != null ? request.getOrderDate() : LocalDateTime.now());
 
-        // Save first to generate ID
-        order = orderRepository.save(order);
-
-        BigDecimal sousTotal = BigDecimal.ZERO;
-        List<OrderItem> createdItems = new ArrayList<>();
-
-        // Inside createOrderFlow method...
-
+        // 3. Create Items using PRODUCT PRICE, not DTO price
+        List<OrderItem> lines = new ArrayList<>(request.getItems().size());
         for (OrderItemRequest itemDto : request.getItems()) {
-            // 1. Check Stock
-            if (!productService.checkStock(itemDto.getProductId(), itemDto.getQuantite())) {
-                throw new BusinessValidationException("Insufficient stock for product ID: " + itemDto.getProductId());
-            }
-
-            // 2. Fetch Product (To get the REAL Price)
-            Product product = productRepository.findById(itemDto.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-
-            // 3. Create Item using PRODUCT PRICE, not DTO price
-            OrderItem orderItem = orderItemService.create(
-                    order,
-                    product,
-                    itemDto.getQuantite(),
-                    product.getPrixUnitaireHT() // <--- CHANGE THIS: Use product.getPrixUnitaireHT()
-            );
-
-            createdItems.add(orderItem);
-            sousTotal = sousTotal.add(orderItem.getTotalLigne());
+            Product product = products.get(itemDto.getProductId());
+            lines.add(new OrderItem(order, product, itemDto.getQuantite(), product.getPrixUnitaireHT()));
         }
-
-        order.setOrderItems(createdItems);
-        order.setSousTotalHT(sousTotal);
+        order.setOrderItems(lines);
 
         // Requirement: EF 4 (Apply Discounts & VAT)
-        applyDiscountsAndCalculateTotal(order, request.getPromoCode());
+        priceOrder(order, lines, request.getPromoCode());
 
-        return orderMapper.toResponse(orderRepository.save(order));
-    }
+        // Persisted only once fully priced: the order is written by a single INSERT, with no follow-up UPDATE.
+        // Sequence ids are assigned here without a round trip; the lines go out as one JDBC batch on flush.
+        order = orderRepository.save(order);
+        List<OrderItem> createdItems = orderItemService.createAll(lines);
+        orderRepository.flush();
 
-    private void applyDiscountsAndCalculateTotal(Order order, String promoCodeInput) {
-        BigDecimal discountTotal = BigDecimal.ZERO;
+        // 4. Hold the quantities until the order is confirmed, cancelled or the hold expires
+        stockReservationService.reserveForOrder(order.getId());
+        productCatalogCache.invalidateStock(products.keySet());
+        clientRollupService.onOrderCreated(order);
+        salesFactService.onOrderCreated(order);
 
-        // 1. Loyalty Discount
-        BigDecimal loyaltyDiscount = calculateLoyaltyDiscount(order.getClient(), order.getSousTotalHT());
-        discountTotal = discountTotal.add(loyaltyDiscount);
+        long statementsUsed = statementCounter.current() - statementsBefore;
+        createStatementsSummary.record(statementsUsed);
+        log.debug("Order {} created with {} lines in {} SQL statements", order.getId(), createdItems.size(), statementsUsed);
 
-        // 2. Promo Code Discount
-        if (promoCodeInput != null && !promoCodeInput.isEmpty()) {
-            BigDecimal promoDiscount = promoCodeService.calculateDiscount(promoCodeInput, order.getSousTotalHT());
-            if (promoDiscount.compareTo(BigDecimal.ZERO) > 0) {
-                order.setPromoCodeId(promoCodeInput);
-                discountTotal = discountTotal.add(promoDiscount);
+        return orderMapper.toResponse(order);
+    }
+
+    private Map<Long, Product> loadProducts(List<OrderItemRequest> items) {
+        Set<Long> productIds = new HashSet<>();
+        for (OrderItemRequest itemDto : items) {
+            productIds.add(itemDto.getProductId());
+        }
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getId(), product);
+        }
+        for (OrderItemRequest itemDto : items) {
+            if (!products.containsKey(itemDto.getProductId())) {
+                throw new ResourceNotFoundException("Product not found");
             }
         }
-
-        order.setMontantRemiseTotale(discountTotal);
-        order.setTauxTVA(new BigDecimal("20.0")); // Default 20%
-        order.calculateTotals(); // Calculates HT after discount, TVA, TTC
+        return products;
     }
 
-    private BigDecimal calculateLoyaltyDiscount(Client client, BigDecimal amount) {
-        // Requirement: EF 2 (Loyalty System)
-        switch (client.getTier()) {
-            case SILVER: return amount.compareTo(new BigDecimal("500")) >= 0 ? amount.multiply(new BigDecimal("0.05")) : BigDecimal.ZERO;
-            case GOLD: return amount.compareTo(new BigDecimal("800")) >= 0 ? amount.multiply(new BigDecimal("0.10")) : BigDecimal.ZERO;
-            case PLATINUM: return amount.compareTo(new BigDecimal("1200")) >= 0 ? amount.multiply(new BigDecimal("0.15")) : BigDecimal.ZERO;
-            default: return BigDecimal.ZERO;
+    // Subtotal, loyalty and promo discounts, VAT and total in one pass (see PricingEngine)
+    private void priceOrder(Order order, List<OrderItem> lines, String promoCodeInput) {
+        PromoCode promo = (promoCodeInput == null || promoCodeInput.isEmpty())
+                ? null : promoCodeService.findValid(promoCodeInput).orElse(null);
+        PricingEngine.Price price = pricingEngine.price(lines, order.getClient(), promo);
+        pricingEngine.applyTo(price, order);
+        if (price.getPromoDiscountCents() > 0) {
+            order.setPromoCodeId(promoCodeInput);
         }
     }
 
     // Requirement: EF 4 (Confirm Order - Validation par ADMIN)
+    @RetryOnConflict
     @Transactional
     public OrderResponse confirmOrder(Long orderId) {
         Order order = findOrderEntityById(orderId);
@@ -158,10 +267,10 @@ public class OrderService {
             throw new BusinessValidationException("Cannot confirm: Payment incomplete. Remaining: " + order.getMontantRestant());
         }
 
-        // Requirement: EF 4 (Update Stock & Stats)
-        for (OrderItem item : order.getOrderItems()) {
-            productService.updateStock(item.getProduct().getId(), item.getQuantite());
-        }
+        // Requirement: EF 4 (Update Stock & Stats) - turn the hold into a real decrement, one guarded UPDATE for all lines
+        stockReservationService.releaseForOrder(order.getId());
+        productService.decrementStockForOrder(order.getId());
+        productCatalogCache.invalidateStock(order.getOrderItems().stream().map(item -> item.getProduct().getId()).collect(Collectors.toSet()));
         clientService.updateClientStatsAndTier(order.getClient(), order.getTotalTTC());
 
         // Mark promo code used if applicable
@@ -171,10 +280,14 @@ public class OrderService {
 
         order.setStatus(OrderStatus.CONFIRMED);
         order.setConfirmedAt(LocalDateTime.now());
+        clientRollupService.onOrderConfirmed(order);
+        salesFactService.onStatusChanged(order, OrderStatus.PENDING, OrderStatus.CONFIRMED);
+        productRankingService.onOrderConfirmed(order);
         return orderMapper.toResponse(orderRepository.save(order));
     }
 
     // Requirement: EF 4 (Cancel Order)
+    @RetryOnConflict
     @Transactional
     public OrderResponse cancelOrder(Long orderId) {
         Order order = findOrderEntityById(orderId);
@@ -186,38 +299,42 @@ public class OrderService {
                 throw new BusinessValidationException("Only PENDING orders can be cancelled.");
             }
         }
+        stockReservationService.releaseForOrder(order.getId());
+        OrderStatus previous = order.getStatus();
         order.setStatus(OrderStatus.CANCELLED);
+        if (previous != OrderStatus.CANCELLED && previous != OrderStatus.REJECTED) {
+            clientRollupService.onOrderCancelled(order);
+        }
+        salesFactService.onStatusChanged(order, previous, OrderStatus.CANCELLED);
         return orderMapper.toResponse(orderRepository.save(order));
     }
 
-    // Helper for PaymentService
-    @Transactional
-    public void updatePaymentAmount(Long orderId, BigDecimal paymentAmount) {
-        Order order = findOrderEntityById(orderId);
-        BigDecimal newRestant = order.getMontantRestant().subtract(paymentAmount);
-        if (newRestant.compareTo(BigDecimal.ZERO) < 0) newRestant = BigDecimal.ZERO;
-        order.setMontantRestant(newRestant);
-        orderRepository.save(order);
-    }
-
     // Helper to apply promo (if needed separately, though usually done at Create)
+    @RetryOnConflict
     @Transactional
     public void applyPromoCode(Long orderId, String promoCode) {
         Order order = findOrderEntityById(orderId);
-        applyDiscountsAndCalculateTotal(order, promoCode);
+        BigDecimal previousTTC = order.getTotalTTC();
+        BigDecimal previousRemaining = order.getMontantRestant();
+        priceOrder(order, order.getOrderItems(), promoCode);
         orderRepository.save(order);
+        // Rollup and facts move with the new price in this transaction, not at the nightly rebuild
+        salesFactService.onOrderRepriced(order);
+        clientRollupService.onOrderRepriced(order, previousTTC, previousRemaining);
     }
 
     // Analytics Helpers
     @Transactional(readOnly = true)
     public BigDecimal getTotalOrderValue(Long clientId) {
-        return orderRepository.findByClientId(clientId).stream()
-                .map(Order::getTotalTTC).reduce(BigDecimal.ZERO, BigDecimal::add);
+        // O(1): read from the client's rollup row instead of summing its orders
+        return clientRollupService.findByClientId(clientId)
+                .map(ClientOrderRollup::getTotalTTC).orElse(BigDecimal.ZERO);
     }
 
     @Transactional(readOnly = true)
     public Integer getOrderCount(Long clientId) {
-        return orderRepository.countByClientId(clientId);
+        return clientRollupService.findByClientId(clientId)
+                .map(rollup -> rollup.getOrderCount().intValue()).orElse(0);
     }
 
     // For internal use
@@ -0,0 +1,351 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.payment.PaymentResponse;
+import com.logitrack.b2b_tradehub.entity.Payment;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentStatus;
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+import com.logitrack.b2b_tradehub.mapper.PaymentMapper;
+import com.logitrack.b2b_tradehub.repository.PaymentRepository;
+import com.logitrack.b2b_tradehub.util.AfterCommit;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Due dates (dateEcheance) of the pending payments, kept in memory in (date, id) order so that "due in the next
+ * N days" and "overdue" are range reads on a skip list instead of scans of the payments table.
+ * <p>
+ * Payments not yet escalated sit in {@code upcoming}; every check interval the ones whose due date has passed are
+ * taken from its head, flagged overdue with a guarded batch UPDATE (one node wins per payment when several run)
+ * and moved to {@code overdue}, and a {@link PaymentOverdueEvent} is published for each after commit.
+ * Creation, reschedule and settlement (process, reject, reconciliation) update the index after commit, one entry
+ * at a time, and are broadcast so the other nodes reload those payments. The index only gives ids: payments are
+ * read back by primary key and entries that went stale (a broadcast lost) are dropped on the way.
+ * Rebuilt from the database at startup; until then queries fall back to idx_payments_status_date_echeance.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PaymentDueDateScheduler {
+
+    private static final String DUE_DATES = "payment-due-date";
+    private static final String PENDING_SQL = "SELECT id, date_echeance, overdue FROM payments "
+            + "WHERE status = 'EN_ATTENTE' AND date_echeance IS NOT NULL";
+    private static final String ESCALATE_SQL = "UPDATE payments SET overdue = TRUE, updated_at = LOCALTIMESTAMP "
+            + "WHERE id = ? AND date_echeance = ? AND status = 'EN_ATTENTE' AND overdue = FALSE";
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentMapper paymentMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheInvalidationBus invalidationBus;
+
+    @Value("${tradehub.due-dates.escalation-batch-size:1000}")
+    private int escalationBatchSize;
+
+    @Value("${tradehub.due-dates.max-days:365}")
+    private int maxDays;
+
+    @Value("${tradehub.due-dates.default-limit:500}")
+    private int defaultLimit;
+
+    @Value("${tradehub.due-dates.max-limit:5000}")
+    private int maxLimit;
+
+    // Pending, due date not passed or not escalated yet; and escalated. An id is in at most one of them
+    private final NavigableSet<DueEntry> upcoming = new ConcurrentSkipListSet<>();
+    private final NavigableSet<DueEntry> overdue = new ConcurrentSkipListSet<>();
+    private final Map<Long, DueEntry> byPayment = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+    // Changes committed while a rebuild runs, replayed on the rebuilt index
+    private List<DueEntry> pendingDuringRebuild;
+
+    @PostConstruct
+    void subscribe() {
+        invalidationBus.subscribe(DUE_DATES, key -> refresh(List.of(Long.valueOf(key))));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+        escalateOverdue();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Called inside the write transaction of a pending payment (created, rescheduled); null date: not scheduled
+    public void onScheduled(Long paymentId, LocalDate dateEcheance) {
+        DueEntry change = dateEcheance == null ? DueEntry.removed(paymentId) : new DueEntry(dateEcheance, paymentId, false);
+        AfterCommit.run(() -> {
+            apply(change);
+            invalidationBus.publish(DUE_DATES, List.of(paymentId));
+        });
+    }
+
+    // Called inside the transaction that takes payments out of EN_ATTENTE
+    public void onSettled(Collection<Long> paymentIds) {
+        if (paymentIds.isEmpty()) {
+            return;
+        }
+        List<Long> copy = List.copyOf(paymentIds);
+        AfterCommit.run(() -> {
+            copy.forEach(id -> apply(DueEntry.removed(id)));
+            invalidationBus.publish(DUE_DATES, copy);
+        });
+    }
+
+    // Pending payments due from today to today + days, soonest first
+    public List<PaymentResponse> dueWithin(int days, Integer limit) {
+        if (days < 0 || days > maxDays) {
+            throw new BusinessValidationException("days must be between 0 and " + maxDays);
+        }
+        LocalDate today = LocalDate.now();
+        LocalDate until = today.plusDays(days);
+        int pageSize = pageSize(limit);
+        if (!ready) {
+            return toResponses(paymentRepository.findPendingDueBetween(today, until, PageRequest.ofSize(pageSize)));
+        }
+        List<DueEntry> entries = new ArrayList<>();
+        for (DueEntry entry : upcoming.subSet(DueEntry.first(today), true, DueEntry.last(until), true)) {
+            if (entries.size() == pageSize) {
+                break;
+            }
+            entries.add(entry);
+        }
+        return load(entries);
+    }
+
+    // Pending payments past their due date, escalated or about to be, oldest due date first
+    public List<PaymentResponse> overdue(Integer limit) {
+        LocalDate today = LocalDate.now();
+        int pageSize = pageSize(limit);
+        if (!ready) {
+            return toResponses(paymentRepository.findPendingDueBefore(today, PageRequest.ofSize(pageSize)));
+        }
+        List<DueEntry> entries = new ArrayList<>();
+        Iterator<DueEntry> escalated = overdue.iterator();
+        Iterator<DueEntry> late = upcoming.headSet(DueEntry.first(today), false).iterator();
+        DueEntry a = escalated.hasNext() ? escalated.next() : null;
+        DueEntry b = late.hasNext() ? late.next() : null;
+        // Merge of two sorted sets, both (date, id) ordered
+        while (entries.size() < pageSize && (a != null || b != null)) {
+            if (b == null || (a != null && a.compareTo(b) < 0)) {
+                entries.add(a);
+                a = escalated.hasNext() ? escalated.next() : null;
+            } else {
+                entries.add(b);
+                b = late.hasNext() ? late.next() : null;
+            }
+        }
+        return load(entries);
+    }
+
+    /**
+     * Flags the payments whose due date has passed, in batches of escalation-batch-size, one transaction each.
+     * A payment whose row no longer matches its entry (settled, rescheduled, flagged by another node) is reloaded
+     * instead of escalated.
+     */
+    @Scheduled(fixedDelayString = "${tradehub.due-dates.check-interval:PT1M}",
+            initialDelayString = "${tradehub.due-dates.check-interval:PT1M}")
+    public int escalateOverdue() {
+        if (!ready) {
+            return 0;
+        }
+        DueEntry firstNotDue = DueEntry.first(LocalDate.now());
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int total = 0;
+        while (true) {
+            List<DueEntry> batch = new ArrayList<>();
+            for (DueEntry entry : upcoming.headSet(firstNotDue, false)) {
+                if (batch.size() == escalationBatchSize) {
+                    break;
+                }
+                batch.add(entry);
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            try {
+                total += tx.execute(status -> escalate(batch));
+            } catch (RuntimeException e) {
+                refresh(batch.stream().map(DueEntry::paymentId).toList());
+                throw e;
+            }
+        }
+        if (total > 0) {
+            log.info("Escalated {} overdue payments", total);
+        }
+        return total;
+    }
+
+    public int rebuild() {
+        synchronized (this) {
+            pendingDuringRebuild = new ArrayList<>();
+        }
+        List<DueEntry> loaded = new ArrayList<>();
+        jdbcTemplate.query(PENDING_SQL, rs -> {
+            loaded.add(new DueEntry(rs.getDate(2).toLocalDate(), rs.getLong(1), rs.getBoolean(3)));
+        });
+        synchronized (this) {
+            upcoming.clear();
+            overdue.clear();
+            byPayment.clear();
+            loaded.forEach(this::put);
+            pendingDuringRebuild.forEach(this::put);
+            pendingDuringRebuild = null;
+            ready = true;
+        }
+        log.info("Payment due dates loaded: {} pending, {} overdue", byPayment.size(), overdue.size());
+        return byPayment.size();
+    }
+
+    private int escalate(List<DueEntry> batch) {
+        int[] updated = jdbcTemplate.batchUpdate(ESCALATE_SQL, batch.stream()
+                .map(e -> new Object[]{e.paymentId(), Date.valueOf(e.dateEcheance())}).toList());
+        List<DueEntry> escalated = new ArrayList<>();
+        List<Long> changed = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (updated[i] == 1) {
+                escalated.add(batch.get(i));
+            } else {
+                changed.add(batch.get(i).paymentId());
+            }
+        }
+        List<PaymentOverdueEvent> events = escalated.isEmpty() ? List.of() : jdbcTemplate.query(
+                "SELECT id, numero_paiement, montant, date_echeance, order_id FROM payments WHERE id IN ("
+                        + String.join(",", Collections.nCopies(escalated.size(), "?")) + ")",
+                (rs, row) -> new PaymentOverdueEvent(rs.getLong(1), rs.getString(2), rs.getBigDecimal(3),
+                        rs.getDate(4).toLocalDate(), rs.getLong(5)),
+                escalated.stream().map(DueEntry::paymentId).toArray());
+        // Moved here rather than after commit, so the next batch does not pick them again; a rollback reloads them
+        escalated.forEach(e -> apply(new DueEntry(e.dateEcheance(), e.paymentId(), true)));
+        refresh(changed);
+        AfterCommit.run(() -> events.forEach(eventPublisher::publishEvent));
+        return escalated.size();
+    }
+
+    // Reloads the state of these payments (broadcast from another node, or a row that changed under the index)
+    private void refresh(List<Long> paymentIds) {
+        if (paymentIds.isEmpty()) {
+            return;
+        }
+        Map<Long, DueEntry> current = new HashMap<>();
+        jdbcTemplate.query("SELECT id, date_echeance, overdue FROM payments WHERE status = 'EN_ATTENTE' "
+                        + "AND date_echeance IS NOT NULL AND id IN (" + String.join(",", Collections.nCopies(paymentIds.size(), "?")) + ")",
+                rs -> {
+                    current.put(rs.getLong(1), new DueEntry(rs.getDate(2).toLocalDate(), rs.getLong(1), rs.getBoolean(3)));
+                }, paymentIds.toArray());
+        for (Long id : paymentIds) {
+            apply(current.getOrDefault(id, DueEntry.removed(id)));
+        }
+    }
+
+    private synchronized void apply(DueEntry change) {
+        if (pendingDuringRebuild != null) {
+            pendingDuringRebuild.add(change);
+        }
+        put(change);
+    }
+
+    // Replaces the entry of change.paymentId; a change without date removes it
+    private void put(DueEntry change) {
+        DueEntry previous = change.dateEcheance() == null ? byPayment.remove(change.paymentId())
+                : byPayment.put(change.paymentId(), change);
+        if (previous != null) {
+            (previous.overdue() ? overdue : upcoming).remove(previous);
+        }
+        if (change.dateEcheance() != null) {
+            (change.overdue() ? overdue : upcoming).add(change);
+        }
+    }
+
+    // Payments in entry order, minus those whose row no longer matches the entry (dropped from the index)
+    private List<PaymentResponse> load(List<DueEntry> entries) {
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Payment> payments = paymentRepository.findAllById(entries.stream().map(DueEntry::paymentId).toList())
+                .stream().collect(Collectors.toMap(Payment::getId, Function.identity()));
+        List<Payment> current = new ArrayList<>(entries.size());
+        List<Long> stale = new ArrayList<>();
+        for (DueEntry entry : entries) {
+            Payment payment = payments.get(entry.paymentId());
+            if (payment != null && payment.getStatus() == PaymentStatus.EN_ATTENTE
+                    && entry.dateEcheance().equals(payment.getDateEcheance())) {
+                current.add(payment);
+            } else {
+                stale.add(entry.paymentId());
+            }
+        }
+        refresh(stale);
+        return toResponses(current);
+    }
+
+    private List<PaymentResponse> toResponses(List<Payment> payments) {
+        return payments.stream().map(paymentMapper::toResponse).collect(Collectors.toList());
+    }
+
+    private int pageSize(Integer limit) {
+        return (limit == null) ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
+    }
+
+    /**
+     * Published after commit when a pending payment is flagged overdue, once per payment across nodes.
+     */
+    public record PaymentOverdueEvent(long paymentId, String numeroPaiement, BigDecimal montant, LocalDate dateEcheance,
+                                      long orderId) {
+    }
+
+    // Index key: due date then payment id; overdue tells which set holds it, a null date marks a removal
+    private record DueEntry(LocalDate dateEcheance, long paymentId, boolean overdue) implements Comparable<DueEntry> {
+
+        static DueEntry removed(long paymentId) {
+            return new DueEntry(null, paymentId, false);
+        }
+
+        // Bounds of a day in (date, id) order
+        static DueEntry first(LocalDate date) {
+            return new DueEntry(date, Long.MIN_VALUE, false);
+        }
+
+        static DueEntry last(LocalDate date) {
+            return new DueEntry(date, Long.MAX_VALUE, false);
+        }
+
+        @Override
+        public int compareTo(DueEntry other) {
+            int byDate = dateEcheance.compareTo(other.dateEcheance);
+            return byDate != 0 ? byDate : Long.compare(paymentId, other.paymentId);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.payment.PaymentLedgerEntryResponse;
+import com.logitrack.b2b_tradehub.entity.Order;
+import com.logitrack.b2b_tradehub.entity.Payment;
+import com.logitrack.b2b_tradehub.entity.PaymentLedgerEntry;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentStatus;
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+import com.logitrack.b2b_tradehub.exception.ResourceNotFoundException;
+import com.logitrack.b2b_tradehub.repository.OrderRepository;
+import com.logitrack.b2b_tradehub.repository.PaymentLedgerEntryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Payments received on orders. Posting one is a single conditional UPDATE of the order row (paid and remaining
+ * amounts, ledger sequence), then the insert of its ledger entry under the row lock that UPDATE took: postings on
+ * the same order queue on that lock instead of overwriting each other, and never need a retry.
+ * Order.montantRestant is the balance of the latest entry; the entry before it gives the amount actually applied.
+ * Bulk encaissement (bank reconciliation) goes through {@link #postBatch}, which takes the same row locks up front.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PaymentLedgerService {
+
+    private static final String MARK_RECEIVED_SQL = "UPDATE payments SET status = 'ENCAISSE', date_encaissement = ?, "
+            + "updated_at = LOCALTIMESTAMP WHERE id = ? AND status = 'EN_ATTENTE'";
+    private static final String UPDATE_BALANCE_SQL = "UPDATE orders SET montant_paye = ?, montant_restant = ?, "
+            + "ledger_seq = ?, version = version + 1, updated_at = LOCALTIMESTAMP WHERE id = ?";
+    private static final String INSERT_ENTRY_SQL = "INSERT INTO payment_ledger (order_id, payment_id, seq, montant, "
+            + "montant_applique, montant_paye, montant_restant, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final OrderRepository orderRepository;
+    private final PaymentLedgerEntryRepository ledgerRepository;
+    private final ClientRollupService clientRollupService;
+    private final PaymentDueDateScheduler paymentDueDateScheduler;
+    private final PaymentSummaryService paymentSummaryService;
+    private final JdbcTemplate jdbcTemplate;
+
+    // One-time migration of orders paid before montant_paye existed: repricing derives montantRestant from it,
+    // so left at 0 it would turn their payments back into an amount due
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public int backfillLegacyMontantPaye() {
+        int migrated = orderRepository.backfillLegacyMontantPaye();
+        if (migrated > 0) {
+            log.info("Backfilled montant_paye of {} orders paid before the payment ledger", migrated);
+        }
+        return migrated;
+    }
+
+    // Called in the transaction that marks the payment received
+    @Transactional(propagation = Propagation.MANDATORY)
+    public PaymentLedgerEntry post(Payment payment) {
+        Long orderId = payment.getOrder().getId();
+        if (orderRepository.applyPayment(orderId, payment.getMontant()) == 0) {
+            throw new BusinessValidationException("Payments can only be applied to PENDING orders.");
+        }
+        Object[] state = orderRepository.findLedgerState(orderId).get(0);
+        BigDecimal paid = (BigDecimal) state[0];
+        long sequence = ((Number) state[2]).longValue();
+        Long clientId = state[3] == null ? null : ((Number) state[3]).longValue();
+
+        // montant_paye only moves through this method, so the previous entry holds the total before this posting
+        BigDecimal paidBefore = sequence == 1 ? BigDecimal.ZERO : ledgerRepository.findByOrderIdAndSequence(orderId, sequence - 1)
+                .map(PaymentLedgerEntry::getMontantPaye)
+                .orElseThrow(() -> new IllegalStateException("Payment ledger of order " + orderId + " has a gap at " + (sequence - 1)));
+        BigDecimal applied = paid.subtract(paidBefore);
+
+        PaymentLedgerEntry entry = new PaymentLedgerEntry();
+        entry.setOrder(payment.getOrder());
+        entry.setPayment(payment);
+        entry.setSequence(sequence);
+        entry.setMontant(payment.getMontant());
+        entry.setMontantApplique(applied);
+        entry.setMontantPaye(paid);
+        entry.setMontantRestant((BigDecimal) state[1]);
+        entry.setCreatedAt(LocalDateTime.now());
+        ledgerRepository.save(entry);
+
+        if (applied.signum() > 0 && clientId != null) {
+            clientRollupService.onPaymentApplied(clientId, applied);
+        }
+        return entry;
+    }
+
+    /**
+     * Encaisses a batch of pending payments in the caller's transaction: locks their orders in id order (so two
+     * batches sharing orders wait for each other instead of deadlocking), marks the payments received, then writes
+     * the order balances and the ledger entries with one JDBC batch each. Postings are applied in list order.
+     * Returns the payments left untouched, with the reason: order not PENDING, payment no longer EN_ATTENTE.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, String> postBatch(List<Posting> postings) {
+        Map<Long, String> skipped = new HashMap<>();
+        if (postings.isEmpty()) {
+            return skipped;
+        }
+        Map<Long, LedgerState> orders = lockOrders(postings.stream().map(Posting::orderId).distinct().sorted().toList());
+
+        List<Posting> postable = new ArrayList<>(postings.size());
+        for (Posting posting : postings) {
+            if (orders.containsKey(posting.orderId())) {
+                postable.add(posting);
+            } else {
+                skipped.put(posting.paymentId(), "Order " + posting.orderId() + " is not PENDING");
+            }
+        }
+        int[] marked = jdbcTemplate.batchUpdate(MARK_RECEIVED_SQL, postable.stream()
+                .map(p -> new Object[]{p.dateEncaissement(), p.paymentId()}).toList());
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> entries = new ArrayList<>(postable.size());
+        List<Long> received = new ArrayList<>(postable.size());
+        Map<Long, BigDecimal> appliedByClient = new HashMap<>();
+        for (int i = 0; i < postable.size(); i++) {
+            Posting posting = postable.get(i);
+            if (marked[i] == 0) {
+                skipped.put(posting.paymentId(), "Payment is no longer EN_ATTENTE");
+                continue;
+            }
+            received.add(posting.paymentId());
+            LedgerState order = orders.get(posting.orderId());
+            BigDecimal applied = order.remaining.min(posting.montant());
+            order.paid = order.paid.add(applied);
+            order.remaining = order.remaining.subtract(applied);
+            order.sequence++;
+            order.changed = true;
+            entries.add(new Object[]{posting.orderId(), posting.paymentId(), order.sequence, posting.montant(), applied,
+                    order.paid, order.remaining, Timestamp.valueOf(now)});
+            if (applied.signum() > 0 && order.clientId != null) {
+                appliedByClient.merge(order.clientId, applied, BigDecimal::add);
+            }
+        }
+
+        List<Object[]> balances = new ArrayList<>();
+        orders.forEach((id, order) -> {
+            if (order.changed) {
+                balances.add(new Object[]{order.paid, order.remaining, order.sequence, id});
+            }
+        });
+        jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, balances);
+        jdbcTemplate.batchUpdate(INSERT_ENTRY_SQL, entries);
+        appliedByClient.forEach(clientRollupService::onPaymentApplied);
+        paymentSummaryService.onStatusChanged(received, PaymentStatus.EN_ATTENTE, PaymentStatus.ENCAISSE);
+        paymentDueDateScheduler.onSettled(received);
+        return skipped;
+    }
+
+    // Current balance from the latest entry, whatever the number of payments
+    @Transactional(readOnly = true)
+    public PaymentLedgerEntryResponse balance(Long orderId) {
+        return ledgerRepository.findFirstByOrderIdOrderBySequenceDesc(orderId)
+                .map(PaymentLedgerService::toResponse)
+                .orElseGet(() -> opening(orderId));
+    }
+
+    @Transactional(readOnly = true)
+    public List<PaymentLedgerEntryResponse> entries(Long orderId) {
+        List<PaymentLedgerEntry> entries = ledgerRepository.findByOrderIdOrderBySequence(orderId);
+        if (entries.isEmpty()) {
+            return List.of(opening(orderId));
+        }
+        return entries.stream().map(PaymentLedgerService::toResponse).collect(Collectors.toList());
+    }
+
+    // PENDING orders among these ids (ascending), locked until the end of the transaction
+    private Map<Long, LedgerState> lockOrders(List<Long> orderIds) {
+        String sql = "SELECT id, montant_paye, montant_restant, ledger_seq, client_id FROM orders WHERE id IN ("
+                + String.join(",", Collections.nCopies(orderIds.size(), "?")) + ") AND status = 'PENDING' ORDER BY id FOR UPDATE";
+        Map<Long, LedgerState> states = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            long clientId = rs.getLong(5);
+            states.put(rs.getLong(1), new LedgerState(rs.getBigDecimal(2), rs.getBigDecimal(3), rs.getLong(4),
+                    rs.wasNull() ? null : clientId));
+        }, orderIds.toArray());
+        return states;
+    }
+
+    private PaymentLedgerEntryResponse opening(Long orderId) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        PaymentLedgerEntryResponse response = new PaymentLedgerEntryResponse();
+        response.setOrderId(orderId);
+        response.setSequence(0L);
+        response.setMontantPaye(order.getMontantPaye());
+        response.setMontantRestant(order.getMontantRestant());
+        response.setCreatedAt(order.getCreatedAt());
+        return response;
+    }
+
+    // A payment to encaisse: its order and amount, as read when it was matched, and the day it was received
+    public record Posting(long paymentId, long orderId, BigDecimal montant, LocalDate dateEncaissement) {
+    }
+
+    // Balance of a locked order while a batch is applied to it
+    private static final class LedgerState {
+        private BigDecimal paid;
+        private BigDecimal remaining;
+        private long sequence;
+        private final Long clientId;
+        private boolean changed;
+
+        private LedgerState(BigDecimal paid, BigDecimal remaining, long sequence, Long clientId) {
+            this.paid = paid;
+            this.remaining = remaining;
+            this.sequence = sequence;
+            this.clientId = clientId;
+        }
+    }
+
+    private static PaymentLedgerEntryResponse toResponse(PaymentLedgerEntry entry) {
+        PaymentLedgerEntryResponse response = new PaymentLedgerEntryResponse();
+        response.setOrderId(entry.getOrder().getId());
+        response.setSequence(entry.getSequence());
+        response.setPaymentId(entry.getPayment().getId());
+        response.setMontant(entry.getMontant());
+        response.setMontantApplique(entry.getMontantApplique());
+        response.setMontantPaye(entry.getMontantPaye());
+        response.setMontantRestant(entry.getMontantRestant());
+        response.setCreatedAt(entry.getCreatedAt());
+        return response;
+    }
+}
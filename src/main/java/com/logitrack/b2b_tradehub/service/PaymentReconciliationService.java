@@ -0,0 +1,561 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.logitrack.b2b_tradehub.dto.payment.ReconciliationJobResponse;
+import com.logitrack.b2b_tradehub.dto.payment.ReconciliationLine;
+import com.logitrack.b2b_tradehub.dto.payment.ReconciliationStatus;
+import com.logitrack.b2b_tradehub.dto.payment.StatementFormat;
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+import com.logitrack.b2b_tradehub.exception.ResourceNotFoundException;
+import com.logitrack.b2b_tradehub.util.CountingInputStream;
+import com.logitrack.b2b_tradehub.util.CsvLines;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bank statement reconciliation of pending cheques and transfers.
+ * <p>
+ * The statement is spooled to a temporary file and a background job matches its credit lines against the
+ * CHEQUE / VIREMENT payments EN_ATTENTE, loaded once into two in-memory hash indexes: by numeroPaiement, and by
+ * (amount, date) where the date is the payment or due date, within tradehub.reconciliation.date-tolerance-days.
+ * The file is read twice: the first pass matches the lines carrying a known reference, the second matches the
+ * others by amount and date among the payments still free, so a reference always wins over a guess. A line with
+ * several candidates is reported ambiguous and matches nothing. Matched payments are encaissed in batches, one
+ * transaction each, on a small pool (see {@link PaymentLedgerService#postBatch}). Jobs live in memory on the node
+ * that runs them.
+ * <p>
+ * CSV: header required, ',' or ';' separated, columns reference (or numero_paiement), montant, date
+ * (yyyy-MM-dd or dd/MM/yyyy), others ignored. Fixed width, no header: date yyyyMMdd (columns 1-8), signed amount
+ * in cents, zero padded (9-23), reference left aligned (24-58), the rest of the line is free text.
+ * Debit and zero lines are ignored.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PaymentReconciliationService {
+
+    private static final String PENDING_SQL = "SELECT id, numero_paiement, montant, date_paiement, date_echeance, "
+            + "order_id FROM payments WHERE status = 'EN_ATTENTE' AND type_paiement IN ('CHEQUE', 'VIREMENT') "
+            + "AND order_id IS NOT NULL";
+
+    private static final DateTimeFormatter FRENCH_DATE = DateTimeFormatter.ofPattern("dd/MM/uuuu");
+    private static final int FIXED_DATE_END = 8;
+    private static final int FIXED_AMOUNT_END = 23;
+    private static final int FIXED_REFERENCE_END = 58;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final PaymentLedgerService paymentLedgerService;
+
+    @Value("${tradehub.reconciliation.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${tradehub.reconciliation.parallelism:4}")
+    private int parallelism;
+
+    @Value("${tradehub.reconciliation.max-concurrent-jobs:1}")
+    private int maxConcurrentJobs;
+
+    @Value("${tradehub.reconciliation.date-tolerance-days:3}")
+    private int dateToleranceDays;
+
+    @Value("${tradehub.reconciliation.max-reported-lines:1000}")
+    private int maxReportedLines;
+
+    @Value("${tradehub.reconciliation.job-retention:PT24H}")
+    private Duration jobRetention;
+
+    private Cache<String, Job> jobs;
+    private ExecutorService runner;
+
+    @PostConstruct
+    void init() {
+        jobs = Caffeine.newBuilder().expireAfterWrite(jobRetention).build();
+        runner = Executors.newFixedThreadPool(maxConcurrentJobs);
+    }
+
+    @PreDestroy
+    void stop() {
+        runner.shutdownNow();
+    }
+
+    // Copies the upload to disk and queues the job; returns as soon as the file is stored
+    public ReconciliationJobResponse start(InputStream statement, StatementFormat format) throws IOException {
+        Path file = Files.createTempFile("bank-statement-", ".txt");
+        try {
+            Files.copy(statement, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        Job job = new Job(UUID.randomUUID().toString(), format, Files.size(file), maxReportedLines);
+        jobs.put(job.id, job);
+        runner.submit(() -> run(job, file));
+        return job.toResponse();
+    }
+
+    public ReconciliationJobResponse status(String jobId) {
+        Job job = jobs.getIfPresent(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Reconciliation job not found");
+        }
+        return job.toResponse();
+    }
+
+    private void run(Job job, Path file) {
+        job.status = ReconciliationStatus.RUNNING;
+        long start = System.nanoTime();
+        Writer writer = new Writer(job);
+        try {
+            PendingIndex index = loadPending();
+            job.pendingPayments = index.size;
+
+            // Pass 1: references
+            readStatement(job, file, true, line -> {
+                Candidate candidate = line.reference.isEmpty() ? null : index.byNumero.get(line.reference);
+                if (candidate == null) {
+                    return;
+                }
+                if (candidate.claimedBy != 0) {
+                    job.unmatched(line, null, "Payment " + line.reference + " already matched by line " + candidate.claimedBy);
+                } else if (candidate.montant.compareTo(line.montant) != 0) {
+                    job.unmatched(line, List.of(candidate.id), "Amount differs from payment " + line.reference
+                            + " (" + candidate.montant.toPlainString() + ")");
+                } else {
+                    candidate.claimedBy = line.line;
+                    writer.add(candidate, line);
+                }
+            });
+
+            // Pass 2: amount and date, among the payments no reference claimed
+            readStatement(job, file, false, line -> {
+                if (!line.reference.isEmpty() && index.byNumero.containsKey(line.reference)) {
+                    return;
+                }
+                List<Candidate> candidates = index.free(line.montant, line.date, dateToleranceDays);
+                if (candidates.size() == 1) {
+                    Candidate candidate = candidates.get(0);
+                    candidate.claimedBy = line.line;
+                    writer.add(candidate, line);
+                } else if (candidates.isEmpty()) {
+                    job.unmatched(line, null, "No pending payment with this reference, or this amount near this date");
+                } else {
+                    job.ambiguous(line, candidates.stream().map(c -> c.id).toList());
+                }
+            });
+            writer.finish();
+            if (job.failure != null) {
+                job.finish(ReconciliationStatus.FAILED, job.failure);
+                return;
+            }
+            job.finish(ReconciliationStatus.COMPLETED, null);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            log.info("Reconciliation {}: {} lines, {} matched, {} unmatched, {} ambiguous, {} rejected in {} s", job.id,
+                    job.linesRead.get(), job.linesMatched.get(), job.linesUnmatched.get(), job.linesAmbiguous.get(),
+                    job.linesRejected.get(), String.format("%.1f", seconds));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish(ReconciliationStatus.FAILED, "Reconciliation interrupted");
+        } catch (IOException | RuntimeException e) {
+            log.warn("Reconciliation {} failed: {}", job.id, e.getMessage());
+            job.finish(ReconciliationStatus.FAILED, e.getMessage());
+        } finally {
+            writer.shutdown();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Could not delete statement file {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    // Streams the pending payments into the two indexes (one transaction on the primary, rows fetched by 1000)
+    private PendingIndex loadPending() {
+        PendingIndex index = new PendingIndex();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(PENDING_SQL);
+            ps.setFetchSize(1_000);
+            return ps;
+        }, rs -> {
+            Date echeance = rs.getDate(5);
+            index.add(new Candidate(rs.getLong(1), rs.getString(2).trim(), rs.getBigDecimal(3), rs.getLong(6)),
+                    rs.getDate(4).toLocalDate(), echeance == null ? null : echeance.toLocalDate());
+        }));
+        return index;
+    }
+
+    // One pass over the file; the first pass also counts the lines and reports the unreadable ones
+    private void readStatement(Job job, Path file, boolean firstPass, LineHandler handler) throws IOException, InterruptedException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new CountingInputStream(Files.newInputStream(file), job.bytesRead), StandardCharsets.UTF_8), 64 * 1024)) {
+            long number = 0;
+            CsvColumns columns = null;
+            if (job.format == StatementFormat.CSV) {
+                String header = reader.readLine();
+                if (header == null) {
+                    throw new BusinessValidationException("The file is empty.");
+                }
+                number++;
+                columns = CsvColumns.parse(header);
+            }
+            for (String text = reader.readLine(); text != null && job.failure == null; text = reader.readLine()) {
+                number++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                StatementLine line;
+                try {
+                    line = columns != null ? parseCsv(number, text, columns) : parseFixed(number, text);
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    if (firstPass) {
+                        job.linesRead.incrementAndGet();
+                        job.rejected(new ReconciliationLine(number, null, null, null, null, e.getMessage()));
+                    }
+                    continue;
+                }
+                if (firstPass) {
+                    job.linesRead.incrementAndGet();
+                }
+                if (line.montant.signum() <= 0) {
+                    if (firstPass) {
+                        job.linesIgnored.incrementAndGet();
+                    }
+                    continue;
+                }
+                handler.accept(line);
+            }
+        }
+    }
+
+    private static StatementLine parseCsv(long number, String text, CsvColumns columns) {
+        List<String> fields = CsvLines.split(text, columns.separator);
+        if (fields.size() < columns.width) {
+            throw new IllegalArgumentException("Expected " + columns.width + " columns, found " + fields.size());
+        }
+        String date = fields.get(columns.date).trim();
+        return new StatementLine(number, fields.get(columns.reference).trim(), parseAmount(fields.get(columns.montant).trim()),
+                date.indexOf('/') > 0 ? LocalDate.parse(date, FRENCH_DATE) : LocalDate.parse(date));
+    }
+
+    private static StatementLine parseFixed(long number, String text) {
+        if (text.length() < FIXED_AMOUNT_END) {
+            throw new IllegalArgumentException("Line shorter than " + FIXED_AMOUNT_END + " characters");
+        }
+        LocalDate date = LocalDate.parse(text.substring(0, FIXED_DATE_END), DateTimeFormatter.BASIC_ISO_DATE);
+        String cents = text.substring(FIXED_DATE_END, FIXED_AMOUNT_END).trim();
+        BigDecimal montant;
+        try {
+            montant = BigDecimal.valueOf(Long.parseLong(cents), 2);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount in cents: '" + cents + "'");
+        }
+        String reference = text.length() <= FIXED_AMOUNT_END ? ""
+                : text.substring(FIXED_AMOUNT_END, Math.min(text.length(), FIXED_REFERENCE_END)).trim();
+        return new StatementLine(number, reference, montant, date);
+    }
+
+    private static BigDecimal parseAmount(String text) {
+        try {
+            // Decimal comma and thousands spaces accepted (French bank exports)
+            return new BigDecimal(text.replace(" ", "").replace("\u00A0", "").replace(',', '.'));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: '" + text + "'");
+        }
+    }
+
+    /**
+     * Encaissement of the matched payments: batches in match order, each written in its own transaction by a pool
+     * of parallelism threads, at most parallelism x 2 batches in flight.
+     */
+    private final class Writer {
+        private final Job job;
+        private final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        private final ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        private final Semaphore slots = new Semaphore(parallelism * 2);
+        private List<PaymentLedgerService.Posting> postings = new ArrayList<>(batchSize);
+        private Map<Long, StatementLine> lines = new HashMap<>();
+
+        private Writer(Job job) {
+            this.job = job;
+        }
+
+        void add(Candidate candidate, StatementLine line) throws InterruptedException {
+            // Encaissed on the statement date: the day the money reached the account
+            postings.add(new PaymentLedgerService.Posting(candidate.id, candidate.orderId, candidate.montant, line.date));
+            lines.put(candidate.id, line);
+            if (postings.size() == batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() throws InterruptedException {
+            if (postings.isEmpty() || job.failure != null) {
+                return;
+            }
+            List<PaymentLedgerService.Posting> batch = postings;
+            Map<Long, StatementLine> batchLines = lines;
+            postings = new ArrayList<>(batchSize);
+            lines = new HashMap<>();
+            slots.acquire();
+            pool.submit(() -> {
+                try {
+                    if (job.failure == null) {
+                        Map<Long, String> skipped = tx.execute(status -> paymentLedgerService.postBatch(batch));
+                        job.linesMatched.addAndGet(batch.size() - skipped.size());
+                        skipped.forEach((paymentId, reason) -> job.unmatched(batchLines.get(paymentId), List.of(paymentId),
+                                "Matched payment not encaissed: " + reason));
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Reconciliation {} failed writing a batch: {}", job.id, e.getMessage());
+                    job.fail(e.getMessage());
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+
+        void finish() throws InterruptedException {
+            flush();
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        void shutdown() {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Pending payments by numeroPaiement and by (amount in cents, day) key; a payment with a due date different
+     * from its payment date is found under both days.
+     */
+    private static final class PendingIndex {
+        private final Map<String, Candidate> byNumero = new HashMap<>();
+        private final Map<Long, List<Candidate>> byAmountDay = new HashMap<>();
+        private long size;
+
+        void add(Candidate candidate, LocalDate datePaiement, LocalDate dateEcheance) {
+            size++;
+            byNumero.put(candidate.numero, candidate);
+            long cents = candidate.montant.movePointRight(2).longValue();
+            byAmountDay.computeIfAbsent(key(cents, datePaiement), k -> new ArrayList<>(1)).add(candidate);
+            if (dateEcheance != null && !dateEcheance.equals(datePaiement)) {
+                byAmountDay.computeIfAbsent(key(cents, dateEcheance), k -> new ArrayList<>(1)).add(candidate);
+            }
+        }
+
+        // Unclaimed payments of this amount dated within tolerance days of the statement date
+        List<Candidate> free(BigDecimal montant, LocalDate date, int toleranceDays) {
+            if (montant.stripTrailingZeros().scale() > 2) {
+                return List.of();
+            }
+            long cents = montant.movePointRight(2).longValueExact();
+            Set<Candidate> found = new LinkedHashSet<>();
+            for (int d = -toleranceDays; d <= toleranceDays; d++) {
+                List<Candidate> candidates = byAmountDay.get(key(cents, date.plusDays(d)));
+                if (candidates != null) {
+                    for (Candidate candidate : candidates) {
+                        if (candidate.claimedBy == 0) {
+                            found.add(candidate);
+                        }
+                    }
+                }
+            }
+            return new ArrayList<>(found);
+        }
+
+        // Days since 1970 fit in 20 bits until the year 4840
+        private static long key(long cents, LocalDate day) {
+            return (cents << 20) | (day.toEpochDay() & 0xFFFFF);
+        }
+    }
+
+    // Only touched by the job thread
+    private static final class Candidate {
+        private final long id;
+        private final String numero;
+        private final BigDecimal montant;
+        private final long orderId;
+        // Statement line that took this payment, 0 while free
+        private long claimedBy;
+
+        private Candidate(long id, String numero, BigDecimal montant, long orderId) {
+            this.id = id;
+            this.numero = numero;
+            this.montant = montant;
+            this.orderId = orderId;
+        }
+    }
+
+    private record StatementLine(long line, String reference, BigDecimal montant, LocalDate date) {
+    }
+
+    @FunctionalInterface
+    private interface LineHandler {
+        void accept(StatementLine line) throws InterruptedException;
+    }
+
+    // Positions of the known CSV columns in the header
+    private static final class CsvColumns {
+        private final char separator;
+        private final int width;
+        private final int reference;
+        private final int montant;
+        private final int date;
+
+        private CsvColumns(char separator, int width, int reference, int montant, int date) {
+            this.separator = separator;
+            this.width = width;
+            this.reference = reference;
+            this.montant = montant;
+            this.date = date;
+        }
+
+        static CsvColumns parse(String header) {
+            String clean = CsvLines.stripBom(header);
+            char separator = CsvLines.separatorOf(clean);
+            List<String> names = CsvLines.split(clean, separator);
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                positions.put(names.get(i).trim().toLowerCase(Locale.ROOT).replace("_", ""), i);
+            }
+            Integer reference = positions.containsKey("reference") ? positions.get("reference") : positions.get("numeropaiement");
+            Integer montant = positions.get("montant");
+            Integer date = positions.get("date");
+            if (reference == null || montant == null || date == null) {
+                throw new BusinessValidationException("Missing CSV columns (expected reference, montant, date).");
+            }
+            return new CsvColumns(separator, Math.max(reference, Math.max(montant, date)) + 1, reference, montant, date);
+        }
+    }
+
+    private static final class Job {
+        private final String id;
+        private final StatementFormat format;
+        private final long totalBytes;
+        private final int maxReported;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final AtomicLong linesRead = new AtomicLong();
+        private final AtomicLong linesMatched = new AtomicLong();
+        private final AtomicLong linesUnmatched = new AtomicLong();
+        private final AtomicLong linesAmbiguous = new AtomicLong();
+        private final AtomicLong linesRejected = new AtomicLong();
+        private final AtomicLong linesIgnored = new AtomicLong();
+        private final List<ReconciliationLine> unmatched = new ArrayList<>();
+        private final List<ReconciliationLine> ambiguous = new ArrayList<>();
+        private final List<ReconciliationLine> rejected = new ArrayList<>();
+        private volatile long pendingPayments;
+        private volatile ReconciliationStatus status = ReconciliationStatus.QUEUED;
+        private volatile LocalDateTime finishedAt;
+        private volatile String failure;
+
+        private Job(String id, StatementFormat format, long totalBytes, int maxReported) {
+            this.id = id;
+            this.format = format;
+            this.totalBytes = totalBytes;
+            this.maxReported = maxReported;
+        }
+
+        synchronized void unmatched(StatementLine line, List<Long> candidates, String message) {
+            linesUnmatched.incrementAndGet();
+            report(unmatched, line, candidates, message);
+        }
+
+        synchronized void ambiguous(StatementLine line, List<Long> candidates) {
+            linesAmbiguous.incrementAndGet();
+            report(ambiguous, line, candidates, candidates.size() + " pending payments with this amount near this date");
+        }
+
+        synchronized void rejected(ReconciliationLine line) {
+            linesRejected.incrementAndGet();
+            if (rejected.size() < maxReported) {
+                rejected.add(line);
+            }
+        }
+
+        private void report(List<ReconciliationLine> report, StatementLine line, List<Long> candidates, String message) {
+            if (report.size() < maxReported) {
+                report.add(new ReconciliationLine(line.line, line.reference.isEmpty() ? null : line.reference,
+                        line.montant, line.date, candidates, message));
+            }
+        }
+
+        // First write error; the reader stops and the job ends FAILED
+        synchronized void fail(String message) {
+            if (failure == null) {
+                failure = String.valueOf(message);
+            }
+        }
+
+        void finish(ReconciliationStatus finalStatus, String failureMessage) {
+            failure = failureMessage;
+            finishedAt = LocalDateTime.now();
+            status = finalStatus;
+        }
+
+        synchronized ReconciliationJobResponse toResponse() {
+            ReconciliationJobResponse response = new ReconciliationJobResponse();
+            response.setJobId(id);
+            response.setFormat(format);
+            response.setStatus(status);
+            response.setStartedAt(startedAt);
+            response.setFinishedAt(finishedAt);
+            // Two passes over the file
+            long read = Math.min(bytesRead.get(), 2 * totalBytes);
+            response.setBytesRead(read);
+            response.setTotalBytes(2 * totalBytes);
+            response.setPercent(status == ReconciliationStatus.COMPLETED ? 100 : totalBytes == 0 ? 0 : (int) (50 * read / totalBytes));
+            response.setPendingPayments(pendingPayments);
+            response.setLinesRead(linesRead.get());
+            response.setLinesMatched(linesMatched.get());
+            response.setLinesUnmatched(linesUnmatched.get());
+            response.setLinesAmbiguous(linesAmbiguous.get());
+            response.setLinesRejected(linesRejected.get());
+            response.setLinesIgnored(linesIgnored.get());
+            response.setUnmatched(List.copyOf(unmatched));
+            response.setAmbiguous(List.copyOf(ambiguous));
+            response.setRejected(List.copyOf(rejected));
+            response.setFailure(failure);
+            return response;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.logitrack.b2b_tradehub.service;
 
+import com.logitrack.b2b_tradehub.config.RetryOnConflict;
 import com.logitrack.b2b_tradehub.dto.payment.PaymentRequest;
 import com.logitrack.b2b_tradehub.dto.payment.PaymentResponse;
 import com.logitrack.b2b_tradehub.entity.Order;
@@ -26,9 +27,13 @@ public class PaymentService {
     private final PaymentRepository paymentRepository;
     private final OrderRepository orderRepository;
     private final PaymentMapper paymentMapper;
-    private final OrderService orderService; // To update order remaining amount
+    private final PaymentLedgerService paymentLedgerService; // To update order remaining amount
+    private final PaymentDueDateScheduler paymentDueDateScheduler;
+    private final PaymentSummaryService paymentSummaryService;
+    private final DocumentNumberGenerator documentNumberGenerator;
 
     // Requirement: EF 5 (Register Payment)
+    @RetryOnConflict
     @Transactional
     public PaymentResponse create(PaymentRequest request) {
         Order order = orderRepository.findById(request.getOrderId())
@@ -40,54 +45,72 @@ public class PaymentService {
         }
 
         Payment payment = paymentMapper.toEntity(request);
+        payment.setNumeroPaiement(documentNumberGenerator.next(DocumentNumberGenerator.DocumentType.PAYMENT));
         payment.setOrder(order);
 
         // Initial Status logic
         if (request.getTypePaiement() == PaymentType.ESPECE) {
             payment.setStatus(PaymentStatus.ENCAISSE); // Cash is immediate
-            // Update order immediately
-            orderService.updatePaymentAmount(order.getId(), payment.getMontant());
-        } else {
-            payment.setStatus(PaymentStatus.EN_ATTENTE); // Checks/Transfers wait
+            payment.setDateEncaissement(LocalDate.now());
+            // Update order immediately (the ledger entry references the saved payment)
+            payment = paymentRepository.save(payment);
+            paymentSummaryService.onCreated(payment);
+            paymentLedgerService.post(payment);
+            return paymentMapper.toResponse(payment);
         }
-
-        return paymentMapper.toResponse(paymentRepository.save(payment));
+        payment.setStatus(PaymentStatus.EN_ATTENTE); // Checks/Transfers wait
+        payment = paymentRepository.save(payment);
+        paymentSummaryService.onCreated(payment);
+        if (payment.getDateEcheance() != null) {
+            paymentDueDateScheduler.onScheduled(payment.getId(), payment.getDateEcheance());
+        }
+        return paymentMapper.toResponse(payment);
     }
 
     // Requirement: EF 5 (Process Payment - Encaisser)
+    @RetryOnConflict
     @Transactional
     public PaymentResponse processPayment(Long id) {
         Payment payment = paymentRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Payment not found"));
 
-        if (payment.getStatus() == PaymentStatus.ENCAISSE) {
+        // Conditional update: a concurrent call on the same payment waits on its row, then finds it processed
+        if (payment.getStatus() == PaymentStatus.ENCAISSE
+                || paymentRepository.markProcessed(id, LocalDate.now()) == 0) {
             throw new BusinessValidationException("Payment already processed.");
         }
-
+        paymentSummaryService.onStatusChanged(List.of(id), payment.getStatus(), PaymentStatus.ENCAISSE);
         payment.setStatus(PaymentStatus.ENCAISSE);
         payment.setDateEncaissement(LocalDate.now());
 
         // Update Order remaining amount now that money is received
-        orderService.updatePaymentAmount(payment.getOrder().getId(), payment.getMontant());
+        paymentLedgerService.post(payment);
+        paymentDueDateScheduler.onSettled(List.of(id));
 
-        return paymentMapper.toResponse(paymentRepository.save(payment));
+        return paymentMapper.toResponse(payment);
     }
 
+    @RetryOnConflict
     @Transactional
     public PaymentResponse rejectPayment(Long id) {
         Payment payment = paymentRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Payment not found"));
+        // Status first: the fact update flushes it, so the payment row is locked before the fact rows
+        PaymentStatus previous = payment.getStatus();
         payment.setStatus(PaymentStatus.REJETE);
+        paymentSummaryService.onStatusChanged(List.of(id), previous, PaymentStatus.REJETE);
+        paymentDueDateScheduler.onSettled(List.of(id));
         return paymentMapper.toResponse(paymentRepository.save(payment));
     }
 
-    // Helper to update due date (only if pending)
+    // Helper to update due date (only if pending); guarded UPDATE, then the due-date index moves this one entry
     @Transactional
     public void updateEcheance(Long id, LocalDate newDate) {
-        Payment payment = paymentRepository.findById(id).orElseThrow();
-        if(payment.getStatus() != PaymentStatus.EN_ATTENTE) throw new BusinessValidationException("Cannot update processed payment");
-        payment.setDateEcheance(newDate);
-        paymentRepository.save(payment);
+        if (!paymentRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Payment not found");
+        }
+        if (paymentRepository.reschedule(id, newDate) == 0) throw new BusinessValidationException("Cannot update processed payment");
+        paymentDueDateScheduler.onScheduled(id, newDate);
     }
 
     // Read methods
@@ -100,7 +123,8 @@ public class PaymentService {
     public List<PaymentResponse> findByOrderId(Long orderId) {
         return paymentRepository.findByOrderId(orderId).stream().map(paymentMapper::toResponse).collect(Collectors.toList());
     }
+    // Soonest due date first
     public List<PaymentResponse> findPendingPayments() {
-        return paymentRepository.findByStatus(PaymentStatus.EN_ATTENTE).stream().map(paymentMapper::toResponse).collect(Collectors.toList());
+        return paymentRepository.findByStatusOrderByDueDate(PaymentStatus.EN_ATTENTE).stream().map(paymentMapper::toResponse).collect(Collectors.toList());
     }
 }
\ No newline at end of file
@@ -0,0 +1,200 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.payment.PaymentSummaryBucket;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentSummaryResponse;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentSummaryRow;
+import com.logitrack.b2b_tradehub.entity.Payment;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentStatus;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentType;
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+import com.logitrack.b2b_tradehub.repository.DailyPaymentFactRepository;
+import com.logitrack.b2b_tradehub.repository.PaymentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Treasury summary: payment counts and amounts by type, status and day / week / month. Daily facts are kept
+ * current by the payment flows (same transaction as the status change) and rebuilt from history by
+ * {@link #backfill}; the summary is one grouped query on the facts, so its cost depends on the period length,
+ * not on the number of payments. Weeks and months are summed from the daily rows.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PaymentSummaryService {
+
+    private static final int MAX_SUMMARY_DAYS = 3660;
+    private static final String LOCK_FACTS_SQL = "SELECT payment_date, type_paiement, status FROM daily_payment_facts "
+            + "WHERE payment_date >= ? AND payment_date < ? ORDER BY payment_date, type_paiement, status FOR UPDATE";
+    private static final String TOTALS_SQL = "SELECT date_paiement, type_paiement, status, COUNT(*), SUM(montant) "
+            + "FROM payments WHERE date_paiement >= ? AND date_paiement < ? GROUP BY date_paiement, type_paiement, status";
+    private static final String SET_FACT_SQL = "UPDATE daily_payment_facts SET payment_count = ?, montant = ? "
+            + "WHERE payment_date = ? AND type_paiement = ? AND status = ?";
+
+    private final DailyPaymentFactRepository factRepository;
+    private final PaymentRepository paymentRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${tradehub.payment-facts.backfill-partition-days:31}")
+    private int partitionDays;
+
+    // New payment: enters the bucket of its day, type and initial status
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onCreated(Payment payment) {
+        List<Long> ids = List.of(payment.getId());
+        factRepository.ensureRows(ids, payment.getStatus().name());
+        factRepository.applyPayments(ids, payment.getStatus().name(), 1);
+    }
+
+    // Moves these payments from one status bucket to the other (process, reject, reconciliation batch)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onStatusChanged(Collection<Long> paymentIds, PaymentStatus from, PaymentStatus to) {
+        if (from == to || paymentIds.isEmpty()) {
+            return;
+        }
+        factRepository.applyPayments(paymentIds, from.name(), -1);
+        factRepository.ensureRows(paymentIds, to.name());
+        factRepository.applyPayments(paymentIds, to.name(), 1);
+    }
+
+    // Rebuilds the facts of [from, to] (whole history when null) from payments, one transaction per date partition;
+    // safe while payments are being written (see rebuildPartition)
+    public int backfill(LocalDate from, LocalDate to) {
+        if (from == null) {
+            from = paymentRepository.findMinDatePaiement();
+            if (from == null) {
+                return 0;
+            }
+        }
+        if (to == null) {
+            LocalDate max = paymentRepository.findMaxDatePaiement();
+            to = max == null ? from : max;
+        }
+        if (to.isBefore(from)) {
+            throw new BusinessValidationException("Backfill end date must not be before its start date.");
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int rows = 0;
+        int partitions = 0;
+        for (LocalDate start = from; !start.isAfter(to); start = start.plusDays(partitionDays)) {
+            LocalDate partitionStart = start;
+            LocalDate partitionEnd = start.plusDays(partitionDays).isAfter(to) ? to.plusDays(1) : start.plusDays(partitionDays);
+            rows += tx.execute(status -> rebuildPartition(partitionStart, partitionEnd));
+            partitions++;
+        }
+        log.info("Backfilled {} daily payment fact rows from {} to {} in {} partitions", rows, from, to, partitions);
+        return rows;
+    }
+
+    // Same locking order as the sales facts: the partition's payments, then its fact rows, then the totals, written
+    // to the locked rows only. Payment status changes update the payment row before the facts, so they either
+    // commit before the totals are read or wait and apply their delta on the rebuilt rows.
+    private int rebuildPartition(LocalDate start, LocalDate end) {
+        factRepository.lockPayments(start, end);
+        factRepository.insertMissingPartition(start, end);
+        List<FactKey> rows = jdbcTemplate.query(LOCK_FACTS_SQL, (rs, i) -> new FactKey(rs.getObject(1, LocalDate.class),
+                rs.getString(2), rs.getString(3)), start, end);
+
+        Map<FactKey, Object[]> totals = new HashMap<>();
+        jdbcTemplate.query(TOTALS_SQL, rs -> {
+            totals.put(new FactKey(rs.getObject(1, LocalDate.class), rs.getString(2), rs.getString(3)),
+                    new Object[]{rs.getLong(4), rs.getBigDecimal(5)});
+        }, start, end);
+
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        for (FactKey row : rows) {
+            Object[] total = totals.getOrDefault(row, new Object[]{0L, BigDecimal.ZERO});
+            updates.add(new Object[]{total[0], total[1], row.day(), row.type(), row.status()});
+        }
+        jdbcTemplate.batchUpdate(SET_FACT_SQL, updates);
+        return rows.size();
+    }
+
+    @Transactional(readOnly = true)
+    public PaymentSummaryResponse summary(LocalDate from, LocalDate to, Collection<PaymentType> types,
+                                          Collection<PaymentStatus> statuses, PaymentSummaryBucket bucket) {
+        if (to.isBefore(from)) {
+            throw new BusinessValidationException("'to' must not be before 'from'.");
+        }
+        if (from.plusDays(MAX_SUMMARY_DAYS).isBefore(to)) {
+            throw new BusinessValidationException("Payment summaries cover at most " + MAX_SUMMARY_DAYS + " days.");
+        }
+
+        Map<PaymentType, Totals> byType = new EnumMap<>(PaymentType.class);
+        Map<PaymentStatus, Totals> byStatus = new EnumMap<>(PaymentStatus.class);
+        Map<LocalDate, Totals> byPeriod = new TreeMap<>();
+        Totals total = new Totals();
+        for (Object[] row : factRepository.byDayTypeAndStatus(from, to, types, statuses)) {
+            long count = row[3] == null ? 0L : ((Number) row[3]).longValue();
+            BigDecimal montant = row[4] == null ? BigDecimal.ZERO : (BigDecimal) row[4];
+            if (count == 0) {
+                continue;
+            }
+            total.add(count, montant);
+            byType.computeIfAbsent((PaymentType) row[1], key -> new Totals()).add(count, montant);
+            byStatus.computeIfAbsent((PaymentStatus) row[2], key -> new Totals()).add(count, montant);
+            byPeriod.computeIfAbsent(periodStart((LocalDate) row[0], bucket), key -> new Totals()).add(count, montant);
+        }
+
+        PaymentSummaryResponse response = new PaymentSummaryResponse();
+        response.setFrom(from);
+        response.setTo(to);
+        response.setTypes(List.copyOf(types));
+        response.setStatuses(List.copyOf(statuses));
+        response.setBucket(bucket);
+        response.setCount(total.count);
+        response.setMontant(total.montant);
+        response.setByType(rows(byType));
+        response.setByStatus(rows(byStatus));
+        response.setByPeriod(rows(byPeriod));
+        return response;
+    }
+
+    private static LocalDate periodStart(LocalDate day, PaymentSummaryBucket bucket) {
+        return switch (bucket) {
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+            default -> day;
+        };
+    }
+
+    private static List<PaymentSummaryRow> rows(Map<?, Totals> totals) {
+        List<PaymentSummaryRow> rows = new ArrayList<>(totals.size());
+        totals.forEach((key, value) -> rows.add(new PaymentSummaryRow(String.valueOf(key), value.count, value.montant)));
+        return rows;
+    }
+
+    private record FactKey(LocalDate day, String type, String status) {
+    }
+
+    private static final class Totals {
+        private long count;
+        private BigDecimal montant = BigDecimal.ZERO.setScale(2);
+
+        private void add(long count, BigDecimal montant) {
+            this.count += count;
+            this.montant = this.montant.add(montant);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.entity.Client;
+import com.logitrack.b2b_tradehub.entity.Order;
+import com.logitrack.b2b_tradehub.entity.PricedLine;
+import com.logitrack.b2b_tradehub.entity.PromoCode;
+import com.logitrack.b2b_tradehub.entity.enums.CustomerTier;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prices an order: subtotal, loyalty and promo discounts, VAT and total.
+ * Amounts are handled as long cents and rates as basis points (1 bp = 0.01 %); every division rounds HALF_UP
+ * to the cent. Tier rules are built once, so pricing an order allocates nothing but the result.
+ */
+@Component
+public class PricingEngine {
+
+    // 20 % VAT
+    public static final int VAT_BASIS_POINTS = 2_000;
+    public static final BigDecimal VAT_RATE_PERCENT = BigDecimal.valueOf(VAT_BASIS_POINTS, 2);
+
+    private static final long BASIS_POINTS = 10_000L;
+
+    // Requirement: EF 2 (Loyalty System) - discount applies from a minimum order subtotal per tier
+    private final Map<CustomerTier, TierRule> tierRules = new EnumMap<>(CustomerTier.class);
+
+    public PricingEngine() {
+        tierRules.put(CustomerTier.BASIC, new TierRule(0L, 0));
+        tierRules.put(CustomerTier.SILVER, new TierRule(50_000L, 500));
+        tierRules.put(CustomerTier.GOLD, new TierRule(80_000L, 1_000));
+        tierRules.put(CustomerTier.PLATINUM, new TierRule(120_000L, 1_500));
+    }
+
+    /**
+     * Single entry point shared by order creation, promo application and quotes.
+     *
+     * @param promo an already validated promo code, or null
+     */
+    public Price price(List<? extends PricedLine> lines, Client client, PromoCode promo) {
+        long subtotal = 0;
+        for (int i = 0, n = lines.size(); i < n; i++) {
+            PricedLine line = lines.get(i);
+            subtotal = Math.addExact(subtotal, Math.multiplyExact(toCents(line.getPrixUnitaireHT()), line.getQuantite()));
+        }
+
+        long loyaltyDiscount = 0;
+        TierRule rule = client == null || client.getTier() == null ? null : tierRules.get(client.getTier());
+        if (rule != null && rule.rateBasisPoints > 0 && subtotal >= rule.thresholdCents) {
+            loyaltyDiscount = applyRate(subtotal, rule.rateBasisPoints);
+        }
+
+        // Both discounts are computed on the subtotal, never on each other
+        long promoDiscount = promo == null ? 0 : applyRate(subtotal, toBasisPoints(promo.getDiscountPercentage()));
+
+        long net = Math.max(0, subtotal - loyaltyDiscount - promoDiscount);
+        long vat = applyRate(net, VAT_BASIS_POINTS);
+        return new Price(subtotal, loyaltyDiscount, promoDiscount, net, vat, net + vat);
+    }
+
+    // Writes the price on the order; the only BigDecimal allocations of the pricing path happen here
+    public void applyTo(Price price, Order order) {
+        order.setSousTotalHT(toAmount(price.getSubtotalCents()));
+        order.setMontantRemiseTotale(toAmount(price.getDiscountCents()));
+        order.setMontantHTApresRemise(toAmount(price.getNetCents()));
+        order.setTauxTVA(VAT_RATE_PERCENT);
+        order.setMontantTVA(toAmount(price.getVatCents()));
+        order.setTotalTTC(toAmount(price.getTotalCents()));
+        order.deriveMontantRestant();
+    }
+
+    public static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    // HALF_UP on non-negative amounts: add half the divisor before the integer division
+    private static long applyRate(long cents, int basisPoints) {
+        return (Math.multiplyExact(cents, basisPoints) + BASIS_POINTS / 2) / BASIS_POINTS;
+    }
+
+    // Prices are stored with scale 2, so the unscaled value is already in cents
+    private static long toCents(BigDecimal amount) {
+        if (amount.scale() == 2) {
+            return amount.unscaledValue().longValueExact();
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static int toBasisPoints(BigDecimal percent) {
+        return percent.setScale(2, RoundingMode.HALF_UP).unscaledValue().intValueExact();
+    }
+
+    @Value
+    public static class Price {
+        long subtotalCents;
+        long loyaltyDiscountCents;
+        long promoDiscountCents;
+        long netCents;
+        long vatCents;
+        long totalCents;
+
+        public long getDiscountCents() {
+            return loyaltyDiscountCents + promoDiscountCents;
+        }
+    }
+
+    private static final class TierRule {
+        private final long thresholdCents;
+        private final int rateBasisPoints;
+
+        private TierRule(long thresholdCents, int rateBasisPoints) {
+            this.thresholdCents = thresholdCents;
+            this.rateBasisPoints = rateBasisPoints;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import com.logitrack.b2b_tradehub.util.AfterCommit;
+import com.logitrack.b2b_tradehub.util.ResourceVersion;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through product cache for the catalog read paths (findById, available products, stock checks, quotes).
+ * Rarely changing data (name, price, deleted flag) and stock levels live in separate caches: the catalog entry
+ * is kept for minutes and dropped precisely on product writes, the stock entry has a TTL of seconds on top of
+ * being dropped on every stock change, since reservations move it on every order. A miss in either cache loads
+ * both from one query. Writers call the invalidate methods inside their transaction; the eviction runs after
+ * commit (so no reader can reload the old row in between) and is broadcast to the other nodes. A load that
+ * overlaps an eviction is returned but not cached (or taken back out), since it may have read the row before the commit.
+ * The catalog version (ETag of product listings) is cached the same way, under the stock TTL.
+ * Loads run in a read-write transaction of their own, so they read the primary: a lagging replica could hand back
+ * the row an eviction was meant to drop, and it would then be served for the whole TTL.
+ * Metrics: cache.gets / cache.evictions / cache.size tagged cache=product.catalog, product.stock, product.active.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductCatalogCache {
+
+    private static final String CATALOG = "product";
+    private static final String STOCK = "product-stock";
+    private static final String ACTIVE = "product-active";
+    private static final int LOAD_CHUNK = 1_000;
+
+    private final ProductRepository productRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${tradehub.catalog-cache.ttl:PT10M}")
+    private Duration ttl;
+
+    @Value("${tradehub.catalog-cache.stock-ttl:PT2S}")
+    private Duration stockTtl;
+
+    @Value("${tradehub.catalog-cache.max-size:100000}")
+    private long maxSize;
+
+    private Cache<Long, CatalogEntry> catalog;
+    private Cache<Long, StockLevel> stock;
+    // Single entry: ids of the products that are not soft deleted
+    private Cache<Boolean, List<Long>> activeIds;
+
+    // Bumped by every eviction; a load only fills a cache if no eviction of that cache happened while it ran.
+    // Stock evictions (every order) are counted apart so they do not keep catalog loads from being cached.
+    private final AtomicLong catalogEvictions = new AtomicLong();
+    private final AtomicLong stockEvictions = new AtomicLong();
+
+    private volatile CachedVersion catalogVersion;
+
+    private TransactionTemplate primary;
+
+    @PostConstruct
+    void init() {
+        primary = new TransactionTemplate(transactionManager);
+        primary.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        catalog = Caffeine.newBuilder().expireAfterWrite(ttl).maximumSize(maxSize).recordStats().build();
+        stock = Caffeine.newBuilder().expireAfterWrite(stockTtl).maximumSize(maxSize).recordStats().build();
+        activeIds = Caffeine.newBuilder().expireAfterWrite(ttl).maximumSize(1).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, catalog, "product.catalog");
+        CaffeineCacheMetrics.monitor(meterRegistry, stock, "product.stock");
+        CaffeineCacheMetrics.monitor(meterRegistry, activeIds, "product.active");
+
+        invalidationBus.subscribe(CATALOG, key -> evict(Long.valueOf(key)));
+        invalidationBus.subscribe(STOCK, key -> evictStock(List.of(Long.valueOf(key))));
+        invalidationBus.subscribe(ACTIVE, key -> evictActive());
+    }
+
+    // Missing ids are absent from the result; all misses are loaded with one query per chunk of ids
+    public Map<Long, ProductSnapshot> getAll(Collection<Long> ids) {
+        Map<Long, CatalogEntry> entries = catalog.getAllPresent(ids);
+        Map<Long, StockLevel> levels = stock.getAllPresent(ids);
+        Set<Long> missing = new HashSet<>();
+        for (Long id : ids) {
+            if (!entries.containsKey(id) || !levels.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            entries = new HashMap<>(entries);
+            levels = new HashMap<>(levels);
+            long catalogGeneration = catalogEvictions.get();
+            long stockGeneration = stockEvictions.get();
+            List<Product> products = load(missing);
+            boolean catalogCacheable = catalogEvictions.get() == catalogGeneration;
+            boolean stockCacheable = stockEvictions.get() == stockGeneration && catalogCacheable;
+            for (Product product : products) {
+                CatalogEntry entry = CatalogEntry.of(product);
+                StockLevel level = StockLevel.of(product);
+                entries.put(product.getId(), entry);
+                levels.put(product.getId(), level);
+                if (catalogCacheable) {
+                    catalog.put(product.getId(), entry);
+                }
+                if (stockCacheable) {
+                    stock.put(product.getId(), level);
+                }
+            }
+            // An eviction may also land between the checks above and the puts: check again and take back what was
+            // put. Evictions bump the counter before invalidating, so either this sees it or it removes the entry.
+            boolean catalogEvicted = catalogCacheable && catalogEvictions.get() != catalogGeneration;
+            boolean stockEvicted = stockCacheable && stockEvictions.get() != stockGeneration;
+            for (Product product : products) {
+                if (catalogEvicted) {
+                    catalog.asMap().remove(product.getId(), entries.get(product.getId()));
+                }
+                if (stockEvicted) {
+                    stock.asMap().remove(product.getId(), levels.get(product.getId()));
+                }
+            }
+        }
+        Map<Long, ProductSnapshot> snapshots = new HashMap<>();
+        for (Long id : ids) {
+            CatalogEntry entry = entries.get(id);
+            if (entry != null) {
+                snapshots.put(id, new ProductSnapshot(entry, levels.get(id)));
+            }
+        }
+        return snapshots;
+    }
+
+    public Optional<ProductSnapshot> get(Long id) {
+        return Optional.ofNullable(getAll(List.of(id)).get(id));
+    }
+
+    // Products not soft deleted, in id order
+    public List<ProductSnapshot> getActive() {
+        List<Long> ids = activeIds.getIfPresent(Boolean.TRUE);
+        if (ids == null) {
+            long generation = catalogEvictions.get();
+            ids = primary.execute(status -> productRepository.findActiveIds()).stream().sorted().toList();
+            if (catalogEvictions.get() == generation) {
+                activeIds.put(Boolean.TRUE, ids);
+                if (catalogEvictions.get() != generation) {
+                    activeIds.asMap().remove(Boolean.TRUE, ids);
+                }
+            }
+        }
+        Map<Long, ProductSnapshot> snapshots = getAll(ids);
+        List<ProductSnapshot> active = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProductSnapshot snapshot = snapshots.get(id);
+            if (snapshot != null && !snapshot.isDeleted()) {
+                active.add(snapshot);
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Version of the whole catalog: product count, sum of row versions (every write, bulk stock updates included,
+     * bumps one) and last update. Reloaded after any local or broadcast eviction, or once the stock TTL has passed.
+     */
+    public ResourceVersion catalogVersion() {
+        long generation = catalogEvictions.get() + stockEvictions.get();
+        CachedVersion cached = catalogVersion;
+        long now = System.nanoTime();
+        if (cached != null && cached.generation == generation && now - cached.loadedAt < stockTtl.toNanos()) {
+            return cached.version;
+        }
+        Object[] row = primary.execute(status -> productRepository.findCatalogVersion()).get(0);
+        ResourceVersion version = ResourceVersion.of("catalog", (LocalDateTime) row[2], row[0], row[1] == null ? 0 : row[1]);
+        if (catalogEvictions.get() + stockEvictions.get() == generation) {
+            catalogVersion = new CachedVersion(generation, now, version);
+        }
+        return version;
+    }
+
+    // Any product write: name, price, stock or deleted flag
+    public void invalidate(Long id) {
+        AfterCommit.run(() -> {
+            evict(id);
+            invalidationBus.publish(CATALOG, List.of(id));
+        });
+    }
+
+    // Bulk writes (CSV import): one broadcast for all the ids
+    public void invalidate(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Long> copy = List.copyOf(ids);
+        AfterCommit.run(() -> {
+            copy.forEach(this::evict);
+            invalidationBus.publish(CATALOG, copy);
+        });
+    }
+
+    public void invalidateStock(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Long> copy = List.copyOf(ids);
+        AfterCommit.run(() -> {
+            evictStock(copy);
+            invalidationBus.publish(STOCK, copy);
+        });
+    }
+
+    // Product created or soft deleted
+    public void invalidateActive() {
+        AfterCommit.run(() -> {
+            evictActive();
+            invalidationBus.publish(ACTIVE, List.of("*"));
+        });
+    }
+
+    private void evict(Long id) {
+        catalogEvictions.incrementAndGet();
+        stockEvictions.incrementAndGet();
+        catalog.invalidate(id);
+        stock.invalidate(id);
+    }
+
+    private void evictStock(Collection<Long> ids) {
+        stockEvictions.incrementAndGet();
+        stock.invalidateAll(ids);
+    }
+
+    private void evictActive() {
+        catalogEvictions.incrementAndGet();
+        activeIds.invalidateAll();
+    }
+
+    // Read-write, hence on the primary, and never joined to a caller's transaction: what is cached is committed
+    private List<Product> load(Set<Long> ids) {
+        List<Long> pending = new ArrayList<>(ids);
+        return primary.execute(status -> {
+            List<Product> products = new ArrayList<>(pending.size());
+            for (int from = 0; from < pending.size(); from += LOAD_CHUNK) {
+                products.addAll(productRepository.findAllById(pending.subList(from, Math.min(from + LOAD_CHUNK, pending.size()))));
+            }
+            return products;
+        });
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class CatalogEntry {
+        private final Long id;
+        private final String sku;
+        private final String nom;
+        private final BigDecimal prixUnitaireHT;
+        private final LocalDateTime createdAt;
+        private final boolean deleted;
+
+        static CatalogEntry of(Product product) {
+            return new CatalogEntry(product.getId(), product.getSku(), product.getNom(), product.getPrixUnitaireHT(),
+                    product.getCreatedAt(), Boolean.TRUE.equals(product.getDeleted()));
+        }
+    }
+
+    // Row version and update time go with the stock: bulk stock updates change them without touching the catalog data
+    @Getter
+    @AllArgsConstructor
+    private static class StockLevel {
+        private final int stockDisponible;
+        private final int stockReserve;
+        private final long version;
+        private final LocalDateTime updatedAt;
+
+        static StockLevel of(Product product) {
+            return new StockLevel(product.getStockDisponible(), product.getStockReserve(),
+                    product.getVersion() == null ? 0 : product.getVersion(), product.getUpdatedAt());
+        }
+    }
+
+    @AllArgsConstructor
+    private static class CachedVersion {
+        private final long generation;
+        private final long loadedAt;
+        private final ResourceVersion version;
+    }
+
+    /**
+     * Immutable view of a product: catalog data plus the stock level at its (more recent) load time.
+     */
+    @Getter
+    public static class ProductSnapshot {
+        private final Long id;
+        private final String sku;
+        private final String nom;
+        private final BigDecimal prixUnitaireHT;
+        private final LocalDateTime createdAt;
+        private final boolean deleted;
+        private final int stockDisponible;
+        private final int stockReserve;
+        private final long version;
+        private final LocalDateTime updatedAt;
+
+        private ProductSnapshot(CatalogEntry entry, StockLevel level) {
+            this.id = entry.getId();
+            this.sku = entry.getSku();
+            this.nom = entry.getNom();
+            this.prixUnitaireHT = entry.getPrixUnitaireHT();
+            this.createdAt = entry.getCreatedAt();
+            this.deleted = entry.isDeleted();
+            this.stockDisponible = level.getStockDisponible();
+            this.stockReserve = level.getStockReserve();
+            this.version = level.getVersion();
+            this.updatedAt = level.getUpdatedAt();
+        }
+
+        // ETag and Last-Modified of this product
+        public ResourceVersion resourceVersion() {
+            return ResourceVersion.of("product", updatedAt, id, version);
+        }
+
+        // stockDisponible - stockReserve
+        public int getAvailable() {
+            return stockDisponible - stockReserve;
+        }
+    }
+}
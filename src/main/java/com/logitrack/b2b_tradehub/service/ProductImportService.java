@@ -0,0 +1,506 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.logitrack.b2b_tradehub.dto.product.ProductImportJobResponse;
+import com.logitrack.b2b_tradehub.dto.product.ProductImportRowError;
+import com.logitrack.b2b_tradehub.dto.product.ProductImportStatus;
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+import com.logitrack.b2b_tradehub.exception.ResourceNotFoundException;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import com.logitrack.b2b_tradehub.util.CountingInputStream;
+import com.logitrack.b2b_tradehub.util.CsvLines;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk product import from CSV, upserting by SKU.
+ * <p>
+ * The upload is spooled to a temporary file, then a background job streams it: the job thread parses batches
+ * of rows, a pool validates them in parallel, and writer lanes upsert them with two JDBC batches per batch and
+ * transaction (see {@link Pipeline}). The number of batches in flight is bounded, so memory does not depend on
+ * the file size. A SKU repeated later in the file takes the later values. Rejected rows are counted and the
+ * first ones reported with their line number; a database error stops the job, the batches committed before it
+ * stay imported. A stock below the quantity reserved by pending orders rejects the row. Jobs live in memory on
+ * the node that runs them.
+ * <p>
+ * Columns (header required, any order, ',' or ';' separated): sku, nom, prix_unitaire_ht, stock_disponible.
+ * An existing product keeps its id, reservations and deleted flag.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductImportService {
+
+    private static final int MAX_SKU = 64;
+    private static final int MAX_NOM = 100;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+
+    // Upsert in two JDBC batches, as the fact tables do: insert-or-skip, then update every row of the batch. Runs on
+    // any PostgreSQL version and on H2, and two jobs inserting the same new SKU never hit a unique violation (the
+    // second insert waits for the first and skips). Update counts are checked, not insert counts: rewritten batched
+    // INSERTs report no per-row count.
+    private static final String INSERT_SQL = "INSERT INTO products (sku, nom, prix_unitaire_ht, stock_disponible, "
+            + "stock_reserve, version, deleted, created_at, updated_at) VALUES (?, ?, ?, ?, 0, 0, false, LOCALTIMESTAMP, "
+            + "LOCALTIMESTAMP) ON CONFLICT DO NOTHING";
+
+    // Never below what PENDING orders hold: the row is left as it is and reported as rejected
+    private static final String UPDATE_SQL = "UPDATE products SET nom = ?, prix_unitaire_ht = ?, stock_disponible = ?, "
+            + "version = version + 1, updated_at = LOCALTIMESTAMP WHERE sku = ? AND stock_reserve <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ProductRepository productRepository;
+    private final ProductCatalogCache productCatalogCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductRankingService productRankingService;
+
+    @Value("${tradehub.product-import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${tradehub.product-import.parallelism:4}")
+    private int parallelism;
+
+    @Value("${tradehub.product-import.max-concurrent-jobs:2}")
+    private int maxConcurrentJobs;
+
+    @Value("${tradehub.product-import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    @Value("${tradehub.product-import.job-retention:PT24H}")
+    private Duration jobRetention;
+
+    private Cache<String, Job> jobs;
+    private ExecutorService runner;
+
+    @PostConstruct
+    void init() {
+        jobs = Caffeine.newBuilder().expireAfterWrite(jobRetention).build();
+        runner = Executors.newFixedThreadPool(maxConcurrentJobs);
+    }
+
+    @PreDestroy
+    void stop() {
+        runner.shutdownNow();
+    }
+
+    // Copies the upload to disk and queues the job; returns as soon as the file is stored
+    public ProductImportJobResponse start(InputStream csv) throws IOException {
+        Path file = Files.createTempFile("product-import-", ".csv");
+        try {
+            Files.copy(csv, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        Job job = new Job(UUID.randomUUID().toString(), Files.size(file));
+        jobs.put(job.id, job);
+        runner.submit(() -> run(job, file));
+        return job.toResponse();
+    }
+
+    public ProductImportJobResponse status(String jobId) {
+        Job job = jobs.getIfPresent(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Import job not found");
+        }
+        return job.toResponse();
+    }
+
+    private void run(Job job, Path file) {
+        job.status = ProductImportStatus.RUNNING;
+        long start = System.nanoTime();
+        Pipeline pipeline = new Pipeline(job);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new CountingInputStream(Files.newInputStream(file), job.bytesRead), StandardCharsets.UTF_8), 64 * 1024)) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new BusinessValidationException("The file is empty.");
+            }
+            Columns columns = Columns.parse(header);
+
+            List<RawRow> rows = new ArrayList<>(batchSize);
+            long line = 1;
+            for (String text = reader.readLine(); text != null && job.failure == null; text = reader.readLine()) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                rows.add(new RawRow(line, text));
+                job.rowsRead.incrementAndGet();
+                if (rows.size() == batchSize) {
+                    pipeline.validate(columns, rows);
+                    rows = new ArrayList<>(batchSize);
+                }
+            }
+            if (!rows.isEmpty()) {
+                pipeline.validate(columns, rows);
+            }
+            pipeline.finish();
+            if (job.failure != null) {
+                job.finish(ProductImportStatus.FAILED, job.failure);
+                return;
+            }
+            job.finish(ProductImportStatus.COMPLETED, null);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            log.info("Product import {}: {} rows read, {} imported, {} rejected in {} s ({} rows/s)", job.id,
+                    job.rowsRead.get(), job.rowsImported.get(), job.rowsRejected.get(), String.format("%.1f", seconds),
+                    Math.round(job.rowsRead.get() / Math.max(seconds, 0.001)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish(ProductImportStatus.FAILED, "Import interrupted");
+        } catch (ExecutionException e) {
+            job.finish(ProductImportStatus.FAILED, String.valueOf(e.getCause().getMessage()));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Product import {} failed: {}", job.id, e.getMessage());
+            job.finish(ProductImportStatus.FAILED, e.getMessage());
+        } finally {
+            pipeline.shutdown();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Could not delete import file {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Validation pool and writer lanes of one job. Batches are validated in parallel and dispatched in file order;
+     * each valid row goes to the lane of its SKU hash, and every lane writes its batches in order on its own
+     * connection, so the last occurrence of a SKU is the one kept. In flight at most: parallelism x 2 validated
+     * batches, one partial batch per lane and parallelism x 2 batches being written.
+     */
+    private final class Pipeline {
+        private final Job job;
+        private final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        private final ExecutorService validators = Executors.newFixedThreadPool(parallelism);
+        private final Deque<Future<Batch>> validations = new ArrayDeque<>();
+        private final ExecutorService[] writers = new ExecutorService[parallelism];
+        private final List<List<ValidRow>> lanes = new ArrayList<>(parallelism);
+        private final Semaphore writeSlots = new Semaphore(parallelism * 2);
+
+        private Pipeline(Job job) {
+            this.job = job;
+            for (int i = 0; i < parallelism; i++) {
+                writers[i] = Executors.newSingleThreadExecutor();
+                lanes.add(new ArrayList<>(batchSize));
+            }
+        }
+
+        void validate(Columns columns, List<RawRow> rows) throws InterruptedException, ExecutionException {
+            validations.add(validators.submit(() -> ProductImportService.validate(columns, rows)));
+            while (validations.size() >= parallelism * 2) {
+                dispatch(validations.poll().get());
+            }
+        }
+
+        private void dispatch(Batch batch) throws InterruptedException {
+            job.reject(batch.errors, maxReportedErrors);
+            for (ValidRow row : batch.valid) {
+                int lane = Math.floorMod(row.sku.hashCode(), parallelism);
+                lanes.get(lane).add(row);
+                if (lanes.get(lane).size() == batchSize) {
+                    flush(lane);
+                }
+            }
+        }
+
+        private void flush(int lane) throws InterruptedException {
+            List<ValidRow> rows = lanes.get(lane);
+            if (rows.isEmpty() || job.failure != null) {
+                return;
+            }
+            lanes.set(lane, new ArrayList<>(batchSize));
+            writeSlots.acquire();
+            writers[lane].submit(() -> {
+                try {
+                    if (job.failure == null) {
+                        List<ProductImportRowError> rejected = write(rows, tx);
+                        job.reject(rejected, maxReportedErrors);
+                        job.rowsImported.addAndGet(rows.size() - rejected.size());
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Product import {} failed writing a batch: {}", job.id, e.getMessage());
+                    job.fail(e.getMessage());
+                } finally {
+                    writeSlots.release();
+                }
+            });
+        }
+
+        // Dispatches what is left and waits for every lane to be written
+        void finish() throws InterruptedException, ExecutionException {
+            while (!validations.isEmpty()) {
+                dispatch(validations.poll().get());
+            }
+            for (int lane = 0; lane < parallelism; lane++) {
+                flush(lane);
+            }
+            for (ExecutorService writer : writers) {
+                writer.shutdown();
+            }
+            for (ExecutorService writer : writers) {
+                writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        void shutdown() {
+            validators.shutdownNow();
+            for (ExecutorService writer : writers) {
+                writer.shutdownNow();
+            }
+        }
+    }
+
+    private static Batch validate(Columns columns, List<RawRow> rows) {
+        Batch batch = new Batch();
+        for (RawRow row : rows) {
+            String sku = null;
+            try {
+                List<String> fields = CsvLines.split(row.text, columns.separator);
+                if (fields.size() < columns.width) {
+                    throw new IllegalArgumentException("Expected " + columns.width + " columns, found " + fields.size());
+                }
+                sku = fields.get(columns.sku).trim();
+                String nom = fields.get(columns.nom).trim();
+                if (sku.isEmpty() || sku.length() > MAX_SKU) {
+                    throw new IllegalArgumentException("SKU is required (at most " + MAX_SKU + " characters)");
+                }
+                if (nom.isEmpty() || nom.length() > MAX_NOM) {
+                    throw new IllegalArgumentException("Product name is required (at most " + MAX_NOM + " characters)");
+                }
+                BigDecimal prix = parsePrice(fields.get(columns.prix).trim());
+                int stock = parseStock(fields.get(columns.stock).trim());
+                batch.valid.add(new ValidRow(row.line, sku, nom, prix, stock));
+            } catch (IllegalArgumentException e) {
+                batch.errors.add(new ProductImportRowError(row.line, sku, e.getMessage()));
+            }
+        }
+        return batch;
+    }
+
+    // Rows sorted by SKU so concurrent jobs lock products in the same order; the sort is stable, so the last
+    // occurrence of a SKU in the batch is still written last. Returns the rows rejected by the reserve guard.
+    private List<ProductImportRowError> write(List<ValidRow> rows, TransactionTemplate tx) {
+        List<ValidRow> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(ValidRow::sku));
+        return tx.execute(status -> {
+            jdbcTemplate.batchUpdate(INSERT_SQL, sorted, sorted.size(), (ps, row) -> {
+                ps.setString(1, row.sku);
+                ps.setString(2, row.nom);
+                ps.setBigDecimal(3, row.prix);
+                ps.setInt(4, row.stock);
+            });
+            int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, sorted, sorted.size(), (ps, row) -> {
+                ps.setString(1, row.nom);
+                ps.setBigDecimal(2, row.prix);
+                ps.setInt(3, row.stock);
+                ps.setString(4, row.sku);
+                ps.setInt(5, row.stock);
+            })[0];
+            List<ProductImportRowError> rejected = new ArrayList<>();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    ValidRow row = sorted.get(i);
+                    rejected.add(new ProductImportRowError(row.line, row.sku,
+                            "Stock " + row.stock + " is below the quantity reserved by pending orders"));
+                }
+            }
+            refreshReadModels(sorted);
+            return rejected;
+        });
+    }
+
+    // Caches, search index and ranking candidates follow the batch once it has committed
+    private void refreshReadModels(List<ValidRow> rows) {
+        Set<String> skus = new HashSet<>();
+        rows.forEach(row -> skus.add(row.sku));
+        List<Object[]> products = productRepository.findImportedBySkuIn(skus);
+        List<Long> ids = new ArrayList<>(products.size());
+        for (Object[] product : products) {
+            Long id = (Long) product[0];
+            ids.add(id);
+            if (!Boolean.TRUE.equals(product[2])) {
+                productRankingService.onProductActivated(id);
+            }
+        }
+        productSearchIndex.onProductsSaved(products);
+        productCatalogCache.invalidate(ids);
+        productCatalogCache.invalidateActive();
+    }
+
+    private static BigDecimal parsePrice(String text) {
+        BigDecimal prix;
+        try {
+            // Decimal comma accepted (French spreadsheets)
+            prix = new BigDecimal(text.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid price: '" + text + "'");
+        }
+        if (prix.signum() < 0 || prix.compareTo(MAX_PRICE) > 0 || prix.stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException("Price must be between 0 and " + MAX_PRICE + " with at most 2 decimals");
+        }
+        return prix;
+    }
+
+    private static int parseStock(String text) {
+        int stock;
+        try {
+            stock = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid stock: '" + text + "'");
+        }
+        if (stock < 0) {
+            throw new IllegalArgumentException("Stock cannot be negative");
+        }
+        return stock;
+    }
+
+    // Positions of the known columns in the header
+    private static final class Columns {
+        private final char separator;
+        private final int width;
+        private final int sku;
+        private final int nom;
+        private final int prix;
+        private final int stock;
+
+        private Columns(char separator, int width, Map<String, Integer> positions) {
+            this.separator = separator;
+            this.width = width;
+            this.sku = positions.get("sku");
+            this.nom = positions.get("nom");
+            this.prix = positions.get("prixunitaireht");
+            this.stock = positions.get("stockdisponible");
+        }
+
+        static Columns parse(String header) {
+            String clean = CsvLines.stripBom(header);
+            char separator = CsvLines.separatorOf(clean);
+            List<String> names = CsvLines.split(clean, separator);
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                positions.put(names.get(i).trim().toLowerCase(Locale.ROOT).replace("_", ""), i);
+            }
+            List<String> missing = new ArrayList<>();
+            for (String required : List.of("sku", "nom", "prixunitaireht", "stockdisponible")) {
+                if (!positions.containsKey(required)) {
+                    missing.add(required);
+                }
+            }
+            if (!missing.isEmpty()) {
+                throw new BusinessValidationException("Missing CSV columns " + missing
+                        + " (expected sku, nom, prix_unitaire_ht, stock_disponible).");
+            }
+            return new Columns(separator, names.size(), positions);
+        }
+    }
+
+    private record RawRow(long line, String text) {
+    }
+
+    private record ValidRow(long line, String sku, String nom, BigDecimal prix, int stock) {
+    }
+
+    private static final class Batch {
+        private final List<ValidRow> valid = new ArrayList<>();
+        private final List<ProductImportRowError> errors = new ArrayList<>();
+    }
+
+    private static final class Job {
+        private final String id;
+        private final long totalBytes;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong rowsImported = new AtomicLong();
+        private final AtomicLong rowsRejected = new AtomicLong();
+        private final List<ProductImportRowError> errors = new ArrayList<>();
+        private volatile ProductImportStatus status = ProductImportStatus.QUEUED;
+        private volatile LocalDateTime finishedAt;
+        private volatile String failure;
+
+        private Job(String id, long totalBytes) {
+            this.id = id;
+            this.totalBytes = totalBytes;
+        }
+
+        synchronized void reject(List<ProductImportRowError> rejected, int maxReported) {
+            rowsRejected.addAndGet(rejected.size());
+            for (ProductImportRowError error : rejected) {
+                if (errors.size() >= maxReported) {
+                    break;
+                }
+                errors.add(error);
+            }
+        }
+
+        // First write error; the reader stops and the job ends FAILED
+        synchronized void fail(String message) {
+            if (failure == null) {
+                failure = String.valueOf(message);
+            }
+        }
+
+        void finish(ProductImportStatus finalStatus, String failureMessage) {
+            failure = failureMessage;
+            finishedAt = LocalDateTime.now();
+            status = finalStatus;
+        }
+
+        synchronized ProductImportJobResponse toResponse() {
+            ProductImportJobResponse response = new ProductImportJobResponse();
+            response.setJobId(id);
+            response.setStatus(status);
+            response.setStartedAt(startedAt);
+            response.setFinishedAt(finishedAt);
+            response.setBytesRead(Math.min(bytesRead.get(), totalBytes));
+            response.setTotalBytes(totalBytes);
+            response.setPercent(status == ProductImportStatus.COMPLETED ? 100
+                    : totalBytes == 0 ? 0 : (int) (100 * Math.min(bytesRead.get(), totalBytes) / totalBytes));
+            response.setRowsRead(rowsRead.get());
+            response.setRowsImported(rowsImported.get());
+            response.setRowsRejected(rowsRejected.get());
+            response.setErrors(List.copyOf(errors));
+            response.setFailure(failure);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.product.ProductRankEntry;
+import com.logitrack.b2b_tradehub.dto.product.ProductRankingMetric;
+import com.logitrack.b2b_tradehub.dto.product.ProductRankingResponse;
+import com.logitrack.b2b_tradehub.entity.Order;
+import com.logitrack.b2b_tradehub.entity.OrderItem;
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+import com.logitrack.b2b_tradehub.repository.DailySalesFactRepository;
+import com.logitrack.b2b_tradehub.repository.OrderItemRepository;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import com.logitrack.b2b_tradehub.util.AfterCommit;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Best sellers and slow movers over sliding 7/30/90-day windows, kept in memory on every node.
+ * Confirmed orders are added after their transaction commits, and their ids are broadcast on the
+ * {@link CacheInvalidationBus} so the other nodes load and add the same lines. A window drops the days that
+ * slide out of it lazily, on the next read or write. Rankings are picked with heaps bounded by k, so a request
+ * costs O(n log k) over the products of the window instead of a sort. State is rebuilt from daily_sales_facts
+ * at startup and periodically: that rebuild is what corrects a lost broadcast, or a confirmation counted twice
+ * because it committed while the previous rebuild ran.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductRankingService {
+
+    public static final List<Integer> WINDOWS = List.of(7, 30, 90);
+
+    private static final String RANKINGS = "rankings";
+    private static final int HISTORY_DAYS = 90;
+    private static final int QUANTITY = 0;
+    private static final int REVENUE_CENTS = 1;
+
+    private final DailySalesFactRepository factRepository;
+    private final ProductRepository productRepository;
+    private final ProductCatalogCache productCatalogCache;
+    private final OrderItemRepository orderItemRepository;
+    private final CacheInvalidationBus invalidationBus;
+
+    private Clock clock = Clock.systemDefaultZone();
+
+    @Value("${tradehub.rankings.max-k:100}")
+    private int maxK;
+
+    // Confirmed sales per day, then per product: {quantity, revenue in cents}
+    private final TreeMap<LocalDate, Map<Long, long[]>> days = new TreeMap<>();
+    private final Map<Integer, Window> windows = new HashMap<>();
+
+    // Candidates for the bottom ranking: a product with no sale in the window is the slowest mover of all
+    private volatile Set<Long> activeProductIds = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void subscribe() {
+        invalidationBus.subscribe(RANKINGS, key -> onConfirmedElsewhere(List.of(Long.valueOf(key))));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${tradehub.rankings.rebuild-interval:PT1H}",
+            initialDelayString = "${tradehub.rankings.rebuild-interval:PT1H}")
+    public synchronized void rebuild() {
+        LocalDate today = LocalDate.now(clock);
+        reset(today);
+        int rows = 0;
+        for (Object[] row : factRepository.confirmedByDayAndProductSince(today.minusDays(HISTORY_DAYS - 1))) {
+            add((LocalDate) row[0], (Long) row[1], ((Number) row[2]).longValue(), toCents((BigDecimal) row[3]));
+            rows++;
+        }
+        refreshActiveProducts();
+        log.info("Product rankings rebuilt from {} daily sales fact rows since {}", rows, today.minusDays(HISTORY_DAYS - 1));
+    }
+
+    @Scheduled(fixedDelayString = "${tradehub.rankings.active-products-refresh:PT5M}",
+            initialDelayString = "${tradehub.rankings.active-products-refresh:PT5M}")
+    public void refreshActiveProducts() {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ids.addAll(productRepository.findActiveIds());
+        activeProductIds = ids;
+    }
+
+    // Product creation and soft delete keep the bottom-ranking candidates current between refreshes
+    public void onProductActivated(Long productId) {
+        AfterCommit.run(() -> activeProductIds.add(productId));
+    }
+
+    public void onProductDeleted(Long productId) {
+        AfterCommit.run(() -> activeProductIds.remove(productId));
+    }
+
+    // Called inside the confirmation transaction; the ranking only moves once that transaction has committed
+    public void onOrderConfirmed(Order order) {
+        LocalDate day = order.getDateCommande().toLocalDate();
+        Map<Long, long[]> lines = new HashMap<>();
+        for (OrderItem item : order.getOrderItems()) {
+            long[] sales = lines.computeIfAbsent(item.getProduct().getId(), id -> new long[2]);
+            sales[QUANTITY] += item.getQuantite();
+            sales[REVENUE_CENTS] += toCents(item.getTotalLigne());
+        }
+        Long orderId = order.getId();
+        AfterCommit.run(() -> {
+            apply(Map.of(day, lines));
+            invalidationBus.publish(RANKINGS, List.of(orderId));
+        });
+    }
+
+    // Orders confirmed on another node: their lines are read back from the database
+    void onConfirmedElsewhere(Collection<Long> orderIds) {
+        Map<LocalDate, Map<Long, long[]>> byDay = new HashMap<>();
+        for (Object[] row : orderItemRepository.findConfirmedLines(orderIds)) {
+            LocalDate day = ((LocalDateTime) row[0]).toLocalDate();
+            long[] sales = byDay.computeIfAbsent(day, d -> new HashMap<>()).computeIfAbsent((Long) row[1], id -> new long[2]);
+            sales[QUANTITY] += ((Number) row[2]).longValue();
+            sales[REVENUE_CENTS] += toCents((BigDecimal) row[3]);
+        }
+        apply(byDay);
+    }
+
+    public ProductRankingResponse rank(int windowDays, ProductRankingMetric metric, int k) {
+        if (!WINDOWS.contains(windowDays)) {
+            throw new BusinessValidationException("Ranking window must be one of " + WINDOWS + " days.");
+        }
+        if (k < 1 || k > maxK) {
+            throw new BusinessValidationException("k must be between 1 and " + maxK + ".");
+        }
+        int field = metric == ProductRankingMetric.QUANTITY ? QUANTITY : REVENUE_CENTS;
+        Comparator<Ranked> ascending = Comparator.<Ranked>comparingLong(r -> r.sales[field]).thenComparing(r -> r.productId);
+
+        List<Ranked> top;
+        List<Ranked> bottom;
+        LocalDate start;
+        LocalDate today;
+        synchronized (this) {
+            today = LocalDate.now(clock);
+            slideTo(today);
+            Window window = windows.get(windowDays);
+            start = window.start;
+
+            // Top: min-heap of the k largest, the smallest of them on top so it is the one evicted
+            // (among equal sales the highest id goes first, so ties keep the lowest ids)
+            PriorityQueue<Ranked> largest = new PriorityQueue<>(k + 1, Comparator.<Ranked>comparingLong(r -> r.sales[field])
+                    .thenComparing(r -> r.productId, Comparator.reverseOrder()));
+            for (Map.Entry<Long, long[]> entry : window.totals.entrySet()) {
+                offer(largest, new Ranked(entry.getKey(), entry.getValue().clone()), k);
+            }
+            // Bottom: max-heap of the k smallest over every active product, unsold ones counting as zero
+            PriorityQueue<Ranked> smallest = new PriorityQueue<>(k + 1, ascending.reversed());
+            for (Long productId : activeProductIds) {
+                long[] sales = window.totals.get(productId);
+                offer(smallest, new Ranked(productId, sales == null ? new long[2] : sales.clone()), k);
+            }
+            top = new ArrayList<>(largest);
+            bottom = new ArrayList<>(smallest);
+        }
+        top.sort(Comparator.<Ranked>comparingLong(r -> -r.sales[field]).thenComparing(r -> r.productId));
+        bottom.sort(ascending);
+
+        ProductRankingResponse response = new ProductRankingResponse();
+        response.setWindowDays(windowDays);
+        response.setWindowStart(start);
+        response.setWindowEnd(today);
+        response.setMetric(metric);
+        Map<Long, ProductCatalogCache.ProductSnapshot> products = productCatalogCache.getAll(ids(top, bottom));
+        response.setTop(toEntries(top, products));
+        response.setBottom(toEntries(bottom, products));
+        return response;
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    private synchronized void apply(Map<LocalDate, Map<Long, long[]>> byDay) {
+        slideTo(LocalDate.now(clock));
+        byDay.forEach((day, lines) ->
+                lines.forEach((productId, sales) -> add(day, productId, sales[QUANTITY], sales[REVENUE_CENTS])));
+    }
+
+    private void add(LocalDate day, Long productId, long quantity, long revenueCents) {
+        Window widest = windows.get(HISTORY_DAYS);
+        if (day.isBefore(widest.start)) {
+            return;
+        }
+        accumulate(days.computeIfAbsent(day, d -> new HashMap<>()), productId, quantity, revenueCents);
+        for (Window window : windows.values()) {
+            if (!day.isBefore(window.start)) {
+                accumulate(window.totals, productId, quantity, revenueCents);
+            }
+        }
+    }
+
+    private void reset(LocalDate today) {
+        days.clear();
+        windows.clear();
+        for (int w : WINDOWS) {
+            windows.put(w, new Window(w, today.minusDays(w - 1)));
+        }
+    }
+
+    // Moves every window start to today - (days - 1), subtracting the days that leave it
+    private void slideTo(LocalDate today) {
+        if (windows.isEmpty()) {
+            reset(today);
+        }
+        for (Window window : windows.values()) {
+            LocalDate newStart = today.minusDays(window.days - 1);
+            if (!newStart.isAfter(window.start)) {
+                continue;
+            }
+            for (Map<Long, long[]> day : days.subMap(window.start, newStart).values()) {
+                day.forEach((productId, sales) -> accumulate(window.totals, productId, -sales[QUANTITY], -sales[REVENUE_CENTS]));
+            }
+            window.start = newStart;
+        }
+        days.headMap(windows.get(HISTORY_DAYS).start).clear();
+    }
+
+    private static void accumulate(Map<Long, long[]> totals, Long productId, long quantity, long revenueCents) {
+        long[] sales = totals.computeIfAbsent(productId, id -> new long[2]);
+        sales[QUANTITY] += quantity;
+        sales[REVENUE_CENTS] += revenueCents;
+        if (sales[QUANTITY] == 0 && sales[REVENUE_CENTS] == 0) {
+            totals.remove(productId);
+        }
+    }
+
+    private static void offer(PriorityQueue<Ranked> heap, Ranked candidate, int k) {
+        heap.offer(candidate);
+        if (heap.size() > k) {
+            heap.poll();
+        }
+    }
+
+    private static Collection<Long> ids(List<Ranked> top, List<Ranked> bottom) {
+        Set<Long> ids = new HashSet<>();
+        top.forEach(r -> ids.add(r.productId));
+        bottom.forEach(r -> ids.add(r.productId));
+        return ids;
+    }
+
+    private static List<ProductRankEntry> toEntries(List<Ranked> ranked, Map<Long, ProductCatalogCache.ProductSnapshot> products) {
+        List<ProductRankEntry> entries = new ArrayList<>(ranked.size());
+        for (Ranked r : ranked) {
+            ProductCatalogCache.ProductSnapshot product = products.get(r.productId);
+            entries.add(new ProductRankEntry(r.productId, product == null ? null : product.getNom(),
+                    r.sales[QUANTITY], PricingEngine.toAmount(r.sales[REVENUE_CENTS])));
+        }
+        return entries;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0L : amount.movePointRight(2).longValue();
+    }
+
+    private static final class Window {
+        private final int days;
+        private LocalDate start;
+        private final Map<Long, long[]> totals = new HashMap<>();
+
+        private Window(int days, LocalDate start) {
+            this.days = days;
+            this.start = start;
+        }
+    }
+
+    private static final class Ranked {
+        private final Long productId;
+        private final long[] sales;
+
+        private Ranked(Long productId, long[] sales) {
+            this.productId = productId;
+            this.sales = sales;
+        }
+    }
+}
@@ -0,0 +1,663 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import com.logitrack.b2b_tradehub.util.AfterCommit;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory search over product names, replacing LIKE '%x%' scans.
+ * <p>
+ * Names are folded (accents stripped, ligatures expanded, lower case) and split into words. Each distinct word
+ * keeps the ascending list of documents containing it; a sorted vocabulary answers prefix lookups and a
+ * trigram index over the vocabulary finds words within 1 edit (2 for words of 8+ letters, a swap of two
+ * adjacent letters counting as one) of a query word.
+ * Every query word must match: exact word 4 points, prefix 3, typo 2 or 1; the last query word is matched
+ * as a prefix, for autocomplete. Ties go to the product whose first word matches, then to shorter names.
+ * Queries matching a large part of the catalog (the first letter typed) are memoized until the next change.
+ * <p>
+ * Writes are applied after commit, and the ids written are broadcast on the {@link CacheInvalidationBus}: the
+ * other nodes re-read those products and apply the same change. An update adds a new document and marks the old one dead, so posting lists
+ * stay append-only; dead documents are compacted away once they make up a quarter of the index.
+ * The index is rebuilt at startup from id-range chunks loaded and tokenized in parallel; until then searches
+ * fall back to the database.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+
+    private static final String SEARCH = "search";
+    private static final int EXACT = 4;
+    private static final int PREFIX = 3;
+    // Queries matching more documents than this (one or two letters typed) have their results memoized
+    private static final int BROAD_QUERY_DOCS = 20_000;
+    private static final int MAX_MEMOIZED_QUERIES = 1_000;
+
+    private final ProductRepository productRepository;
+    private final CacheInvalidationBus invalidationBus;
+
+    @Value("${tradehub.search.rebuild-chunk-size:20000}")
+    private int rebuildChunkSize;
+
+    @Value("${tradehub.search.rebuild-parallelism:4}")
+    private int rebuildParallelism;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private Index index = new Index();
+    private volatile boolean ready;
+    // Changes committed while a rebuild runs, replayed on the rebuilt index
+    private List<Document> pendingDuringRebuild;
+
+    @PostConstruct
+    void subscribe() {
+        invalidationBus.subscribe(SEARCH, key -> refresh(List.of(Long.valueOf(key))));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Product ids, best match first
+    public List<Long> search(String query, int limit) {
+        lock.readLock().lock();
+        try {
+            return index.search(query, limit, scratch.get());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Called inside the product's write transaction; the index changes after commit
+    public void onProductSaved(Long productId, String nom, boolean deleted) {
+        onProductsSaved(List.<Object[]>of(new Object[]{productId, nom, deleted}));
+    }
+
+    // {id, nom, deleted} rows of the products written by a transaction (import batch), published as one message
+    public void onProductsSaved(List<Object[]> products) {
+        List<Document> changes = new ArrayList<>(products.size());
+        List<Long> ids = new ArrayList<>(products.size());
+        for (Object[] product : products) {
+            changes.add(document(product));
+            ids.add((Long) product[0]);
+        }
+        AfterCommit.run(() -> {
+            apply(changes);
+            invalidationBus.publish(SEARCH, ids);
+        });
+    }
+
+    // Products written on another node, re-read from the database; one that no longer exists is dropped
+    void refresh(Collection<Long> productIds) {
+        Set<Long> missing = new HashSet<>(productIds);
+        List<Document> changes = new ArrayList<>(productIds.size());
+        for (Object[] product : productRepository.findNamesByIdIn(productIds)) {
+            missing.remove((Long) product[0]);
+            changes.add(document(product));
+        }
+        missing.forEach(id -> changes.add(Document.removed(id)));
+        apply(changes);
+    }
+
+    public int rebuild() {
+        Long minId = productRepository.findMinId();
+        Long maxId = productRepository.findMaxId();
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Index rebuilt = new Index();
+        ExecutorService pool = Executors.newFixedThreadPool(rebuildParallelism);
+        try {
+            List<Future<List<Document>>> chunks = new ArrayList<>();
+            for (long from = minId == null ? 1 : minId; maxId != null && from <= maxId; from += rebuildChunkSize) {
+                long fromId = from;
+                long toId = Math.min(maxId, from + rebuildChunkSize - 1);
+                chunks.add(pool.submit(() -> {
+                    List<Object[]> rows = productRepository.findActiveNamesBetween(fromId, toId);
+                    List<Document> documents = new ArrayList<>(rows.size());
+                    for (Object[] row : rows) {
+                        documents.add(Document.of((Long) row[0], (String) row[1]));
+                    }
+                    return documents;
+                }));
+            }
+            // Chunks are added in id order, so every posting list is built already sorted
+            for (Future<List<Document>> chunk : chunks) {
+                for (Document document : chunk.get()) {
+                    rebuilt.apply(document);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Product search index rebuild interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Product search index rebuild failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild.forEach(rebuilt::apply);
+            pendingDuringRebuild = null;
+            index = rebuilt;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Product search index rebuilt: {} products, {} distinct words", rebuilt.liveCount(), rebuilt.terms.size());
+        return rebuilt.liveCount();
+    }
+
+    // Builds the index from (id, name) pairs without the database; used by benchmarks
+    void load(Map<Long, String> names) {
+        Index loaded = new Index();
+        names.forEach((id, nom) -> loaded.apply(Document.of(id, nom)));
+        lock.writeLock().lock();
+        try {
+            index = loaded;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(List<Document> changes) {
+        lock.writeLock().lock();
+        try {
+            for (Document change : changes) {
+                if (pendingDuringRebuild != null) {
+                    pendingDuringRebuild.add(change);
+                }
+                index.apply(change);
+                if (index.needsCompaction()) {
+                    index = index.compacted();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Document document(Object[] product) {
+        return Boolean.TRUE.equals(product[2]) ? Document.removed((Long) product[0])
+                : Document.of((Long) product[0], (String) product[1]);
+    }
+
+    // Lower case, accents stripped (é -> e), ligatures expanded (œ -> oe), anything else than letters and digits as a space
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            switch (c) {
+                case 'œ', 'Œ' -> folded.append("oe");
+                case 'æ', 'Æ' -> folded.append("ae");
+                case 'ß' -> folded.append("ss");
+                default -> folded.append(Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : ' ');
+            }
+        }
+        return folded.toString();
+    }
+
+    static String[] words(String text) {
+        String folded = fold(text).trim();
+        return folded.isEmpty() ? new String[0] : folded.split(" +");
+    }
+
+    // Edits allowed for a query word of this length; short words must match exactly
+    private static int maxEdits(String word) {
+        return word.length() >= 8 ? 2 : word.length() >= 4 ? 1 : 0;
+    }
+
+    private static List<String> trigrams(String padded) {
+        List<String> grams = new ArrayList<>(Math.max(1, padded.length() - 2));
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    /**
+     * Edit distance between a and b (insertions, deletions, substitutions and swaps of adjacent letters), or
+     * between a and the closest prefix of b when prefix is set; returns max + 1 as soon as the distance is known
+     * to exceed max.
+     */
+    static int distance(String a, String b, boolean prefix, int max) {
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], beforePrevious[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = swap;
+        }
+        if (!prefix) {
+            return previous[b.length()];
+        }
+        int best = Integer.MAX_VALUE;
+        for (int value : previous) {
+            best = Math.min(best, value);
+        }
+        return best;
+    }
+
+    // A product to index (words set) or to drop (words null)
+    private static final class Document {
+        private final long productId;
+        private final int nameLength;
+        private final String[] words;
+
+        private Document(long productId, int nameLength, String[] words) {
+            this.productId = productId;
+            this.nameLength = nameLength;
+            this.words = words;
+        }
+
+        static Document of(Long productId, String nom) {
+            return new Document(productId, nom == null ? 0 : nom.length(), nom == null ? new String[0] : words(nom));
+        }
+
+        static Document removed(Long productId) {
+            return new Document(productId, 0, null);
+        }
+    }
+
+    private static final class Term {
+        private final int id;
+        private final String word;
+        private final IntList docs = new IntList();
+
+        private Term(int id, String word) {
+            this.id = id;
+            this.word = word;
+        }
+    }
+
+    private record Match(Term term, int score) {
+    }
+
+    /**
+     * Not thread-safe: reads run under the service's read lock, changes under its write lock.
+     */
+    private static final class Index {
+        private final TreeMap<String, Term> terms = new TreeMap<>();
+        private final List<Term> termsById = new ArrayList<>();
+        // Trigrams of "^word$" -> ids of the vocabulary words containing them
+        private final Map<String, IntList> termGrams = new HashMap<>();
+        private final Map<Long, Integer> docOf = new HashMap<>();
+        private final BitSet dead = new BitSet();
+        private long[] productIds = new long[1024];
+        private int[] nameLengths = new int[1024];
+        private int[] firstTerms = new int[1024];
+        private int docCount;
+        // Results of broad queries, keyed by folded query and limit; dropped on any change
+        private final Map<String, List<Long>> broadResults = new ConcurrentHashMap<>();
+        private int deadCount;
+
+        void apply(Document change) {
+            broadResults.clear();
+            Integer previous = docOf.remove(change.productId);
+            if (previous != null) {
+                dead.set(previous);
+                deadCount++;
+            }
+            if (change.words == null || change.words.length == 0) {
+                return;
+            }
+            int doc = docCount++;
+            if (doc == productIds.length) {
+                productIds = Arrays.copyOf(productIds, doc * 2);
+                nameLengths = Arrays.copyOf(nameLengths, doc * 2);
+                firstTerms = Arrays.copyOf(firstTerms, doc * 2);
+            }
+            productIds[doc] = change.productId;
+            nameLengths[doc] = change.nameLength;
+            firstTerms[doc] = term(change.words[0]).id;
+            for (String word : new LinkedHashSet<>(Arrays.asList(change.words))) {
+                term(word).docs.add(doc);
+            }
+            docOf.put(change.productId, doc);
+        }
+
+        int liveCount() {
+            return docOf.size();
+        }
+
+        boolean needsCompaction() {
+            return deadCount > 10_000 && deadCount > docCount / 4;
+        }
+
+        // Re-adds the live documents in document order, which keeps the posting lists sorted
+        Index compacted() {
+            Index compacted = new Index();
+            Map<Integer, List<String>> wordsByDoc = new HashMap<>();
+            for (Term term : termsById) {
+                for (int i = 0; i < term.docs.size; i++) {
+                    int doc = term.docs.values[i];
+                    if (!dead.get(doc)) {
+                        wordsByDoc.computeIfAbsent(doc, d -> new ArrayList<>()).add(term.word);
+                    }
+                }
+            }
+            for (int doc = 0; doc < docCount; doc++) {
+                List<String> docWords = wordsByDoc.get(doc);
+                if (docWords != null) {
+                    // The first word keeps its place for the first-word bonus
+                    String first = termsById.get(firstTerms[doc]).word;
+                    docWords.remove(first);
+                    docWords.add(0, first);
+                    compacted.apply(new Document(productIds[doc], nameLengths[doc], docWords.toArray(new String[0])));
+                }
+            }
+            return compacted;
+        }
+
+        private Term term(String word) {
+            Term term = terms.get(word);
+            if (term == null) {
+                term = new Term(termsById.size(), word);
+                terms.put(word, term);
+                termsById.add(term);
+                for (String gram : new HashSet<>(trigrams("^" + word + "$"))) {
+                    termGrams.computeIfAbsent(gram, g -> new IntList()).add(term.id);
+                }
+            }
+            return term;
+        }
+
+        List<Long> search(String query, int limit, Scratch scratch) {
+            String[] queryWords = words(query);
+            if (queryWords.length == 0 || docCount == 0) {
+                return List.of();
+            }
+            String memoKey = String.join(" ", queryWords) + "|" + limit;
+            List<Long> memoized = broadResults.get(memoKey);
+            if (memoized != null) {
+                return memoized;
+            }
+            List<List<Match>> matches = new ArrayList<>(queryWords.length);
+            for (int i = 0; i < queryWords.length; i++) {
+                List<Match> wordMatches = matches(queryWords[i], i == queryWords.length - 1, scratch);
+                if (wordMatches.isEmpty()) {
+                    return List.of();
+                }
+                matches.add(wordMatches);
+            }
+            // The most selective query word seeds the candidates, the others can only confirm them
+            List<Match> firstWord = matches.get(0);
+            matches.sort(Comparator.comparingLong(Index::postings));
+
+            scratch.ensureCapacity(docCount, termsById.size());
+            int[] score = scratch.score;
+            int[] matched = scratch.matched;
+            IntList touched = scratch.touched;
+            BitSet firstWordTerms = scratch.firstWordTerms;
+            try {
+                for (Match match : firstWord) {
+                    if (match.score() >= PREFIX) {
+                        firstWordTerms.set(match.term().id);
+                    }
+                }
+                for (int k = 0; k < matches.size(); k++) {
+                    // Best match first, so each document is credited with its best score for this word
+                    for (Match match : matches.get(k)) {
+                        IntList docs = match.term().docs;
+                        for (int i = 0; i < docs.size; i++) {
+                            int doc = docs.values[i];
+                            if (k == 0) {
+                                if (matched[doc] == 0 && !dead.get(doc)) {
+                                    matched[doc] = 1;
+                                    score[doc] = match.score();
+                                    touched.add(doc);
+                                }
+                            } else if (matched[doc] == k) {
+                                matched[doc] = k + 1;
+                                score[doc] += match.score();
+                            }
+                        }
+                    }
+                }
+
+                // Ranking key: score, then shorter name, then older document; the low bits give the document back
+                LongMinHeap best = scratch.best;
+                best.reset(limit);
+                for (int i = 0; i < touched.size; i++) {
+                    int doc = touched.values[i];
+                    if (matched[doc] != queryWords.length) {
+                        continue;
+                    }
+                    long docScore = score[doc] + (firstWordTerms.get(firstTerms[doc]) ? 1 : 0);
+                    best.offer(docScore << 48 | (long) (0xFFFF - Math.min(nameLengths[doc], 0xFFFF)) << 32
+                            | (Integer.MAX_VALUE - doc));
+                }
+                Long[] ranked = new Long[best.size];
+                for (int i = ranked.length - 1; i >= 0; i--) {
+                    ranked[i] = productIds[Integer.MAX_VALUE - (int) (best.poll() & 0xFFFFFFFFL)];
+                }
+                List<Long> result = List.of(ranked);
+                if (touched.size > BROAD_QUERY_DOCS && broadResults.size() < MAX_MEMOIZED_QUERIES) {
+                    broadResults.put(memoKey, result);
+                }
+                return result;
+            } finally {
+                for (int i = 0; i < touched.size; i++) {
+                    score[touched.values[i]] = 0;
+                    matched[touched.values[i]] = 0;
+                }
+                touched.size = 0;
+                firstWordTerms.clear();
+            }
+        }
+
+        private static long postings(List<Match> matches) {
+            long total = 0;
+            for (Match match : matches) {
+                total += match.term().docs.size;
+            }
+            return total;
+        }
+
+        // Vocabulary words a query word stands for, best score first
+        private List<Match> matches(String word, boolean prefix, Scratch scratch) {
+            List<Match> result = new ArrayList<>();
+            Term exact = terms.get(word);
+            if (exact != null) {
+                result.add(new Match(exact, EXACT));
+            }
+            if (prefix) {
+                for (Term term : terms.subMap(word, false, word + Character.MAX_VALUE, false).values()) {
+                    result.add(new Match(term, PREFIX));
+                }
+            }
+            int maxEdits = maxEdits(word);
+            if (maxEdits == 0) {
+                return result;
+            }
+            List<String> grams = trigrams(prefix ? "^" + word : "^" + word + "$");
+            // Each edit changes at most four trigrams (a swap of two letters)
+            int threshold = Math.max(1, grams.size() - 4 * maxEdits);
+            scratch.ensureCapacity(docCount, termsById.size());
+            int[] shared = scratch.sharedGrams;
+            IntList candidates = scratch.candidateTerms;
+            List<Match> typos = new ArrayList<>();
+            try {
+                for (String gram : new HashSet<>(grams)) {
+                    IntList ids = termGrams.get(gram);
+                    if (ids == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < ids.size; i++) {
+                        if (shared[ids.values[i]]++ == 0) {
+                            candidates.add(ids.values[i]);
+                        }
+                    }
+                }
+                for (int i = 0; i < candidates.size; i++) {
+                    Term term = termsById.get(candidates.values[i]);
+                    boolean alreadyMatched = prefix ? term.word.startsWith(word) : term.word.equals(word);
+                    if (shared[term.id] >= threshold && !alreadyMatched) {
+                        int distance = distance(word, term.word, prefix, maxEdits);
+                        if (distance <= maxEdits) {
+                            typos.add(new Match(term, PREFIX - distance));
+                        }
+                    }
+                }
+            } finally {
+                for (int i = 0; i < candidates.size; i++) {
+                    shared[candidates.values[i]] = 0;
+                }
+                candidates.size = 0;
+            }
+            typos.sort(Comparator.comparingInt(Match::score).reversed());
+            result.addAll(typos);
+            return result;
+        }
+    }
+
+    // Per-thread work arrays, cleared after each search
+    private static final class Scratch {
+        private int[] score = new int[0];
+        private int[] matched = new int[0];
+        private int[] sharedGrams = new int[0];
+        private final IntList touched = new IntList();
+        private final IntList candidateTerms = new IntList();
+        private final BitSet firstWordTerms = new BitSet();
+        private final LongMinHeap best = new LongMinHeap();
+
+        void ensureCapacity(int docs, int terms) {
+            if (score.length < docs) {
+                score = new int[docs + docs / 4];
+                matched = new int[docs + docs / 4];
+            }
+            if (sharedGrams.length < terms) {
+                sharedGrams = new int[terms + terms / 4];
+            }
+        }
+    }
+
+    // Keeps the largest keys offered, up to a capacity
+    private static final class LongMinHeap {
+        private long[] heap = new long[16];
+        private int capacity;
+        private int size;
+
+        void reset(int capacity) {
+            if (heap.length < capacity) {
+                heap = new long[capacity];
+            }
+            this.capacity = capacity;
+            size = 0;
+        }
+
+        void offer(long key) {
+            if (size < capacity) {
+                int i = size++;
+                while (i > 0 && heap[(i - 1) / 2] > key) {
+                    heap[i] = heap[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                heap[i] = key;
+            } else if (key > heap[0]) {
+                siftDown(key);
+            }
+        }
+
+        long poll() {
+            long min = heap[0];
+            long last = heap[--size];
+            if (size > 0) {
+                siftDown(last);
+            }
+            return min;
+        }
+
+        private void siftDown(long key) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (heap[child] >= key) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = key;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -1,16 +1,23 @@
 package com.logitrack.b2b_tradehub.service;
 
+import com.logitrack.b2b_tradehub.config.RetryOnConflict;
 import com.logitrack.b2b_tradehub.dto.product.ProductRequest;
 import com.logitrack.b2b_tradehub.dto.product.ProductResponse;
 import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
 import com.logitrack.b2b_tradehub.exception.ResourceNotFoundException;
 import com.logitrack.b2b_tradehub.mapper.ProductMapper;
+import com.logitrack.b2b_tradehub.repository.OrderItemRepository;
 import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import com.logitrack.b2b_tradehub.util.ResourceVersion;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,6 +26,12 @@ public class ProductService {
 
     private final ProductMapper productMapper;
     private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ProductCatalogCache productCatalogCache;
+    private final ProductRankingService productRankingService;
+    private final ProductSearchIndex productSearchIndex;
+
+    private static final int MAX_SEARCH_RESULTS = 100;
 
     // Requirement: EF 3 (List Products with filters)
     @Transactional(readOnly = true)
@@ -26,57 +39,110 @@ public class ProductService {
         return productRepository.findAll().stream().map(productMapper::toResponse).collect(Collectors.toList());
     }
 
-    @Transactional(readOnly = true)
+    // Served from ProductCatalogCache: no transaction, the database is only read on a miss
     public ProductResponse findById(Long id) {
-        return productMapper.toResponse(productRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Product not found")));
+        return productMapper.toResponse(productCatalogCache.get(id).orElseThrow(() -> new ResourceNotFoundException("Product not found")));
+    }
+
+    // Validators for conditional GETs, from the cache: a 304 costs neither a product load nor a serialization
+    public ResourceVersion catalogVersion() {
+        return productCatalogCache.catalogVersion();
+    }
+
+    public ResourceVersion version(Long id) {
+        return productCatalogCache.get(id).orElseThrow(() -> new ResourceNotFoundException("Product not found")).resourceVersion();
     }
 
-    @Transactional(readOnly = true)
     public List<ProductResponse> findAvailableProducts() {
-        return productRepository.findByDeletedFalse().stream().map(productMapper::toResponse).collect(Collectors.toList());
+        return productCatalogCache.getActive().stream().map(productMapper::toResponse).collect(Collectors.toList());
     }
 
-    @Transactional(readOnly = true)
-    public List<ProductResponse> findByNomContaining(String nom) {
-        return productRepository.findByNomContaining(nom).stream().map(productMapper::toResponse).collect(Collectors.toList());
+    // Ranked name search (accent-insensitive, prefix and typo tolerant), best match first
+    public List<ProductResponse> search(String nom, int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            throw new BusinessValidationException("limit must be between 1 and " + MAX_SEARCH_RESULTS + ".");
+        }
+        if (!productSearchIndex.isReady()) {
+            return productRepository.findByNomContaining(nom, PageRequest.of(0, limit)).stream()
+                    .filter(p -> !p.getDeleted()).map(productMapper::toResponse).collect(Collectors.toList());
+        }
+        List<Long> ids = productSearchIndex.search(nom, limit);
+        Map<Long, ProductCatalogCache.ProductSnapshot> products = productCatalogCache.getAll(ids);
+        List<ProductResponse> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProductCatalogCache.ProductSnapshot product = products.get(id);
+            if (product != null && !product.isDeleted()) {
+                results.add(productMapper.toResponse(product));
+            }
+        }
+        return results;
     }
 
     // Requirement: EF 3 (Add/Modify Product)
     @Transactional
     public ProductResponse create(ProductRequest request) {
-        return productMapper.toResponse(productRepository.save(productMapper.toEntity(request)));
+        Product product = productRepository.save(productMapper.toEntity(request));
+        productCatalogCache.invalidateActive();
+        productSearchIndex.onProductSaved(product.getId(), product.getNom(), false);
+        productRankingService.onProductActivated(product.getId());
+        return productMapper.toResponse(product);
     }
 
+    @RetryOnConflict
     @Transactional
     public ProductResponse update(Long id, ProductRequest request) {
         Product product = productRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Product not found"));
         productMapper.updateEntity(product, request);
+        productCatalogCache.invalidate(id);
+        productSearchIndex.onProductSaved(id, product.getNom(), Boolean.TRUE.equals(product.getDeleted()));
         return productMapper.toResponse(productRepository.save(product));
     }
 
     // Requirement: EF 3 (Soft Delete)
+    @RetryOnConflict
     @Transactional
     public void softDelete(Long id) {
         Product product = productRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Product not found"));
         product.setDeleted(true);
         productRepository.save(product);
+        productCatalogCache.invalidate(id);
+        productCatalogCache.invalidateActive();
+        productSearchIndex.onProductSaved(id, product.getNom(), true);
+        productRankingService.onProductDeleted(id);
     }
 
-    // Requirement: EF 6 (Stock Validation)
-    @Transactional(readOnly = true)
+    // Requirement: EF 6 (Stock Validation) - quantities held by PENDING orders are not available
+    // Advisory answer from the stock cache (seconds old at most); order creation and confirmation re-check in SQL
     public boolean checkStock(Long id, Integer quantity) {
-        return productRepository.findById(id)
-                .map(p -> p.getStockDisponible() >= quantity && !p.getDeleted())
+        return productCatalogCache.get(id)
+                .map(p -> p.getAvailable() >= quantity && !p.isDeleted())
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
     }
 
     // Requirement: EF 4 (Update Stock after Order)
+    // Single conditional UPDATE, so two concurrent confirmations can never oversell or lose a decrement
     @Transactional
-    public void updateStock(Long id, Integer quantity) {
-        Product product = productRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-        int newStock = product.getStockDisponible() - quantity;
-        if (newStock < 0) throw new RuntimeException("Insufficient stock");
-        product.setStockDisponible(newStock);
-        productRepository.save(product);
+    public int updateStock(Long id, Integer quantity) {
+        int updated = productRepository.decrementStock(id, quantity);
+        if (updated == 0) {
+            if (!productRepository.existsById(id)) {
+                throw new ResourceNotFoundException("Product not found");
+            }
+            throw new BusinessValidationException("Insufficient stock for product ID: " + id);
+        }
+        productCatalogCache.invalidateStock(List.of(id));
+        return updated;
+    }
+
+    // Requirement: EF 4 (Update Stock after Order) - all lines of an order in one statement
+    @Transactional
+    public int decrementStockForOrder(Long orderId) {
+        long expected = orderItemRepository.countDistinctProductsByOrderId(orderId);
+        int updated = productRepository.decrementStockForOrder(orderId);
+        if (updated != expected) {
+            // Rolls back the partial decrement together with the surrounding transaction
+            throw new BusinessValidationException("Insufficient stock to confirm order " + orderId);
+        }
+        return updated;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.logitrack.b2b_tradehub.entity.PromoCode;
+import com.logitrack.b2b_tradehub.repository.PromoCodeRepository;
+import com.logitrack.b2b_tradehub.util.AfterCommit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-through cache of promo codes by code, unknown codes included (cached as empty).
+ * Holds immutable copies of the rows, and hands each reader a new detached PromoCode built from one: nothing a
+ * caller does to it reaches the cache or the database. Validity (dates, single use) is checked by the caller.
+ * Invalidation runs after commit and is broadcast to the other nodes; metrics are tagged cache=promo.codes.
+ */
+@Component
+@RequiredArgsConstructor
+public class PromoCodeCache {
+
+    private static final String NAME = "promo-code";
+
+    private final PromoCodeRepository promoCodeRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${tradehub.promo-cache.ttl:PT30S}")
+    private Duration ttl;
+
+    @Value("${tradehub.promo-cache.max-size:10000}")
+    private long maxSize;
+
+    private Cache<String, Optional<PromoSnapshot>> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder().expireAfterWrite(ttl).maximumSize(maxSize).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "promo.codes");
+        invalidationBus.subscribe(NAME, cache::invalidate);
+    }
+
+    // A new copy on every read
+    public Optional<PromoCode> get(String code) {
+        return cache.get(code, key -> promoCodeRepository.findByCode(key).map(PromoSnapshot::of))
+                .map(PromoSnapshot::toPromoCode);
+    }
+
+    // Codes are short and never contain ',' (the broadcast key separator)
+    public void invalidate(String... codes) {
+        List<String> keys = List.of(codes);
+        AfterCommit.run(() -> {
+            cache.invalidateAll(keys);
+            invalidationBus.publish(NAME, keys);
+        });
+    }
+
+    // The columns validity and pricing read; orders are left out
+    @AllArgsConstructor
+    private static class PromoSnapshot {
+        private final Long id;
+        private final Long version;
+        private final String code;
+        private final BigDecimal discountPercentage;
+        private final LocalDate validFrom;
+        private final LocalDate validUntil;
+        private final Boolean usageUnique;
+        private final Boolean isUsed;
+        private final Boolean active;
+
+        static PromoSnapshot of(PromoCode promo) {
+            return new PromoSnapshot(promo.getId(), promo.getVersion(), promo.getCode(), promo.getDiscountPercentage(),
+                    promo.getValidFrom(), promo.getValidUntil(), promo.getUsageUnique(), promo.getIsUsed(), promo.getActive());
+        }
+
+        PromoCode toPromoCode() {
+            return new PromoCode(id, version, code, discountPercentage, validFrom, validUntil, usageUnique, isUsed,
+                    active, null);
+        }
+    }
+}
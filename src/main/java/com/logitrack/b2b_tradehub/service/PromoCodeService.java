@@ -1,5 +1,6 @@
 package com.logitrack.b2b_tradehub.service;
 
+import com.logitrack.b2b_tradehub.config.RetryOnConflict;
 import com.logitrack.b2b_tradehub.dto.PromoCode.PromoCodeRequest;
 import com.logitrack.b2b_tradehub.dto.PromoCode.PromoCodeResponse;
 import com.logitrack.b2b_tradehub.entity.PromoCode;
@@ -10,15 +11,20 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class PromoCodeService {
 
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
     private final PromoCodeRepository promoCodeRepository;
+    private final PromoCodeCache promoCodeCache;
 
     @Transactional(readOnly = true)
     public List<PromoCodeResponse> findAllResponse() {
@@ -37,9 +43,12 @@ public class PromoCodeService {
         return mapToResponse(promoCodeRepository.save(entity));
     }
 
+    @RetryOnConflict
     @Transactional
     public PromoCodeResponse update(Long id, PromoCodeRequest request) {
         PromoCode entity = promoCodeRepository.findById(id).orElseThrow();
+        // A renamed code may be cached as unknown under its new name
+        promoCodeCache.invalidate(entity.getCode(), request.getCode());
         entity.setCode(request.getCode());
         // ... update other fields
         return mapToResponse(promoCodeRepository.save(entity));
@@ -49,25 +58,32 @@ public class PromoCodeService {
         PromoCode p = promoCodeRepository.findById(id).orElseThrow();
         p.setActive(false);
         promoCodeRepository.save(p);
+        promoCodeCache.invalidate(p.getCode());
     }
 
     public BigDecimal calculateDiscount(String code, BigDecimal amount) {
-        return promoCodeRepository.findByCode(code)
-                .filter(this::isValid)
-                .map(p -> amount.multiply(p.getDiscountPercentage()).divide(new BigDecimal("100")))
+        return findValid(code)
+                .map(p -> amount.multiply(p.getDiscountPercentage()).divide(HUNDRED, 2, RoundingMode.HALF_UP))
                 .orElse(BigDecimal.ZERO);
     }
 
+    // Active, within its validity dates and not already consumed (single-use codes)
+    @Transactional(readOnly = true)
+    public Optional<PromoCode> findValid(String code) {
+        return promoCodeRepository.findByCode(code).filter(this::isValid);
+    }
+
     public void markAsUsed(String code) {
         promoCodeRepository.findByCode(code).ifPresent(p -> {
             if(p.getUsageUnique()) {
                 p.setIsUsed(true);
                 promoCodeRepository.save(p);
+                promoCodeCache.invalidate(code);
             }
         });
     }
 
-    private boolean isValid(PromoCode p) {
+    public boolean isValid(PromoCode p) {
         LocalDate now = LocalDate.now();
         return p.getActive() && !now.isBefore(p.getValidFrom()) && !now.isAfter(p.getValidUntil()) && (!p.getUsageUnique() || !p.getIsUsed());
     }
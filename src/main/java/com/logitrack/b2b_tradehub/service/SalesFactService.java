@@ -0,0 +1,241 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.analytics.SalesBreakdownRow;
+import com.logitrack.b2b_tradehub.dto.analytics.SalesGroupBy;
+import com.logitrack.b2b_tradehub.dto.analytics.SalesReportResponse;
+import com.logitrack.b2b_tradehub.entity.Order;
+import com.logitrack.b2b_tradehub.entity.enums.CustomerTier;
+import com.logitrack.b2b_tradehub.entity.enums.OrderStatus;
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+import com.logitrack.b2b_tradehub.repository.DailySalesFactRepository;
+import com.logitrack.b2b_tradehub.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Daily sales facts: kept current by the order flows (same transaction as the status change) and rebuilt from
+ * history by {@link #backfill}. Reports read only the fact table.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SalesFactService {
+
+    private static final int MAX_REPORT_DAYS = 3660;
+    private static final String LOCK_FACTS_SQL = "SELECT sale_date, product_id, client_tier, status FROM daily_sales_facts "
+            + "WHERE sale_date >= ? AND sale_date < ? ORDER BY sale_date, product_id, client_tier, status FOR UPDATE";
+    private static final String TOTALS_SQL = "SELECT CAST(o.date_commande AS DATE), oi.product_id, "
+            + "COALESCE(o.client_tier_at_order, c.tier, 'BASIC'), o.status, COUNT(DISTINCT o.id), SUM(oi.quantite), "
+            + "SUM(oi.total_ligne) FROM orders o JOIN order_items oi ON oi.order_id = o.id JOIN clients c ON c.id = o.client_id "
+            + "WHERE o.date_commande >= ? AND o.date_commande < ? "
+            + "GROUP BY CAST(o.date_commande AS DATE), oi.product_id, COALESCE(o.client_tier_at_order, c.tier, 'BASIC'), o.status";
+    private static final String SET_FACT_SQL = "UPDATE daily_sales_facts SET order_lines = ?, quantity = ?, amount_ht = ? "
+            + "WHERE sale_date = ? AND product_id = ? AND client_tier = ? AND status = ?";
+
+    private final DailySalesFactRepository factRepository;
+    private final OrderRepository orderRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${tradehub.sales-facts.backfill-partition-days:7}")
+    private int partitionDays;
+
+    @Value("${tradehub.sales-facts.backfill-parallelism:4}")
+    private int backfillParallelism;
+
+    // New order: its lines enter the PENDING bucket of the order day
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onOrderCreated(Order order) {
+        add(order, order.getStatus(), 1);
+    }
+
+    // Moves the order's lines from one status bucket to the other
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onStatusChanged(Order order, OrderStatus from, OrderStatus to) {
+        if (from == to) {
+            return;
+        }
+        factRepository.applyOrder(order.getId(), saleDate(order), tier(order).name(), from.name(), -1);
+        add(order, to, 1);
+    }
+
+    // Repriced order: its lines leave and re-enter its status bucket, so the bucket holds what they are now
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onOrderRepriced(Order order) {
+        factRepository.applyOrder(order.getId(), saleDate(order), tier(order).name(), order.getStatus().name(), -1);
+        add(order, order.getStatus(), 1);
+    }
+
+    /**
+     * Rebuilds the facts of [from, to] (whole history when null) from orders, in date partitions processed in
+     * parallel, one transaction per partition. Safe while orders are being written: see {@link #rebuildPartition}.
+     */
+    public int backfill(LocalDate from, LocalDate to) {
+        if (from == null) {
+            LocalDateTime min = orderRepository.findMinDateCommande();
+            if (min == null) {
+                return 0;
+            }
+            from = min.toLocalDate();
+        }
+        if (to == null) {
+            LocalDateTime max = orderRepository.findMaxDateCommande();
+            to = max == null ? from : max.toLocalDate();
+        }
+        if (to.isBefore(from)) {
+            throw new BusinessValidationException("Backfill end date must not be before its start date.");
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        ExecutorService pool = Executors.newFixedThreadPool(backfillParallelism);
+        try {
+            List<Future<Integer>> partitions = new ArrayList<>();
+            for (LocalDate start = from; !start.isAfter(to); start = start.plusDays(partitionDays)) {
+                LocalDate partitionStart = start;
+                LocalDate partitionEnd = min(start.plusDays(partitionDays), to.plusDays(1));
+                partitions.add(pool.submit(() -> tx.execute(status -> rebuildPartition(partitionStart, partitionEnd))));
+            }
+            int rows = 0;
+            for (Future<Integer> partition : partitions) {
+                rows += partition.get();
+            }
+            log.info("Backfilled {} daily sales fact rows from {} to {} in {} partitions", rows, from, to, partitions.size());
+            return rows;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sales fact backfill interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Sales fact backfill failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Sets every fact row of [start, end) to the totals of its orders, without racing the live deltas:
+     * <ul>
+     *   <li>the partition's orders are locked first, so a status change in flight commits before the totals are
+     *   read, and a later one waits for this transaction, then applies its delta on the rebuilt rows;</li>
+     *   <li>the fact rows are then locked, so a new order whose delta is already applied commits first too;</li>
+     *   <li>totals are read after both locks and written only to the locked rows. A row created since by a new order
+     *   holds only new orders' deltas, which are already right.</li>
+     * </ul>
+     * Rows no order contributes to any more are zeroed rather than deleted, as the live deltas leave them.
+     */
+    private int rebuildPartition(LocalDate start, LocalDate end) {
+        factRepository.lockOrders(start.atStartOfDay(), end.atStartOfDay());
+        factRepository.insertMissingPartition(start.atStartOfDay(), end.atStartOfDay());
+        List<FactKey> rows = jdbcTemplate.query(LOCK_FACTS_SQL, (rs, i) -> new FactKey(rs.getObject(1, LocalDate.class),
+                rs.getLong(2), rs.getString(3), rs.getString(4)), start, end);
+
+        Map<FactKey, Object[]> totals = new HashMap<>();
+        jdbcTemplate.query(TOTALS_SQL, rs -> {
+            totals.put(new FactKey(rs.getObject(1, LocalDate.class), rs.getLong(2), rs.getString(3), rs.getString(4)),
+                    new Object[]{rs.getLong(5), rs.getLong(6), rs.getBigDecimal(7)});
+        }, start.atStartOfDay(), end.atStartOfDay());
+
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        for (FactKey row : rows) {
+            Object[] total = totals.getOrDefault(row, new Object[]{0L, 0L, BigDecimal.ZERO});
+            updates.add(new Object[]{total[0], total[1], total[2], row.day(), row.productId(), row.tier(), row.status()});
+        }
+        jdbcTemplate.batchUpdate(SET_FACT_SQL, updates);
+        return rows.size();
+    }
+
+    @Transactional(readOnly = true)
+    public SalesReportResponse report(LocalDate from, LocalDate to, Collection<OrderStatus> statuses, SalesGroupBy groupBy) {
+        if (to.isBefore(from)) {
+            throw new BusinessValidationException("'to' must not be before 'from'.");
+        }
+        if (from.plusDays(MAX_REPORT_DAYS).isBefore(to)) {
+            throw new BusinessValidationException("Sales reports cover at most " + MAX_REPORT_DAYS + " days.");
+        }
+
+        SalesReportResponse response = new SalesReportResponse();
+        response.setFrom(from);
+        response.setTo(to);
+        response.setStatuses(List.copyOf(statuses));
+        response.setGroupBy(groupBy);
+
+        Object[] totals = factRepository.totals(from, to, statuses).get(0);
+        response.setOrderLines(toLong(totals[0]));
+        response.setQuantity(toLong(totals[1]));
+        response.setAmountHT(toAmount(totals[2]));
+
+        List<SalesBreakdownRow> breakdown = new ArrayList<>();
+        if (groupBy == SalesGroupBy.PRODUCT) {
+            for (Object[] row : factRepository.byProduct(from, to, statuses)) {
+                breakdown.add(new SalesBreakdownRow(String.valueOf(row[0]), (String) row[1],
+                        toLong(row[2]), toLong(row[3]), toAmount(row[4])));
+            }
+        } else {
+            List<Object[]> rows = switch (groupBy) {
+                case DAY -> factRepository.byDay(from, to, statuses);
+                case TIER -> factRepository.byTier(from, to, statuses);
+                default -> factRepository.byStatus(from, to, statuses);
+            };
+            for (Object[] row : rows) {
+                breakdown.add(new SalesBreakdownRow(String.valueOf(row[0]), null,
+                        toLong(row[1]), toLong(row[2]), toAmount(row[3])));
+            }
+        }
+        response.setBreakdown(breakdown);
+        return response;
+    }
+
+    private void add(Order order, OrderStatus status, int sign) {
+        LocalDate day = saleDate(order);
+        String tier = tier(order).name();
+        factRepository.ensureRowsForOrder(order.getId(), day, tier, status.name());
+        factRepository.applyOrder(order.getId(), day, tier, status.name(), sign);
+    }
+
+    private static LocalDate saleDate(Order order) {
+        return order.getDateCommande().toLocalDate();
+    }
+
+    // Orders created before the tier snapshot existed fall back to the client's current tier
+    private static CustomerTier tier(Order order) {
+        if (order.getClientTierAtOrder() != null) {
+            return order.getClientTierAtOrder();
+        }
+        CustomerTier current = order.getClient() == null ? null : order.getClient().getTier();
+        return current == null ? CustomerTier.BASIC : current;
+    }
+
+    private record FactKey(LocalDate day, long productId, String tier, String status) {
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static long toLong(Object value) {
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
+    private static BigDecimal toAmount(Object value) {
+        return value == null ? BigDecimal.ZERO.setScale(2) : (BigDecimal) value;
+    }
+}
@@ -0,0 +1,128 @@
+package com.logitrack.b2b_tradehub.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 63-bit time-ordered ids, "snowflake" layout: milliseconds since 2025-01-01 (41 bits, until 2094), node id
+ * (10 bits, tradehub.document-numbers.node-id, distinct per node) and a per-millisecond sequence (12 bits).
+ * Two nodes sharing an id would hand out the same numbers. When it is not set, the dev and test profiles (single
+ * node) use 0 and any other run falls back to a hash of the host name with a warning: two hosts may still share it.
+ * <p>
+ * The (time, sequence) pair of the last id is one AtomicLong moved by compare-and-set, no lock: the next id is
+ * the greater of last + 1 and the current millisecond. Past 4096 ids in a millisecond the sequence carries into
+ * the time bits (the node borrows the next milliseconds), and a clock going backwards is ignored, so ids of a
+ * node strictly increase. A node restarted while it was ahead of its clock, or under a clock set back, must not
+ * come back before the time of its last id.
+ * <p>
+ * Numbers are the id in Crockford base32 (no I, L, O, U), 13 characters zero padded, behind the document prefix:
+ * text order is id order.
+ */
+@Slf4j
+@Component
+public class SnowflakeDocumentNumberGenerator implements DocumentNumberGenerator {
+
+    static final long EPOCH_MILLIS = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int CODE_LENGTH = 13;
+
+    @Value("${tradehub.document-numbers.node-id:}")
+    private String configuredNodeId;
+
+    private int nodeId;
+    private final Environment environment;
+    private final LongSupplier clock;
+    // (milliseconds since EPOCH_MILLIS << SEQUENCE_BITS) | sequence, of the last id handed out
+    private final AtomicLong last = new AtomicLong();
+
+    @Autowired
+    public SnowflakeDocumentNumberGenerator(Environment environment) {
+        this.environment = environment;
+        this.clock = System::currentTimeMillis;
+    }
+
+    // Fixed node and clock, for tests and benchmarks
+    SnowflakeDocumentNumberGenerator(int nodeId, LongSupplier clock) {
+        this.environment = null;
+        this.configuredNodeId = String.valueOf(nodeId);
+        this.clock = clock;
+        checkNodeId();
+    }
+
+    @PostConstruct
+    void checkNodeId() {
+        if (configuredNodeId == null || configuredNodeId.isBlank()) {
+            if (environment != null && environment.matchesProfiles("dev", "test")) {
+                configuredNodeId = "0";
+            } else {
+                String host = localHostName();
+                configuredNodeId = String.valueOf(nodeIdForHost(host));
+                log.warn("tradehub.document-numbers.node-id (TRADEHUB_NODE_ID) is not set: using {}, derived from host "
+                        + "name {}. Set a distinct id between 0 and {} on every node, two hosts may derive the same one",
+                        configuredNodeId, host, MAX_NODE_ID);
+            }
+        }
+        try {
+            nodeId = Integer.parseInt(configuredNodeId.trim());
+        } catch (NumberFormatException e) {
+            nodeId = -1;
+        }
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalStateException("tradehub.document-numbers.node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        log.info("Document numbers generated as node {}", nodeId);
+    }
+
+    static int nodeIdForHost(String host) {
+        return Math.floorMod(host.hashCode(), MAX_NODE_ID + 1);
+    }
+
+    static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            String host = System.getenv("HOSTNAME");
+            return host == null || host.isBlank() ? "localhost" : host;
+        }
+    }
+
+    @Override
+    public String next(DocumentType type) {
+        return format(type, nextId());
+    }
+
+    public long nextId() {
+        long now = (clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long next = last.updateAndGet(previous -> Math.max(previous + 1, now));
+        return ((next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS))
+                | ((long) nodeId << SEQUENCE_BITS)
+                | (next & SEQUENCE_MASK);
+    }
+
+    static String format(DocumentType type, long id) {
+        String prefix = type.getPrefix();
+        char[] number = new char[prefix.length() + 1 + CODE_LENGTH];
+        prefix.getChars(0, prefix.length(), number, 0);
+        number[prefix.length()] = '-';
+        for (int i = number.length - 1; i > prefix.length(); i--) {
+            number[i] = CROCKFORD[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(number);
+    }
+}
@@ -0,0 +1,93 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.entity.StockReservation;
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+import com.logitrack.b2b_tradehub.repository.OrderItemRepository;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import com.logitrack.b2b_tradehub.repository.StockReservationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Holds stock for PENDING orders so that confirmation cannot fail for lack of stock once a client has paid.
+ * Holds that are neither confirmed nor cancelled within the TTL are released by {@link #releaseExpired()}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockReservationService {
+
+    private final StockReservationRepository reservationRepository;
+    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ProductCatalogCache productCatalogCache;
+
+    @Value("${tradehub.reservations.ttl:PT30M}")
+    private Duration ttl;
+
+    @Value("${tradehub.reservations.sweep-batch-size:1000}")
+    private int sweepBatchSize;
+
+    @Value("${tradehub.reservations.sweep-max-batches:50}")
+    private int sweepMaxBatches;
+
+    // Requirement: EF 6 (Stock Validation) - holds every line of a freshly created order, all or nothing
+    @Transactional
+    public void reserveForOrder(Long orderId) {
+        long expected = orderItemRepository.countDistinctProductsByOrderId(orderId);
+        int reserved = productRepository.reserveStockForOrder(orderId);
+        if (reserved != expected) {
+            throw new BusinessValidationException("Insufficient stock to reserve order " + orderId);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        reservationRepository.insertForOrder(orderId, now.plus(ttl), now);
+    }
+
+    // Called by confirmOrder / cancelOrder: gives the held quantities back to the available pool
+    @Transactional
+    public int releaseForOrder(Long orderId) {
+        return release(reservationRepository.lockByOrderId(orderId));
+    }
+
+    // Expired holds are released in batches: three statements per batch, whatever the number of rows
+    @Scheduled(fixedDelayString = "${tradehub.reservations.sweep-interval:PT5S}")
+    public void releaseExpired() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int total = 0;
+        for (int batch = 0; batch < sweepMaxBatches; batch++) {
+            Integer released = tx.execute(status -> release(reservationRepository
+                    .lockExpired(LocalDateTime.now(), PageRequest.of(0, sweepBatchSize))));
+            total += released;
+            if (released < sweepBatchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Released {} expired stock reservations", total);
+        }
+    }
+
+    private int release(List<StockReservation> reservations) {
+        if (reservations.isEmpty()) {
+            return 0;
+        }
+        List<Long> reservationIds = reservations.stream().map(StockReservation::getId).toList();
+        productRepository.releaseReservedStock(reservationIds);
+        // The product reference is an uninitialized proxy: reading its id does not load it
+        productCatalogCache.invalidateStock(reservations.stream().map(r -> r.getProduct().getId()).collect(Collectors.toSet()));
+        return reservationRepository.deleteByIds(reservationIds);
+    }
+}
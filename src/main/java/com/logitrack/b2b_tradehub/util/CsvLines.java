@@ -0,0 +1,54 @@
+package com.logitrack.b2b_tradehub.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splitting of one CSV record, shared by the file imports (products, bank statements).
+ */
+public final class CsvLines {
+
+    private CsvLines() {}
+
+    // One CSV record; fields may be quoted ("a;b", "say ""hi""") but not span lines
+    public static List<String> split(String line, char separator) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == separator) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Header line without its UTF-8 byte order mark
+    public static String stripBom(String header) {
+        return header.startsWith("\uFEFF") ? header.substring(1) : header;
+    }
+
+    // ';' when the header contains one (French spreadsheets), else ','
+    public static char separatorOf(String header) {
+        return header.indexOf(';') >= 0 ? ';' : ',';
+    }
+}
@@ -0,0 +1,42 @@
+package com.logitrack.b2b_tradehub.util;
+
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque continuation tokens for keyset pagination: a (timestamp, id) position encoded as URL-safe Base64.
+ * Clients must treat the token as opaque; only this class knows its layout.
+ */
+public final class CursorCodec {
+
+    private static final char SEPARATOR = '|';
+
+    private CursorCodec() {}
+
+    public static String encode(LocalDateTime timestamp, Long id) {
+        String raw = timestamp.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Position decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int split = raw.lastIndexOf(SEPARATOR);
+            return new Position(LocalDateTime.parse(raw.substring(0, split)), Long.valueOf(raw.substring(split + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BusinessValidationException("Invalid cursor.");
+        }
+    }
+
+    // Last (timestamp, id) seen by the client; the next page starts strictly after it
+    @Value
+    public static class Position {
+        LocalDateTime timestamp;
+        Long id;
+    }
+}
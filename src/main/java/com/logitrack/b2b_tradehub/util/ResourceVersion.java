@@ -0,0 +1,43 @@
+package com.logitrack.b2b_tradehub.util;
+
+import lombok.Value;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Validators of a read resource: an ETag built from version counters and the Last-Modified time, both known
+ * without loading the resource itself. {@link #isNotModified} answers If-None-Match / If-Modified-Since.
+ */
+@Value
+public class ResourceVersion {
+
+    String etag;
+    // Epoch millis, -1 when unknown
+    long lastModified;
+
+    // Strong ETag "prefix-part1-part2...", so it changes whenever one of the parts does
+    public static ResourceVersion of(String prefix, LocalDateTime lastModified, Object... parts) {
+        StringBuilder etag = new StringBuilder("\"").append(prefix);
+        for (Object part : parts) {
+            etag.append('-').append(part);
+        }
+        long millis = lastModified == null ? -1 : lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new ResourceVersion(etag.append('"').toString(), millis);
+    }
+
+    // Validators of a response built from both resources (orders showing product names): changes when either does
+    public ResourceVersion and(ResourceVersion other) {
+        return new ResourceVersion(etag.substring(0, etag.length() - 1) + "+" + other.etag.substring(1),
+                Math.max(lastModified, other.lastModified));
+    }
+
+    /**
+     * True when the client copy is current: the response is then a 304 and the caller must return null.
+     * Otherwise the ETag and Last-Modified headers are set on the response that follows.
+     */
+    public boolean isNotModified(WebRequest request) {
+        return request.checkNotModified(etag, lastModified);
+    }
+}
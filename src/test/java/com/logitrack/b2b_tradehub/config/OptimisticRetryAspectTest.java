@@ -0,0 +1,95 @@
+package com.logitrack.b2b_tradehub.config;
+
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.exception.ConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Retry advice on a plain proxied service whose first calls lose an optimistic lock: a later attempt succeeds,
+ * running out of attempts answers a 409 ConflictException, and calls inside a transaction are never retried.
+ */
+class OptimisticRetryAspectTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private Conflicting target;
+    private Conflicting proxy;
+
+    @BeforeEach
+    void createProxy() {
+        target = new Conflicting();
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new OptimisticRetryAspect(meterRegistry));
+        proxy = factory.getProxy();
+    }
+
+    @AfterEach
+    void clearTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void conflictingAttemptsAreRetriedUntilOneSucceeds() {
+        target.conflicts = 2;
+
+        assertEquals("saved", proxy.save());
+        assertEquals(3, target.calls.get());
+        assertEquals(2, count("tradehub.conflicts.detected"));
+        assertEquals(2, count("tradehub.conflicts.retries"));
+        assertEquals(0, count("tradehub.conflicts.exhausted"));
+    }
+
+    @Test
+    void runningOutOfAttemptsAnswersAConflict() {
+        target.conflicts = Integer.MAX_VALUE;
+
+        ConflictException e = assertThrows(ConflictException.class, proxy::save);
+        assertInstanceOf(ObjectOptimisticLockingFailureException.class, e.getCause());
+        assertEquals(3, target.calls.get());
+        assertEquals(3, count("tradehub.conflicts.detected"));
+        assertEquals(1, count("tradehub.conflicts.exhausted"));
+    }
+
+    @Test
+    void callsInsideAnOuterTransactionAreNotRetried() {
+        target.conflicts = 1;
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        // Left to the caller, whose persistence context holds the stale version
+        assertThrows(ObjectOptimisticLockingFailureException.class, proxy::save);
+        assertEquals(1, target.calls.get());
+        assertEquals(0, count("tradehub.conflicts.detected"));
+    }
+
+    private double count(String name) {
+        return meterRegistry.find(name).tag("entity", "Product").counters().stream()
+                .mapToDouble(Counter::count).sum();
+    }
+
+    static class Conflicting {
+
+        final AtomicInteger calls = new AtomicInteger();
+        int conflicts;
+
+        @RetryOnConflict(maxAttempts = 3, backoffMillis = 1, maxBackoffMillis = 2)
+        public String save() {
+            if (calls.incrementAndGet() <= conflicts) {
+                throw new ObjectOptimisticLockingFailureException(Product.class, 42L);
+            }
+            return "saved";
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.logitrack.b2b_tradehub.config;
+
+import com.logitrack.b2b_tradehub.dto.product.ProductRequest;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import com.logitrack.b2b_tradehub.service.ProductCatalogCache;
+import com.logitrack.b2b_tradehub.service.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and the replica; each holds a one-row table naming itself,
+ * and the replica's replica_lag table plays the role of the lag query.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:b2b_tradehub_routing_primary;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "tradehub.datasource.replica.jdbc-url=jdbc:h2:mem:b2b_tradehub_routing_replica;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "tradehub.datasource.replica.username=sa",
+        "tradehub.datasource.replica.password=",
+        "tradehub.datasource.routing.lag-query=SELECT seconds FROM replica_lag",
+        "tradehub.datasource.routing.max-lag=PT5S",
+        "tradehub.datasource.routing.lag-check-interval=PT1H"
+})
+@ActiveProfiles("test")
+class ReadReplicaRoutingTest {
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private ReplicaLagMonitor lagMonitor;
+
+    @Autowired
+    private ReadYourWritesFilter readYourWritesFilter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(primaryDataSource);
+        primary.execute("CREATE TABLE IF NOT EXISTS db_name (name varchar(16))");
+        primary.update("DELETE FROM db_name");
+        primary.update("INSERT INTO db_name VALUES ('primary')");
+
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("CREATE TABLE IF NOT EXISTS db_name (name varchar(16))");
+        replica.update("DELETE FROM db_name");
+        replica.update("INSERT INTO db_name VALUES ('replica')");
+        replica.execute("CREATE TABLE IF NOT EXISTS replica_lag (seconds numeric(10, 3))");
+        setReplicaLag("0.5");
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplicaAndWritesThePrimary() {
+        assertTrue(lagMonitor.isUsable());
+        assertEquals("replica", currentDatabase(true));
+        assertEquals("primary", currentDatabase(false));
+
+        for (String pool : new String[] {"primary", "replica"}) {
+            assertNotNull(meterRegistry.find("hikaricp.connections.acquire").tag("pool", pool).timer());
+            assertNotNull(meterRegistry.find("hikaricp.connections.pending").tag("pool", pool).gauge());
+        }
+        assertTrue(meterRegistry.get("tradehub.datasource.reads").tag("target", "replica").counter().count() > 0);
+    }
+
+    @Test
+    void readsFallBackToThePrimaryWhileTheReplicaLags() {
+        setReplicaLag("12");
+        assertFalse(lagMonitor.isUsable());
+        assertEquals("primary", currentDatabase(true));
+
+        setReplicaLag("1");
+        assertEquals("replica", currentDatabase(true));
+    }
+
+    @Test
+    void readsFallBackToThePrimaryWhenTheLagCheckFails() {
+        replica.execute("DROP TABLE replica_lag");
+        lagMonitor.check();
+        assertFalse(lagMonitor.isUsable());
+        assertEquals("primary", currentDatabase(true));
+    }
+
+    @Test
+    void readsStayOnThePrimaryForAWhileAfterAWrite() throws Exception {
+        assertEquals("replica", readDuring(new MockHttpServletRequest("GET", "/api/orders"), new MockHttpServletResponse()));
+
+        // The write request itself, then the next reads of the same client
+        MockHttpServletResponse written = new MockHttpServletResponse();
+        assertEquals("primary", readDuring(new MockHttpServletRequest("POST", "/api/orders"), written));
+        Cookie pin = written.getCookie(ReadYourWritesFilter.COOKIE);
+        assertNotNull(pin);
+        assertTrue(pin.isHttpOnly());
+        MockHttpServletRequest next = new MockHttpServletRequest("GET", "/api/orders/1");
+        next.setCookies(pin);
+        assertEquals("primary", readDuring(next, new MockHttpServletResponse()));
+
+        // Other clients, and this one once the window is over, read the replica again
+        assertEquals("replica", readDuring(new MockHttpServletRequest("GET", "/api/orders/1"), new MockHttpServletResponse()));
+        MockHttpServletRequest later = new MockHttpServletRequest("GET", "/api/orders/1");
+        later.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, String.valueOf(System.currentTimeMillis() - 1)));
+        assertEquals("replica", readDuring(later, new MockHttpServletResponse()));
+        assertFalse(ReadYourWritesFilter.isPinned());
+    }
+
+    @Test
+    void productCacheLoadsSeeWritesTheReplicaHasNotYetApplied() {
+        String nom = "Routed " + UUID.randomUUID().toString().substring(0, 8);
+        Long id = productRepository.save(Product.builder()
+                .nom(nom)
+                .prixUnitaireHT(new BigDecimal("10.00"))
+                .stockDisponible(5)
+                .build()).getId();
+        // The replica holds the product as first written and does not receive the update below
+        copyProductsToReplica();
+        ProductRequest update = new ProductRequest();
+        update.setNom(nom + " v2");
+        update.setPrixUnitaireHT(new BigDecimal("12.50"));
+        update.setStockDisponible(7);
+        productService.update(id, update);
+        assertEquals(nom, replica.queryForObject("SELECT nom FROM products WHERE id = ?", String.class, id));
+
+        // Unpinned reads go to the replica, the cache loads still read the primary
+        assertEquals("replica", currentDatabase(true));
+        ProductCatalogCache.ProductSnapshot product = productCatalogCache.get(id).orElseThrow();
+        assertEquals(nom + " v2", product.getNom());
+        assertEquals(new BigDecimal("12.50"), product.getPrixUnitaireHT());
+        assertEquals(7, product.getStockDisponible());
+        assertTrue(productCatalogCache.getActive().stream().anyMatch(p -> p.getId().equals(id)));
+    }
+
+    // The products table and rows of the primary, as they are now; constraints on other tables are left out
+    private void copyProductsToReplica() {
+        replica.execute("DROP TABLE IF EXISTS products");
+        for (String statement : primary.queryForList("SCRIPT NOSETTINGS TABLE products", String.class)) {
+            if (statement.startsWith("CREATE CACHED TABLE") || statement.startsWith("CREATE MEMORY TABLE")
+                    || statement.startsWith("INSERT INTO")) {
+                replica.execute(statement);
+            }
+        }
+    }
+
+    private String readDuring(MockHttpServletRequest request, MockHttpServletResponse response) throws Exception {
+        AtomicReference<String> database = new AtomicReference<>();
+        readYourWritesFilter.doFilter(request, response, (req, res) -> database.set(currentDatabase(true)));
+        return database.get();
+    }
+
+    private void setReplicaLag(String seconds) {
+        replica.update("DELETE FROM replica_lag");
+        replica.update("INSERT INTO replica_lag VALUES (" + seconds + ")");
+        lagMonitor.check();
+    }
+
+    private String currentDatabase(boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(readOnly);
+        return tx.execute(status -> (String) entityManager.createNativeQuery("SELECT name FROM db_name").getSingleResult());
+    }
+}
@@ -0,0 +1,140 @@
+package com.logitrack.b2b_tradehub.controller;
+
+import com.logitrack.b2b_tradehub.dto.client.ClientCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
+import com.logitrack.b2b_tradehub.dto.product.ProductRequest;
+import com.logitrack.b2b_tradehub.service.ClientService;
+import com.logitrack.b2b_tradehub.service.OrderService;
+import com.logitrack.b2b_tradehub.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Conditional GETs on product and order reads: 304 while the client copy is current, 200 with new validators
+ * once anything shown in the body changed, including the name of a product on the lines of an order.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ConditionalGetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ClientService clientService;
+
+    private String suffix;
+    private Long productId;
+    private Long orderId;
+
+    @BeforeEach
+    void createOrder() {
+        suffix = UUID.randomUUID().toString().substring(0, 8);
+        productId = productService.create(product("Etag product " + suffix)).getId();
+
+        ClientCreateRequest client = new ClientCreateRequest();
+        client.setNom("Etag " + suffix);
+        client.setEmail("etag-" + suffix + "@example.com");
+        client.setUsername("etag." + suffix);
+        client.setPassword("Password123");
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(productId);
+        item.setQuantite(2);
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setClientId(clientService.createClient(client).getId());
+        request.setItems(List.of(item));
+        orderId = orderService.createOrderFlow(request).getId();
+    }
+
+    @Test
+    void productReadAnswers304UntilTheProductChanges() throws Exception {
+        String url = "/api/products/" + productId;
+        MvcResult first = mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        String lastModified = first.getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+        mockMvc.perform(get(url).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified)).andExpect(status().isNotModified());
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, "\"other\"")).andExpect(status().isOk());
+
+        // Last-Modified has a one-second resolution
+        Thread.sleep(1_100);
+        productService.update(productId, product("Etag renamed " + suffix));
+
+        MvcResult changed = mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nom").value("Etag renamed " + suffix))
+                .andReturn();
+        assertNotEquals(etag, changed.getResponse().getHeader(HttpHeaders.ETAG));
+        mockMvc.perform(get(url).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified)).andExpect(status().isOk());
+    }
+
+    @Test
+    void orderReadChangesWhenAProductOnItsLinesIsRenamed() throws Exception {
+        String url = "/api/orders/" + orderId;
+        MvcResult first = mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        String lastModified = first.getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+        mockMvc.perform(get(url).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified)).andExpect(status().isNotModified());
+
+        Thread.sleep(1_100);
+        productService.update(productId, product("Etag renamed " + suffix));
+
+        MvcResult changed = mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertNotEquals(etag, changed.getResponse().getHeader(HttpHeaders.ETAG));
+        mockMvc.perform(get(url).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified)).andExpect(status().isOk());
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, changed.getResponse().getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void orderListingChangesWhenAnyProductChanges() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/orders").param("limit", "5").param("view", "SUMMARY"))
+                .andExpect(status().isOk()).andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/orders").param("limit", "5").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        productService.update(productId, product("Etag renamed " + suffix));
+
+        mockMvc.perform(get("/api/orders").param("limit", "5").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    private static ProductRequest product(String nom) {
+        ProductRequest request = new ProductRequest();
+        request.setNom(nom);
+        request.setPrixUnitaireHT(new BigDecimal("25.00"));
+        request.setStockDisponible(50);
+        return request;
+    }
+}
@@ -0,0 +1,252 @@
+package com.logitrack.b2b_tradehub.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logitrack.b2b_tradehub.dto.order.OrderExportFormat;
+import com.logitrack.b2b_tradehub.service.OrderExportService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Streaming order export over more orders than one persistence context clear (1000 rows), each order of a client
+ * of its own. The orders and clients are written in JDBC batches and dated in a far year of their own, so the
+ * export range holds only them. Both formats are parsed back; the persistence context is sampled while rows
+ * are written.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrderExportTest {
+
+    private static final int ORDERS = 1_250;
+    private static final String PROMO = "SPRING,\"VIP\"";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private LocalDateTime start;
+    private List<Long> orderIds;
+    private List<Long> clientIds;
+
+    @BeforeEach
+    void createOrders() {
+        start = LocalDateTime.of(5000 + ThreadLocalRandom.current().nextInt(4000), 1, 1, 0, 0);
+        String prefix = "export-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Object[]> users = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            users.add(new Object[] {prefix + i, "Password123", now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, password, role, created_at, updated_at) "
+                + "VALUES (?, ?, 'CLIENT', ?, ?)", users);
+        jdbcTemplate.update("INSERT INTO clients (version, user_id, nom, email, tier, total_orders, total_spent, "
+                + "created_at, updated_at, deleted) SELECT 0, id, username, username || '@example.com', 'BASIC', 0, 0, "
+                + "created_at, updated_at, FALSE FROM users WHERE username LIKE ?", prefix + "%");
+        clientIds = jdbcTemplate.queryForList("SELECT c.id FROM clients c JOIN users u ON u.id = c.user_id "
+                + "WHERE u.username LIKE ? ORDER BY c.id", Long.class, prefix + "%");
+
+        List<Object[]> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            BigDecimal ht = BigDecimal.valueOf(100 + i, 2);
+            BigDecimal tva = ht.multiply(new BigDecimal("0.20")).setScale(2, RoundingMode.HALF_UP);
+            orders.add(new Object[] {start.plusMinutes(i), ht, ht, tva, ht.add(tva), ht.add(tva), now, now,
+                    clientIds.get(i)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (id, version, date_commande, sous_total_ht, montant_remise_totale, "
+                + "montant_ht_apres_remise, taux_tva, montant_tva, total_ttc, status, montant_restant, montant_paye, "
+                + "ledger_seq, created_at, updated_at, client_id) "
+                + "VALUES (nextval('orders_seq'), 0, ?, ?, 0, ?, 20.00, ?, ?, 'PENDING', ?, 0, 0, ?, ?, ?)", orders);
+        orderIds = jdbcTemplate.queryForList("SELECT id FROM orders WHERE date_commande BETWEEN ? AND ? "
+                + "ORDER BY date_commande, id", Long.class, start, start.plusMinutes(ORDERS));
+        jdbcTemplate.update("UPDATE orders SET promo_code_id = ? WHERE id = ?", PROMO, orderIds.get(1));
+        jdbcTemplate.update("UPDATE orders SET status = 'CONFIRMED', confirmed_at = ? WHERE id = ?",
+                start.plusDays(1), orderIds.get(2));
+    }
+
+    @Test
+    void ndjsonHasOneObjectPerLine() throws Exception {
+        MockHttpServletResponse response = export("ndjson", null);
+
+        assertEquals("application/x-ndjson", response.getContentType());
+        assertEquals("attachment; filename=\"orders.ndjson\"", response.getHeader(HttpHeaders.CONTENT_DISPOSITION));
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        String body = response.getContentAsString(StandardCharsets.UTF_8);
+        assertTrue(body.endsWith("}\n"));
+        String[] lines = body.split("\n");
+        assertEquals(ORDERS, lines.length);
+
+        List<Long> ids = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            JsonNode order = objectMapper.readTree(lines[i]);
+            ids.add(order.get("id").asLong());
+            assertEquals(clientIds.get(i).longValue(), order.get("clientId").asLong());
+            assertEquals(start.plusMinutes(i).toString(), order.get("dateCommande").asText());
+            assertEquals(0, BigDecimal.valueOf(100 + i, 2).compareTo(order.get("sousTotalHT").decimalValue()));
+        }
+        assertEquals(orderIds, ids);
+
+        JsonNode plain = objectMapper.readTree(lines[0]);
+        assertEquals("PENDING", plain.get("status").asText());
+        assertFalse(plain.has("codePromo"));
+        assertFalse(plain.has("confirmedAt"));
+        assertEquals(0, new BigDecimal("1.20").compareTo(plain.get("totalTTC").decimalValue()));
+        assertEquals(PROMO, objectMapper.readTree(lines[1]).get("codePromo").asText());
+        JsonNode confirmed = objectMapper.readTree(lines[2]);
+        assertEquals("CONFIRMED", confirmed.get("status").asText());
+        assertEquals(start.plusDays(1).toString(), confirmed.get("confirmedAt").asText());
+    }
+
+    @Test
+    void csvIsGzippedWhenAcceptedAndQuotesWhatNeedsIt() throws Exception {
+        MockHttpServletResponse response = export("csv", "gzip, deflate");
+
+        assertEquals("text/csv", response.getContentType());
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING));
+        String body;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        List<String> lines = List.of(body.split("\n"));
+        assertEquals("id,clientId,dateCommande,status,sousTotalHT,montantRemiseTotale,montantHTApresRemise,"
+                + "tauxTVA,montantTVA,totalTTC,montantRestant,codePromo,confirmedAt", lines.get(0));
+        assertEquals(ORDERS + 1, lines.size());
+
+        List<Long> ids = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            List<String> fields = csvFields(lines.get(i + 1));
+            assertEquals(13, fields.size(), lines.get(i + 1));
+            ids.add(Long.valueOf(fields.get(0)));
+            assertEquals(String.valueOf(clientIds.get(i)), fields.get(1));
+            assertEquals(start.plusMinutes(i).toString(), fields.get(2));
+        }
+        assertEquals(orderIds, ids);
+
+        assertEquals(List.of(String.valueOf(orderIds.get(0)), String.valueOf(clientIds.get(0)), start.toString(),
+                "PENDING", "1.00", "0.00", "1.00", "20.00", "0.20", "1.20", "1.20", "", ""), csvFields(lines.get(1)));
+        assertTrue(lines.get(2).contains(",\"SPRING,\"\"VIP\"\"\","), lines.get(2));
+        assertEquals(PROMO, csvFields(lines.get(2)).get(11));
+        assertEquals(start.plusDays(1).toString(), csvFields(lines.get(3)).get(12));
+    }
+
+    @Test
+    void thePersistenceContextStaysBoundedWhileExporting() throws IOException {
+        // Sampled on every write to the response stream, from inside the export's transaction
+        int[] largest = new int[1];
+        OutputStream sampling = new OutputStream() {
+            @Override
+            public void write(int b) {
+                sample();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                sample();
+            }
+
+            private void sample() {
+                Map<?, ?> held = entityManager.unwrap(SharedSessionContractImplementor.class)
+                        .getPersistenceContextInternal().getEntityHoldersByKey();
+                largest[0] = Math.max(largest[0], held == null ? 0 : held.size());
+            }
+        };
+
+        long count = orderExportService.export(start, start.plusMinutes(ORDERS), OrderExportFormat.NDJSON, sampling);
+
+        assertEquals(ORDERS, count);
+        // Orders are detached as they are written; the client proxies, one per order here, go at each clear.
+        // At most a thousand of them plus the order being written; without the clears it would reach 1250.
+        assertTrue(largest[0] > 0);
+        assertTrue(largest[0] <= 1_001, "largest persistence context: " + largest[0]);
+    }
+
+    private MockHttpServletResponse export(String format, String acceptEncoding) throws Exception {
+        MockHttpServletRequestBuilder builder = get("/api/orders/export")
+                .param("startDate", start.toString())
+                .param("endDate", start.plusMinutes(ORDERS).toString())
+                .param("format", format);
+        if (acceptEncoding != null) {
+            builder.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        MvcResult started = mockMvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+        return mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn().getResponse();
+    }
+
+    // RFC 4180 fields of one line
+    private static List<String> csvFields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,210 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.client.ClientCreateRequest;
+import com.logitrack.b2b_tradehub.dto.client.ClientResponse;
+import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
+import com.logitrack.b2b_tradehub.dto.product.ProductResponse;
+import com.logitrack.b2b_tradehub.dto.sync.ChangeFeedEntry;
+import com.logitrack.b2b_tradehub.dto.sync.ChangeFeedPage;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.entity.Tombstone;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import com.logitrack.b2b_tradehub.util.CursorCodec;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Change feeds read page by page from a watermark. The rows of each test are dated in a past year of their own
+ * (the other tests write at the current time), and only the entries of that year are compared.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ChangeFeedServiceTest {
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void pagesResumeInsideARunOfEqualTimestamps() {
+        LocalDateTime at = LocalDateTime.of(1991, 6, 1, 12, 0);
+        List<Long> expected = new ArrayList<>();
+        expected.add(product(at.minusSeconds(1)));
+        for (int i = 0; i < 5; i++) {
+            expected.add(product(at));
+        }
+        expected.add(product(at.plusSeconds(1)));
+
+        // Pages of 2 end in the middle of the five products written at the same instant
+        List<ChangeFeedEntry<ProductResponse>> entries = walk(changeFeedService::productChanges, at, 2);
+
+        assertEquals(expected, entries.stream().map(ChangeFeedEntry::getId).toList());
+        assertEquals(at.minusSeconds(1), entries.get(0).getUpdatedAt());
+        assertEquals(at, entries.get(5).getUpdatedAt());
+    }
+
+    @Test
+    void rowsWrittenWithinTheSettleLagAreHeldBack() {
+        LocalDateTime now = LocalDateTime.now();
+        Long settled = product(now.minusSeconds(30));
+        Long recent = product(now.minusSeconds(2));
+        String watermark = CursorCodec.encode(now.minusMinutes(1), 0L);
+
+        List<Long> seen = ids(changeFeedService.productChanges(watermark, 1000));
+        assertTrue(seen.contains(settled));
+        assertFalse(seen.contains(recent));
+
+        // Once the lag has passed, the same watermark gets it
+        ChangeFeedService target = AopTestUtils.getTargetObject(changeFeedService);
+        ReflectionTestUtils.setField(target, "settleLag", Duration.ofSeconds(1));
+        try {
+            assertTrue(ids(changeFeedService.productChanges(watermark, 1000)).contains(recent));
+        } finally {
+            ReflectionTestUtils.setField(target, "settleLag", Duration.ofSeconds(10));
+        }
+    }
+
+    @Test
+    void softDeletedProductsAndClientsComeAsTombstones() {
+        LocalDateTime at = LocalDateTime.of(1993, 3, 1, 8, 0);
+        Long live = product(at);
+        Long deleted = product(at);
+        productService.softDelete(deleted);
+        setUpdatedAt("products", deleted, at.plusSeconds(1));
+
+        List<ChangeFeedEntry<ProductResponse>> products = walk(changeFeedService::productChanges, at, 10);
+        assertEquals(List.of(live, deleted), products.stream().map(ChangeFeedEntry::getId).toList());
+        assertFalse(products.get(0).isDeleted());
+        assertEquals(live, products.get(0).getData().getId());
+        assertTrue(products.get(1).isDeleted());
+        assertNull(products.get(1).getData());
+
+        // A client with orders is only flagged deleted
+        Long client = client();
+        order(client, live);
+        clientService.deleteClient(client);
+        setUpdatedAt("clients", client, at);
+
+        List<ChangeFeedEntry<ClientResponse>> clients = walk(changeFeedService::clientChanges, at, 10);
+        assertEquals(1, clients.size());
+        assertEquals(client, clients.get(0).getId());
+        assertTrue(clients.get(0).isDeleted());
+        assertNull(clients.get(0).getData());
+    }
+
+    @Test
+    void hardDeletedClientsAreMergedIntoTheClientFeed() {
+        LocalDateTime at = LocalDateTime.of(1994, 9, 1, 10, 0);
+        Long before = client();
+        Long sameInstant = client();
+        Long removed = client();
+        Long after = client();
+        clientService.deleteClient(removed);
+        setUpdatedAt("clients", before, at);
+        setUpdatedAt("clients", sameInstant, at.plusSeconds(1));
+        jdbcTemplate.update("UPDATE tombstones SET deleted_at = ? WHERE resource = ? AND entity_id = ?",
+                at.plusSeconds(1), Tombstone.CLIENT, removed);
+        setUpdatedAt("clients", after, at.plusSeconds(2));
+
+        // One entry per page: each page merges both sources from the same watermark
+        List<ChangeFeedEntry<ClientResponse>> entries = walk(changeFeedService::clientChanges, at, 1);
+
+        assertEquals(List.of(before, sameInstant, removed, after), entries.stream().map(ChangeFeedEntry::getId).toList());
+        assertEquals(List.of(false, false, true, false), entries.stream().map(ChangeFeedEntry::isDeleted).toList());
+        assertNull(entries.get(2).getData());
+        assertEquals(at.plusSeconds(1), entries.get(2).getUpdatedAt());
+    }
+
+    // All entries dated within a minute of the given instant, read page by page from just before it
+    private static <T> List<ChangeFeedEntry<T>> walk(BiFunction<String, Integer, ChangeFeedPage<T>> feed,
+                                                     LocalDateTime at, int limit) {
+        List<ChangeFeedEntry<T>> entries = new ArrayList<>();
+        String cursor = CursorCodec.encode(at.minusMinutes(1), 0L);
+        for (int pages = 0; pages < 100; pages++) {
+            ChangeFeedPage<T> page = feed.apply(cursor, limit);
+            for (ChangeFeedEntry<T> entry : page.getItems()) {
+                if (entry.getUpdatedAt().isAfter(at.plusMinutes(1))) {
+                    return entries;
+                }
+                entries.add(entry);
+            }
+            if (!page.isHasMore()) {
+                return entries;
+            }
+            cursor = page.getNextCursor();
+        }
+        return entries;
+    }
+
+    private static List<Long> ids(ChangeFeedPage<ProductResponse> page) {
+        return page.getItems().stream().map(ChangeFeedEntry::getId).toList();
+    }
+
+    private Long product(LocalDateTime updatedAt) {
+        Long id = productRepository.save(Product.builder()
+                .nom("Feed product " + UUID.randomUUID().toString().substring(0, 8))
+                .prixUnitaireHT(new BigDecimal("15.00"))
+                .stockDisponible(20)
+                .build()).getId();
+        setUpdatedAt("products", id, updatedAt);
+        return id;
+    }
+
+    private Long client() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientCreateRequest client = new ClientCreateRequest();
+        client.setNom("Feed " + suffix);
+        client.setEmail("feed-" + suffix + "@example.com");
+        client.setUsername("feed." + suffix);
+        client.setPassword("Password123");
+        return clientService.createClient(client).getId();
+    }
+
+    private void order(Long clientId, Long productId) {
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(productId);
+        item.setQuantite(1);
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setClientId(clientId);
+        request.setItems(List.of(item));
+        orderService.createOrderFlow(request);
+    }
+
+    // Written behind the entity's back, so @PreUpdate does not put the current time back
+    private void setUpdatedAt(String table, Long id, LocalDateTime updatedAt) {
+        jdbcTemplate.update("UPDATE " + table + " SET updated_at = ? WHERE id = ?", updatedAt, id);
+    }
+}
@@ -0,0 +1,143 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.client.ClientCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderResponse;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
+import com.logitrack.b2b_tradehub.entity.ClientOrderRollup;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The rollup row of a client must always match what a recompute from its orders gives: for clients whose orders
+ * predate the row, and while the nightly rebuild runs next to live orders.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ClientRollupServiceTest {
+
+    @Autowired
+    private ClientRollupService clientRollupService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long clientId;
+    private Long productId;
+
+    @BeforeEach
+    void createClientAndProduct() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientCreateRequest client = new ClientCreateRequest();
+        client.setNom("Rollup " + suffix);
+        client.setEmail("rollup-" + suffix + "@example.com");
+        client.setUsername("rollup." + suffix);
+        client.setPassword("Password123");
+        clientId = clientService.createClient(client).getId();
+
+        productId = productRepository.save(Product.builder()
+                .nom("Rollup product " + suffix)
+                .prixUnitaireHT(new BigDecimal("100.00"))
+                .stockDisponible(10_000)
+                .build()).getId();
+    }
+
+    @Test
+    void firstRollupRowOfAClientCountsItsEarlierOrders() {
+        BigDecimal total = createOrder().getTotalTTC().add(createOrder().getTotalTTC());
+        // Orders placed before the rollup table existed
+        jdbcTemplate.update("DELETE FROM client_order_rollups WHERE client_id = ?", clientId);
+
+        total = total.add(createOrder().getTotalTTC());
+
+        ClientOrderRollup rollup = clientRollupService.findByClientId(clientId).orElseThrow();
+        assertEquals(3L, rollup.getOrderCount());
+        assertEquals(0, total.compareTo(rollup.getTotalTTC()));
+        assertEquals(0, total.compareTo(rollup.getOutstanding()));
+        assertEquals(3, orderService.getOrderCount(clientId));
+        assertMatchesRecompute();
+    }
+
+    @Test
+    void rebuildRunningNextToLiveOrdersLosesNoDelta() throws Exception {
+        createOrder();
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        Future<?> rebuilds = pool.submit(() -> {
+            while (!done.get()) {
+                clientRollupService.rebuildAll();
+            }
+        });
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            writers.add(pool.submit(() -> {
+                for (int i = 0; i < 15; i++) {
+                    OrderResponse order = createOrder();
+                    if (i % 3 == 0) {
+                        orderService.cancelOrder(order.getId());
+                    }
+                }
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get(60, TimeUnit.SECONDS);
+        }
+        done.set(true);
+        rebuilds.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        ClientOrderRollup rollup = clientRollupService.findByClientId(clientId).orElseThrow();
+        assertEquals(21L, rollup.getOrderCount());
+        assertMatchesRecompute();
+    }
+
+    private OrderResponse createOrder() {
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(productId);
+        item.setQuantite(1);
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setClientId(clientId);
+        request.setItems(List.of(item));
+        return orderService.createOrderFlow(request);
+    }
+
+    private void assertMatchesRecompute() {
+        Map<String, Object> expected = jdbcTemplate.queryForMap("SELECT " +
+                "COALESCE(SUM(CASE WHEN status NOT IN ('CANCELLED', 'REJECTED') THEN 1 ELSE 0 END), 0) AS order_count, " +
+                "COALESCE(SUM(CASE WHEN status NOT IN ('CANCELLED', 'REJECTED') THEN total_ttc ELSE 0 END), 0) AS total_ttc, " +
+                "COALESCE(SUM(CASE WHEN status NOT IN ('CANCELLED', 'REJECTED') THEN montant_restant ELSE 0 END), 0) AS outstanding " +
+                "FROM orders WHERE client_id = ?", clientId);
+        ClientOrderRollup rollup = clientRollupService.findByClientId(clientId).orElseThrow();
+        assertEquals(((Number) expected.get("order_count")).longValue(), rollup.getOrderCount());
+        assertEquals(0, ((BigDecimal) expected.get("total_ttc")).compareTo(rollup.getTotalTTC()));
+        assertEquals(0, ((BigDecimal) expected.get("outstanding")).compareTo(rollup.getOutstanding()));
+    }
+}
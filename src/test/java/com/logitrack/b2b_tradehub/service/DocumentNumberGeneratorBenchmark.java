@@ -0,0 +1,60 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.service.DocumentNumberGenerator.DocumentType;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ids and formatted numbers per second from one generator shared by 4 threads, against the random UUID it
+ * replaced. Run with {@code mvn test -Pbenchmark -Dtest=DocumentNumberGeneratorBenchmark}.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(0)
+public class DocumentNumberGeneratorBenchmark {
+
+    private final SnowflakeDocumentNumberGenerator generator = new SnowflakeDocumentNumberGenerator(1, System::currentTimeMillis);
+
+    @Benchmark
+    public long nextId() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    public String nextPaymentNumber() {
+        return generator.next(DocumentType.PAYMENT);
+    }
+
+    // Previous numeroPaiement
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Test
+    void run() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(DocumentNumberGeneratorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
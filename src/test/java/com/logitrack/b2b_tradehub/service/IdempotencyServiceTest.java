@@ -0,0 +1,181 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentResponse;
+import com.logitrack.b2b_tradehub.exception.ConflictException;
+import com.logitrack.b2b_tradehub.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two nodes (two service instances, each with its own in-memory state, sharing the database) receiving the same
+ * Idempotency-Key: the action must run once, both callers get its response, and every action commits together
+ * with its key or not at all.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyServiceTest {
+
+    private static final String SCOPE = "payments";
+
+    @Autowired
+    private IdempotencyRecordRepository recordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdempotentActionRunner actionRunner;
+
+    private IdempotencyService nodeA;
+    private IdempotencyService nodeB;
+    private final AtomicInteger runs = new AtomicInteger();
+    private long marker;
+
+    @BeforeEach
+    void createNodes() {
+        nodeA = node(Duration.ofMinutes(2));
+        nodeB = node(Duration.ofMinutes(2));
+        marker = System.nanoTime();
+    }
+
+    @Test
+    void concurrentRequestsOnTwoNodesRunTheActionOnce() throws Exception {
+        String key = UUID.randomUUID().toString();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<Future<ResponseEntity<PaymentResponse>>> futures = new ArrayList<>();
+        for (IdempotencyService node : List.of(nodeA, nodeB)) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return node.execute(SCOPE, key, "same body", PaymentResponse.class, HttpStatus.CREATED, action(300));
+            }));
+        }
+        start.countDown();
+        ResponseEntity<PaymentResponse> first = futures.get(0).get(30, TimeUnit.SECONDS);
+        ResponseEntity<PaymentResponse> second = futures.get(1).get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertEquals(1, runs.get());
+        assertEquals(1, sideEffects());
+        assertEquals(first.getBody(), second.getBody());
+        assertEquals(HttpStatus.CREATED, first.getStatusCode());
+        assertEquals(HttpStatus.CREATED, second.getStatusCode());
+        long replayed = List.of(first, second).stream()
+                .filter(r -> "true".equals(r.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER))).count();
+        assertEquals(1, replayed);
+    }
+
+    @Test
+    void failedActionReleasesTheKey() {
+        String key = UUID.randomUUID().toString();
+        assertThrows(IllegalStateException.class, () -> nodeA.execute(SCOPE, key, "body", PaymentResponse.class,
+                HttpStatus.CREATED, () -> {
+                    action(0).get();
+                    throw new IllegalStateException("boom");
+                }));
+        assertEquals(0, sideEffects());
+
+        ResponseEntity<PaymentResponse> retry = nodeB.execute(SCOPE, key, "body", PaymentResponse.class,
+                HttpStatus.CREATED, action(0));
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals(2, runs.get());
+        assertEquals(1, sideEffects());
+    }
+
+    @Test
+    void claimOfACrashedNodeIsTakenOverOnceItsLeaseExpired() {
+        String key = UUID.randomUUID().toString();
+        LocalDateTime past = LocalDateTime.now().minusMinutes(1);
+        jdbcTemplate.update("INSERT INTO idempotency_keys (scope, idem_key, request_hash, status_code, response_body, "
+                + "created_at, expires_at) VALUES (?, ?, 'dead', 0, '', ?, ?)", SCOPE, key, Timestamp.valueOf(past),
+                Timestamp.valueOf(past));
+
+        ResponseEntity<PaymentResponse> response = nodeA.execute(SCOPE, key, "body", PaymentResponse.class,
+                HttpStatus.CREATED, action(0));
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(1, runs.get());
+        assertTrue(recordRepository.findByScopeAndIdemKey(SCOPE, key).orElseThrow().getStatusCode() == 201);
+    }
+
+    @Test
+    void actionOutlivingItsLeaseRollsBackInsteadOfDuplicating() throws Exception {
+        IdempotencyService slowNode = node(Duration.ofMillis(200));
+        String key = UUID.randomUUID().toString();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<ResponseEntity<PaymentResponse>> slow = pool.submit(() -> slowNode.execute(SCOPE, key, "body",
+                PaymentResponse.class, HttpStatus.CREATED, action(1000)));
+        Thread.sleep(500);
+
+        ResponseEntity<PaymentResponse> takeOver = nodeB.execute(SCOPE, key, "body", PaymentResponse.class,
+                HttpStatus.CREATED, action(0));
+        assertEquals(HttpStatus.CREATED, takeOver.getStatusCode());
+        Exception slowFailure = assertThrows(Exception.class, () -> slow.get(30, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertTrue(slowFailure.getCause() instanceof ConflictException);
+        assertEquals(2, runs.get());
+        assertEquals(1, sideEffects());
+    }
+
+    private IdempotencyService node(Duration claimLease) {
+        IdempotencyService node = new IdempotencyService(recordRepository, objectMapper, jdbcTemplate, actionRunner);
+        ReflectionTestUtils.setField(node, "ttl", Duration.ofHours(24));
+        ReflectionTestUtils.setField(node, "inFlightWait", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(node, "claimLease", claimLease);
+        ReflectionTestUtils.setField(node, "localMaxEntries", 100);
+        node.initLocalStore();
+        return node;
+    }
+
+    // Writes a row in the caller's transaction (it must commit or roll back with the key), then answers
+    private Supplier<PaymentResponse> action(long millis) {
+        return () -> {
+            int run = runs.incrementAndGet();
+            jdbcTemplate.update("INSERT INTO tombstones (resource, entity_id, deleted_at) VALUES ('idem-test', ?, ?)",
+                    marker, Timestamp.valueOf(LocalDateTime.now()));
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            PaymentResponse response = new PaymentResponse();
+            response.setId((long) run);
+            response.setNumeroPaiement("PAY-" + run);
+            return response;
+        };
+    }
+
+    private int sideEffects() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tombstones WHERE resource = 'idem-test' AND entity_id = ?",
+                Integer.class, marker);
+    }
+}
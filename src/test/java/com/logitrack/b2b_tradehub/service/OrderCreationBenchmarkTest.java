@@ -0,0 +1,110 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.config.SqlStatementCounter;
+import com.logitrack.b2b_tradehub.dto.client.ClientCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Order pipeline throughput: SQL statements per createOrderFlow call and orders per second. Fails when an order
+ * takes more than MAX_STATEMENTS_PER_ORDER statements on average, or when its lines add statements of their own
+ * (a one-line order must cost what a ten-line one does).
+ * Excluded from the default build; run with {@code mvn test -Pbenchmark} (embedded H2 unless the
+ * datasource is pointed at a local PostgreSQL through SPRING_DATASOURCE_URL).
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderCreationBenchmarkTest {
+
+    private static final int WARMUP_ORDERS = 100;
+    private static final int MEASURED_ORDERS = 1000;
+    private static final int LINES_PER_ORDER = 10;
+    // Hibernate statements per order, whatever its number of lines (10 today; the extra one covers cache reloads)
+    private static final double MAX_STATEMENTS_PER_ORDER = 11;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SqlStatementCounter statementCounter;
+
+    @Test
+    void createOrders() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientCreateRequest client = new ClientCreateRequest();
+        client.setNom("Bench " + suffix);
+        client.setEmail("bench-" + suffix + "@example.com");
+        client.setUsername("bench." + suffix);
+        client.setPassword("Password123");
+        Long clientId = clientService.createClient(client).getId();
+
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < LINES_PER_ORDER; i++) {
+            productIds.add(productRepository.save(Product.builder()
+                    .nom("Bench product " + i + " " + suffix)
+                    .prixUnitaireHT(new BigDecimal("9.90"))
+                    .stockDisponible(1_000_000)
+                    .build()).getId());
+        }
+
+        for (int i = 0; i < WARMUP_ORDERS; i++) {
+            orderService.createOrderFlow(request(clientId, productIds));
+        }
+
+        long statementsBefore = statementCounter.current();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ORDERS; i++) {
+            orderService.createOrderFlow(request(clientId, productIds));
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double statementsPerOrder = (double) (statementCounter.current() - statementsBefore) / MEASURED_ORDERS;
+
+        statementsBefore = statementCounter.current();
+        for (int i = 0; i < WARMUP_ORDERS; i++) {
+            orderService.createOrderFlow(request(clientId, productIds.subList(0, 1)));
+        }
+        double statementsPerOneLineOrder = (double) (statementCounter.current() - statementsBefore) / WARMUP_ORDERS;
+
+        System.out.printf("createOrderFlow: %d orders x %d lines, %.1f statements/order (%.1f with one line), %.0f orders/s%n",
+                MEASURED_ORDERS, LINES_PER_ORDER, statementsPerOrder, statementsPerOneLineOrder, MEASURED_ORDERS / seconds);
+        assertTrue(statementsPerOrder <= MAX_STATEMENTS_PER_ORDER,
+                "Expected at most " + MAX_STATEMENTS_PER_ORDER + " statements per order but " + statementsPerOrder + " were executed");
+        assertEquals(statementsPerOneLineOrder, statementsPerOrder, 1.0, "Order lines must not add statements");
+    }
+
+    private OrderCreateRequest request(Long clientId, List<Long> productIds) {
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setClientId(clientId);
+        List<OrderItemRequest> items = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            OrderItemRequest item = new OrderItemRequest();
+            item.setProductId(productId);
+            item.setQuantite(1);
+            items.add(item);
+        }
+        request.setItems(items);
+        return request;
+    }
+}
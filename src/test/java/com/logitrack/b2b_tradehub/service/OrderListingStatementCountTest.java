@@ -0,0 +1,157 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.config.SqlStatementCounter;
+import com.logitrack.b2b_tradehub.dto.CursorPage;
+import com.logitrack.b2b_tradehub.dto.client.ClientCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderResponse;
+import com.logitrack.b2b_tradehub.dto.order.OrderSearchCriteria;
+import com.logitrack.b2b_tradehub.dto.order.OrderView;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Guards the order read paths against N+1 regressions: each listing must stay within a fixed
+ * number of SQL statements whatever the number of orders and lines it returns.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderListingStatementCountTest {
+
+    private static final int ORDERS = 12;
+    private static final int LINES_PER_ORDER = 3;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SqlStatementCounter statementCounter;
+
+    private Long clientId;
+
+    @BeforeEach
+    void createOrders() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientCreateRequest client = new ClientCreateRequest();
+        client.setNom("Listing " + suffix);
+        client.setEmail("listing-" + suffix + "@example.com");
+        client.setUsername("listing." + suffix);
+        client.setPassword("Password123");
+        clientId = clientService.createClient(client).getId();
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < LINES_PER_ORDER; i++) {
+            products.add(productRepository.save(Product.builder()
+                    .nom("Listing product " + i + " " + suffix)
+                    .prixUnitaireHT(new BigDecimal("12.50"))
+                    .stockDisponible(1000)
+                    .build()));
+        }
+        // Three orders per dateCommande, so that cursor pages end between orders of the same instant
+        LocalDateTime first = LocalDateTime.now().withNano(0).minusDays(1);
+        for (int i = 0; i < ORDERS; i++) {
+            OrderCreateRequest request = new OrderCreateRequest();
+            request.setClientId(clientId);
+            request.setOrderDate(first.plusMinutes(i / 3));
+            List<OrderItemRequest> items = new ArrayList<>();
+            for (Product product : products) {
+                OrderItemRequest item = new OrderItemRequest();
+                item.setProductId(product.getId());
+                item.setQuantite(1);
+                items.add(item);
+            }
+            request.setItems(items);
+            orderService.createOrderFlow(request);
+        }
+    }
+
+    @Test
+    void detailListingUsesTwoStatements() {
+        OrderSearchCriteria criteria = new OrderSearchCriteria();
+        criteria.setClientId(clientId);
+        CursorPage<OrderResponse> page = assertMaxStatements(2,
+                () -> orderService.search(criteria, null, 50, OrderView.DETAIL));
+        assertEquals(ORDERS, page.getItems().size());
+        page.getItems().forEach(order -> {
+            assertEquals(LINES_PER_ORDER, order.getItems().size());
+            order.getItems().forEach(line -> assertTrue(line.getProductName().startsWith("Listing product")));
+        });
+    }
+
+    @Test
+    void summaryListingUsesOneStatement() {
+        OrderSearchCriteria criteria = new OrderSearchCriteria();
+        criteria.setClientId(clientId);
+        CursorPage<OrderResponse> page = assertMaxStatements(1,
+                () -> orderService.search(criteria, null, 50, OrderView.SUMMARY));
+        assertEquals(ORDERS, page.getItems().size());
+    }
+
+    @Test
+    void clientHistoryUsesOneStatement() {
+        List<OrderResponse> history = assertMaxStatements(1, () -> clientService.findOrderHistory(clientId));
+        assertEquals(ORDERS, history.size());
+        history.forEach(order -> assertEquals(LINES_PER_ORDER, order.getItems().size()));
+    }
+
+    @Test
+    void singleOrderUsesOneStatement() {
+        OrderSearchCriteria criteria = new OrderSearchCriteria();
+        criteria.setClientId(clientId);
+        Long orderId = orderService.search(criteria, null, 1, OrderView.SUMMARY).getItems().get(0).getId();
+        OrderResponse order = assertMaxStatements(1, () -> orderService.findById(orderId));
+        assertEquals(LINES_PER_ORDER, order.getItems().size());
+    }
+
+    @Test
+    void cursorPagesUseOneStatementAndCoverEveryOrderOnce() {
+        OrderSearchCriteria criteria = new OrderSearchCriteria();
+        criteria.setClientId(clientId);
+        List<Long> all = orderService.search(criteria, null, 50, OrderView.SUMMARY).getItems().stream()
+                .map(OrderResponse::getId).toList();
+
+        // Pages of 5 over runs of 3 orders with the same dateCommande
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            String after = cursor;
+            CursorPage<OrderResponse> page = assertMaxStatements(1,
+                    () -> orderService.search(criteria, after, 5, OrderView.SUMMARY));
+            page.getItems().forEach(order -> paged.add(order.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(ORDERS, all.size());
+        assertEquals(all, paged);
+    }
+
+    private <T> T assertMaxStatements(int max, Supplier<T> call) {
+        long before = statementCounter.current();
+        T result = call.get();
+        long used = statementCounter.current() - before;
+        assertTrue(used <= max, "Expected at most " + max + " SQL statements but " + used + " were executed");
+        return result;
+    }
+}
@@ -0,0 +1,164 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.PromoCode.PromoCodeRequest;
+import com.logitrack.b2b_tradehub.dto.client.ClientCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderQuoteResponse;
+import com.logitrack.b2b_tradehub.dto.order.OrderResponse;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Quotes price a cart like order creation and change nothing: stock, reservations, promo usage and the client's
+ * orders are the same before and after, whatever is done to the promo code a caller got from the cache. Both count
+ * the lines of one product together against its stock.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderQuoteServiceTest {
+
+    private static final String PRODUCT_SQL = "SELECT stock_disponible, stock_reserve, version FROM products WHERE id = ?";
+    private static final String PROMO_SQL = "SELECT is_used, version FROM promo_codes WHERE code = ?";
+
+    @Autowired
+    private OrderQuoteService orderQuoteService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PromoCodeService promoCodeService;
+
+    @Autowired
+    private PromoCodeCache promoCodeCache;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long clientId;
+    private Long productId;
+    private String code;
+
+    @BeforeEach
+    void createClientProductAndPromo() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientCreateRequest client = new ClientCreateRequest();
+        client.setNom("Quote " + suffix);
+        client.setEmail("quote-" + suffix + "@example.com");
+        client.setUsername("quote." + suffix);
+        client.setPassword("Password123");
+        clientId = clientService.createClient(client).getId();
+        productId = productRepository.save(Product.builder()
+                .nom("Quote product " + suffix)
+                .prixUnitaireHT(new BigDecimal("40.00"))
+                .stockDisponible(10)
+                .build()).getId();
+
+        code = "QUOTE" + suffix.toUpperCase();
+        PromoCodeRequest promo = new PromoCodeRequest();
+        promo.setCode(code);
+        promo.setDiscountPercentage(new BigDecimal("10.00"));
+        promo.setValidFrom(LocalDate.now().minusDays(1));
+        promo.setValidUntil(LocalDate.now().plusDays(1));
+        promo.setUsageUnique(true);
+        promoCodeService.create(promo);
+    }
+
+    @Test
+    void quotingWritesNothing() {
+        Map<String, Object> product = jdbcTemplate.queryForMap(PRODUCT_SQL, productId);
+        Map<String, Object> promo = jdbcTemplate.queryForMap(PROMO_SQL, code);
+
+        OrderQuoteResponse first = orderQuoteService.quote(request(3));
+        // A caller changing its copy of the code changes nothing for the next quote
+        promoCodeCache.get(code).orElseThrow().setIsUsed(true);
+        OrderQuoteResponse second = orderQuoteService.quote(request(3));
+
+        assertTrue(first.isPromoApplied());
+        assertTrue(second.isPromoApplied());
+        assertEquals(first.getTotalTTC(), second.getTotalTTC());
+        assertEquals(product, jdbcTemplate.queryForMap(PRODUCT_SQL, productId));
+        assertEquals(promo, jdbcTemplate.queryForMap(PROMO_SQL, code));
+        assertEquals(0, count("SELECT COUNT(*) FROM stock_reservations WHERE product_id = ?", productId));
+        assertEquals(0, count("SELECT COUNT(*) FROM orders WHERE client_id = ?", clientId));
+        assertFalse(promoCodeCache.get(code).orElseThrow().getIsUsed());
+
+        // The order then created for the same cart costs what was quoted, and does hold the stock
+        OrderResponse order = orderService.createOrderFlow(request(3));
+        assertEquals(0, first.getTotalTTC().compareTo(order.getTotalTTC()));
+        assertEquals(1, count("SELECT COUNT(*) FROM stock_reservations WHERE product_id = ?", productId));
+    }
+
+    @Test
+    void aCartBeyondTheStockIsQuotedNotOrderable() {
+        OrderQuoteResponse quote = orderQuoteService.quote(request(11));
+
+        assertFalse(quote.isOrderable());
+        assertFalse(quote.getItems().get(0).isInStock());
+        assertEquals(new BigDecimal("440.00"), quote.getSousTotalHT());
+        assertEquals(0, count("SELECT COUNT(*) FROM stock_reservations WHERE product_id = ?", productId));
+    }
+
+    @Test
+    void linesOfTheSameProductCountTogetherInQuotesAndOrders() {
+        // Each line fits the stock of 10, the two together do not
+        OrderCreateRequest tooMuch = request(6, 5);
+        assertFalse(orderQuoteService.quote(tooMuch).isOrderable());
+        BusinessValidationException rejected = assertThrows(BusinessValidationException.class,
+                () -> orderService.createOrderFlow(tooMuch));
+        assertEquals("Insufficient stock for product ID: " + productId, rejected.getMessage());
+        assertEquals(0, count("SELECT COUNT(*) FROM orders WHERE client_id = ?", clientId));
+
+        OrderCreateRequest fits = request(6, 4);
+        assertTrue(orderQuoteService.quote(fits).isOrderable());
+        OrderResponse order = orderService.createOrderFlow(fits);
+        assertEquals(2, count("SELECT COUNT(*) FROM order_items WHERE order_id = ?", order.getId()));
+        assertEquals(10, count("SELECT stock_reserve FROM products WHERE id = ?", productId));
+    }
+
+    // One line per quantity, all of the test's product
+    private OrderCreateRequest request(int... quantities) {
+        List<OrderItemRequest> items = new ArrayList<>();
+        for (int quantity : quantities) {
+            OrderItemRequest item = new OrderItemRequest();
+            item.setProductId(productId);
+            item.setQuantite(quantity);
+            items.add(item);
+        }
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setClientId(clientId);
+        request.setPromoCode(code);
+        request.setItems(items);
+        return request;
+    }
+
+    private int count(String sql, Long id) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, id);
+    }
+}
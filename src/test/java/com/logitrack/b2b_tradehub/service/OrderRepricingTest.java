@@ -0,0 +1,152 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.PromoCode.PromoCodeRequest;
+import com.logitrack.b2b_tradehub.dto.client.ClientCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderResponse;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentRequest;
+import com.logitrack.b2b_tradehub.entity.Order;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentType;
+import com.logitrack.b2b_tradehub.repository.OrderRepository;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Repricing an order (promo code applied after creation) must keep the payments already received: the new
+ * remaining amount is the new total minus what was paid, for ledger-era orders and for migrated legacy ones.
+ * The client's rollup and the sales facts follow the new price without waiting for a rebuild.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderRepricingTest {
+
+    private static final BigDecimal PAID = new BigDecimal("300.00");
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentLedgerService paymentLedgerService;
+
+    @Autowired
+    private PromoCodeService promoCodeService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private OrderResponse order;
+    private String promoCode;
+    private Long clientId;
+    private Long productId;
+
+    @BeforeEach
+    void createOrderAndPromoCode() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientCreateRequest client = new ClientCreateRequest();
+        client.setNom("Reprice " + suffix);
+        client.setEmail("reprice-" + suffix + "@example.com");
+        client.setUsername("reprice." + suffix);
+        client.setPassword("Password123");
+        clientId = clientService.createClient(client).getId();
+
+        Product product = productRepository.save(Product.builder()
+                .nom("Reprice product " + suffix)
+                .prixUnitaireHT(new BigDecimal("1000.00"))
+                .stockDisponible(10)
+                .build());
+        productId = product.getId();
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(productId);
+        item.setQuantite(1);
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setClientId(clientId);
+        request.setItems(List.of(item));
+        order = orderService.createOrderFlow(request);
+
+        promoCode = "RP" + suffix.toUpperCase();
+        PromoCodeRequest promo = new PromoCodeRequest();
+        promo.setCode(promoCode);
+        promo.setDiscountPercentage(new BigDecimal("10.00"));
+        promo.setValidFrom(LocalDate.now().minusDays(1));
+        promo.setValidUntil(LocalDate.now().plusDays(30));
+        promo.setUsageUnique(false);
+        promoCodeService.create(promo);
+    }
+
+    @Test
+    void repricingAfterAPaymentKeepsWhatWasPaid() {
+        PaymentRequest payment = new PaymentRequest();
+        payment.setOrderId(order.getId());
+        payment.setTypePaiement(PaymentType.CHEQUE);
+        payment.setMontant(PAID);
+        payment.setDatePaiement(LocalDate.now());
+        paymentService.processPayment(paymentService.create(payment).getId());
+
+        orderService.applyPromoCode(order.getId(), promoCode);
+
+        assertKeepsPaidAmount();
+        // The client's rollup follows the new total in the same transaction, as the nightly rebuild would compute it
+        Order repriced = orderRepository.findById(order.getId()).orElseThrow();
+        Map<String, Object> rollup = jdbcTemplate.queryForMap("SELECT order_count, total_ttc, total_paid, outstanding "
+                + "FROM client_order_rollups WHERE client_id = ?", clientId);
+        assertEquals(1, ((Number) rollup.get("order_count")).intValue());
+        assertEquals(0, repriced.getTotalTTC().compareTo((BigDecimal) rollup.get("total_ttc")));
+        assertEquals(0, PAID.compareTo((BigDecimal) rollup.get("total_paid")));
+        assertEquals(0, repriced.getMontantRestant().compareTo((BigDecimal) rollup.get("outstanding")));
+        // The sales facts still count the order's line once, at its HT amount
+        Map<String, Object> fact = jdbcTemplate.queryForMap("SELECT SUM(order_lines) AS order_lines, "
+                + "SUM(amount_ht) AS amount_ht FROM daily_sales_facts WHERE product_id = ? AND status = 'PENDING'", productId);
+        assertEquals(1, ((Number) fact.get("order_lines")).intValue());
+        assertEquals(0, new BigDecimal("1000.00").compareTo((BigDecimal) fact.get("amount_ht")));
+    }
+
+    @Test
+    void legacyOrderPaidBeforeTheLedgerKeepsItsPaymentsOnceBackfilled() {
+        // As written before montant_paye existed: payments only lowered montant_restant
+        jdbcTemplate.update("UPDATE orders SET montant_restant = total_ttc - ? WHERE id = ?", PAID, order.getId());
+
+        assertTrue(paymentLedgerService.backfillLegacyMontantPaye() >= 1);
+        assertEquals(0, PAID.compareTo(orderRepository.findById(order.getId()).orElseThrow().getMontantPaye()));
+        orderService.applyPromoCode(order.getId(), promoCode);
+
+        assertKeepsPaidAmount();
+        // Nothing left to migrate for this order
+        paymentLedgerService.backfillLegacyMontantPaye();
+        assertEquals(0, PAID.compareTo(orderRepository.findById(order.getId()).orElseThrow().getMontantPaye()));
+    }
+
+    private void assertKeepsPaidAmount() {
+        Order repriced = orderRepository.findById(order.getId()).orElseThrow();
+        assertTrue(repriced.getTotalTTC().compareTo(order.getTotalTTC()) < 0);
+        assertEquals(0, PAID.compareTo(repriced.getMontantPaye()));
+        assertEquals(0, repriced.getTotalTTC().subtract(PAID).compareTo(repriced.getMontantRestant()));
+    }
+}
@@ -0,0 +1,246 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.client.ClientCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentRequest;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentResponse;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentType;
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+import com.logitrack.b2b_tradehub.mapper.PaymentMapper;
+import com.logitrack.b2b_tradehub.repository.PaymentRepository;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Due-date index of the pending payments: range reads in (date, id) order, escalation guarded against rows that
+ * changed under the index, changes made during a rebuild replayed on the rebuilt index, and a reschedule clearing
+ * the overdue flag. Results are filtered to the test's own payments, the index holds those of every test.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class PaymentDueDateSchedulerTest {
+
+    @Autowired
+    private PaymentDueDateScheduler scheduler;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentMapper paymentMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final LocalDate today = LocalDate.now();
+    private Long orderId;
+
+    @BeforeEach
+    void createOrder() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientCreateRequest client = new ClientCreateRequest();
+        client.setNom("Due dates " + suffix);
+        client.setEmail("due-dates-" + suffix + "@example.com");
+        client.setUsername("due-dates." + suffix);
+        client.setPassword("Password123");
+        Long productId = productRepository.save(Product.builder()
+                .nom("Due dates product " + suffix)
+                .prixUnitaireHT(new BigDecimal("1000.00"))
+                .stockDisponible(10)
+                .build()).getId();
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(productId);
+        item.setQuantite(5);
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setClientId(clientService.createClient(client).getId());
+        request.setItems(List.of(item));
+        orderId = orderService.createOrderFlow(request).getId();
+    }
+
+    @Test
+    void dueAndOverduePaymentsComeInDateThenIdOrder() {
+        Long inFive = pay(today.plusDays(5));
+        Long tomorrow = pay(today.plusDays(1));
+        Long alsoTomorrow = pay(today.plusDays(1));
+        Long dueToday = pay(today);
+        Long tooLate = pay(today.plusDays(40));
+        Long threeDaysAgo = pay(today.minusDays(3));
+        Long tenDaysAgo = pay(today.minusDays(10));
+        Set<Long> mine = Set.of(inFive, tomorrow, alsoTomorrow, dueToday, tooLate, threeDaysAgo, tenDaysAgo);
+
+        assertEquals(List.of(dueToday, tomorrow, alsoTomorrow, inFive), ids(scheduler.dueWithin(30, 5000), mine));
+        assertEquals(List.of(dueToday), ids(scheduler.dueWithin(0, 5000), mine));
+        assertEquals(List.of(tenDaysAgo, threeDaysAgo), ids(scheduler.overdue(5000), mine));
+
+        // Once escalated they come from the other set, in the same order
+        scheduler.escalateOverdue();
+        assertTrue(overdueFlag(tenDaysAgo));
+        assertTrue(overdueFlag(threeDaysAgo));
+        assertFalse(overdueFlag(dueToday));
+        assertEquals(List.of(tenDaysAgo, threeDaysAgo), ids(scheduler.overdue(5000), mine));
+
+        // Settled payments leave the index
+        paymentService.rejectPayment(tomorrow);
+        paymentService.processPayment(tenDaysAgo);
+        assertEquals(List.of(dueToday, alsoTomorrow, inFive), ids(scheduler.dueWithin(30, 5000), mine));
+        assertEquals(List.of(threeDaysAgo), ids(scheduler.overdue(5000), mine));
+
+        assertThrows(BusinessValidationException.class, () -> scheduler.dueWithin(-1, null));
+        assertThrows(BusinessValidationException.class, () -> scheduler.dueWithin(366, null));
+    }
+
+    @Test
+    void paymentsChangedUnderTheIndexAreReloadedNotEscalated() {
+        Long escalated = pay(today.minusDays(2));
+        Long rescheduled = pay(today.minusDays(2));
+        Long rejected = pay(today.minusDays(2));
+        Set<Long> mine = Set.of(escalated, rescheduled, rejected);
+        List<Object> events = new ArrayList<>();
+        PaymentDueDateScheduler fresh = freshScheduler(jdbcTemplate, events::add);
+        fresh.rebuild();
+
+        // Written without telling the index (a lost broadcast)
+        jdbcTemplate.update("UPDATE payments SET date_echeance = ?, overdue = FALSE WHERE id = ?", today.plusDays(7), rescheduled);
+        jdbcTemplate.update("UPDATE payments SET status = 'REJETE', overdue = FALSE WHERE id = ?", rejected);
+
+        fresh.escalateOverdue();
+
+        assertTrue(overdueFlag(escalated));
+        assertFalse(overdueFlag(rescheduled));
+        assertFalse(overdueFlag(rejected));
+        assertEquals(List.of(escalated), events.stream()
+                .map(event -> ((PaymentDueDateScheduler.PaymentOverdueEvent) event).paymentId())
+                .filter(mine::contains).toList());
+        // The reloaded entries: one moved to its new date, the other gone
+        assertEquals(List.of(escalated), ids(fresh.overdue(5000), mine));
+        assertEquals(List.of(rescheduled), ids(fresh.dueWithin(30, 5000), mine));
+        assertFalse(byPayment(fresh).containsKey(rejected));
+    }
+
+    @Test
+    void changesCommittedDuringARebuildAreReplayed() {
+        Long settled = pay(today.plusDays(3));
+        Long rescheduled = pay(today.plusDays(3));
+        Long unscheduled = pay(today.plusDays(3));
+        Set<Long> mine = Set.of(settled, rescheduled, unscheduled);
+        PaymentDueDateScheduler[] fresh = new PaymentDueDateScheduler[1];
+        // The changes commit after the rebuild read the pending payments, before it swaps the index
+        JdbcTemplate racing = new JdbcTemplate(dataSource) {
+            @Override
+            public void query(String sql, RowCallbackHandler rch) {
+                super.query(sql, rch);
+                update("UPDATE payments SET status = 'ENCAISSE' WHERE id = ?", settled);
+                fresh[0].onSettled(List.of(settled));
+                update("UPDATE payments SET date_echeance = ? WHERE id = ?", today.plusDays(20), rescheduled);
+                fresh[0].onScheduled(rescheduled, today.plusDays(20));
+                update("UPDATE payments SET date_echeance = NULL WHERE id = ?", unscheduled);
+                fresh[0].onScheduled(unscheduled, null);
+            }
+        };
+        fresh[0] = freshScheduler(racing, event -> { });
+
+        fresh[0].rebuild();
+
+        Map<Long, ?> index = byPayment(fresh[0]);
+        assertFalse(index.containsKey(settled));
+        assertFalse(index.containsKey(unscheduled));
+        assertTrue(index.containsKey(rescheduled));
+        assertEquals(List.of(rescheduled), ids(fresh[0].dueWithin(30, 5000), mine));
+        assertEquals(List.of(), ids(fresh[0].dueWithin(10, 5000), mine));
+    }
+
+    @Test
+    void reschedulingAnOverduePaymentClearsItsFlag() {
+        Long late = pay(today.minusDays(4));
+        scheduler.escalateOverdue();
+        assertTrue(overdueFlag(late));
+
+        paymentService.updateEcheance(late, today.plusDays(4));
+
+        assertFalse(overdueFlag(late));
+        assertEquals(today.plusDays(4), paymentRepository.findById(late).orElseThrow().getDateEcheance());
+        assertEquals(List.of(), ids(scheduler.overdue(5000), Set.of(late)));
+        assertEquals(List.of(late), ids(scheduler.dueWithin(7, 5000), Set.of(late)));
+
+        paymentService.processPayment(late);
+        assertThrows(BusinessValidationException.class, () -> paymentService.updateEcheance(late, today.plusDays(9)));
+    }
+
+    // A scheduler of its own on the same database: no scheduled run or broadcast touches it
+    private PaymentDueDateScheduler freshScheduler(JdbcTemplate jdbc, ApplicationEventPublisher events) {
+        PaymentDueDateScheduler fresh = new PaymentDueDateScheduler(paymentRepository, paymentMapper, jdbc,
+                transactionManager, events, new CacheInvalidationBus());
+        ReflectionTestUtils.setField(fresh, "escalationBatchSize", 2);
+        ReflectionTestUtils.setField(fresh, "maxDays", 365);
+        ReflectionTestUtils.setField(fresh, "defaultLimit", 500);
+        ReflectionTestUtils.setField(fresh, "maxLimit", 5000);
+        return fresh;
+    }
+
+    private Long pay(LocalDate dateEcheance) {
+        PaymentRequest payment = new PaymentRequest();
+        payment.setOrderId(orderId);
+        payment.setTypePaiement(PaymentType.CHEQUE);
+        payment.setMontant(new BigDecimal("10.00"));
+        payment.setDatePaiement(today.minusDays(20));
+        payment.setDateEcheance(dateEcheance);
+        return paymentService.create(payment).getId();
+    }
+
+    private boolean overdueFlag(Long paymentId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT overdue FROM payments WHERE id = ?",
+                Boolean.class, paymentId));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Long, ?> byPayment(PaymentDueDateScheduler scheduler) {
+        return (Map<Long, ?>) ReflectionTestUtils.getField(scheduler, "byPayment");
+    }
+
+    private static List<Long> ids(List<PaymentResponse> payments, Set<Long> mine) {
+        return payments.stream().map(PaymentResponse::getId).filter(mine::contains).toList();
+    }
+}
@@ -0,0 +1,186 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.client.ClientCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderResponse;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentLedgerEntryResponse;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentRequest;
+import com.logitrack.b2b_tradehub.entity.Order;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentType;
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+import com.logitrack.b2b_tradehub.repository.OrderRepository;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Hundreds of payments received at the same time on one order: no posting may be lost, the ledger must be
+ * gapless and its running balance must end on the order's montantRestant.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class PaymentLedgerConcurrencyTest {
+
+    private static final int PAYMENTS = 300;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentLedgerService paymentLedgerService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private OrderResponse order;
+
+    @BeforeEach
+    void createOrder() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientCreateRequest client = new ClientCreateRequest();
+        client.setNom("Ledger " + suffix);
+        client.setEmail("ledger-" + suffix + "@example.com");
+        client.setUsername("ledger." + suffix);
+        client.setPassword("Password123");
+        Long clientId = clientService.createClient(client).getId();
+
+        Product product = productRepository.save(Product.builder()
+                .nom("Ledger product " + suffix)
+                .prixUnitaireHT(new BigDecimal("1000.00"))
+                .stockDisponible(100)
+                .build());
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(product.getId());
+        item.setQuantite(10);
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setClientId(clientId);
+        request.setItems(List.of(item));
+        order = orderService.createOrderFlow(request);
+    }
+
+    @Test
+    void concurrentPostingsOnOneOrderAreAllApplied() throws Exception {
+        BigDecimal amount = new BigDecimal("30.00");
+        List<Long> paymentIds = createChecks(PAYMENTS, amount);
+
+        runConcurrently(paymentIds.stream().<Callable<Object>>map(id -> () -> paymentService.processPayment(id)).toList());
+
+        BigDecimal paid = amount.multiply(BigDecimal.valueOf(PAYMENTS));
+        Order saved = orderRepository.findById(order.getId()).orElseThrow();
+        assertEquals(0, paid.compareTo(saved.getMontantPaye()));
+        assertEquals(0, order.getTotalTTC().subtract(paid).compareTo(saved.getMontantRestant()));
+        assertEquals(PAYMENTS, saved.getLedgerSeq());
+        assertLedgerConsistent(saved);
+    }
+
+    @Test
+    void overpaymentStopsAtZeroAndAppliesOnlyTheRemainder() throws Exception {
+        List<Long> paymentIds = createChecks(PAYMENTS, new BigDecimal("50.00"));
+
+        runConcurrently(paymentIds.stream().<Callable<Object>>map(id -> () -> paymentService.processPayment(id)).toList());
+
+        Order saved = orderRepository.findById(order.getId()).orElseThrow();
+        assertEquals(0, BigDecimal.ZERO.compareTo(saved.getMontantRestant()));
+        assertEquals(0, order.getTotalTTC().compareTo(saved.getMontantPaye()));
+        assertLedgerConsistent(saved);
+    }
+
+    @Test
+    void samePaymentProcessedConcurrentlyIsPostedOnce() throws Exception {
+        Long paymentId = createChecks(1, new BigDecimal("100.00")).get(0);
+        AtomicInteger rejected = new AtomicInteger();
+        List<Callable<Object>> calls = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            calls.add(() -> {
+                try {
+                    return paymentService.processPayment(paymentId);
+                } catch (BusinessValidationException e) {
+                    rejected.incrementAndGet();
+                    return null;
+                }
+            });
+        }
+        runConcurrently(calls);
+
+        assertEquals(7, rejected.get());
+        Order saved = orderRepository.findById(order.getId()).orElseThrow();
+        assertEquals(1L, saved.getLedgerSeq());
+        assertEquals(0, new BigDecimal("100.00").compareTo(saved.getMontantPaye()));
+    }
+
+    private List<Long> createChecks(int count, BigDecimal amount) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            PaymentRequest request = new PaymentRequest();
+            request.setOrderId(order.getId());
+            request.setTypePaiement(PaymentType.CHEQUE);
+            request.setMontant(amount);
+            request.setDatePaiement(LocalDate.now());
+            ids.add(paymentService.create(request).getId());
+        }
+        return ids;
+    }
+
+    private void runConcurrently(List<Callable<Object>> calls) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> futures = new ArrayList<>();
+        for (Callable<Object> call : calls) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return call.call();
+            }));
+        }
+        start.countDown();
+        for (Future<Object> future : futures) {
+            future.get(120, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+
+    // Sequences 1..n, each running total equal to the previous one plus the amount applied, last one on the order
+    private void assertLedgerConsistent(Order saved) {
+        List<PaymentLedgerEntryResponse> entries = paymentLedgerService.entries(saved.getId());
+        BigDecimal paid = BigDecimal.ZERO;
+        for (int i = 0; i < entries.size(); i++) {
+            PaymentLedgerEntryResponse entry = entries.get(i);
+            assertEquals(i + 1L, entry.getSequence());
+            paid = paid.add(entry.getMontantApplique());
+            assertEquals(0, paid.compareTo(entry.getMontantPaye()));
+            assertEquals(0, order.getTotalTTC().subtract(paid).compareTo(entry.getMontantRestant()));
+        }
+        PaymentLedgerEntryResponse latest = paymentLedgerService.balance(saved.getId());
+        assertEquals(saved.getLedgerSeq(), latest.getSequence());
+        assertEquals(0, saved.getMontantRestant().compareTo(latest.getMontantRestant()));
+    }
+}
@@ -0,0 +1,136 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.client.ClientCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
+import com.logitrack.b2b_tradehub.dto.payment.ReconciliationJobResponse;
+import com.logitrack.b2b_tradehub.dto.payment.ReconciliationStatus;
+import com.logitrack.b2b_tradehub.dto.payment.StatementFormat;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Reconciliation of a 500k line statement: half the lines match a pending payment (by reference, or by amount and
+ * date only), the other half match nothing. Target: under a minute, parsing and encaissement included.
+ * Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class PaymentReconciliationBenchmark {
+
+    private static final int ORDERS = 200;
+    private static final int BY_REFERENCE = 150_000;
+    private static final int BY_AMOUNT = 100_000;
+    private static final int UNMATCHED = 250_000;
+    // Above the ids the payments sequence hands out during the run
+    private static final long FIRST_PAYMENT_ID = 1_000_000_000L;
+
+    @Autowired
+    private PaymentReconciliationService reconciliationService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void reconcileStatement() throws Exception {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        List<Long> orderIds = createOrders(suffix);
+        LocalDate day = LocalDate.of(2026, 1, 15);
+
+        // Distinct amounts (10.00 + i cents) so that amount and date designate a single payment
+        int payments = BY_REFERENCE + BY_AMOUNT;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(payments);
+        for (int i = 0; i < payments; i++) {
+            rows.add(new Object[]{FIRST_PAYMENT_ID + i, "BENCH-" + suffix + "-" + i, amount(i), Date.valueOf(day), now, now,
+                    orderIds.get(i % ORDERS)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO payments (id, numero_paiement, montant, type_paiement, date_paiement, "
+                + "status, created_at, updated_at, order_id) VALUES (?, ?, ?, 'VIREMENT', ?, 'EN_ATTENTE', ?, ?, ?)", rows);
+
+        StringBuilder csv = new StringBuilder(40 * (payments + UNMATCHED)).append("date;libelle;reference;montant\n");
+        for (int i = 0; i < BY_REFERENCE; i++) {
+            csv.append("2026-01-16;VIR SEPA;BENCH-").append(suffix).append('-').append(i).append(';').append(amount(i)).append('\n');
+        }
+        for (int i = BY_REFERENCE; i < payments; i++) {
+            csv.append("2026-01-17;VIR SEPA;;").append(amount(i)).append('\n');
+        }
+        for (int i = 0; i < UNMATCHED; i++) {
+            csv.append("2026-01-17;VIR SEPA;;").append(new BigDecimal("5000.00").add(BigDecimal.valueOf(i, 2))).append('\n');
+        }
+        byte[] statement = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+        long start = System.nanoTime();
+        ReconciliationJobResponse job = reconciliationService.start(new ByteArrayInputStream(statement), StatementFormat.CSV);
+        while (job.getStatus() == ReconciliationStatus.QUEUED || job.getStatus() == ReconciliationStatus.RUNNING) {
+            Thread.sleep(100);
+            job = reconciliationService.status(job.getJobId());
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        assertEquals(ReconciliationStatus.COMPLETED, job.getStatus(), job.getFailure());
+        assertEquals(payments, job.getLinesMatched());
+        assertEquals(UNMATCHED, job.getLinesUnmatched());
+        System.out.printf("reconciliation: %d lines (%.1f MB), %d matched, %.1f s, %.0f lines/s%n",
+                job.getLinesRead(), statement.length / 1e6, job.getLinesMatched(), seconds, job.getLinesRead() / seconds);
+    }
+
+    private List<Long> createOrders(String suffix) {
+        ClientCreateRequest client = new ClientCreateRequest();
+        client.setNom("Bench " + suffix);
+        client.setEmail("bench-" + suffix + "@example.com");
+        client.setUsername("bench." + suffix);
+        client.setPassword("Password123");
+        Long clientId = clientService.createClient(client).getId();
+        Long productId = productRepository.save(Product.builder()
+                .nom("Bench product " + suffix)
+                .prixUnitaireHT(new BigDecimal("1000.00"))
+                .stockDisponible(1_000_000)
+                .build()).getId();
+
+        List<Long> ids = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            OrderItemRequest item = new OrderItemRequest();
+            item.setProductId(productId);
+            item.setQuantite(100);
+            OrderCreateRequest request = new OrderCreateRequest();
+            request.setClientId(clientId);
+            request.setItems(List.of(item));
+            ids.add(orderService.createOrderFlow(request).getId());
+        }
+        return ids;
+    }
+
+    private static BigDecimal amount(int i) {
+        return new BigDecimal("10.00").add(BigDecimal.valueOf(i, 2));
+    }
+}
@@ -0,0 +1,247 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.client.ClientCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentRequest;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentResponse;
+import com.logitrack.b2b_tradehub.dto.payment.ReconciliationJobResponse;
+import com.logitrack.b2b_tradehub.dto.payment.ReconciliationLine;
+import com.logitrack.b2b_tradehub.dto.payment.ReconciliationStatus;
+import com.logitrack.b2b_tradehub.dto.payment.StatementFormat;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentType;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bank statement reconciliation against pending cheques and transfers dated in a year of their own (so no other
+ * test's payment is a candidate): references win over amount and date, mismatches and ambiguous lines are reported
+ * and encaisse nothing, the date tolerance is inclusive, fixed-width lines are parsed, and payments the ledger
+ * refuses to post are reported unmatched.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class PaymentReconciliationServiceTest {
+
+    @Autowired
+    private PaymentReconciliationService reconciliationService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long orderId;
+    private LocalDate day;
+
+    @BeforeEach
+    void createOrder() {
+        orderId = createOrderId();
+        day = LocalDate.of(2200 + ThreadLocalRandom.current().nextInt(2000), 3, 10);
+    }
+
+    @Test
+    void aReferenceWinsOverAnAmountAndDateMatch() throws Exception {
+        PaymentResponse first = pay(PaymentType.CHEQUE, "100.00", day, null);
+        PaymentResponse second = pay(PaymentType.VIREMENT, "100.00", day, null);
+
+        // Read first, the line without reference would be ambiguous; the referenced one claims its payment beforehand
+        ReconciliationJobResponse job = run(StatementFormat.CSV, "reference;montant;date\n"
+                + ";100,00;" + day.format(DateTimeFormatter.ofPattern("dd/MM/yyyy")) + "\n"
+                + second.getNumeroPaiement() + ";100.00;" + day + "\n");
+
+        assertEquals(2, job.getLinesRead());
+        assertEquals(2, job.getLinesMatched());
+        assertEquals(0, job.getLinesAmbiguous());
+        assertEquals("ENCAISSE", status(first.getId()));
+        assertEquals("ENCAISSE", status(second.getId()));
+        assertEquals(day, jdbcTemplate.queryForObject("SELECT date_encaissement FROM payments WHERE id = ?",
+                LocalDate.class, first.getId()));
+    }
+
+    @Test
+    void aKnownReferenceWithAnotherAmountMatchesNothing() throws Exception {
+        PaymentResponse referenced = pay(PaymentType.CHEQUE, "50.00", day, null);
+        PaymentResponse sameAmount = pay(PaymentType.CHEQUE, "60.00", day, null);
+
+        ReconciliationJobResponse job = run(StatementFormat.CSV, "reference,montant,date\n"
+                + referenced.getNumeroPaiement() + ",60.00," + day + "\n"
+                + referenced.getNumeroPaiement() + ",50.00," + day + "\n"
+                + referenced.getNumeroPaiement() + ",50.00," + day + "\n");
+
+        assertEquals(1, job.getLinesMatched());
+        assertEquals(2, job.getLinesUnmatched());
+        ReconciliationLine mismatch = job.getUnmatched().get(0);
+        assertEquals(2, mismatch.getLine());
+        assertEquals(List.of(referenced.getId()), mismatch.getCandidatePaymentIds());
+        assertTrue(mismatch.getMessage().startsWith("Amount differs"), mismatch.getMessage());
+        assertTrue(job.getUnmatched().get(1).getMessage().contains("already matched by line 3"));
+        // Not taken by amount and date either: the reference is known
+        assertEquals("ENCAISSE", status(referenced.getId()));
+        assertEquals("EN_ATTENTE", status(sameAmount.getId()));
+    }
+
+    @Test
+    void ambiguousLinesAreReportedWithTheirCandidates() throws Exception {
+        PaymentResponse first = pay(PaymentType.CHEQUE, "75.00", day, null);
+        PaymentResponse second = pay(PaymentType.VIREMENT, "75.00", day.plusDays(1), null);
+
+        ReconciliationJobResponse job = run(StatementFormat.CSV, "date,montant,reference\n" + day + ",75.00,\n");
+
+        assertEquals(0, job.getLinesMatched());
+        assertEquals(1, job.getLinesAmbiguous());
+        assertEquals(List.of(first.getId(), second.getId()), job.getAmbiguous().get(0).getCandidatePaymentIds());
+        assertEquals("EN_ATTENTE", status(first.getId()));
+        assertEquals("EN_ATTENTE", status(second.getId()));
+    }
+
+    @Test
+    void theDateToleranceIncludesItsLastDay() throws Exception {
+        PaymentResponse before = pay(PaymentType.CHEQUE, "80.00", day, null);
+        PaymentResponse after = pay(PaymentType.CHEQUE, "81.00", day, null);
+        PaymentResponse tooFar = pay(PaymentType.CHEQUE, "90.00", day, null);
+        PaymentResponse dueLater = pay(PaymentType.VIREMENT, "95.00", day, day.plusDays(20));
+
+        // Default tolerance: 3 days either side of the payment date, or of the due date
+        ReconciliationJobResponse job = run(StatementFormat.CSV, "reference,montant,date\n"
+                + ",80.00," + day.minusDays(3) + "\n"
+                + ",81.00," + day.plusDays(3) + "\n"
+                + ",90.00," + day.plusDays(4) + "\n"
+                + ",95.00," + day.plusDays(23) + "\n");
+
+        assertEquals(3, job.getLinesMatched());
+        assertEquals(1, job.getLinesUnmatched());
+        assertEquals(4, job.getUnmatched().get(0).getLine());
+        assertEquals("ENCAISSE", status(before.getId()));
+        assertEquals("ENCAISSE", status(after.getId()));
+        assertEquals("EN_ATTENTE", status(tooFar.getId()));
+        assertEquals("ENCAISSE", status(dueLater.getId()));
+    }
+
+    @Test
+    void fixedWidthLinesAreParsed() throws Exception {
+        PaymentResponse referenced = pay(PaymentType.VIREMENT, "1234.56", day, null);
+        PaymentResponse unreferenced = pay(PaymentType.CHEQUE, "7.05", day, null);
+
+        ReconciliationJobResponse job = run(StatementFormat.FIXED,
+                fixed(day, "000000000123456", referenced.getNumeroPaiement()) + "VIR SEPA CLIENT\n"
+                        + fixed(day.plusDays(1), "000000000000705", "") + "\n"
+                        + fixed(day, "-00000000005000", "FRAIS") + "\n"
+                        + "\n"
+                        + day.format(DateTimeFormatter.BASIC_ISO_DATE) + "00001\n"
+                        + fixed(day, "0000000000012AB", "") + "\n"
+                        + "2200133100000000000100000\n");
+
+        assertEquals(6, job.getLinesRead());
+        assertEquals(2, job.getLinesMatched());
+        assertEquals(1, job.getLinesIgnored());
+        assertEquals(3, job.getLinesRejected());
+        assertEquals(List.of(5L, 6L, 7L), job.getRejected().stream().map(ReconciliationLine::getLine).toList());
+        assertEquals("ENCAISSE", status(referenced.getId()));
+        assertEquals("ENCAISSE", status(unreferenced.getId()));
+        assertEquals(0, new BigDecimal("1241.61").compareTo(jdbcTemplate.queryForObject(
+                "SELECT montant_paye FROM orders WHERE id = ?", BigDecimal.class, orderId)));
+    }
+
+    @Test
+    void paymentsTheLedgerCannotPostAreReportedUnmatched() throws Exception {
+        PaymentResponse posted = pay(PaymentType.CHEQUE, "40.00", day, null);
+        orderId = createOrderId();
+        PaymentResponse cancelled = pay(PaymentType.CHEQUE, "45.00", day, null);
+        jdbcTemplate.update("UPDATE orders SET status = 'CANCELLED' WHERE id = ?", orderId);
+
+        ReconciliationJobResponse job = run(StatementFormat.CSV, "reference,montant,date\n"
+                + posted.getNumeroPaiement() + ",40.00," + day + "\n"
+                + cancelled.getNumeroPaiement() + ",45.00," + day + "\n");
+
+        assertEquals(ReconciliationStatus.COMPLETED, job.getStatus());
+        assertEquals(1, job.getLinesMatched());
+        assertEquals(1, job.getLinesUnmatched());
+        ReconciliationLine skipped = job.getUnmatched().get(0);
+        assertEquals(List.of(cancelled.getId()), skipped.getCandidatePaymentIds());
+        assertEquals("Matched payment not encaissed: Order " + orderId + " is not PENDING", skipped.getMessage());
+        assertEquals("ENCAISSE", status(posted.getId()));
+        assertEquals("EN_ATTENTE", status(cancelled.getId()));
+    }
+
+    private ReconciliationJobResponse run(StatementFormat format, String statement) throws Exception {
+        ReconciliationJobResponse job = reconciliationService.start(
+                new ByteArrayInputStream(statement.getBytes(StandardCharsets.UTF_8)), format);
+        for (int i = 0; i < 300 && job.getFinishedAt() == null; i++) {
+            Thread.sleep(50);
+            job = reconciliationService.status(job.getJobId());
+        }
+        assertEquals(ReconciliationStatus.COMPLETED, job.getStatus(), job.getFailure());
+        assertNull(job.getFailure());
+        return job;
+    }
+
+    // Date (1-8), signed amount in cents (9-23), reference (24-58)
+    private static String fixed(LocalDate date, String cents, String reference) {
+        return date.format(DateTimeFormatter.BASIC_ISO_DATE) + cents + String.format("%-35s", reference);
+    }
+
+    private PaymentResponse pay(PaymentType type, String montant, LocalDate date, LocalDate echeance) {
+        PaymentRequest payment = new PaymentRequest();
+        payment.setOrderId(orderId);
+        payment.setTypePaiement(type);
+        payment.setMontant(new BigDecimal(montant));
+        payment.setDatePaiement(date);
+        payment.setDateEcheance(echeance);
+        return paymentService.create(payment);
+    }
+
+    private String status(Long paymentId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM payments WHERE id = ?", String.class, paymentId);
+    }
+
+    private Long createOrderId() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientCreateRequest client = new ClientCreateRequest();
+        client.setNom("Reconciliation " + suffix);
+        client.setEmail("reconciliation-" + suffix + "@example.com");
+        client.setUsername("reconciliation." + suffix);
+        client.setPassword("Password123");
+        Long productId = productRepository.save(Product.builder()
+                .nom("Reconciliation product " + suffix)
+                .prixUnitaireHT(new BigDecimal("1000.00"))
+                .stockDisponible(10)
+                .build()).getId();
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(productId);
+        item.setQuantite(5);
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setClientId(clientService.createClient(client).getId());
+        request.setItems(List.of(item));
+        return orderService.createOrderFlow(request).getId();
+    }
+}
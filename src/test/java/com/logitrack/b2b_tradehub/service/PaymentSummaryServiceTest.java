@@ -0,0 +1,216 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.client.ClientCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentRequest;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentSummaryBucket;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentSummaryResponse;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentSummaryRow;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentStatus;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentType;
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Treasury summary on the daily payment facts: totals and their breakdowns by type, status and day / week / month,
+ * and the facts against a recompute from the payments after a backfill, including one running alongside payment
+ * writes. Each test dates its payments in a year of its own.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class PaymentSummaryServiceTest {
+
+    private static final String FACTS_SQL = "SELECT payment_date, type_paiement, status, payment_count, montant "
+            + "FROM daily_payment_facts WHERE payment_date >= ? AND payment_date <= ? AND payment_count <> 0";
+    private static final String RECOMPUTE_SQL = "SELECT date_paiement, type_paiement, status, COUNT(*), SUM(montant) "
+            + "FROM payments WHERE date_paiement >= ? AND date_paiement <= ? GROUP BY date_paiement, type_paiement, status";
+
+    @Autowired
+    private PaymentSummaryService paymentSummaryService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long orderId;
+
+    @BeforeEach
+    void createOrder() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientCreateRequest client = new ClientCreateRequest();
+        client.setNom("Treasury " + suffix);
+        client.setEmail("treasury-" + suffix + "@example.com");
+        client.setUsername("treasury." + suffix);
+        client.setPassword("Password123");
+        Long productId = productRepository.save(Product.builder()
+                .nom("Treasury product " + suffix)
+                .prixUnitaireHT(new BigDecimal("1000.00"))
+                .stockDisponible(100)
+                .build()).getId();
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(productId);
+        item.setQuantite(50);
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setClientId(clientService.createClient(client).getId());
+        request.setItems(List.of(item));
+        orderId = orderService.createOrderFlow(request).getId();
+    }
+
+    @Test
+    void summaryBreaksTotalsDownByTypeStatusAndPeriod() {
+        // Monday of the last full week starting in January: the next week starts in February
+        LocalDate monday = LocalDate.of(2001, 1, 30).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        paymentService.processPayment(pay(PaymentType.CHEQUE, "100.00", monday));
+        pay(PaymentType.VIREMENT, "200.00", monday.plusDays(1));
+        pay(PaymentType.ESPECE, "300.00", monday.plusDays(8));
+        paymentService.rejectPayment(pay(PaymentType.CHEQUE, "50.00", monday.plusDays(9)));
+        LocalDate from = LocalDate.of(2001, 1, 1);
+        LocalDate to = LocalDate.of(2001, 2, 28);
+
+        PaymentSummaryResponse byDay = summary(from, to, EnumSet.allOf(PaymentType.class), PaymentSummaryBucket.DAY);
+        assertEquals(4, byDay.getCount());
+        assertEquals(0, new BigDecimal("650.00").compareTo(byDay.getMontant()));
+        assertEquals(List.of("ESPECE 1 300.00", "CHEQUE 2 150.00", "VIREMENT 1 200.00"), rows(byDay.getByType()));
+        assertEquals(List.of("EN_ATTENTE 1 200.00", "ENCAISSE 2 400.00", "REJETE 1 50.00"), rows(byDay.getByStatus()));
+        assertEquals(List.of(monday + " 1 100.00", monday.plusDays(1) + " 1 200.00",
+                monday.plusDays(8) + " 1 300.00", monday.plusDays(9) + " 1 50.00"), rows(byDay.getByPeriod()));
+
+        assertEquals(List.of(monday + " 2 300.00", monday.plusDays(7) + " 2 350.00"),
+                rows(summary(from, to, EnumSet.allOf(PaymentType.class), PaymentSummaryBucket.WEEK).getByPeriod()));
+        assertEquals(List.of("2001-01-01 2 300.00", "2001-02-01 2 350.00"),
+                rows(summary(from, to, EnumSet.allOf(PaymentType.class), PaymentSummaryBucket.MONTH).getByPeriod()));
+
+        PaymentSummaryResponse cheques = paymentSummaryService.summary(from, to, List.of(PaymentType.CHEQUE),
+                List.of(PaymentStatus.ENCAISSE), PaymentSummaryBucket.MONTH);
+        assertEquals(1, cheques.getCount());
+        assertEquals(List.of("2001-01-01 1 100.00"), rows(cheques.getByPeriod()));
+    }
+
+    @Test
+    void invalidPeriodsAreRejected() {
+        LocalDate day = LocalDate.of(2002, 6, 1);
+        assertThrows(BusinessValidationException.class,
+                () -> summary(day, day.minusDays(1), EnumSet.allOf(PaymentType.class), PaymentSummaryBucket.DAY));
+        assertThrows(BusinessValidationException.class,
+                () -> summary(day, day.plusYears(11), EnumSet.allOf(PaymentType.class), PaymentSummaryBucket.DAY));
+        assertThrows(BusinessValidationException.class, () -> paymentSummaryService.backfill(day, day.minusDays(1)));
+    }
+
+    @Test
+    void liveDeltasAndBackfillBothMatchARecompute() {
+        LocalDate from = LocalDate.of(2003, 3, 1);
+        LocalDate to = from.plusDays(69);
+        PaymentType[] types = PaymentType.values();
+        for (int i = 0; i < 15; i++) {
+            Long id = pay(types[i % 3], (10 + i) + ".25", from.plusDays(i * 5L));
+            if (i % 5 == 1 && types[i % 3] != PaymentType.ESPECE) {
+                paymentService.processPayment(id);
+            } else if (i % 5 == 2) {
+                paymentService.rejectPayment(id);
+            }
+        }
+        assertEquals(recompute(from, to), facts(from, to));
+
+        // Damaged facts: wrong totals, a row no payment contributes to, a missing row
+        jdbcTemplate.update("UPDATE daily_payment_facts SET montant = montant + 1000 WHERE payment_date = ?", from);
+        jdbcTemplate.update("INSERT INTO daily_payment_facts (payment_date, type_paiement, status, payment_count, montant) "
+                + "VALUES (?, 'VIREMENT', 'REJETE', 2, 20.00)", from.plusDays(1));
+        jdbcTemplate.update("DELETE FROM daily_payment_facts WHERE payment_date = ?", from.plusDays(5));
+
+        paymentSummaryService.backfill(from, to);
+
+        assertEquals(recompute(from, to), facts(from, to));
+    }
+
+    @Test
+    void backfillRunningAlongsidePaymentWritesStillMatchesARecompute() {
+        LocalDate from = LocalDate.of(2005, 5, 1);
+        LocalDate to = from.plusDays(89);
+        CompletableFuture<Void> writes = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 20; i++) {
+                Long id = pay(i % 2 == 0 ? PaymentType.CHEQUE : PaymentType.VIREMENT, "5.00", from.plusDays(i * 4L));
+                if (i % 3 == 0) {
+                    paymentService.rejectPayment(id);
+                } else if (i % 3 == 1) {
+                    paymentService.processPayment(id);
+                }
+            }
+        });
+        while (!writes.isDone()) {
+            paymentSummaryService.backfill(from, to);
+        }
+        writes.join();
+
+        assertEquals(recompute(from, to), facts(from, to));
+    }
+
+    private Long pay(PaymentType type, String montant, LocalDate day) {
+        PaymentRequest payment = new PaymentRequest();
+        payment.setOrderId(orderId);
+        payment.setTypePaiement(type);
+        payment.setMontant(new BigDecimal(montant));
+        payment.setDatePaiement(day);
+        return paymentService.create(payment).getId();
+    }
+
+    private PaymentSummaryResponse summary(LocalDate from, LocalDate to, Set<PaymentType> types, PaymentSummaryBucket bucket) {
+        return paymentSummaryService.summary(from, to, types, EnumSet.allOf(PaymentStatus.class), bucket);
+    }
+
+    private static List<String> rows(List<PaymentSummaryRow> rows) {
+        List<String> lines = new ArrayList<>();
+        rows.forEach(row -> lines.add(row.getKey() + " " + row.getCount() + " " + row.getMontant().setScale(2)));
+        return lines;
+    }
+
+    private Set<String> facts(LocalDate from, LocalDate to) {
+        return rows(FACTS_SQL, from, to);
+    }
+
+    private Set<String> recompute(LocalDate from, LocalDate to) {
+        return rows(RECOMPUTE_SQL, from, to);
+    }
+
+    private Set<String> rows(String sql, LocalDate from, LocalDate to) {
+        Set<String> rows = new HashSet<>();
+        jdbcTemplate.query(sql, rs -> {
+            rows.add(rs.getObject(1, LocalDate.class) + "|" + rs.getString(2) + "|" + rs.getString(3) + "|"
+                    + rs.getLong(4) + "|" + rs.getBigDecimal(5).setScale(2));
+        }, from, to);
+        return rows;
+    }
+}
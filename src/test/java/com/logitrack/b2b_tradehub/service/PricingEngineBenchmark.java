@@ -0,0 +1,106 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.entity.Client;
+import com.logitrack.b2b_tradehub.entity.Order;
+import com.logitrack.b2b_tradehub.entity.OrderItem;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.entity.PromoCode;
+import com.logitrack.b2b_tradehub.entity.enums.CustomerTier;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation and time per priced order (10 lines, GOLD client, 10 % promo): {@link PricingEngine#price} against
+ * the BigDecimal arithmetic it replaced. Run with {@code mvn test -Pbenchmark -Dtest=PricingEngineBenchmark};
+ * the gc.alloc.rate.norm column is the number of bytes allocated per priced order.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(0)
+public class PricingEngineBenchmark {
+
+    private static final int LINES = 10;
+
+    private PricingEngine engine;
+    private List<OrderItem> lines;
+    private Client client;
+    private PromoCode promo;
+
+    @Setup
+    public void setUp() {
+        engine = new PricingEngine();
+        lines = new ArrayList<>(LINES);
+        for (int i = 0; i < LINES; i++) {
+            Product product = Product.builder().nom("P" + i).prixUnitaireHT(new BigDecimal("129.90")).build();
+            lines.add(new OrderItem(null, product, i + 1, product.getPrixUnitaireHT()));
+        }
+        client = new Client();
+        client.setTier(CustomerTier.GOLD);
+        promo = new PromoCode("BENCH10", new BigDecimal("10.00"), LocalDate.MIN, LocalDate.MAX, false);
+    }
+
+    @Benchmark
+    public PricingEngine.Price pricingEngine() {
+        return engine.price(lines, client, promo);
+    }
+
+    @Benchmark
+    public Order pricingEngineAppliedToOrder() {
+        Order order = new Order();
+        engine.applyTo(engine.price(lines, client, promo), order);
+        return order;
+    }
+
+    // Previous implementation: per-call BigDecimal constants and unscaled division
+    @Benchmark
+    public Order legacyBigDecimal() {
+        Order order = new Order();
+        BigDecimal sousTotal = BigDecimal.ZERO;
+        for (OrderItem line : lines) {
+            sousTotal = sousTotal.add(line.getTotalLigne());
+        }
+        order.setSousTotalHT(sousTotal);
+        BigDecimal loyalty = sousTotal.compareTo(new BigDecimal("800")) >= 0
+                ? sousTotal.multiply(new BigDecimal("0.10")) : BigDecimal.ZERO;
+        BigDecimal promoDiscount = sousTotal.multiply(promo.getDiscountPercentage()).divide(new BigDecimal("100"));
+        order.setMontantRemiseTotale(loyalty.add(promoDiscount));
+        order.setTauxTVA(new BigDecimal("20.0"));
+        BigDecimal net = sousTotal.subtract(order.getMontantRemiseTotale());
+        BigDecimal vat = net.multiply(order.getTauxTVA()).divide(BigDecimal.valueOf(100));
+        order.setMontantHTApresRemise(net);
+        order.setMontantTVA(vat);
+        order.setTotalTTC(net.add(vat));
+        return order;
+    }
+
+    @Test
+    void run() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PricingEngineBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
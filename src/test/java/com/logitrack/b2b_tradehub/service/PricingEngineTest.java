@@ -0,0 +1,219 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.entity.Client;
+import com.logitrack.b2b_tradehub.entity.Order;
+import com.logitrack.b2b_tradehub.entity.OrderItem;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.entity.PromoCode;
+import com.logitrack.b2b_tradehub.entity.enums.CustomerTier;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cent arithmetic against the BigDecimal pricing it replaced (tier thresholds and rates, promo percentage, 20 % VAT,
+ * amounts stored at scale 2): identical whenever no step falls between two cents, and otherwise each discount and
+ * the VAT are rounded HALF_UP on their own, so that the parts shown on an order always add up to its total.
+ */
+class PricingEngineTest {
+
+    private static final String[] PRICES = {"0.01", "0.10", "7.10", "12.50", "33.33", "129.90", "499.99", "1000.00"};
+    private static final String[] PROMOS = {null, "5.00", "10.00", "12.50", "33.33"};
+
+    private final PricingEngine engine = new PricingEngine();
+
+    @Test
+    void matchesTheLegacyBigDecimalPricing() {
+        for (CustomerTier tier : CustomerTier.values()) {
+            for (String promo : PROMOS) {
+                for (String price : PRICES) {
+                    for (int quantity : new int[]{1, 3, 7, 40}) {
+                        List<OrderItem> lines = List.of(line(price, quantity), line("19.99", 2));
+                        Order order = price(lines, tier, promo);
+                        Order legacy = legacy(lines, tier, promo);
+                        String label = tier + " " + promo + " " + quantity + " x " + price;
+
+                        // Rounded step by step, the legacy formulas give exactly the engine's amounts
+                        assertEquals(roundedStepByStep(lines, tier, promo), amounts(order), label);
+                        // Identical to the amounts the legacy pricing stored whenever it had nothing to round
+                        if (inCents(legacy)) {
+                            assertEquals(amounts(legacy), amounts(order), label);
+                        }
+                        // Otherwise within a cent of them
+                        assertTrue(stored(legacy.getTotalTTC()).subtract(order.getTotalTTC()).abs()
+                                .compareTo(new BigDecimal("0.01")) <= 0, label);
+                        assertEquals(order.getSousTotalHT(), order.getMontantRemiseTotale().add(order.getMontantHTApresRemise()), label);
+                        assertEquals(order.getTotalTTC(), order.getMontantHTApresRemise().add(order.getMontantTVA()), label);
+                    }
+                }
+            }
+        }
+
+        // GOLD client, 10 % promo: 1000.00 - 100.00 - 100.00 = 800.00, VAT 160.00
+        List<OrderItem> lines = List.of(line("100.00", 10));
+        assertEquals(List.of(new BigDecimal("1000.00"), new BigDecimal("200.00"), new BigDecimal("800.00"),
+                new BigDecimal("160.00"), new BigDecimal("960.00")), amounts(price(lines, CustomerTier.GOLD, "10.00")));
+        assertEquals(amounts(legacy(lines, CustomerTier.GOLD, "10.00")), amounts(price(lines, CustomerTier.GOLD, "10.00")));
+    }
+
+    @Test
+    void tierDiscountsStartExactlyAtTheirThreshold() {
+        assertEquals("0.00", discount("499.99", CustomerTier.SILVER));
+        assertEquals("25.00", discount("500.00", CustomerTier.SILVER));
+        assertEquals("0.00", discount("799.99", CustomerTier.GOLD));
+        assertEquals("80.00", discount("800.00", CustomerTier.GOLD));
+        assertEquals("0.00", discount("1199.99", CustomerTier.PLATINUM));
+        assertEquals("180.00", discount("1200.00", CustomerTier.PLATINUM));
+        assertEquals("0.00", discount("100000.00", CustomerTier.BASIC));
+        assertEquals("0.00", discount("100000.00", null));
+    }
+
+    @Test
+    void halfCentsRoundUpOnEachDiscountAndOnTheVat() {
+        // 5 % of 500.10 = 25.005, for the loyalty and the promo discount alike
+        Order order = price(List.of(line("500.10", 1)), CustomerTier.SILVER, "5.00");
+        assertEquals(new BigDecimal("50.02"), order.getMontantRemiseTotale());
+        assertEquals(new BigDecimal("450.08"), order.getMontantHTApresRemise());
+        assertEquals(new BigDecimal("90.02"), order.getMontantTVA());
+        assertEquals(new BigDecimal("540.10"), order.getTotalTTC());
+        // The legacy pricing summed the exact discounts first: 50.01
+        assertEquals(new BigDecimal("50.01"), stored(legacy(List.of(line("500.10", 1)), CustomerTier.SILVER, "5.00").getMontantRemiseTotale()));
+
+        // VAT on 0.03 is 0.006, on 0.02 it is 0.004
+        assertEquals(new BigDecimal("0.01"), price(List.of(line("0.03", 1)), CustomerTier.BASIC, null).getMontantTVA());
+        assertEquals(new BigDecimal("0.00"), price(List.of(line("0.02", 1)), CustomerTier.BASIC, null).getMontantTVA());
+    }
+
+    @Test
+    void pricesAndRatesOffTheCentAreRoundedHalfUpFirst() {
+        // 10.005 -> 10.01, 7.1 -> 7.10
+        Order order = price(List.of(line("10.005", 1), line("7.1", 2)), CustomerTier.BASIC, null);
+        assertEquals(new BigDecimal("24.21"), order.getSousTotalHT());
+        // 12.345 % -> 12.35 %
+        assertEquals(new BigDecimal("12.35"), price(List.of(line("100.00", 1)), CustomerTier.BASIC, "12.345").getMontantRemiseTotale());
+    }
+
+    @Test
+    void discountsApplyToTheSubtotalAndNeverMakeItNegative() {
+        // 15 % loyalty and 10 % promo, both on 2000.00
+        Order order = price(List.of(line("1000.00", 2)), CustomerTier.PLATINUM, "10.00");
+        assertEquals(new BigDecimal("500.00"), order.getMontantRemiseTotale());
+        assertEquals(new BigDecimal("1800.00"), order.getTotalTTC());
+
+        Order free = price(List.of(line("1000.00", 2)), CustomerTier.PLATINUM, "100.00");
+        assertEquals(new BigDecimal("0.00"), free.getMontantHTApresRemise());
+        assertEquals(new BigDecimal("0.00"), free.getTotalTTC());
+        assertEquals(new BigDecimal("0.00"), free.getMontantRestant());
+    }
+
+    @Test
+    void applyToKeepsWhatWasAlreadyPaid() {
+        Order order = new Order();
+        order.setMontantPaye(new BigDecimal("100.00"));
+        engine.applyTo(engine.price(List.of(line("250.00", 1)), null, null), order);
+        assertEquals(new BigDecimal("300.00"), order.getTotalTTC());
+        assertEquals(new BigDecimal("200.00"), order.getMontantRestant());
+        assertEquals(new BigDecimal("20.00"), order.getTauxTVA());
+    }
+
+    private Order price(List<OrderItem> lines, CustomerTier tier, String promo) {
+        Order order = new Order();
+        engine.applyTo(engine.price(lines, client(tier), promo(promo)), order);
+        return order;
+    }
+
+    private String discount(String subtotal, CustomerTier tier) {
+        return price(List.of(line(subtotal, 1)), tier, null).getMontantRemiseTotale().toPlainString();
+    }
+
+    // As priced before the engine: exact arithmetic, each amount rounded only once stored at scale 2
+    private static Order legacy(List<OrderItem> lines, CustomerTier tier, String promo) {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (OrderItem line : lines) {
+            subtotal = subtotal.add(line.getPrixUnitaireHT().multiply(BigDecimal.valueOf(line.getQuantite())));
+        }
+        BigDecimal discount = loyalty(subtotal, tier).add(promo == null ? BigDecimal.ZERO
+                : subtotal.multiply(new BigDecimal(promo)).divide(new BigDecimal("100")));
+        BigDecimal net = subtotal.subtract(discount);
+        BigDecimal vat = net.multiply(new BigDecimal("20.0")).divide(BigDecimal.valueOf(100));
+        Order order = new Order();
+        order.setSousTotalHT(subtotal);
+        order.setMontantRemiseTotale(discount);
+        order.setMontantHTApresRemise(net);
+        order.setMontantTVA(vat);
+        order.setTotalTTC(net.add(vat));
+        return order;
+    }
+
+    private static boolean inCents(Order order) {
+        for (BigDecimal amount : new BigDecimal[]{order.getMontantRemiseTotale(), order.getMontantTVA(), order.getTotalTTC()}) {
+            if (amount.stripTrailingZeros().scale() > 2) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The legacy formulas with HALF_UP to the cent after each discount and after the VAT
+    private static List<BigDecimal> roundedStepByStep(List<OrderItem> lines, CustomerTier tier, String promo) {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (OrderItem line : lines) {
+            subtotal = subtotal.add(stored(line.getPrixUnitaireHT()).multiply(BigDecimal.valueOf(line.getQuantite())));
+        }
+        BigDecimal discount = stored(loyalty(subtotal, tier)).add(promo == null ? BigDecimal.ZERO.setScale(2)
+                : stored(subtotal.multiply(new BigDecimal(promo)).divide(new BigDecimal("100"))));
+        BigDecimal net = subtotal.subtract(discount).max(BigDecimal.ZERO);
+        BigDecimal vat = stored(net.multiply(new BigDecimal("0.20")));
+        return List.of(subtotal, discount, net, vat, net.add(vat));
+    }
+
+    private static BigDecimal loyalty(BigDecimal amount, CustomerTier tier) {
+        if (tier == null) {
+            return BigDecimal.ZERO;
+        }
+        return switch (tier) {
+            case SILVER -> amount.compareTo(new BigDecimal("500")) >= 0 ? amount.multiply(new BigDecimal("0.05")) : BigDecimal.ZERO;
+            case GOLD -> amount.compareTo(new BigDecimal("800")) >= 0 ? amount.multiply(new BigDecimal("0.10")) : BigDecimal.ZERO;
+            case PLATINUM -> amount.compareTo(new BigDecimal("1200")) >= 0 ? amount.multiply(new BigDecimal("0.15")) : BigDecimal.ZERO;
+            default -> BigDecimal.ZERO;
+        };
+    }
+
+    private static List<BigDecimal> amounts(Order order) {
+        List<BigDecimal> amounts = new ArrayList<>();
+        for (BigDecimal amount : new BigDecimal[]{order.getSousTotalHT(), order.getMontantRemiseTotale(),
+                order.getMontantHTApresRemise(), order.getMontantTVA(), order.getTotalTTC()}) {
+            amounts.add(stored(amount));
+        }
+        return amounts;
+    }
+
+    private static BigDecimal stored(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static OrderItem line(String price, int quantity) {
+        return new OrderItem(null, Product.builder().prixUnitaireHT(new BigDecimal(price)).build(), quantity, new BigDecimal(price));
+    }
+
+    private static Client client(CustomerTier tier) {
+        if (tier == null) {
+            return null;
+        }
+        Client client = new Client();
+        client.setTier(tier);
+        return client;
+    }
+
+    private static PromoCode promo(String percentage) {
+        return percentage == null ? null
+                : new PromoCode("TEST", new BigDecimal(percentage), LocalDate.MIN, LocalDate.MAX, false);
+    }
+}
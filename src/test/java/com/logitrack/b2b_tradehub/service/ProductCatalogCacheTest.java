@@ -0,0 +1,156 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Product cache on a fresh instance with its own (unstarted) invalidation bus: evictions wait for the commit and
+ * are dropped on rollback, messages from other nodes evict, and a load racing an eviction never stays cached.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductCatalogCacheTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CacheInvalidationBus bus;
+    private ProductCatalogCache cache;
+    private Long id;
+    private String nom;
+
+    @BeforeEach
+    void createCacheAndProduct() {
+        bus = new CacheInvalidationBus();
+        cache = new ProductCatalogCache(productRepository, bus, new SimpleMeterRegistry(), transactionManager);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(cache, "stockTtl", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(cache, "maxSize", 1_000L);
+        cache.init();
+
+        nom = "Cached " + UUID.randomUUID().toString().substring(0, 8);
+        id = productRepository.save(Product.builder()
+                .nom(nom)
+                .prixUnitaireHT(new BigDecimal("10.00"))
+                .stockDisponible(5)
+                .build()).getId();
+    }
+
+    @Test
+    void evictionWaitsForTheCommit() {
+        assertEquals(nom, cache.get(id).orElseThrow().getNom());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            rename(nom + " v2");
+            cache.invalidate(id);
+            // Still the committed row until the commit: nothing reloads the uncommitted one
+            assertEquals(nom, cache.get(id).orElseThrow().getNom());
+        });
+
+        assertEquals(nom + " v2", cache.get(id).orElseThrow().getNom());
+    }
+
+    @Test
+    void rollbackLeavesTheEntryCached() {
+        cache.get(id);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            rename(nom + " v2");
+            cache.invalidate(id);
+            cache.invalidateStock(List.of(id));
+            status.setRollbackOnly();
+        });
+
+        assertNotNull(catalog().getIfPresent(id));
+        assertNotNull(stock().getIfPresent(id));
+        assertEquals(nom, cache.get(id).orElseThrow().getNom());
+    }
+
+    @Test
+    void messagesFromOtherNodesEvictAndOwnMessagesAreIgnored() {
+        String ownNode = (String) ReflectionTestUtils.getField(bus, "nodeId");
+        cache.get(id);
+
+        bus.dispatch(ownNode + " product " + id);
+        assertNotNull(catalog().getIfPresent(id));
+        bus.dispatch("othernode unknown-cache " + id);
+        bus.dispatch("malformed");
+        assertNotNull(catalog().getIfPresent(id));
+
+        // A bad key is skipped, the others still apply
+        bus.dispatch("othernode product-stock notanumber," + id);
+        assertNull(stock().getIfPresent(id));
+        assertNotNull(catalog().getIfPresent(id));
+
+        bus.dispatch("othernode product " + id);
+        assertNull(catalog().getIfPresent(id));
+    }
+
+    @Test
+    void loadRacingAnEvictionIsNotLeftCached() {
+        // The product is renamed and evicted right before the load's put, after its generation check
+        Cache<Object, Object> real = catalog();
+        AtomicBoolean raced = new AtomicBoolean();
+        Object racing = Proxy.newProxyInstance(Cache.class.getClassLoader(), new Class<?>[]{Cache.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("put") && raced.compareAndSet(false, true)) {
+                        rename(nom + " v2");
+                        cache.invalidate(id);
+                    }
+                    try {
+                        return method.invoke(real, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        ReflectionTestUtils.setField(cache, "catalog", racing);
+
+        // Read before the rename: returned as loaded, but not kept
+        assertEquals(nom, cache.get(id).orElseThrow().getNom());
+        assertNull(real.getIfPresent(id));
+        assertEquals(nom + " v2", cache.get(id).orElseThrow().getNom());
+    }
+
+    private void rename(String newNom) {
+        jdbcTemplate.update("UPDATE products SET nom = ? WHERE id = ?", newNom, id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<Object, Object> catalog() {
+        return (Cache<Object, Object>) ReflectionTestUtils.getField(cache, "catalog");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<Object, Object> stock() {
+        return (Cache<Object, Object>) ReflectionTestUtils.getField(cache, "stock");
+    }
+}
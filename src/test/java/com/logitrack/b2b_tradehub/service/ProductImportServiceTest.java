@@ -0,0 +1,185 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.product.ProductImportJobResponse;
+import com.logitrack.b2b_tradehub.dto.product.ProductImportRowError;
+import com.logitrack.b2b_tradehub.dto.product.ProductImportStatus;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CSV import end to end on a small pipeline (batches of 2 rows, 2 validators, 2 writer lanes), so that every file
+ * spans several batches and both lanes.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductImportServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductRankingService productRankingService;
+
+    private ProductImportService importService;
+    private String prefix;
+
+    @BeforeEach
+    void createService() {
+        importService = new ProductImportService(jdbcTemplate, transactionManager, productRepository,
+                productCatalogCache, productSearchIndex, productRankingService);
+        ReflectionTestUtils.setField(importService, "batchSize", 2);
+        ReflectionTestUtils.setField(importService, "parallelism", 2);
+        ReflectionTestUtils.setField(importService, "maxConcurrentJobs", 1);
+        ReflectionTestUtils.setField(importService, "maxReportedErrors", 100);
+        ReflectionTestUtils.setField(importService, "jobRetention", Duration.ofHours(1));
+        importService.init();
+        prefix = "IMP-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+    }
+
+    @AfterEach
+    void stopService() {
+        importService.stop();
+    }
+
+    @Test
+    void validRowsAreImportedAndInvalidOnesReportedWithTheirLine() throws Exception {
+        // BOM, ';' separator, columns in another order, decimal comma, quoted separator, blank line
+        ProductImportJobResponse job = runImport("\uFEFFnom;SKU;Stock_Disponible;prix_unitaire_ht\n"
+                + "Vis inox;" + prefix + "1;100;12,50\n"
+                + "\"Boulon; M8\";" + prefix + "2;5;3.20\n"
+                + "\n"
+                + "Prix faux;" + prefix + "3;1;abc\n"
+                + "Trois decimales;" + prefix + "4;1;1.234\n"
+                + "Stock negatif;" + prefix + "5;-1;1.00\n"
+                + ";" + prefix + "6;1;1.00\n"
+                + "Colonnes;" + prefix + "7;1\n"
+                + "\"Guillemet;" + prefix + "8;1;1.00\n");
+
+        assertEquals(ProductImportStatus.COMPLETED, job.getStatus());
+        assertEquals(8, job.getRowsRead());
+        assertEquals(2, job.getRowsImported());
+        assertEquals(6, job.getRowsRejected());
+        Map<Long, String> errors = new HashMap<>();
+        for (ProductImportRowError error : job.getErrors()) {
+            errors.put(error.getLine(), error.getMessage());
+        }
+        assertTrue(errors.get(5L).startsWith("Invalid price"));
+        assertTrue(errors.get(6L).startsWith("Price must be between"));
+        assertEquals("Stock cannot be negative", errors.get(7L));
+        assertTrue(errors.get(8L).startsWith("Product name is required"));
+        assertEquals("Expected 4 columns, found 3", errors.get(9L));
+        assertEquals("Unterminated quoted field", errors.get(10L));
+
+        Product vis = product(prefix + "1");
+        assertEquals(0, new BigDecimal("12.50").compareTo(vis.getPrixUnitaireHT()));
+        assertEquals(100, vis.getStockDisponible());
+        assertEquals("Boulon; M8", product(prefix + "2").getNom());
+    }
+
+    @Test
+    void lastOccurrenceOfASkuWinsAcrossBatchesAndLanes() throws Exception {
+        StringBuilder csv = new StringBuilder("sku,nom,prix_unitaire_ht,stock_disponible\n");
+        Map<String, Integer> lastStock = new HashMap<>();
+        for (int i = 0; i < 60; i++) {
+            String sku = prefix + (i * 7 % 5);
+            csv.append(sku).append(",Produit ").append(i).append(",1.00,").append(i).append('\n');
+            lastStock.put(sku, i);
+        }
+
+        ProductImportJobResponse job = runImport(csv.toString());
+
+        assertEquals(ProductImportStatus.COMPLETED, job.getStatus());
+        assertEquals(60, job.getRowsImported());
+        lastStock.forEach((sku, stock) -> {
+            Product product = product(sku);
+            assertEquals(stock, product.getStockDisponible());
+            assertEquals("Produit " + stock, product.getNom());
+        });
+    }
+
+    @Test
+    void existingProductKeepsItsIdAndReservationsAndCannotDropBelowThem() throws Exception {
+        Product existing = productRepository.save(Product.builder()
+                .sku(prefix + "R")
+                .nom("Reserve")
+                .prixUnitaireHT(new BigDecimal("10.00"))
+                .stockDisponible(10)
+                .build());
+        jdbcTemplate.update("UPDATE products SET stock_reserve = 6 WHERE id = ?", existing.getId());
+
+        ProductImportJobResponse below = runImport("sku,nom,prix_unitaire_ht,stock_disponible\n"
+                + prefix + "R,Reserve renomme,11.00,5\n");
+        assertEquals(ProductImportStatus.COMPLETED, below.getStatus());
+        assertEquals(0, below.getRowsImported());
+        assertEquals(1, below.getRowsRejected());
+        assertEquals(2L, below.getErrors().get(0).getLine());
+        assertEquals(10, product(prefix + "R").getStockDisponible());
+        assertEquals("Reserve", product(prefix + "R").getNom());
+
+        ProductImportJobResponse atReserve = runImport("sku,nom,prix_unitaire_ht,stock_disponible\n"
+                + prefix + "R,Reserve renomme,11.00,6\n");
+        assertEquals(1, atReserve.getRowsImported());
+        Product updated = product(prefix + "R");
+        assertEquals(existing.getId(), updated.getId());
+        assertEquals(6, updated.getStockDisponible());
+        assertEquals(6, updated.getStockReserve());
+        assertEquals("Reserve renomme", updated.getNom());
+    }
+
+    @Test
+    void missingColumnsFailTheJob() throws Exception {
+        ProductImportJobResponse job = runImport("sku,nom\n" + prefix + "1,Vis\n");
+
+        assertEquals(ProductImportStatus.FAILED, job.getStatus());
+        assertTrue(job.getFailure().startsWith("Missing CSV columns [prixunitaireht, stockdisponible]"));
+        assertEquals(0, job.getRowsImported());
+    }
+
+    private ProductImportJobResponse runImport(String csv) throws Exception {
+        String jobId = importService.start(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))).getJobId();
+        long deadline = System.currentTimeMillis() + 30_000;
+        ProductImportJobResponse job = importService.status(jobId);
+        while (job.getStatus() != ProductImportStatus.COMPLETED && job.getStatus() != ProductImportStatus.FAILED) {
+            assertTrue(System.currentTimeMillis() < deadline, "Import did not finish");
+            Thread.sleep(20);
+            job = importService.status(jobId);
+        }
+        return job;
+    }
+
+    private Product product(String sku) {
+        return productRepository.findAll().stream().filter(p -> sku.equals(p.getSku())).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,199 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.client.ClientCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderResponse;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentRequest;
+import com.logitrack.b2b_tradehub.dto.product.ProductRankEntry;
+import com.logitrack.b2b_tradehub.dto.product.ProductRankingMetric;
+import com.logitrack.b2b_tradehub.dto.product.ProductRankingResponse;
+import com.logitrack.b2b_tradehub.entity.Order;
+import com.logitrack.b2b_tradehub.entity.OrderItem;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentType;
+import com.logitrack.b2b_tradehub.repository.DailySalesFactRepository;
+import com.logitrack.b2b_tradehub.repository.OrderItemRepository;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Rankings of one node, on a fresh instance (no startup rebuild) driven by a fixed clock: window sliding,
+ * bounded heaps with their tie-breaks, and confirmations broadcast by another node.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductRankingServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 1, 31);
+    private static final long P1 = 9_100_001L;
+    private static final long P2 = 9_100_002L;
+    private static final long P3 = 9_100_003L;
+    private static final long P4 = 9_100_004L;
+    private static final long P5 = 9_100_005L;
+    private static final long P6 = 9_100_006L;
+
+    @Autowired
+    private DailySalesFactRepository factRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private CacheInvalidationBus invalidationBus;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ClientService clientService;
+
+    private ProductRankingService rankings;
+
+    @BeforeEach
+    void createService() {
+        rankings = new ProductRankingService(factRepository, productRepository, productCatalogCache,
+                orderItemRepository, invalidationBus);
+        ReflectionTestUtils.setField(rankings, "maxK", 100);
+        at(TODAY);
+    }
+
+    @Test
+    void daysLeaveEachWindowAsTheClockMoves() {
+        confirm(TODAY, P1, 10, "1.00");
+        confirm(TODAY.minusDays(6), P2, 5, "1.00");
+        confirm(TODAY.minusDays(21), P3, 7, "1.00");
+        // Older than the widest window: ignored
+        confirm(TODAY.minusDays(90), P4, 50, "1.00");
+
+        assertEquals(List.of(P1, P2), topIds(7, 10));
+        assertEquals(List.of(P1, P3, P2), topIds(30, 10));
+
+        at(TODAY.plusDays(1));
+        assertEquals(List.of(P1), topIds(7, 10));
+        assertEquals(List.of(P1, P3, P2), topIds(30, 10));
+
+        at(TODAY.plusDays(9));
+        assertEquals(List.of(P1, P2), topIds(30, 10));
+        assertEquals(List.of(P1, P3, P2), topIds(90, 10));
+
+        at(TODAY.plusDays(90));
+        assertEquals(List.of(), topIds(90, 10));
+    }
+
+    @Test
+    void heapsKeepTheKBestAndBreakTiesOnTheLowestId() {
+        confirm(TODAY, P1, 5, "1.00");
+        confirm(TODAY, P2, 3, "1.00");
+        confirm(TODAY, P3, 5, "1.00");
+        confirm(TODAY, P4, 1, "100.00");
+        confirm(TODAY.minusDays(1), P4, 1, "100.00");
+        for (long id : List.of(P1, P2, P3, P4, P5, P6)) {
+            rankings.onProductActivated(id);
+        }
+
+        ProductRankingResponse byQuantity = rankings.rank(7, ProductRankingMetric.QUANTITY, 3);
+        assertEquals(List.of(P1, P3, P2), ids(byQuantity.getTop()));
+        // Unsold active products are the slowest movers
+        assertEquals(List.of(P5, P6, P4), ids(byQuantity.getBottom()));
+        assertEquals(2L, byQuantity.getBottom().get(2).getQuantity());
+
+        ProductRankingResponse byRevenue = rankings.rank(7, ProductRankingMetric.REVENUE, 2);
+        assertEquals(List.of(P4, P1), ids(byRevenue.getTop()));
+        assertEquals(0, new BigDecimal("200.00").compareTo(byRevenue.getTop().get(0).getRevenueHT()));
+        assertEquals(List.of(P5, P6), ids(byRevenue.getBottom()));
+    }
+
+    @Test
+    void confirmationBroadcastByAnotherNodeIsLoadedFromTheDatabase() {
+        at(LocalDate.now());
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientCreateRequest client = new ClientCreateRequest();
+        client.setNom("Ranking " + suffix);
+        client.setEmail("ranking-" + suffix + "@example.com");
+        client.setUsername("ranking." + suffix);
+        client.setPassword("Password123");
+        Long clientId = clientService.createClient(client).getId();
+        Long productId = productRepository.save(Product.builder()
+                .nom("Ranking product " + suffix)
+                .prixUnitaireHT(new BigDecimal("10.00"))
+                .stockDisponible(100)
+                .build()).getId();
+
+        OrderResponse confirmed = createOrder(clientId, productId, 4);
+        PaymentRequest payment = new PaymentRequest();
+        payment.setOrderId(confirmed.getId());
+        payment.setTypePaiement(PaymentType.CHEQUE);
+        payment.setMontant(confirmed.getTotalTTC());
+        payment.setDatePaiement(LocalDate.now());
+        paymentService.processPayment(paymentService.create(payment).getId());
+        orderService.confirmOrder(confirmed.getId());
+        OrderResponse pending = createOrder(clientId, productId, 3);
+
+        rankings.onConfirmedElsewhere(List.of(confirmed.getId(), pending.getId()));
+
+        List<ProductRankEntry> top = rankings.rank(7, ProductRankingMetric.QUANTITY, 100).getTop();
+        assertEquals(List.of(productId), ids(top));
+        assertEquals(4L, top.get(0).getQuantity());
+        assertEquals(0, new BigDecimal("40.00").compareTo(top.get(0).getRevenueHT()));
+        assertEquals("Ranking product " + suffix, top.get(0).getNom());
+    }
+
+    private void at(LocalDate day) {
+        rankings.setClock(Clock.fixed(day.atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault()));
+    }
+
+    // Outside a transaction the confirmation applies at once
+    private void confirm(LocalDate day, long productId, int quantity, String price) {
+        Order order = new Order();
+        order.setId(productId * 1000 + day.getDayOfYear());
+        order.setDateCommande(day.atTime(10, 0));
+        Product product = Product.builder().id(productId).build();
+        order.setOrderItems(List.of(new OrderItem(order, product, quantity, new BigDecimal(price))));
+        rankings.onOrderConfirmed(order);
+    }
+
+    private List<Long> topIds(int windowDays, int k) {
+        return ids(rankings.rank(windowDays, ProductRankingMetric.QUANTITY, k).getTop());
+    }
+
+    private static List<Long> ids(List<ProductRankEntry> entries) {
+        List<Long> ids = new ArrayList<>();
+        entries.forEach(entry -> ids.add(entry.getProductId()));
+        return ids;
+    }
+
+    private OrderResponse createOrder(Long clientId, Long productId, int quantity) {
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(productId);
+        item.setQuantite(quantity);
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setClientId(clientId);
+        request.setItems(List.of(item));
+        return orderService.createOrderFlow(request);
+    }
+}
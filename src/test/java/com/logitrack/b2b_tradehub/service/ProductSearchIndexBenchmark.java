@@ -0,0 +1,83 @@
+package com.logitrack.b2b_tradehub.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Autocomplete latency on a 400k product catalog with accented French names: prefixes of 1 to 3 words, a tenth
+ * of them with a typo, typed without accents. Run with {@code mvn test -Pbenchmark -Dtest=ProductSearchIndexBenchmark}.
+ */
+@Tag("benchmark")
+class ProductSearchIndexBenchmark {
+
+    private static final int PRODUCTS = 400_000;
+    private static final int QUERIES = 50_000;
+
+    private static final String[] NOUNS = {"Chaussures", "Gants", "Casque", "Lunettes", "Veste", "Pantalon", "Bottes",
+            "Écran", "Clé", "Tournevis", "Perceuse", "Scie", "Marteau", "Échelle", "Câble", "Prise", "Ampoule",
+            "Détecteur", "Extincteur", "Trousse", "Bâche", "Étagère", "Chariot", "Palette", "Carton", "Rouleau",
+            "Ruban", "Cœur", "Œillet", "Crochet", "Charnière", "Serrure", "Poignée", "Vérin", "Pompe", "Régulateur"};
+    private static final String[] ADJECTIVES = {"de sécurité", "légère", "renforcé", "étanche", "isolé", "anti-chute",
+            "haute visibilité", "ergonomique", "électrique", "pneumatique", "réglable", "pliante", "inoxydable",
+            "galvanisé", "thermique", "ignifugé", "antidérapant", "professionnel", "compact", "modulaire"};
+    private static final String[] BRANDS = {"Facom", "Stanley", "Bosch", "Makita", "Hilti", "Würth", "Legrand",
+            "Schneider", "Delta Plus", "Mâcon Outillage", "Hérault Pro", "Sécuritest"};
+
+    @Test
+    void autocompleteLatency() {
+        Random random = new Random(42);
+        Map<Long, String> names = new HashMap<>(PRODUCTS * 2);
+        String[] byId = new String[PRODUCTS + 1];
+        for (long id = 1; id <= PRODUCTS; id++) {
+            String name = NOUNS[random.nextInt(NOUNS.length)] + " " + ADJECTIVES[random.nextInt(ADJECTIVES.length)]
+                    + " " + BRANDS[random.nextInt(BRANDS.length)] + " réf. " + Long.toString(id * 7919, 36).toUpperCase();
+            names.put(id, name);
+            byId[(int) id] = name;
+        }
+
+        ProductSearchIndex index = new ProductSearchIndex(null, null);
+        long start = System.nanoTime();
+        index.load(names);
+        System.out.printf("index build: %d products in %d ms%n", PRODUCTS, (System.nanoTime() - start) / 1_000_000);
+
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String[] words = ProductSearchIndex.fold(byId[1 + random.nextInt(PRODUCTS)]).trim().split(" +");
+            int wordCount = 1 + random.nextInt(Math.min(3, words.length));
+            StringBuilder query = new StringBuilder();
+            for (int w = 0; w < wordCount; w++) {
+                String word = words[w];
+                if (w == wordCount - 1) {
+                    word = word.substring(0, 1 + random.nextInt(word.length()));
+                }
+                if (word.length() >= 5 && random.nextInt(10) == 0) {
+                    int at = 1 + random.nextInt(word.length() - 2);
+                    word = word.substring(0, at) + word.charAt(at + 1) + word.charAt(at) + word.substring(at + 2);
+                }
+                query.append(w == 0 ? "" : " ").append(word);
+            }
+            queries[i] = query.toString();
+        }
+
+        for (int i = 0; i < 5_000; i++) {
+            index.search(queries[i], 10);
+        }
+        long[] nanos = new long[QUERIES];
+        long found = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            long t = System.nanoTime();
+            List<Long> hits = index.search(queries[i], 10);
+            nanos[i] = System.nanoTime() - t;
+            found += hits.isEmpty() ? 0 : 1;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("search: %d queries, p50 %.3f ms, p99 %.3f ms, max %.3f ms, %d with results%n", QUERIES,
+                nanos[QUERIES / 2] / 1e6, nanos[QUERIES * 99 / 100] / 1e6, nanos[QUERIES - 1] / 1e6, found);
+    }
+}
@@ -0,0 +1,155 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Folding, edit distance and ranking of the name index, on a fresh instance loaded with a known catalog;
+ * writes applied locally, re-read on behalf of another node, and compaction.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductSearchIndexTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CacheInvalidationBus invalidationBus;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void loadCatalog() {
+        index = new ProductSearchIndex(productRepository, invalidationBus);
+        index.load(Map.of(
+                1L, "Perceuse sans fil Bosch",
+                2L, "Perceuse à percussion",
+                3L, "Scie circulaire",
+                4L, "Tournevis perceur",
+                5L, "Marteau perforateur",
+                6L, "Crème nettoyante"));
+    }
+
+    @Test
+    void foldStripsAccentsExpandsLigaturesAndSplitsOnPunctuation() {
+        assertEquals("creme brulee", ProductSearchIndex.fold("Crème Brûlée"));
+        assertEquals("oeuvre", ProductSearchIndex.fold("Œuvre"));
+        assertEquals("strasse", ProductSearchIndex.fold("Straße"));
+        assertEquals("vis m8 inox", ProductSearchIndex.fold("Vis-M8/inox"));
+        assertArrayEquals(new String[]{"vis", "m8", "inox"}, ProductSearchIndex.words("  Vis--M8 / inox "));
+        assertArrayEquals(new String[0], ProductSearchIndex.words(" - "));
+    }
+
+    @Test
+    void distanceCountsSubstitutionsInsertionsDeletionsAndAdjacentSwaps() {
+        assertEquals(0, ProductSearchIndex.distance("vis", "vis", false, 2));
+        assertEquals(1, ProductSearchIndex.distance("table", "tabla", false, 2));
+        assertEquals(1, ProductSearchIndex.distance("table", "tables", false, 2));
+        assertEquals(1, ProductSearchIndex.distance("tables", "table", false, 2));
+        // Adjacent swaps count as one edit
+        assertEquals(1, ProductSearchIndex.distance("ab", "ba", false, 2));
+        assertEquals(1, ProductSearchIndex.distance("marteua", "marteau", false, 2));
+        assertEquals(2, ProductSearchIndex.distance("amrteua", "marteau", false, 2));
+        // Gives up past max
+        assertEquals(2, ProductSearchIndex.distance("abcdef", "uvwxyz", false, 1));
+        // Against the closest prefix
+        assertEquals(0, ProductSearchIndex.distance("perc", "perceuse", true, 1));
+        assertEquals(1, ProductSearchIndex.distance("prec", "perceuse", true, 1));
+        assertEquals(1, ProductSearchIndex.distance("perf", "perceuse", true, 1));
+    }
+
+    @Test
+    void prefixMatchesRankFirstWordThenShorterNamesThenTypos() {
+        // perceuse x2 (first word, shorter name first), perceur, then perforateur one edit away
+        assertEquals(List.of(2L, 1L, 4L, 5L), index.search("perc", 10));
+        assertEquals(List.of(2L, 1L), index.search("perc", 2));
+        // Exact word beats a prefix of a longer one, even without the first-word bonus
+        assertEquals(List.of(4L, 2L, 1L), index.search("perceur", 10));
+    }
+
+    @Test
+    void everyQueryWordMustMatchAndAccentsOrTyposAreTolerated() {
+        assertEquals(List.of(1L), index.search("perceuse bosch", 10));
+        assertEquals(List.of(3L), index.search("scie circ", 10));
+        assertEquals(List.of(2L), index.search("PERCEUSE A", 10));
+        assertEquals(List.of(6L), index.search("creme", 10));
+        assertEquals(List.of(6L), index.search("crème", 10));
+        // One typo in a 7-letter word, two in an 11-letter one
+        assertEquals(List.of(5L), index.search("martaeu", 10));
+        assertEquals(List.of(5L), index.search("marteau perfaroteur", 10));
+        assertEquals(List.of(), index.search("scie bosch", 10));
+        // Short words must match exactly
+        assertEquals(List.of(), index.search("vus", 10));
+    }
+
+    @Test
+    void savedRenamedAndDeletedProductsAreIndexedAfterCommit() {
+        index.onProductSaved(7L, "Scie sauteuse", false);
+        assertEquals(List.of(7L), index.search("sauteuse", 10));
+        // Same score, shorter name first
+        assertEquals(List.of(7L, 3L), index.search("scie", 10));
+
+        index.onProductSaved(7L, "Meuleuse angulaire", false);
+        assertEquals(List.of(), index.search("sauteuse", 10));
+        assertEquals(List.of(7L), index.search("meuleuse", 10));
+
+        index.onProductSaved(7L, "Meuleuse angulaire", true);
+        assertEquals(List.of(), index.search("meuleuse", 10));
+    }
+
+    @Test
+    void productWrittenOnAnotherNodeIsReReadFromTheDatabase() {
+        String word = "zq" + UUID.randomUUID().toString().replace("-", "").replaceAll("[0-9]", "").substring(0, 6);
+        Long id = productRepository.save(Product.builder()
+                .nom("Produit " + word)
+                .prixUnitaireHT(new BigDecimal("1.00"))
+                .stockDisponible(1)
+                .build()).getId();
+
+        index.refresh(List.of(id));
+        assertEquals(List.of(id), index.search(word, 10));
+
+        jdbcTemplate.update("UPDATE products SET deleted = true WHERE id = ?", id);
+        index.refresh(List.of(id));
+        assertEquals(List.of(), index.search(word, 10));
+
+        // Unknown id: dropped, nothing else touched
+        index.refresh(List.of(-1L));
+        assertEquals(List.of(3L), index.search("circulaire", 10));
+    }
+
+    @Test
+    void deadDocumentsAreCompactedAway() {
+        for (int i = 0; i < 12_000; i++) {
+            index.onProductSaved(1L, i % 2 == 0 ? "Perceuse visseuse" : "Perceuse sans fil Bosch", false);
+        }
+
+        Object current = ReflectionTestUtils.getField(index, "index");
+        int docCount = (Integer) ReflectionTestUtils.getField(current, "docCount");
+        assertTrue(docCount < 10_000, "index not compacted: " + docCount + " documents");
+        assertEquals(6, ((Map<?, ?>) ReflectionTestUtils.getField(current, "docOf")).size());
+        assertEquals(List.of(1L), index.search("bosch", 10));
+        assertEquals(List.of(), index.search("visseuse", 10));
+        assertEquals(List.of(2L, 1L, 4L, 5L), index.search("perc", 10));
+    }
+}
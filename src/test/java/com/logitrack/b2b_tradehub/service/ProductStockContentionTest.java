@@ -0,0 +1,104 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.entity.Order;
+import com.logitrack.b2b_tradehub.entity.OrderItem;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+import com.logitrack.b2b_tradehub.repository.OrderItemRepository;
+import com.logitrack.b2b_tradehub.repository.OrderRepository;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductStockContentionTest {
+
+    private static final int THREADS = 64;
+    private static final int INITIAL_STOCK = 40;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Test
+    void concurrentDecrementsOnHotProductNeverOversell() throws Exception {
+        Product product = productRepository.save(Product.builder()
+                .nom("Hot SKU")
+                .prixUnitaireHT(new BigDecimal("10.00"))
+                .stockDisponible(INITIAL_STOCK)
+                .build());
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    productService.updateStock(product.getId(), 1);
+                    succeeded.incrementAndGet();
+                } catch (BusinessValidationException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(INITIAL_STOCK, succeeded.get());
+        assertEquals(THREADS - INITIAL_STOCK, rejected.get());
+        assertEquals(0, productRepository.findById(product.getId()).orElseThrow().getStockDisponible());
+    }
+
+    @Test
+    void bulkDecrementForOrderIsAllOrNothing() {
+        Product first = productRepository.save(Product.builder()
+                .nom("Bulk A").prixUnitaireHT(new BigDecimal("5.00")).stockDisponible(10).build());
+        Product second = productRepository.save(Product.builder()
+                .nom("Bulk B").prixUnitaireHT(new BigDecimal("7.00")).stockDisponible(3).build());
+
+        Order order = orderRepository.save(new Order());
+        orderItemRepository.saveAll(List.of(
+                new OrderItem(order, first, 4, first.getPrixUnitaireHT()),
+                new OrderItem(order, first, 2, first.getPrixUnitaireHT()),
+                new OrderItem(order, second, 3, second.getPrixUnitaireHT())));
+
+        assertEquals(2, productService.decrementStockForOrder(order.getId()));
+        assertEquals(4, productRepository.findById(first.getId()).orElseThrow().getStockDisponible());
+        assertEquals(0, productRepository.findById(second.getId()).orElseThrow().getStockDisponible());
+
+        // Second product is now empty: nothing may be decremented
+        assertThrows(BusinessValidationException.class, () -> productService.decrementStockForOrder(order.getId()));
+        assertEquals(4, productRepository.findById(first.getId()).orElseThrow().getStockDisponible());
+    }
+}
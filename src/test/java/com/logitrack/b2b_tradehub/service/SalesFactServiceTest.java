@@ -0,0 +1,176 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.client.ClientCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderResponse;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentRequest;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentType;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Daily sales facts against a recompute from the orders, on a date range of their own: as kept by the order flows,
+ * after a backfill over damaged facts, and with orders created and cancelled while the backfill runs.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SalesFactServiceTest {
+
+    private static final String FACTS_SQL = "SELECT sale_date, product_id, client_tier, status, order_lines, quantity, "
+            + "amount_ht FROM daily_sales_facts WHERE sale_date >= ? AND sale_date <= ? AND order_lines <> 0";
+    private static final String RECOMPUTE_SQL = "SELECT CAST(o.date_commande AS DATE), oi.product_id, "
+            + "COALESCE(o.client_tier_at_order, c.tier, 'BASIC'), o.status, COUNT(DISTINCT o.id), SUM(oi.quantite), "
+            + "SUM(oi.total_ligne) FROM orders o JOIN order_items oi ON oi.order_id = o.id JOIN clients c ON c.id = o.client_id "
+            + "WHERE CAST(o.date_commande AS DATE) >= ? AND CAST(o.date_commande AS DATE) <= ? "
+            + "GROUP BY CAST(o.date_commande AS DATE), oi.product_id, COALESCE(o.client_tier_at_order, c.tier, 'BASIC'), o.status";
+
+    @Autowired
+    private SalesFactService salesFactService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private LocalDate from;
+    private LocalDate to;
+    private Long clientId;
+    private List<Long> productIds;
+
+    @BeforeEach
+    void createClientAndProducts() {
+        // Three weeks somewhere in the past that no other test writes to
+        from = LocalDate.of(2010, 1, 4).plusWeeks(ThreadLocalRandom.current().nextInt(400));
+        to = from.plusDays(20);
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientCreateRequest client = new ClientCreateRequest();
+        client.setNom("Facts " + suffix);
+        client.setEmail("facts-" + suffix + "@example.com");
+        client.setUsername("facts." + suffix);
+        client.setPassword("Password123");
+        clientId = clientService.createClient(client).getId();
+        productIds = List.of(product(suffix + " A", "12.50"), product(suffix + " B", "7.10"), product(suffix + " C", "99.99"));
+    }
+
+    @Test
+    void liveDeltasAndBackfillBothMatchARecompute() {
+        for (int i = 0; i < 12; i++) {
+            OrderResponse order = createOrder(from.plusDays(i * 2L), i);
+            if (i % 4 == 1) {
+                confirm(order);
+            } else if (i % 4 == 2) {
+                orderService.cancelOrder(order.getId());
+            }
+        }
+        assertFalse(recompute().isEmpty());
+        assertEquals(recompute(), facts());
+
+        // Damaged facts: wrong totals, a row no order contributes to, a missing row
+        jdbcTemplate.update("UPDATE daily_sales_facts SET quantity = quantity + 100 WHERE sale_date = ?", from);
+        jdbcTemplate.update("INSERT INTO daily_sales_facts (sale_date, product_id, client_tier, status, order_lines, "
+                + "quantity, amount_ht) VALUES (?, ?, 'BASIC', 'REJECTED', 3, 3, 30.00)", from.plusDays(1), productIds.get(0));
+        jdbcTemplate.update("DELETE FROM daily_sales_facts WHERE sale_date = ?", from.plusDays(2));
+
+        salesFactService.backfill(from, to);
+
+        assertEquals(recompute(), facts());
+    }
+
+    @Test
+    void backfillRunningAlongsideOrderWritesStillMatchesARecompute() {
+        CompletableFuture<Void> writes = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 20; i++) {
+                OrderResponse order = createOrder(from.plusDays(i % 21), i);
+                if (i % 3 == 0) {
+                    orderService.cancelOrder(order.getId());
+                }
+            }
+        });
+        while (!writes.isDone()) {
+            salesFactService.backfill(from, to);
+        }
+        writes.join();
+
+        assertEquals(recompute(), facts());
+    }
+
+    private OrderResponse createOrder(LocalDate day, int i) {
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setClientId(clientId);
+        request.setOrderDate(day.atTime(9 + i % 8, 30));
+        request.setItems(List.of(item(productIds.get(i % 3), 1 + i % 4), item(productIds.get((i + 1) % 3), 2)));
+        return orderService.createOrderFlow(request);
+    }
+
+    private void confirm(OrderResponse order) {
+        PaymentRequest payment = new PaymentRequest();
+        payment.setOrderId(order.getId());
+        payment.setTypePaiement(PaymentType.CHEQUE);
+        payment.setMontant(order.getTotalTTC());
+        payment.setDatePaiement(LocalDate.now());
+        paymentService.processPayment(paymentService.create(payment).getId());
+        orderService.confirmOrder(order.getId());
+    }
+
+    private Set<String> facts() {
+        return rows(FACTS_SQL);
+    }
+
+    private Set<String> recompute() {
+        return rows(RECOMPUTE_SQL);
+    }
+
+    private Set<String> rows(String sql) {
+        Set<String> rows = new HashSet<>();
+        jdbcTemplate.query(sql, rs -> {
+            rows.add(rs.getObject(1, LocalDate.class) + "|" + rs.getLong(2) + "|" + rs.getString(3) + "|"
+                    + rs.getString(4) + "|" + rs.getLong(5) + "|" + rs.getLong(6) + "|"
+                    + rs.getBigDecimal(7).setScale(2));
+        }, from, to);
+        return rows;
+    }
+
+    private Long product(String nom, String price) {
+        return productRepository.save(Product.builder()
+                .nom("Facts product " + nom)
+                .prixUnitaireHT(new BigDecimal(price))
+                .stockDisponible(10_000)
+                .build()).getId();
+    }
+
+    private static OrderItemRequest item(Long productId, int quantity) {
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(productId);
+        item.setQuantite(quantity);
+        return item;
+    }
+}
@@ -0,0 +1,140 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.service.DocumentNumberGenerator.DocumentType;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ids must never repeat, across threads of a node and across nodes, and must increase on a node whatever the
+ * clock does (frozen, going backwards, more than 4096 ids in a millisecond).
+ */
+class SnowflakeDocumentNumberGeneratorTest {
+
+    private static final long NOW = SnowflakeDocumentNumberGenerator.EPOCH_MILLIS + 1_000_000_000L;
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 200_000;
+
+    @Test
+    void concurrentIdsAreUniqueAndIncreasingPerThread() throws Exception {
+        SnowflakeDocumentNumberGenerator generator = new SnowflakeDocumentNumberGenerator(7, System::currentTimeMillis);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                long[] ids = new long[IDS_PER_THREAD];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = generator.nextId();
+                }
+                return ids;
+            }));
+        }
+        start.countDown();
+        Set<Long> all = new HashSet<>(THREADS * IDS_PER_THREAD * 2);
+        for (Future<long[]> future : futures) {
+            long[] ids = future.get(60, TimeUnit.SECONDS);
+            for (int i = 0; i < ids.length; i++) {
+                assertTrue(i == 0 || ids[i] > ids[i - 1]);
+                assertTrue(all.add(ids[i]), "duplicate id " + ids[i]);
+            }
+        }
+        pool.shutdown();
+        assertEquals(THREADS * IDS_PER_THREAD, all.size());
+    }
+
+    @Test
+    void frozenOrBackwardClockStillIncreases() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeDocumentNumberGenerator generator = new SnowflakeDocumentNumberGenerator(1, clock::get);
+        long previous = generator.nextId();
+        // Three milliseconds worth of sequence on a frozen clock, then the clock jumps back a minute
+        for (int i = 0; i < 3 * 4096; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        clock.addAndGet(-60_000);
+        for (int i = 0; i < 1000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void nodesWithTheSameClockNeverCollide() {
+        SnowflakeDocumentNumberGenerator a = new SnowflakeDocumentNumberGenerator(0, () -> NOW);
+        SnowflakeDocumentNumberGenerator b = new SnowflakeDocumentNumberGenerator(1023, () -> NOW);
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(ids.add(a.nextId()));
+            assertTrue(ids.add(b.nextId()));
+        }
+    }
+
+    @Test
+    void numbersArePrefixedFixedWidthAndSortLikeTheirIds() {
+        SnowflakeDocumentNumberGenerator generator = new SnowflakeDocumentNumberGenerator(3, System::currentTimeMillis);
+        String previous = generator.next(DocumentType.PAYMENT);
+        for (int i = 0; i < 10_000; i++) {
+            String number = generator.next(DocumentType.PAYMENT);
+            assertTrue(number.matches("PAY-[0-9A-HJKMNP-TV-Z]{13}"), number);
+            assertTrue(number.compareTo(previous) > 0);
+            previous = number;
+        }
+        assertTrue(generator.next(DocumentType.ORDER).startsWith("ORD-"));
+        assertTrue(generator.next(DocumentType.INVOICE).startsWith("INV-"));
+        assertEquals("PAY-0000000000000", SnowflakeDocumentNumberGenerator.format(DocumentType.PAYMENT, 0));
+        assertEquals("PAY-7ZZZZZZZZZZZZ", SnowflakeDocumentNumberGenerator.format(DocumentType.PAYMENT, Long.MAX_VALUE));
+        assertNotEquals(generator.next(DocumentType.ORDER), generator.next(DocumentType.ORDER));
+    }
+
+    @Test
+    void nodeIdOutOfRangeIsRejected() {
+        assertThrows(IllegalStateException.class, () -> new SnowflakeDocumentNumberGenerator(1024, System::currentTimeMillis));
+        assertThrows(IllegalStateException.class, () -> new SnowflakeDocumentNumberGenerator(-1, System::currentTimeMillis));
+    }
+
+    @Test
+    void unsetNodeIdFallsBackToTheHostOutsideDevAndTest() {
+        long hostNode = SnowflakeDocumentNumberGenerator.nodeIdForHost(SnowflakeDocumentNumberGenerator.localHostName());
+        assertEquals(hostNode, configured(null).nextId() >>> 12 & 1023);
+        assertEquals(hostNode, configured("", "prod").nextId() >>> 12 & 1023);
+        // In range whatever the sign of the host name's hash ("polygenelubricants" hashes to Integer.MIN_VALUE)
+        for (String host : new String[] {"app-1", "app-2", "polygenelubricants"}) {
+            int node = SnowflakeDocumentNumberGenerator.nodeIdForHost(host);
+            assertTrue(node >= 0 && node <= 1023, host + ": " + node);
+        }
+        assertThrows(IllegalStateException.class, () -> configured("abc", "dev"));
+        assertEquals(0L, configured("", "dev").nextId() >>> 12 & 1023);
+        assertEquals(0L, configured(null, "test").nextId() >>> 12 & 1023);
+        assertEquals(42L, configured("42", "prod").nextId() >>> 12 & 1023);
+    }
+
+    private static SnowflakeDocumentNumberGenerator configured(String nodeId, String... profiles) {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setActiveProfiles(profiles);
+        SnowflakeDocumentNumberGenerator generator = new SnowflakeDocumentNumberGenerator(environment);
+        ReflectionTestUtils.setField(generator, "configuredNodeId", nodeId);
+        generator.checkNodeId();
+        return generator;
+    }
+}
@@ -0,0 +1,218 @@
+package com.logitrack.b2b_tradehub.service;
+
+import com.logitrack.b2b_tradehub.dto.client.ClientCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderCreateRequest;
+import com.logitrack.b2b_tradehub.dto.order.OrderResponse;
+import com.logitrack.b2b_tradehub.dto.orderItem.OrderItemRequest;
+import com.logitrack.b2b_tradehub.dto.payment.PaymentRequest;
+import com.logitrack.b2b_tradehub.entity.Product;
+import com.logitrack.b2b_tradehub.entity.enums.PaymentType;
+import com.logitrack.b2b_tradehub.exception.BusinessValidationException;
+import com.logitrack.b2b_tradehub.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Stock held by PENDING orders: taken at creation, turned into a real decrement on confirmation, given back on
+ * cancellation or expiry, and never beyond the unreserved stock. The scheduled sweeper may run during a test;
+ * the assertions hold whichever of the two releases the expired holds.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class StockReservationServiceTest {
+
+    private static final String PRODUCT_SQL = "SELECT stock_disponible, stock_reserve, version FROM products WHERE id = ?";
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long clientId;
+
+    @BeforeEach
+    void createClient() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientCreateRequest client = new ClientCreateRequest();
+        client.setNom("Reservations " + suffix);
+        client.setEmail("reservations-" + suffix + "@example.com");
+        client.setUsername("reservations." + suffix);
+        client.setPassword("Password123");
+        clientId = clientService.createClient(client).getId();
+    }
+
+    @Test
+    void aConfirmedOrderTurnsItsHoldIntoADecrement() {
+        Long productId = product(10);
+        OrderResponse order = order(productId, 4);
+
+        assertEquals(6, available(productId));
+        assertEquals(4, reserved(productId));
+        assertEquals(List.of(4), holds(order.getId()));
+
+        pay(order);
+        orderService.confirmOrder(order.getId());
+
+        assertEquals(6, stock(productId));
+        assertEquals(0, reserved(productId));
+        assertEquals(List.of(), holds(order.getId()));
+    }
+
+    @Test
+    void aCancelledOrderGivesItsHoldBack() {
+        Long productId = product(10);
+        Long other = product(10);
+        OrderResponse order = order(productId, 3, other, 2);
+        assertEquals(3, reserved(productId));
+        assertEquals(2, reserved(other));
+
+        orderService.cancelOrder(order.getId());
+
+        assertEquals(10, stock(productId));
+        assertEquals(0, reserved(productId));
+        assertEquals(0, reserved(other));
+        assertEquals(List.of(), holds(order.getId()));
+        // Nothing left to give back
+        assertEquals(0, stockReservationService.releaseForOrder(order.getId()));
+        assertEquals(0, reserved(productId));
+    }
+
+    @Test
+    void expiredHoldsAreReleasedInBatchesAndASecondSweepDoesNothing() {
+        Long productId = product(20);
+        List<Long> orders = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            orders.add(order(productId, 2).getId());
+        }
+        Long kept = order(productId, 1).getId();
+        assertEquals(11, reserved(productId));
+        for (Long orderId : orders) {
+            jdbcTemplate.update("UPDATE stock_reservations SET expires_at = ? WHERE order_id = ?",
+                    LocalDateTime.now().minusMinutes(1), orderId);
+        }
+
+        // Batches of 2: the five expired holds take three of them
+        StockReservationService target = AopTestUtils.getTargetObject(stockReservationService);
+        ReflectionTestUtils.setField(target, "sweepBatchSize", 2);
+        try {
+            stockReservationService.releaseExpired();
+        } finally {
+            ReflectionTestUtils.setField(target, "sweepBatchSize", 1000);
+        }
+
+        assertEquals(1, reserved(productId));
+        assertEquals(20, stock(productId));
+        for (Long orderId : orders) {
+            assertEquals(List.of(), holds(orderId));
+        }
+        assertEquals(List.of(1), holds(kept));
+
+        Map<String, Object> afterFirstSweep = jdbcTemplate.queryForMap(PRODUCT_SQL, productId);
+        stockReservationService.releaseExpired();
+        assertEquals(afterFirstSweep, jdbcTemplate.queryForMap(PRODUCT_SQL, productId));
+        assertEquals(List.of(1), holds(kept));
+
+        // The order whose hold expired can still be cancelled: there is just nothing to give back
+        orderService.cancelOrder(orders.get(0));
+        assertEquals(1, reserved(productId));
+    }
+
+    @Test
+    void aHoldBeyondTheUnreservedStockIsRejected() {
+        Long productId = product(10);
+        Long other = product(10);
+        order(productId, 7);
+
+        // Checked at creation against the stock other orders hold
+        assertThrows(BusinessValidationException.class, () -> order(productId, 4));
+
+        // And by the guarded UPDATE itself, all lines or none: the first product could be held, the second not
+        OrderResponse order = order(other, 2, productId, 3);
+        jdbcTemplate.update("UPDATE products SET stock_reserve = stock_reserve + 1 WHERE id = ?", productId);
+        Map<String, Object> otherBefore = jdbcTemplate.queryForMap(PRODUCT_SQL, other);
+        assertThrows(BusinessValidationException.class, () -> stockReservationService.reserveForOrder(order.getId()));
+
+        assertEquals(otherBefore, jdbcTemplate.queryForMap(PRODUCT_SQL, other));
+        assertEquals(11, reserved(productId));
+        assertEquals(2, holds(order.getId()).size());
+    }
+
+    private Long product(int stock) {
+        return productRepository.save(Product.builder()
+                .nom("Reserved product " + UUID.randomUUID().toString().substring(0, 8))
+                .prixUnitaireHT(new BigDecimal("25.00"))
+                .stockDisponible(stock)
+                .build()).getId();
+    }
+
+    // Pairs of product id and quantity
+    private OrderResponse order(Object... lines) {
+        List<OrderItemRequest> items = new ArrayList<>();
+        for (int i = 0; i < lines.length; i += 2) {
+            OrderItemRequest item = new OrderItemRequest();
+            item.setProductId((Long) lines[i]);
+            item.setQuantite((Integer) lines[i + 1]);
+            items.add(item);
+        }
+        OrderCreateRequest request = new OrderCreateRequest();
+        request.setClientId(clientId);
+        request.setItems(items);
+        return orderService.createOrderFlow(request);
+    }
+
+    private void pay(OrderResponse order) {
+        PaymentRequest payment = new PaymentRequest();
+        payment.setOrderId(order.getId());
+        payment.setTypePaiement(PaymentType.CHEQUE);
+        payment.setMontant(order.getTotalTTC());
+        payment.setDatePaiement(LocalDate.now());
+        paymentService.processPayment(paymentService.create(payment).getId());
+    }
+
+    private List<Integer> holds(Long orderId) {
+        return jdbcTemplate.queryForList("SELECT quantite FROM stock_reservations WHERE order_id = ? ORDER BY id",
+                Integer.class, orderId);
+    }
+
+    private int stock(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_disponible FROM products WHERE id = ?", Integer.class, productId);
+    }
+
+    private int reserved(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_reserve FROM products WHERE id = ?", Integer.class, productId);
+    }
+
+    private int available(Long productId) {
+        return stock(productId) - reserved(productId);
+    }
+}